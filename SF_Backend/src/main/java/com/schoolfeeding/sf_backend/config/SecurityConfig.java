@@ -17,16 +17,20 @@ public class SecurityConfig {
             .logout(logout -> logout.disable())
             .httpBasic(httpBasic -> httpBasic.disable())
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/error").permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/users/**").permitAll()
                 .requestMatchers("/api/districts/**").permitAll()
                 .requestMatchers("/api/schools/**").permitAll()
                 .requestMatchers("/api/budgets/**").permitAll()
                 .requestMatchers("/api/admin/dashboard").permitAll()
-                .requestMatchers("/api/gov/dashboard").permitAll()
+                .requestMatchers("/api/gov/dashboard/**").permitAll()
                 .requestMatchers("/api/v1/items/**").permitAll()
                 .requestMatchers("/api/v1/request-items/**").permitAll()
                 .requestMatchers("/api/v1/suppliers/**").permitAll()
+                .requestMatchers("/api/v1/requirements/**").permitAll()
+                .requestMatchers("/api/v1/supplier-matching/**").permitAll()
+                .requestMatchers("/api/v1/outbox/**").permitAll()
                 .anyRequest().authenticated()
             );
 
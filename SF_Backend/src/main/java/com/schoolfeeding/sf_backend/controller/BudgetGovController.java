@@ -1,6 +1,10 @@
 package com.schoolfeeding.sf_backend.controller;
 
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetShareDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Budget_Gov;
+import com.schoolfeeding.sf_backend.domain.service.BudgetAllocationService;
 import com.schoolfeeding.sf_backend.domain.service.BudgetGovService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +19,7 @@ import java.util.UUID;
 public class BudgetGovController {
 
     private final BudgetGovService budgetGovService;
+    private final BudgetAllocationService budgetAllocationService;
 
     
     @PostMapping
@@ -46,5 +51,23 @@ public class BudgetGovController {
         budgetGovService.deleteBudget(id);
         return ResponseEntity.ok("Budget deleted (soft delete)");
     }
-}
 
+    // ✅ Split the budget across districts and schools; optional weights override the defaults
+    @PostMapping("/{id}/allocation")
+    public ResponseEntity<BudgetAllocationResultDTO> allocateBudget(@PathVariable UUID id,
+                                                                    @RequestBody(required = false) BudgetAllocationRequestDTO request) {
+        return ResponseEntity.ok(budgetAllocationService.allocate(id, request));
+    }
+
+    // ✅ Districts' shares of the budget
+    @GetMapping("/{id}/districts")
+    public ResponseEntity<List<BudgetShareDTO>> getDistrictShares(@PathVariable UUID id) {
+        return ResponseEntity.ok(budgetAllocationService.getDistrictShares(id));
+    }
+
+    // ✅ Schools' shares of a district's part of the budget
+    @GetMapping("/{id}/districts/{districtId}/schools")
+    public ResponseEntity<List<BudgetShareDTO>> getSchoolShares(@PathVariable UUID id, @PathVariable UUID districtId) {
+        return ResponseEntity.ok(budgetAllocationService.getSchoolShares(id, districtId));
+    }
+}
@@ -0,0 +1,55 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.DeliveryManifestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DeliveryPlanDTO;
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import com.schoolfeeding.sf_backend.domain.service.DeliveryPlanningService;
+import com.schoolfeeding.sf_backend.util.order.EDeliveryBatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/deliveries")
+@RequiredArgsConstructor
+public class DeliveryPlanningController {
+
+    private final DeliveryPlanningService deliveryPlanningService;
+
+    // ✅ Re-plan undispatched batches; supplierId limits the run to one supplier
+    @PostMapping("/plan")
+    public ResponseEntity<DeliveryPlanDTO> plan(
+            @RequestParam(required = false) UUID supplierId,
+            @RequestParam(defaultValue = "" + DeliveryPlanningService.DEFAULT_WINDOW_DAYS) int windowDays) {
+        return ResponseEntity.ok(deliveryPlanningService.plan(supplierId, windowDays));
+    }
+
+    // ✅ List batches
+    @GetMapping("/batches")
+    public ResponseEntity<List<DeliveryBatch>> getBatches(
+            @RequestParam(required = false) UUID supplierId,
+            @RequestParam(required = false) EDeliveryBatch state) {
+        return ResponseEntity.ok(deliveryPlanningService.getBatches(supplierId, state));
+    }
+
+    // ✅ Get by ID
+    @GetMapping("/batches/{id}")
+    public ResponseEntity<DeliveryBatch> getBatch(@PathVariable UUID id) {
+        return ResponseEntity.ok(deliveryPlanningService.getBatch(id));
+    }
+
+    // ✅ Manifest: stops per school with their orders and items
+    @GetMapping("/batches/{id}/manifest")
+    public ResponseEntity<DeliveryManifestDTO> getManifest(@PathVariable UUID id) {
+        return ResponseEntity.ok(deliveryPlanningService.getManifest(id));
+    }
+
+    // ✅ Dispatch a planned batch
+    @PostMapping("/batches/{id}/dispatch")
+    public ResponseEntity<DeliveryBatch> dispatch(@PathVariable UUID id) {
+        return ResponseEntity.ok(deliveryPlanningService.dispatch(id));
+    }
+}
@@ -0,0 +1,44 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.entity.ExpiryAlert;
+import com.schoolfeeding.sf_backend.domain.entity.ExpirySweepRun;
+import com.schoolfeeding.sf_backend.domain.service.ExpirySweepService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/expiry-sweeps")
+@RequiredArgsConstructor
+public class ExpirySweepController {
+
+    private final ExpirySweepService expirySweepService;
+
+    // ✅ Start a sweep now, or resume today's if it did not complete
+    @PostMapping
+    public ResponseEntity<ExpirySweepRun> startSweep() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(expirySweepService.start());
+    }
+
+    // ✅ Latest sweep and its progress
+    @GetMapping("/latest")
+    public ResponseEntity<ExpirySweepRun> getLatestRun() {
+        return ResponseEntity.ok(expirySweepService.getLatestRun());
+    }
+
+    // ✅ Get by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<ExpirySweepRun> getRun(@PathVariable UUID id) {
+        return ResponseEntity.ok(expirySweepService.getRun(id));
+    }
+
+    // ✅ Per-district digests of a sweep
+    @GetMapping("/{id}/alerts")
+    public ResponseEntity<List<ExpiryAlert>> getAlerts(@PathVariable UUID id) {
+        return ResponseEntity.ok(expirySweepService.getAlerts(id));
+    }
+}
@@ -1,6 +1,9 @@
 package com.schoolfeeding.sf_backend.controller;
 
 import com.schoolfeeding.sf_backend.domain.dto.GovernmentDashboardDTO;
+import com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO;
+import com.schoolfeeding.sf_backend.domain.entity.DistrictRollup;
+import com.schoolfeeding.sf_backend.domain.service.DistrictRollupService;
 import com.schoolfeeding.sf_backend.domain.service.GovernmentDashboardService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -8,16 +11,29 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/gov/dashboard")
 @RequiredArgsConstructor
 public class GovernmentDashboardController {
 
     private final GovernmentDashboardService dashboardService;
+    private final DistrictRollupService rollupService;
 
     @GetMapping
     public ResponseEntity<GovernmentDashboardDTO> getDashboard() {
         GovernmentDashboardDTO dto = dashboardService.getDashboard();
         return ResponseEntity.ok(dto);
     }
+
+    @GetMapping("/districts")
+    public ResponseEntity<List<DistrictRollup>> getDistrictStats() {
+        return ResponseEntity.ok(rollupService.getDistrictStats());
+    }
+
+    @GetMapping("/provinces")
+    public ResponseEntity<List<ProvinceStatsDTO>> getProvinceStats() {
+        return ResponseEntity.ok(rollupService.getProvinceStats());
+    }
 }
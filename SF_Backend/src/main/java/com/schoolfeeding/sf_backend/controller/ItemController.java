@@ -3,10 +3,12 @@ package com.schoolfeeding.sf_backend.controller;
 import com.schoolfeeding.sf_backend.domain.entity.Item;
 import com.schoolfeeding.sf_backend.domain.service.ItemService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -22,10 +24,27 @@ public class ItemController {
         return ResponseEntity.ok(itemService.createItem(item));
     }
 
-    // ✅ Read all
+    // ✅ Read all — ETag is the catalog version, so unchanged catalogs answer 304
     @GetMapping
-    public ResponseEntity<List<Item>> getAllItems() {
-        return ResponseEntity.ok(itemService.getAllItems());
+    public ResponseEntity<List<Item>> getAllItems(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = "\"" + itemService.getCatalogVersion() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(itemService.getAllItems());
+    }
+
+    // ✅ Catalog version
+    @GetMapping("/version")
+    public ResponseEntity<Map<String, Long>> getCatalogVersion() {
+        return ResponseEntity.ok(Map.of("version", itemService.getCatalogVersion()));
+    }
+
+    // ✅ Read one by name
+    @GetMapping("/by-name/{name}")
+    public ResponseEntity<Item> getItemByName(@PathVariable String name) {
+        return ResponseEntity.ok(itemService.getItemByName(name));
     }
 
     // ✅ Read one
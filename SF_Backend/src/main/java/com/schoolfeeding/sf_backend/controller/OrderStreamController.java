@@ -0,0 +1,66 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.OrderStreamStatusDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Users;
+import com.schoolfeeding.sf_backend.domain.service.OrderEventHub;
+import com.schoolfeeding.sf_backend.domain.service.UsersService;
+import com.schoolfeeding.sf_backend.util.role.ERole;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/streams")
+@RequiredArgsConstructor
+public class OrderStreamController {
+
+    private final OrderEventHub orderEventHub;
+    private final UsersService usersService;
+
+    // ✅ Live order events for the calling supplier; Last-Event-ID resumes after a reconnect
+    @GetMapping(value = "/suppliers/{supplierId}/orders", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSupplierOrders(
+            @PathVariable UUID supplierId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            Principal principal) {
+        Users caller = caller(principal);
+        if (caller.getRole() != ERole.SUPPLIER || !supplierId.equals(caller.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Suppliers can only follow their own orders");
+        }
+        return orderEventHub.subscribeSupplier(supplierId, lastEventId);
+    }
+
+    // ✅ Live order events for the calling school's staff and stock keepers
+    @GetMapping(value = "/schools/{schoolId}/orders", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSchoolOrders(
+            @PathVariable UUID schoolId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            Principal principal) {
+        Users caller = caller(principal);
+        if (caller.getSchool() == null || !schoolId.equals(caller.getSchool().getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the school's own users can follow its orders");
+        }
+        return orderEventHub.subscribeSchool(schoolId, lastEventId);
+    }
+
+    // ✅ Open connections and delivery counters
+    @GetMapping("/status")
+    public ResponseEntity<OrderStreamStatusDTO> getStatus() {
+        return ResponseEntity.ok(orderEventHub.getStatus());
+    }
+
+    private Users caller(Principal principal) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return usersService.findByEmail(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Unknown user"));
+    }
+}
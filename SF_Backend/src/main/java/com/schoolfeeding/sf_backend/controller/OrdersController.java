@@ -1,11 +1,19 @@
 package com.schoolfeeding.sf_backend.controller;
 
+import com.schoolfeeding.sf_backend.domain.dto.OrderInboxPageDTO;
+import com.schoolfeeding.sf_backend.domain.dto.OrderPriceStatDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Orders;
+import com.schoolfeeding.sf_backend.domain.service.IdempotencyService;
+import com.schoolfeeding.sf_backend.domain.service.OrderPriceStatsService;
 import com.schoolfeeding.sf_backend.domain.service.OrdersService;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,11 +23,16 @@ import java.util.UUID;
 public class OrdersController {
 
     private final OrdersService ordersService;
+    private final IdempotencyService idempotencyService;
+    private final OrderPriceStatsService orderPriceStatsService;
 
-    // ✅ Create
+    // ✅ Create — a retry with the same Idempotency-Key returns the first result
     @PostMapping
-    public ResponseEntity<Orders> createOrder(@RequestBody Orders order) {
-        return ResponseEntity.ok(ordersService.createOrder(order));
+    public ResponseEntity<Orders> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody Orders order) {
+        return ResponseEntity.ok(idempotencyService.execute("orders", idempotencyKey, order,
+                () -> ordersService.createOrder(order)));
     }
 
     // ✅ Get all active
@@ -28,6 +41,28 @@ public class OrdersController {
         return ResponseEntity.ok(ordersService.getAllOrders());
     }
 
+    // ✅ Supplier inbox, newest delivery first; pass nextCursor back to continue
+    @GetMapping("/inbox")
+    public ResponseEntity<OrderInboxPageDTO> getSupplierInbox(
+            @RequestParam UUID supplierId,
+            @RequestParam(required = false) EDelivery status,
+            @RequestParam(required = false) EOrderPay payState,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ordersService.getSupplierInbox(supplierId, status, payState, cursor, size));
+    }
+
+    // ✅ Unit price trend of an item per district and month (the last 12 months by default)
+    @GetMapping("/price-stats")
+    public ResponseEntity<List<OrderPriceStatDTO>> getPriceStats(
+            @RequestParam UUID itemId,
+            @RequestParam(required = false) UUID districtId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean combineDistricts) {
+        return ResponseEntity.ok(orderPriceStatsService.getPriceStats(itemId, districtId, from, to, combineDistricts));
+    }
+
     // ✅ Get by ID
     @GetMapping("/{id}")
     public ResponseEntity<Orders> getOrderById(@PathVariable UUID id) {
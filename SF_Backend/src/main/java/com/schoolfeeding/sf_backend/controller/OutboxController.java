@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.OutboxStatusDTO;
+import com.schoolfeeding.sf_backend.domain.service.OutboxRelay;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/outbox")
+@RequiredArgsConstructor
+public class OutboxController {
+
+    private final OutboxRelay outboxRelay;
+
+    // ✅ Relay backlog and lag
+    @GetMapping("/status")
+    public ResponseEntity<OutboxStatusDTO> getStatus() {
+        return ResponseEntity.ok(outboxRelay.getStatus());
+    }
+}
@@ -1,11 +1,24 @@
 package com.schoolfeeding.sf_backend.controller;
 
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.RequestGenerationStatusDTO;
 import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
+import com.schoolfeeding.sf_backend.domain.service.IdempotencyService;
+import com.schoolfeeding.sf_backend.domain.service.RequestGenerationService;
 import com.schoolfeeding.sf_backend.domain.service.RequestItemService;
+import com.schoolfeeding.sf_backend.util.order.ERequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,11 +28,32 @@ import java.util.UUID;
 public class RequestItemController {
 
     private final RequestItemService requestItemService;
+    private final IdempotencyService idempotencyService;
+    private final RequestGenerationService requestGenerationService;
 
-    // ✅ Create
+    // ✅ Create — a retry with the same Idempotency-Key returns the first result
     @PostMapping
-    public ResponseEntity<RequestItem> createRequestItem(@RequestBody RequestItem requestItem) {
-        return ResponseEntity.ok(requestItemService.createRequestItem(requestItem));
+    public ResponseEntity<RequestItem> createRequestItem(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody RequestItem requestItem) {
+        return ResponseEntity.ok(idempotencyService.execute("request-items", idempotencyKey, requestItem,
+                () -> requestItemService.createRequestItem(requestItem)));
+    }
+
+    // ✅ Generate PENDING requests for every active school for a feeding period (runs in background)
+    @PostMapping("/generate")
+    public ResponseEntity<RequestGenerationStatusDTO> generateRequests(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer feedingDays) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(requestGenerationService.start(from, to, feedingDays));
+    }
+
+    // ✅ Progress of the last generation run
+    @GetMapping("/generate/status")
+    public ResponseEntity<RequestGenerationStatusDTO> getGenerationStatus() {
+        return ResponseEntity.ok(requestGenerationService.getStatus());
     }
 
     // ✅ Get all (only active)
@@ -28,6 +62,16 @@ public class RequestItemController {
         return ResponseEntity.ok(requestItemService.getAllRequestItems());
     }
 
+    // ✅ Paged search by status, district and school
+    @GetMapping("/page")
+    public ResponseEntity<Page<RequestItem>> searchRequestItems(
+            @RequestParam(required = false) ERequest status,
+            @RequestParam(required = false) UUID districtId,
+            @RequestParam(required = false) UUID schoolId,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(requestItemService.searchRequestItems(status, districtId, schoolId, pageable));
+    }
+
     // ✅ Get by ID
     @GetMapping("/{id}")
     public ResponseEntity<RequestItem> getRequestItemById(@PathVariable UUID id) {
@@ -42,6 +86,12 @@ public class RequestItemController {
         return ResponseEntity.ok(requestItemService.updateRequestItem(id, requestItem));
     }
 
+    // ✅ Bulk approve / reject
+    @PostMapping("/status")
+    public ResponseEntity<BulkStatusResultDTO> bulkUpdateStatus(@Valid @RequestBody BulkStatusRequestDTO request) {
+        return ResponseEntity.ok(requestItemService.bulkUpdateStatus(request));
+    }
+
     // ✅ Soft Delete
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteRequestItem(@PathVariable UUID id) {
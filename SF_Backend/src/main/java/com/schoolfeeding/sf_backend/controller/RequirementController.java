@@ -0,0 +1,49 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequirementDTO;
+import com.schoolfeeding.sf_backend.domain.service.RequirementPlanner;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/requirements")
+@RequiredArgsConstructor
+public class RequirementController {
+
+    private final RequirementPlanner requirementPlanner;
+
+    // ✅ Per-district requirement for the period
+    @GetMapping("/districts")
+    public ResponseEntity<List<RequirementDTO>> getDistrictRequirements(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer feedingDays) {
+        return ResponseEntity.ok(requirementPlanner.getDistrictRequirements(from, to, feedingDays));
+    }
+
+    // ✅ Per-school requirement, optionally limited to one district
+    @GetMapping("/schools")
+    public ResponseEntity<List<RequirementDTO>> getSchoolRequirements(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer feedingDays,
+            @RequestParam(required = false) UUID districtId) {
+        return ResponseEntity.ok(requirementPlanner.getSchoolRequirements(from, to, feedingDays, districtId));
+    }
+
+    // ✅ Requirement for one school
+    @GetMapping("/schools/{schoolId}")
+    public ResponseEntity<RequirementDTO> getSchoolRequirement(
+            @PathVariable UUID schoolId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer feedingDays) {
+        return ResponseEntity.ok(requirementPlanner.getSchoolRequirement(from, to, feedingDays, schoolId));
+    }
+}
@@ -0,0 +1,42 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.entity.SettlementRun;
+import com.schoolfeeding.sf_backend.domain.service.SettlementService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/settlements")
+@RequiredArgsConstructor
+public class SettlementController {
+
+    private final SettlementService settlementService;
+
+    // ✅ Start a new settlement run; 409 while an earlier run did not complete
+    @PostMapping
+    public ResponseEntity<SettlementRun> startSettlement() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(settlementService.start());
+    }
+
+    // ✅ Resume a run that crashed or failed
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<SettlementRun> resumeSettlement(@PathVariable UUID id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(settlementService.resume(id));
+    }
+
+    // ✅ Latest run and its progress
+    @GetMapping("/latest")
+    public ResponseEntity<SettlementRun> getLatestRun() {
+        return ResponseEntity.ok(settlementService.getLatestRun());
+    }
+
+    // ✅ Get by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<SettlementRun> getRun(@PathVariable UUID id) {
+        return ResponseEntity.ok(settlementService.getRun(id));
+    }
+}
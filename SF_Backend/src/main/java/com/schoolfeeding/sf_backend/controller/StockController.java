@@ -0,0 +1,122 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.DemandForecastDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DemandForecastStatusDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockBalanceDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockClassificationStatusDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockHistoryDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMigrationResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockSnapshotStatusDTO;
+import com.schoolfeeding.sf_backend.domain.service.DemandForecastService;
+import com.schoolfeeding.sf_backend.domain.service.StockClassifierService;
+import com.schoolfeeding.sf_backend.domain.service.StockLedgerService;
+import com.schoolfeeding.sf_backend.domain.service.StockLotService;
+import com.schoolfeeding.sf_backend.domain.service.StockSnapshotService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/stocks")
+@RequiredArgsConstructor
+public class StockController {
+
+    private final StockLedgerService stockLedgerService;
+    private final StockLotService stockLotService;
+    private final StockClassifierService stockClassifierService;
+    private final StockSnapshotService stockSnapshotService;
+    private final DemandForecastService demandForecastService;
+
+    // ✅ All balances of a school
+    @GetMapping("/schools/{schoolId}")
+    public ResponseEntity<List<StockBalanceDTO>> getSchoolBalances(@PathVariable UUID schoolId) {
+        return ResponseEntity.ok(stockLedgerService.getSchoolBalances(schoolId));
+    }
+
+    // ✅ Balance of one item at a school
+    @GetMapping("/schools/{schoolId}/items/{itemId}")
+    public ResponseEntity<StockBalanceDTO> getBalance(@PathVariable UUID schoolId, @PathVariable UUID itemId) {
+        return ResponseEntity.ok(stockLedgerService.getBalance(schoolId, itemId));
+    }
+
+    // ✅ One-off: merge duplicate balances from before the (school, item) key and add the key
+    @PostMapping("/migrations/balance-key")
+    public ResponseEntity<StockMigrationResultDTO> migrateBalanceKey() {
+        return ResponseEntity.ok(stockLedgerService.migrateBalanceKey());
+    }
+
+    // ✅ One-off: open the lots received before lot tracking and build the open-lot indexes
+    @PostMapping("/migrations/open-lots")
+    public ResponseEntity<StockMigrationResultDTO> migrateOpenLots() {
+        return ResponseEntity.ok(stockLotService.migrateOpenLots());
+    }
+
+    // ✅ Reclassify every balance as NORMAL / LOW / CRITICAL now
+    @PostMapping("/classify")
+    public ResponseEntity<StockClassificationStatusDTO> classify() {
+        return ResponseEntity.ok(stockClassifierService.classifyAll());
+    }
+
+    // ✅ Figures of the last classification run
+    @GetMapping("/classify/status")
+    public ResponseEntity<StockClassificationStatusDTO> getClassificationStatus() {
+        return ResponseEntity.ok(stockClassifierService.getStatus());
+    }
+
+    // ✅ Balances of a school at the end of a past day
+    @GetMapping("/schools/{schoolId}/history")
+    public ResponseEntity<List<StockHistoryDTO>> getSchoolBalancesAt(
+            @PathVariable UUID schoolId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(stockSnapshotService.getBalancesAt(schoolId, null, date));
+    }
+
+    // ✅ Balance of one item at a school at the end of a past day
+    @GetMapping("/schools/{schoolId}/items/{itemId}/history")
+    public ResponseEntity<List<StockHistoryDTO>> getBalanceAt(
+            @PathVariable UUID schoolId,
+            @PathVariable UUID itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(stockSnapshotService.getBalancesAt(schoolId, itemId, date));
+    }
+
+    // ✅ Build the balance snapshot for the start of a day (today by default)
+    @PostMapping("/snapshots")
+    public ResponseEntity<StockSnapshotStatusDTO> buildSnapshot(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(stockSnapshotService.start(date == null ? LocalDate.now() : date));
+    }
+
+    // ✅ Progress of the last snapshot build
+    @GetMapping("/snapshots/status")
+    public ResponseEntity<StockSnapshotStatusDTO> getSnapshotStatus() {
+        return ResponseEntity.ok(stockSnapshotService.getStatus());
+    }
+
+    // ✅ Forecast consumption of every item at a school for the next feeding days
+    @GetMapping("/schools/{schoolId}/forecast")
+    public ResponseEntity<List<DemandForecastDTO>> getSchoolForecast(
+            @PathVariable UUID schoolId,
+            @RequestParam(required = false) Integer feedingDays) {
+        return ResponseEntity.ok(demandForecastService.getSchoolForecasts(schoolId, feedingDays));
+    }
+
+    // ✅ Absorb the consumption posted since the last forecast refresh now
+    @PostMapping("/forecasts/refresh")
+    public ResponseEntity<DemandForecastStatusDTO> refreshForecasts() {
+        return ResponseEntity.ok(demandForecastService.refresh());
+    }
+
+    // ✅ Figures of the last forecast refresh
+    @GetMapping("/forecasts/status")
+    public ResponseEntity<DemandForecastStatusDTO> getForecastStatus() {
+        return ResponseEntity.ok(demandForecastService.getStatus());
+    }
+}
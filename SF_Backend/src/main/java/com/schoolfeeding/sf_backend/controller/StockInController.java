@@ -1,7 +1,10 @@
 package com.schoolfeeding.sf_backend.controller;
 
+import com.schoolfeeding.sf_backend.domain.dto.StockLotDTO;
 import com.schoolfeeding.sf_backend.domain.entity.StockIn;
+import com.schoolfeeding.sf_backend.domain.service.IdempotencyService;
 import com.schoolfeeding.sf_backend.domain.service.StockInService;
+import com.schoolfeeding.sf_backend.domain.service.StockLotService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,11 +18,16 @@ import java.util.UUID;
 public class StockInController {
 
     private final StockInService stockInService;
+    private final IdempotencyService idempotencyService;
+    private final StockLotService stockLotService;
 
-    // ✅ Create
+    // ✅ Create — a retry with the same Idempotency-Key returns the first result
     @PostMapping
-    public ResponseEntity<StockIn> createStockIn(@RequestBody StockIn stockIn) {
-        return ResponseEntity.ok(stockInService.createStockIn(stockIn));
+    public ResponseEntity<StockIn> createStockIn(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody StockIn stockIn) {
+        return ResponseEntity.ok(idempotencyService.execute("stock-ins", idempotencyKey, stockIn,
+                () -> stockInService.createStockIn(stockIn)));
     }
 
     // ✅ Get all active
@@ -28,6 +36,21 @@ public class StockInController {
         return ResponseEntity.ok(stockInService.getAllStockIns());
     }
 
+    // ✅ Lots expiring within the next days, optionally at one school
+    @GetMapping("/expiring")
+    public ResponseEntity<List<StockLotDTO>> getExpiring(
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) UUID schoolId,
+            @RequestParam(defaultValue = "" + StockLotService.DEFAULT_EXPIRING_LIMIT) int limit) {
+        return ResponseEntity.ok(stockLotService.getExpiring(schoolId, days, limit));
+    }
+
+    // ✅ Open lots of an item at a school, earliest expiry first
+    @GetMapping("/lots/schools/{schoolId}/items/{itemId}")
+    public ResponseEntity<List<StockLotDTO>> getOpenLots(@PathVariable UUID schoolId, @PathVariable UUID itemId) {
+        return ResponseEntity.ok(stockLotService.getOpenLots(schoolId, itemId));
+    }
+
     // ✅ Get by ID
     @GetMapping("/{id}")
     public ResponseEntity<StockIn> getStockInById(@PathVariable UUID id) {
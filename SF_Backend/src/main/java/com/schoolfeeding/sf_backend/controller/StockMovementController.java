@@ -0,0 +1,37 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMovementStatsDTO;
+import com.schoolfeeding.sf_backend.domain.service.StockMovementService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/stock-movements")
+@RequiredArgsConstructor
+public class StockMovementController {
+
+    private final StockMovementService stockMovementService;
+
+    // ✅ Issue stock from a school store; 409 when the balance cannot cover it
+    @PostMapping("/issue")
+    public ResponseEntity<StockIssueResultDTO> issue(@RequestBody StockIssueRequestDTO request) {
+        StockIssueResultDTO result = stockMovementService.issue(request);
+        return ResponseEntity.status(result.isApplied() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    // ✅ Throughput and batching counters
+    @GetMapping("/stats")
+    public ResponseEntity<StockMovementStatsDTO> getStats() {
+        return ResponseEntity.ok(stockMovementService.getStats());
+    }
+
+    @PostMapping("/stats/reset")
+    public ResponseEntity<StockMovementStatsDTO> resetStats() {
+        stockMovementService.resetStats();
+        return ResponseEntity.ok(stockMovementService.getStats());
+    }
+}
@@ -0,0 +1,92 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionBatchDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionBatchResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionResultDTO;
+import com.schoolfeeding.sf_backend.domain.entity.ConsumptionAnomaly;
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import com.schoolfeeding.sf_backend.domain.service.ConsumptionAnomalyService;
+import com.schoolfeeding.sf_backend.domain.service.DailyConsumptionService;
+import com.schoolfeeding.sf_backend.domain.service.IdempotencyService;
+import com.schoolfeeding.sf_backend.domain.service.StockOutService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/stock-outs")
+@RequiredArgsConstructor
+public class StockOutController {
+
+    private final StockOutService stockOutService;
+    private final IdempotencyService idempotencyService;
+    private final DailyConsumptionService dailyConsumptionService;
+    private final ConsumptionAnomalyService consumptionAnomalyService;
+
+    // ✅ Create — a retry with the same Idempotency-Key returns the first result
+    @PostMapping
+    public ResponseEntity<StockOut> createStockOut(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody StockOut stockOut) {
+        return ResponseEntity.ok(idempotencyService.execute("stock-outs", idempotencyKey, stockOut,
+                () -> stockOutService.createStockOut(stockOut)));
+    }
+
+    // ✅ A school's consumption for a feeding day, posted whole; 409 when refused
+    @PostMapping("/daily")
+    public ResponseEntity<DailyConsumptionResultDTO> postDailyConsumption(@Valid @RequestBody DailyConsumptionDTO day) {
+        DailyConsumptionResultDTO result = dailyConsumptionService.post(day);
+        return ResponseEntity.status(result.isApplied() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    // ✅ A district upload of many schools' days; each school is applied or refused on its own
+    @PostMapping("/daily/bulk")
+    public ResponseEntity<DailyConsumptionBatchResultDTO> postDailyConsumptionBatch(
+            @Valid @RequestBody DailyConsumptionBatchDTO batch) {
+        return ResponseEntity.ok(dailyConsumptionService.postAll(batch));
+    }
+
+    // ✅ Consumption days flagged against the norm or the school's own history, most recent first
+    @GetMapping("/anomalies")
+    public ResponseEntity<List<ConsumptionAnomaly>> getAnomalies(
+            @RequestParam(required = false) UUID schoolId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+            @RequestParam(defaultValue = "" + ConsumptionAnomalyService.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(consumptionAnomalyService.getAnomalies(schoolId, since, limit));
+    }
+
+    // ✅ Get all active
+    @GetMapping
+    public ResponseEntity<List<StockOut>> getAllStockOuts() {
+        return ResponseEntity.ok(stockOutService.getAllStockOuts());
+    }
+
+    // ✅ Get by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<StockOut> getStockOutById(@PathVariable UUID id) {
+        return ResponseEntity.ok(stockOutService.getStockOutById(id));
+    }
+
+    // ✅ Update
+    @PutMapping("/{id}")
+    public ResponseEntity<StockOut> updateStockOut(
+            @PathVariable UUID id,
+            @RequestBody StockOut stockOut) {
+        return ResponseEntity.ok(stockOutService.updateStockOut(id, stockOut));
+    }
+
+    // ✅ Soft Delete
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteStockOut(@PathVariable UUID id) {
+        stockOutService.deleteStockOut(id);
+        return ResponseEntity.ok("StockOut marked as deleted successfully.");
+    }
+}
@@ -0,0 +1,45 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequestAssignmentDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierProposalDTO;
+import com.schoolfeeding.sf_backend.domain.service.SupplierMatchingService;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/supplier-matching")
+@RequiredArgsConstructor
+public class SupplierMatchingController {
+
+    private final SupplierMatchingService matchingService;
+
+    // ✅ Suppliers providing an item
+    @GetMapping("/items/{itemId}")
+    public ResponseEntity<List<UUID>> getSuppliersForItem(@PathVariable UUID itemId) {
+        return ResponseEntity.ok(matchingService.getSuppliersForItem(itemId));
+    }
+
+    // ✅ Ranked supplier proposals for one request
+    @GetMapping("/requests/{requestId}")
+    public ResponseEntity<List<SupplierProposalDTO>> proposeForRequest(
+            @PathVariable UUID requestId,
+            @RequestParam(defaultValue = "3") @Min(value = 1, message = "Limit must be at least 1") int limit) {
+        return ResponseEntity.ok(matchingService.proposeForRequest(requestId, limit));
+    }
+
+    // ✅ Ranked supplier proposals for a page of pending requests
+    @GetMapping("/pending")
+    public ResponseEntity<List<RequestAssignmentDTO>> proposeForPending(
+            @RequestParam(required = false) UUID districtId,
+            @RequestParam(defaultValue = "3") @Min(value = 1, message = "Limit must be at least 1") int limit,
+            @PageableDefault(size = 50) Pageable pageable) {
+        return ResponseEntity.ok(matchingService.proposeForPending(districtId, limit, pageable));
+    }
+}
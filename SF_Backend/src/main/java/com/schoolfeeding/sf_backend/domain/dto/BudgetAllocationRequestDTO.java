@@ -0,0 +1,17 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Weights of an allocation run; anything left out takes the configured default
+@Data
+public class BudgetAllocationRequestDTO {
+    // Share every school gets, counted in students
+    private Double schoolWeight;
+    // Share per enrolled student
+    private Double studentWeight;
+    // Multiplier per district, 1 when not listed
+    private Map<UUID, Double> districtWeights;
+}
@@ -0,0 +1,26 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class BudgetAllocationResultDTO {
+
+    private UUID budgetId;
+    private double budget;
+    private int districts;
+    private int schools;
+    private long students;
+
+    private int districtsInserted;
+    private int districtsUpdated;
+    private int districtsRemoved;
+    private int districtsUnchanged;
+    private int schoolsInserted;
+    private int schoolsUpdated;
+    private int schoolsRemoved;
+    private int schoolsUnchanged;
+
+    private long durationMillis;
+}
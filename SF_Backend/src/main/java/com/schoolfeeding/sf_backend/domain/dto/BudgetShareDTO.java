@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.budget.EBudget;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// A district's or a school's part of a budget; targetId is the district or school
+@Data
+@AllArgsConstructor
+public class BudgetShareDTO {
+    private UUID id;
+    private UUID targetId;
+    private String name;
+    private long students;
+    private double budget;
+    private EBudget budgetStatus;
+}
@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.order.ERequest;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkStatusRequestDTO {
+
+    @NotNull(message = "Target status is required")
+    private ERequest status;
+
+    @NotEmpty(message = "At least one request item is required")
+    private List<@Valid VersionedIdDTO> items;
+}
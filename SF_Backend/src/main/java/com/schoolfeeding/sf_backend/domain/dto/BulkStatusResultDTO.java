@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class BulkStatusResultDTO {
+    private int updated;
+    private List<UUID> updatedIds;
+    private List<StatusConflictDTO> conflicts;
+}
@@ -0,0 +1,21 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsumptionLineDTO {
+
+    @NotNull(message = "Item is required")
+    private UUID itemId;
+
+    @Positive(message = "Quantity must be positive")
+    private double quantity;
+}
@@ -0,0 +1,18 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// A stock-out as the consumption detector sees it: what a school used of an item on a feeding day
+@Data
+@AllArgsConstructor
+public class ConsumptionPostingDTO {
+    private UUID stockOutId;
+    private UUID schoolId;
+    private UUID itemId;
+    private double quantity;
+    private LocalDate day;
+}
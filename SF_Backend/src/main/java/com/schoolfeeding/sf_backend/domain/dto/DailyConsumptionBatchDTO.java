@@ -0,0 +1,17 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+// A district upload: the day's consumption of many schools
+@Data
+public class DailyConsumptionBatchDTO {
+
+    @NotEmpty(message = "At least one school is required")
+    @Size(max = 5000, message = "At most 5000 schools per upload")
+    private List<@Valid DailyConsumptionDTO> schools;
+}
@@ -0,0 +1,16 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DailyConsumptionBatchResultDTO {
+    private int schools;
+    private int applied;
+    private int refused;
+    private long durationMillis;
+    private List<DailyConsumptionResultDTO> results;
+}
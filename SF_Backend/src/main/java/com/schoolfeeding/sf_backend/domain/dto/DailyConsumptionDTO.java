@@ -0,0 +1,27 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PastOrPresent;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// One school's consumption for one feeding day; the day defaults to today
+@Data
+public class DailyConsumptionDTO {
+
+    @NotNull(message = "School is required")
+    private UUID schoolId;
+
+    @PastOrPresent(message = "Feeding date cannot be in the future")
+    private LocalDate feedingDate;
+
+    @NotEmpty(message = "At least one consumption line is required")
+    @Size(max = 500, message = "At most 500 lines per school and day")
+    private List<@Valid ConsumptionLineDTO> lines;
+}
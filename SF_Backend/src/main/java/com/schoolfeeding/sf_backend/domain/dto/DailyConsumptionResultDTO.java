@@ -0,0 +1,21 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// A school's day is posted whole or not at all; reason and shortfalls say why it was refused
+@Data
+@AllArgsConstructor
+public class DailyConsumptionResultDTO {
+    private UUID schoolId;
+    private LocalDate feedingDate;
+    private boolean applied;
+    private int linesPosted;
+    private double totalQuantity;
+    private String reason;
+    private List<ConsumptionShortfallDTO> shortfalls;
+}
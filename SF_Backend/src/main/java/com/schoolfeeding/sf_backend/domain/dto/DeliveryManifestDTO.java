@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DeliveryManifestDTO {
+    private DeliveryBatch batch;
+    // One stop per school, in school name order
+    private List<DeliveryStopDTO> stops;
+}
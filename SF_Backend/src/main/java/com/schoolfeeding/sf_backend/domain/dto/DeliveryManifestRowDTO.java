@@ -0,0 +1,22 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+// One (order, item) row of a batch manifest, as read from the database
+@Data
+@AllArgsConstructor
+public class DeliveryManifestRowDTO {
+    private UUID orderId;
+    private UUID requestItemId;
+    private UUID schoolId;
+    private String schoolName;
+    private String schoolAddress;
+    private Date deliveryDate;
+    private double quantity;
+    private double orderPrice;
+    private String itemName;
+}
@@ -0,0 +1,18 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class DeliveryOrderDTO {
+    private UUID orderId;
+    private UUID supplierId;
+    private UUID districtId;
+    private UUID schoolId;
+    private Date deliveryDate;
+    private double orderPrice;
+}
@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class DeliveryPlanDTO {
+    private int windowDays;
+    private int ordersPlanned;
+    // Open orders left out because they have no delivery date yet
+    private int ordersWithoutDate;
+    private List<UUID> ordersWithoutDateIds;
+    private List<DeliveryBatch> batches;
+}
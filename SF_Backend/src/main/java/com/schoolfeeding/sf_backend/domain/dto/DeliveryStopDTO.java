@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class DeliveryStopDTO {
+    private UUID schoolId;
+    private String schoolName;
+    private String schoolAddress;
+    private List<DeliveryStopOrderDTO> orders = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class DeliveryStopOrderDTO {
+    private UUID orderId;
+    private UUID requestItemId;
+    private Date deliveryDate;
+    private double quantity;
+    private double orderPrice;
+    private List<String> items = new ArrayList<>();
+}
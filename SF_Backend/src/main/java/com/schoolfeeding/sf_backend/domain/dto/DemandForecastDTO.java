@@ -0,0 +1,22 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Expected consumption of an item at a school, in kilograms; observations is 0 when it is the norm alone
+@Data
+@AllArgsConstructor
+public class DemandForecastDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private String itemName;
+    private double dailyForecast;
+    private int feedingDays;
+    private double periodForecast;
+    private double norm;
+    private int observations;
+    private LocalDate absorbedThrough;
+}
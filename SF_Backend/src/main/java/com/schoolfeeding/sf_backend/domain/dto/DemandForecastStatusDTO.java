@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class DemandForecastStatusDTO {
+
+    private EJobState state = EJobState.IDLE;
+    private LocalDate absorbedThrough;
+    private int schools;
+    private int seriesUpdated;
+    private int daysAbsorbed;
+    private int forecastsCached;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private String error;
+}
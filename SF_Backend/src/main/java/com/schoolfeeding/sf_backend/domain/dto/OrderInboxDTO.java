@@ -0,0 +1,22 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class OrderInboxDTO {
+    private UUID id;
+    private UUID requestItemId;
+    private UUID schoolId;
+    private String schoolName;
+    private Date deliveryDate;
+    private EDelivery deliveryStatus;
+    private double orderPrice;
+    private EOrderPay orderPayState;
+}
@@ -0,0 +1,16 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OrderInboxPageDTO {
+    private List<OrderInboxDTO> orders;
+
+    // Pass back as "cursor" to get the next page; null on the last page
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Unit price figures of an item's orders for a month; districtId is empty when all districts are combined
+@Data
+@AllArgsConstructor
+public class OrderPriceStatDTO {
+    private UUID itemId;
+    private UUID districtId;
+    private LocalDate month;
+    private long orders;
+    private double mean;
+    private double min;
+    private double max;
+    private double p50;
+    private double p90;
+    private double p95;
+}
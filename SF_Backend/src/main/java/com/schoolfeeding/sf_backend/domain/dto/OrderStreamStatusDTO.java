@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderStreamStatusDTO {
+    private int connections;
+    private int scopes;
+    private long eventsSent;
+    private long eventsReplayed;
+    // Connections dropped because their buffer filled up or a write to them stalled
+    private long slowConsumersEvicted;
+}
@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class OutboxStatusDTO {
+
+    private long pending;
+    // Events that used up their attempts and need a look
+    private long failed;
+    private LocalDateTime oldestPendingAt;
+    // Age of the oldest undispatched event: how far derived views are behind
+    private long lagSeconds;
+
+    private LocalDateTime lastRelayAt;
+    private int lastBatchSize;
+    // Average time from commit to dispatch over the last batch
+    private long lastDispatchDelayMillis;
+    private long dispatchedTotal;
+    private long listenerFailuresTotal;
+}
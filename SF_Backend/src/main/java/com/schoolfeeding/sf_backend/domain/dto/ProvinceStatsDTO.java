@@ -0,0 +1,13 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.address.EProvince;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ProvinceStatsDTO {
+    private EProvince province;
+    private long schoolCount;
+    private long studentCount;
+}
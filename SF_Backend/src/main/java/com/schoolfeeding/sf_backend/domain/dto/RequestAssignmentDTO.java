@@ -0,0 +1,17 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class RequestAssignmentDTO {
+    private UUID requestId;
+    private UUID schoolId;
+    private UUID districtId;
+    private double quantity;
+    private List<SupplierProposalDTO> proposals;
+}
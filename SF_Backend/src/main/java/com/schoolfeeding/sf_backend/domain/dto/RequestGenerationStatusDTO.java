@@ -0,0 +1,25 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class RequestGenerationStatusDTO {
+
+    private EJobState state = EJobState.IDLE;
+    private LocalDate from;
+    private LocalDate to;
+    private int feedingDays;
+
+    private int schoolsTotal;
+    private int schoolsProcessed;
+    private int schoolsSkipped;
+    private int requestsCreated;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
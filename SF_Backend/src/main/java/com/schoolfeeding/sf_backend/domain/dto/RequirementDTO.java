@@ -0,0 +1,25 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class RequirementDTO {
+
+    // School or district id, depending on the scope of the requirement
+    private UUID id;
+    private String name;
+    private UUID districtId;
+    private long students;
+
+    private LocalDate from;
+    private LocalDate to;
+    private int feedingDays;
+
+    private List<RequirementLineDTO> lines;
+}
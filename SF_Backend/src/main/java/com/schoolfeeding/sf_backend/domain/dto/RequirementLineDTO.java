@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class RequirementLineDTO {
+    private UUID itemId;
+    private String itemName;
+
+    // Quantities in the unit below, always kilograms
+    private double required;
+    private double inStock;
+    private double shortfall;
+    private String unit;
+}
@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class SchoolHeadcountDTO {
+    private UUID schoolId;
+    private String schoolName;
+    private UUID districtId;
+    private Integer numberStudent;
+}
@@ -0,0 +1,21 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.order.ERequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class StatusConflictDTO {
+
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String STALE_VERSION = "STALE_VERSION";
+    public static final String INVALID_STATE = "INVALID_STATE";
+
+    private UUID id;
+    private String reason;
+    private Long currentVersion;
+    private ERequest currentStatus;
+}
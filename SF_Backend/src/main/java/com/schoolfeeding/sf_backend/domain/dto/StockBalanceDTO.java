@@ -0,0 +1,17 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.stock.EStock;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class StockBalanceDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private String itemName;
+    private double quantity;
+    private EStock stockState;
+}
@@ -0,0 +1,20 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class StockClassificationStatusDTO {
+
+    private EJobState state = EJobState.IDLE;
+    private int schools;
+    private int rowsScanned;
+    private int rowsChanged;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// A balance at the end of a day, rebuilt from the nearest snapshot and the postings after it
+@Data
+@AllArgsConstructor
+public class StockHistoryDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private String itemName;
+    private LocalDate date;
+    private double quantity;
+    private LocalDate snapshotDate;
+    private int postingsReplayed;
+}
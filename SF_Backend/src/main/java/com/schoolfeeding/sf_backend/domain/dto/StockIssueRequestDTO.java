@@ -0,0 +1,13 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class StockIssueRequestDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private double quantity;
+    private UUID requestItemId;
+}
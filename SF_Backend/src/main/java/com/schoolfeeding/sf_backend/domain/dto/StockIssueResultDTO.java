@@ -0,0 +1,21 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class StockIssueResultDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private double quantity;
+    // False when the balance could not cover the quantity; nothing was taken then
+    private boolean applied;
+    // Null when the issue was refused
+    private UUID stockOutId;
+    private double balance;
+    // How many issues for the same (school, item) were applied together with this one
+    private int batchSize;
+}
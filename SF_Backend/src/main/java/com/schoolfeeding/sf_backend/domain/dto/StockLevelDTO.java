@@ -0,0 +1,14 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class StockLevelDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private double quantity;
+}
@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class StockLotDTO {
+    private UUID stockInId;
+    private UUID schoolId;
+    private UUID itemId;
+    private String itemName;
+    private double quantity;
+    private Double remainingQuantity;
+    private Date expirationDate;
+}
@@ -0,0 +1,12 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StockMigrationResultDTO {
+    private String migration;
+    // Rows the migration had to fix before it could apply; 0 on a clean or already migrated database
+    private long rowsFixed;
+}
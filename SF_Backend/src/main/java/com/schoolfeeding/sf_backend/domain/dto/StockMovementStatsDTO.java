@@ -0,0 +1,18 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StockMovementStatsDTO {
+    private long issues;
+    private long applied;
+    private long refused;
+    private long batches;
+    private double averageBatchSize;
+    private int largestBatch;
+    private double averageLatencyMillis;
+    // Issues handled per second since the counters were last reset
+    private double throughputPerSecond;
+}
@@ -0,0 +1,15 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// A signed change to one (school, item) balance: positive for stock in, negative for stock out
+@Data
+@AllArgsConstructor
+public class StockPostingDTO {
+    private UUID schoolId;
+    private UUID itemId;
+    private double quantity;
+}
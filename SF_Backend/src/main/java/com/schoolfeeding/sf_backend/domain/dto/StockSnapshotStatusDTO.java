@@ -0,0 +1,20 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class StockSnapshotStatusDTO {
+    private EJobState state = EJobState.IDLE;
+    private LocalDate snapshotDate;
+    private LocalDate previousSnapshotDate;
+    private int schools;
+    private int schoolsDone;
+    private int rowsWritten;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class SupplierItemDTO {
+    private UUID supplierId;
+    private String supplierName;
+    private UUID itemId;
+}
@@ -0,0 +1,22 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class SupplierProposalDTO {
+    private UUID supplierId;
+    private String supplierName;
+
+    // Share of the request's items the supplier provides, 0..1
+    private double coverage;
+
+    // Average historical unit price over the covered items, null without history
+    private Double averageUnitPrice;
+
+    private int openOrders;
+    private double score;
+}
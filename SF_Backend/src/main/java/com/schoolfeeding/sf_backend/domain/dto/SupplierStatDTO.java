@@ -0,0 +1,20 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// Aggregate over a supplier's orders, optionally per item (itemId is null for supplier-wide stats)
+@Data
+@AllArgsConstructor
+public class SupplierStatDTO {
+    private UUID supplierId;
+    private UUID itemId;
+    private double value;
+    private long count;
+
+    public SupplierStatDTO(UUID supplierId, long count) {
+        this(supplierId, null, 0, count);
+    }
+}
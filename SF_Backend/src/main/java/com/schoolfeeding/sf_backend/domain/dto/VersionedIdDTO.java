@@ -0,0 +1,21 @@
+package com.schoolfeeding.sf_backend.domain.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionedIdDTO {
+
+    @NotNull(message = "Id is required")
+    private UUID id;
+
+    // Version the client last saw; the row changes only if it is still at this version
+    @NotNull(message = "Version is required")
+    private Long version;
+}
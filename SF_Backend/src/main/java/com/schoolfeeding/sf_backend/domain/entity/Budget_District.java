@@ -9,7 +9,8 @@ import lombok.Setter;
 @Entity
 @Getter
 @Setter
-
+@Table(name = "budget_district", uniqueConstraints = @UniqueConstraint(name = "uk_budget_district_budget",
+        columnNames = {"budget_id", "district_id"}))
 public class Budget_District extends AbstractBaseEntity {
 
     @ManyToOne
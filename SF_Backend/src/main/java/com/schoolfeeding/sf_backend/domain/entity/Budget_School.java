@@ -2,23 +2,30 @@ package com.schoolfeeding.sf_backend.domain.entity;
 
 import com.schoolfeeding.sf_backend.domain.base.AbstractBaseEntity;
 import com.schoolfeeding.sf_backend.util.budget.EBudget;
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.ManyToOne;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
 @Getter
 @Setter
-
+@Table(name = "budget_school", uniqueConstraints = @UniqueConstraint(name = "uk_budget_school_gov",
+        columnNames = {"budget_gov_id", "school_id"}))
 public class Budget_School  extends AbstractBaseEntity {
 
     @ManyToOne
     @JoinColumn(name = "budget_id")
     private  Budget_District budgetDistrict;
 
+    // The district row's budget, copied so a school holds one row per budget whichever district it sits in
+    @ManyToOne
+    @JoinColumn(name = "budget_gov_id")
+    private  Budget_Gov budgetGov;
+
+    @ManyToOne
+    @JoinColumn(name = "school_id")
+    private  School school;
+
     @Column(name = "budget")
     private double budget;
 
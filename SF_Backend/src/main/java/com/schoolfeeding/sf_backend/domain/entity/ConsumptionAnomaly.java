@@ -0,0 +1,65 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.stock.EConsumptionAnomaly;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A (school, item) feeding day whose consumption was flagged against the norm or the school's own history
+@Entity
+@Getter
+@Setter
+@Table(name = "consumption_anomaly",
+        uniqueConstraints = @UniqueConstraint(name = "uk_consumption_anomaly_day",
+                columnNames = {"school_id", "item_id", "consumption_date", "kind"}),
+        indexes = {
+                @Index(name = "idx_consumption_anomaly_school", columnList = "school_id, detected_at"),
+                @Index(name = "idx_consumption_anomaly_detected", columnList = "detected_at")
+        })
+public class ConsumptionAnomaly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "school_id", nullable = false)
+    private UUID schoolId;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "consumption_date", nullable = false)
+    private LocalDate consumptionDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private EConsumptionAnomaly kind;
+
+    // The day's consumption in kilograms when it was flagged
+    @Column(name = "quantity", nullable = false)
+    private double quantity;
+
+    @Column(name = "grams_per_student")
+    private Double gramsPerStudent;
+
+    @Column(name = "norm_grams_per_student")
+    private Double normGramsPerStudent;
+
+    // The school's usual daily consumption of the item and how many deviations away the day was
+    @Column(name = "expected_quantity")
+    private Double expectedQuantity;
+
+    @Column(name = "deviations")
+    private Double deviations;
+
+    // The posting that tipped the day over; empty for a day judged low once it closed
+    @Column(name = "stock_out_id")
+    private UUID stockOutId;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,56 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.order.EDeliveryBatch;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One consolidated trip: the approved orders of a supplier for schools of one district whose
+ * delivery dates fall in the same window. Orders are attached through {@link DeliveryBatchOrder}.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "delivery_batch", indexes = @Index(name = "idx_delivery_batch_supplier", columnList = "supplier_id, state, window_start"))
+public class DeliveryBatch {
+
+    @Id
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "supplier_id", nullable = false)
+    private UUID supplierId;
+
+    @Column(name = "district_id", nullable = false)
+    private UUID districtId;
+
+    @Column(name = "window_start", nullable = false)
+    private LocalDate windowStart;
+
+    @Column(name = "window_end", nullable = false)
+    private LocalDate windowEnd;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private EDeliveryBatch state;
+
+    @Column(name = "order_count", nullable = false)
+    private int orderCount;
+
+    @Column(name = "school_count", nullable = false)
+    private int schoolCount;
+
+    @Column(name = "total_value", nullable = false)
+    private double totalValue;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+}
@@ -0,0 +1,22 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+// An order's place in a delivery batch; keyed by order so an order is never in two batches
+@Entity
+@Getter
+@Setter
+@Table(name = "delivery_batch_order", indexes = @Index(name = "idx_delivery_batch_order_batch", columnList = "batch_id"))
+public class DeliveryBatchOrder {
+
+    @Id
+    @Column(name = "order_id", updatable = false, nullable = false)
+    private UUID orderId;
+
+    @Column(name = "batch_id", nullable = false)
+    private UUID batchId;
+}
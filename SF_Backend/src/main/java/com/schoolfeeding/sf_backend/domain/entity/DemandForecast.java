@@ -0,0 +1,51 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Smoothed consumption of a (school, item) per feeding day, with every day up to last_day absorbed; the base is
+// the level through base_day, the last final day, which the days after it are folded again from on each refresh
+@Entity
+@Getter
+@Setter
+@Table(name = "demand_forecast", uniqueConstraints = @UniqueConstraint(name = "uk_demand_forecast_school_item",
+        columnNames = {"school_id", "item_id"}))
+public class DemandForecast {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "school_id", nullable = false)
+    private UUID schoolId;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "level", nullable = false)
+    private double level;
+
+    @Column(name = "observations", nullable = false)
+    private int observations;
+
+    @Column(name = "last_day", nullable = false)
+    private LocalDate lastDay;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Null on rows from before the re-open window: their level through last_day is the base
+    @Column(name = "base_level")
+    private Double baseLevel;
+
+    @Column(name = "base_day")
+    private LocalDate baseDay;
+
+    @Column(name = "base_observations")
+    private Integer baseObservations;
+}
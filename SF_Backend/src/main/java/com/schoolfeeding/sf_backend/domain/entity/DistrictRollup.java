@@ -0,0 +1,37 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.address.EProvince;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running totals of schools and students per district. Rows are adjusted by delta on every
+ * school write and recomputed from {@link School} by the reconciliation job.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "district_rollup")
+public class DistrictRollup {
+
+    @Id
+    @Column(name = "district_id", updatable = false, nullable = false)
+    private UUID districtId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "province")
+    private EProvince province;
+
+    @Column(name = "school_count", nullable = false)
+    private long schoolCount;
+
+    @Column(name = "student_count", nullable = false)
+    private long studentCount;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+}
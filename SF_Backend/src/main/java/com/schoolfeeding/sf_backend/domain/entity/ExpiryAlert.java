@@ -0,0 +1,42 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// A district's digest for one sweep: what was written off and what expires within the horizon
+@Entity
+@Getter
+@Setter
+@Table(name = "expiry_alert", uniqueConstraints = @UniqueConstraint(name = "uk_expiry_alert_run_district",
+        columnNames = {"run_id", "district_id"}))
+public class ExpiryAlert {
+
+    @Id
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "run_id", nullable = false)
+    private UUID runId;
+
+    @Column(name = "district_id", nullable = false)
+    private UUID districtId;
+
+    @Column(name = "expired_lots", nullable = false)
+    private int expiredLots;
+
+    @Column(name = "expired_quantity", nullable = false)
+    private double expiredQuantity;
+
+    @Column(name = "expiring_lots", nullable = false)
+    private int expiringLots;
+
+    @Column(name = "expiring_quantity", nullable = false)
+    private double expiringQuantity;
+
+    @Column(name = "earliest_expiry")
+    private LocalDate earliestExpiry;
+}
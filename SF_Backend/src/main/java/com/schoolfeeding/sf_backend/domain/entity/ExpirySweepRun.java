@@ -0,0 +1,67 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One expiring-stock sweep. The checkpoint is the (expiration_date, id) of the last lot handled
+ * and moves in the same transaction as that page's write-offs, so a resumed run carries on from
+ * the next lot without writing anything off twice.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "expiry_sweep_run")
+public class ExpirySweepRun {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private EJobState state;
+
+    // Lots expiring before this day are written off; lots up to horizon_days after it are alerted
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "horizon_days", nullable = false)
+    private int horizonDays;
+
+    @Column(name = "checkpoint_expiration_date")
+    private LocalDate checkpointExpirationDate;
+
+    @Column(name = "checkpoint_stock_in_id")
+    private UUID checkpointStockInId;
+
+    @Column(name = "lots_scanned", nullable = false)
+    private int lotsScanned;
+
+    @Column(name = "lots_expired", nullable = false)
+    private int lotsExpired;
+
+    @Column(name = "quantity_written_off", nullable = false)
+    private double quantityWrittenOff;
+
+    @Column(name = "lots_expiring", nullable = false)
+    private int lotsExpiring;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+}
@@ -0,0 +1,54 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Running unit price figures of an item's orders in a district for one month (month is its first day)
+@Entity
+@Getter
+@Setter
+@Table(name = "order_price_stat", uniqueConstraints = @UniqueConstraint(name = "uk_order_price_stat_key",
+        columnNames = {"item_id", "district_id", "month"}))
+public class OrderPriceStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "district_id", nullable = false)
+    private UUID districtId;
+
+    @Column(name = "month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "price_sum", nullable = false)
+    private double priceSum;
+
+    @Column(name = "price_min", nullable = false)
+    private double priceMin;
+
+    @Column(name = "price_max", nullable = false)
+    private double priceMax;
+
+    // Order counts per PriceSketch bucket
+    @Column(name = "sketch", nullable = false)
+    private int[] sketch;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Counting rules the row was built under; rows of older rules are rebuilt at startup
+    @Column(name = "rules_version", nullable = false, columnDefinition = "integer default 0")
+    private int rulesVersion;
+}
@@ -12,7 +12,12 @@ import java.util.Date;
 @Entity
 @Getter
 @Setter
-
+@Table(indexes = {
+        @Index(name = "idx_orders_supplier_date", columnList = "supplier_id, deliveryDate, id"),
+        @Index(name = "idx_orders_supplier_delivery", columnList = "supplier_id, deliveryStatus, deliveryDate, id"),
+        @Index(name = "idx_orders_supplier_pay", columnList = "supplier_id, orderPayState, deliveryDate, id"),
+        @Index(name = "idx_orders_settlement", columnList = "deliveryStatus, orderPayState, id")
+})
 public class Orders extends AbstractBaseEntity {
     @ManyToOne
     @JoinColumn(name = "request_item_id")
@@ -0,0 +1,77 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEventConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An event written in the same transaction as the change it describes and dispatched later by
+ * the outbox relay. {@code published_at} stays null until every listener has handled the event.
+ * {@code delivered_to} names the listeners that already handled it, and {@code claimed_until} is
+ * the lease of the relay instance dispatching it.
+ * <p>
+ * {@code dispatch_seq} is drawn when the relay claims the event. Identity ids are handed out at
+ * insert but commit in any order, so only the claim order matches what listeners saw; the order
+ * stream resumes on it.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "published_at, id"),
+        @Index(name = "idx_outbox_supplier_dispatch", columnList = "supplier_id, dispatch_seq"),
+        @Index(name = "idx_outbox_school_dispatch", columnList = "school_id, dispatch_seq")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Converted rather than @Enumerated so no check constraint pins the set of event types
+    @Convert(converter = EOutboxEventConverter.class)
+    @Column(name = "event_type", nullable = false, length = 40)
+    private EOutboxEvent eventType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    @Column(name = "supplier_id")
+    private UUID supplierId;
+
+    @Column(name = "school_id")
+    private UUID schoolId;
+
+    @Column(name = "payload", columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // Set after a failed dispatch; the event is not retried before then
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "delivered_to")
+    private String[] deliveredTo;
+
+    @Column(name = "dispatch_seq")
+    private Long dispatchSeq;
+}
@@ -0,0 +1,44 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Marks that requests were generated for a school and feeding period. The unique key makes the
+ * generation job idempotent: a school whose marker already exists is skipped on re-runs.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "request_generation",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"school_id", "period_start", "period_end"}))
+public class RequestGeneration {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "school_id", nullable = false)
+    private School school;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDate periodEnd;
+
+    @Column(name = "request_count", nullable = false)
+    private int requestCount;
+
+    @Column(name = "generated_at", nullable = false)
+    private LocalDateTime generatedAt;
+}
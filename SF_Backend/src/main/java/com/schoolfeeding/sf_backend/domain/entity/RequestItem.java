@@ -5,13 +5,19 @@ import com.schoolfeeding.sf_backend.util.order.ERequest;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Entity
 @Getter
 @Setter
-
+@Table(indexes = {
+        @Index(name = "idx_request_item_status", columnList = "requestStatus"),
+        @Index(name = "idx_request_item_district_status", columnList = "district_id, requestStatus"),
+        @Index(name = "idx_request_item_school", columnList = "school_id")
+})
 public class RequestItem extends AbstractBaseEntity {
 
     @ManyToOne
@@ -22,6 +28,8 @@ public class RequestItem extends AbstractBaseEntity {
     @JoinColumn(name = "school_id")
     private School school;
 
+    // Loaded for a whole page of requests in one query instead of one per request
+    @BatchSize(size = 100)
     @ManyToMany
     @JoinTable(
             name = "request_items",
@@ -39,4 +47,16 @@ public class RequestItem extends AbstractBaseEntity {
     @Enumerated(EnumType.STRING)
     @Column(name = "requestStatus", nullable = false)
     private ERequest requestStatus;
+
+    // Feeding period, set on requests generated by the batch job
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    @Column(name = "period_end")
+    private LocalDate periodEnd;
+
+    // Optimistic lock; bulk status changes compare and bump it in SQL
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
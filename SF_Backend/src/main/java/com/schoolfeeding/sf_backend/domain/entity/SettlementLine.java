@@ -0,0 +1,36 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.accounting.EBank;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * An order paid by a settlement run. Written in the same transaction that flips the order to
+ * PAYED; the payment files are generated from these rows, so they can be rewritten at any time.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "settlement_line", indexes = @Index(name = "idx_settlement_line_run", columnList = "run_id, bank, supplier_id"))
+public class SettlementLine {
+
+    @Id
+    @Column(name = "order_id", updatable = false, nullable = false)
+    private UUID orderId;
+
+    @Column(name = "run_id", nullable = false)
+    private UUID runId;
+
+    @Column(name = "supplier_id", nullable = false)
+    private UUID supplierId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bank", nullable = false)
+    private EBank bank;
+
+    @Column(name = "amount", nullable = false)
+    private double amount;
+}
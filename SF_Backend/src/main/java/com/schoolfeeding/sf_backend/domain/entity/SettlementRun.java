@@ -0,0 +1,59 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One payment settlement run. Counters are advanced in the same transaction as each settled
+ * chunk, so after a crash the row still says exactly how far the run got and it can be resumed.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "settlement_run")
+public class SettlementRun {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private EJobState state;
+
+    @Column(name = "orders_settled", nullable = false)
+    private int ordersSettled;
+
+    @Column(name = "total_amount", nullable = false)
+    private double totalAmount;
+
+    // Delivered orders left PENDING because their supplier has no bank, as of the end of the run
+    @Column(name = "orders_without_bank", nullable = false, columnDefinition = "integer default 0")
+    private int ordersWithoutBank;
+
+    @Column(name = "amount_without_bank", nullable = false, columnDefinition = "double precision default 0")
+    private double amountWithoutBank;
+
+    @Column(name = "files_written", nullable = false)
+    private int filesWritten;
+
+    @Column(name = "output_dir")
+    private String outputDir;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+}
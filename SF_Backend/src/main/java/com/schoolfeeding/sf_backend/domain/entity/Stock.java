@@ -9,7 +9,7 @@ import lombok.Setter;
 @Entity
 @Getter
 @Setter
-
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stock_school_item", columnNames = {"school_id", "item_id"}))
 public class Stock extends AbstractBaseEntity {
 
     @ManyToOne
@@ -20,6 +20,7 @@ public class Stock extends AbstractBaseEntity {
     @JoinColumn(name = "item_id")
     private Item item;
 
+    // Kilograms, as every stock quantity: lots, issues and journal entries alike
     @Column(name = "quantity")
     private double quantity;
 
@@ -10,7 +10,9 @@ import java.util.Date;
 @Entity
 @Getter
 @Setter
-
+@Table(indexes = {
+        @Index(name = "idx_stock_in_fefo", columnList = "school_id, item_id, expiration_date")
+})
 public class StockIn  extends AbstractBaseEntity {
 
     @ManyToOne
@@ -25,10 +27,15 @@ public class StockIn  extends AbstractBaseEntity {
     @JoinColumn(name = "item_id")
     private Item item;
 
+    // Kilograms received
     @Column(name = "quantity")
     private double quantity;
 
     @Temporal(TemporalType.DATE)
     @Column(name = "expiration_date")
     private Date expirationDate;
+
+    // What is left of this lot after the stock-outs drawn from it, earliest expiry first
+    @Column(name = "remaining_quantity")
+    private Double remainingQuantity;
 }
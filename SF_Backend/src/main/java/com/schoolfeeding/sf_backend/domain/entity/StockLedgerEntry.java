@@ -0,0 +1,35 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One signed posting to a (school, item) balance, kept for point-in-time balances
+@Entity
+@Getter
+@Setter
+@Table(name = "stock_ledger_entry", indexes = {
+        @Index(name = "idx_stock_ledger_entry_school", columnList = "school_id, posted_at"),
+        @Index(name = "idx_stock_ledger_entry_posted", columnList = "posted_at")
+})
+public class StockLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "school_id", nullable = false)
+    private UUID schoolId;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "quantity", nullable = false)
+    private double quantity;
+
+    @Column(name = "posted_at", nullable = false)
+    private LocalDateTime postedAt;
+}
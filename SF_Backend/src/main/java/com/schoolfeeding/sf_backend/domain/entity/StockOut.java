@@ -2,17 +2,19 @@ package com.schoolfeeding.sf_backend.domain.entity;
 
 import com.schoolfeeding.sf_backend.domain.base.AbstractBaseEntity;
 import com.schoolfeeding.sf_backend.util.stock.EStock;
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.ManyToOne;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
 @Entity
 @Getter
 @Setter
-
+@Table(indexes = @Index(name = "idx_stock_out_consumption", columnList = "school_id, item_id, issued_at"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_out_feeding_day",
+                columnNames = {"school_id", "feeding_date", "item_id"}))
 public class StockOut extends AbstractBaseEntity {
 
     @ManyToOne
@@ -27,6 +29,14 @@ public class StockOut extends AbstractBaseEntity {
     @JoinColumn(name = "request_item_id")
     private RequestItem requestItem;
 
+    // Kilograms issued
     @Column(name = "quantity")
     private double quantity;
+
+    @Column(name = "issued_at")
+    private LocalDateTime issuedAt;
+
+    // Set on daily consumption postings only: one line per school, day and item
+    @Column(name = "feeding_date")
+    private LocalDate feedingDate;
 }
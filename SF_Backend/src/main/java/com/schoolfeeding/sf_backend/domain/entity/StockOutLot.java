@@ -0,0 +1,31 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+// The part of a stock-out drawn from one StockIn lot; kept so the draw can be given back
+@Entity
+@Getter
+@Setter
+@Table(name = "stock_out_lot", indexes = {
+        @Index(name = "idx_stock_out_lot_out", columnList = "stock_out_id"),
+        @Index(name = "idx_stock_out_lot_in", columnList = "stock_in_id")
+})
+public class StockOutLot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stock_out_id", nullable = false)
+    private UUID stockOutId;
+
+    @Column(name = "stock_in_id", nullable = false)
+    private UUID stockInId;
+
+    @Column(name = "quantity", nullable = false)
+    private double quantity;
+}
@@ -0,0 +1,33 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// A (school, item) balance at the start of snapshot_date: every journal entry posted before that day
+@Entity
+@Getter
+@Setter
+@Table(name = "stock_snapshot", uniqueConstraints = @UniqueConstraint(name = "uk_stock_snapshot_school_date",
+        columnNames = {"school_id", "snapshot_date", "item_id"}))
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(name = "school_id", nullable = false)
+    private UUID schoolId;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "quantity", nullable = false)
+    private double quantity;
+}
@@ -0,0 +1,65 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The build of one balance snapshot. Its rows are written a chunk of schools at a time, so only a
+ * COMPLETED run says the snapshot of that day is whole; anything else is neither read from nor
+ * built on, and a FAILED one is built again from scratch.
+ * <p>
+ * A RUNNING build holds the day by its heartbeat: the building instance renews it after every
+ * chunk, and only a run whose heartbeat has gone quiet is taken for dead and failed over. Each
+ * attempt gets a fresh id, so a builder that lost its lease cannot finish over another's attempt.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "stock_snapshot_run", uniqueConstraints = @UniqueConstraint(name = "uk_stock_snapshot_run_date",
+        columnNames = "snapshot_date"))
+public class StockSnapshotRun {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    // The complete snapshot this one was built from; null for the baseline
+    @Column(name = "previous_snapshot_date")
+    private LocalDate previousSnapshotDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private EJobState state;
+
+    @Column(name = "schools", nullable = false)
+    private int schools;
+
+    @Column(name = "rows_written", nullable = false)
+    private int rowsWritten;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Last sign of life from the instance building it; compared with the database clock
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+}
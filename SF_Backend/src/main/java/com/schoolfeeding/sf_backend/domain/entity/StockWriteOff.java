@@ -0,0 +1,45 @@
+package com.schoolfeeding.sf_backend.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Expired quantity of a lot taken off the stock ledger by an expiry sweep
+@Entity
+@Getter
+@Setter
+@Table(name = "stock_write_off", indexes = {
+        @Index(name = "idx_stock_write_off_run", columnList = "run_id"),
+        @Index(name = "idx_stock_write_off_school", columnList = "school_id, item_id")
+})
+public class StockWriteOff {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private UUID runId;
+
+    @Column(name = "stock_in_id", nullable = false)
+    private UUID stockInId;
+
+    @Column(name = "school_id", nullable = false)
+    private UUID schoolId;
+
+    @Column(name = "item_id", nullable = false)
+    private UUID itemId;
+
+    @Column(name = "quantity", nullable = false)
+    private double quantity;
+
+    @Column(name = "expiration_date", nullable = false)
+    private LocalDate expirationDate;
+
+    @Column(name = "written_off_at", nullable = false)
+    private LocalDateTime writtenOffAt;
+}
@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.ConsumptionAnomaly;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ConsumptionAnomalyRepository extends JpaRepository<ConsumptionAnomaly, Long> {
+
+    List<ConsumptionAnomaly> findByDetectedAtGreaterThanEqualOrderByDetectedAtDesc(LocalDateTime since, Limit limit);
+
+    List<ConsumptionAnomaly> findBySchoolIdAndDetectedAtGreaterThanEqualOrderByDetectedAtDesc(
+            UUID schoolId, LocalDateTime since, Limit limit);
+}
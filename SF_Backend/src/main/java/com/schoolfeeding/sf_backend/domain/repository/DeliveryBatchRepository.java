@@ -0,0 +1,38 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.dto.DeliveryManifestRowDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DeliveryOrderDTO;
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import com.schoolfeeding.sf_backend.util.order.EDeliveryBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DeliveryBatchRepository extends JpaRepository<DeliveryBatch, UUID> {
+
+    // Approved orders not yet in a batch, the ones a dispatch moves on; a null supplier means all suppliers
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.DeliveryOrderDTO(o.id, o.supplier.id, d.id, sc.id, " +
+            "o.deliveryDate, o.orderPrice) " +
+            "FROM Orders o JOIN o.requestItem r JOIN r.school sc JOIN sc.district d " +
+            "WHERE o.isDeleted = false " +
+            "AND o.deliveryStatus = com.schoolfeeding.sf_backend.util.order.EDelivery.APPROVED " +
+            "AND (:supplierId IS NULL OR o.supplier.id = :supplierId) " +
+            "AND NOT EXISTS (SELECT 1 FROM DeliveryBatchOrder bo WHERE bo.orderId = o.id)")
+    List<DeliveryOrderDTO> findUnbatchedOpenOrders(@Param("supplierId") UUID supplierId);
+
+    @Query("SELECT b FROM DeliveryBatch b WHERE (:supplierId IS NULL OR b.supplierId = :supplierId) " +
+            "AND (:state IS NULL OR b.state = :state) ORDER BY b.windowStart, b.supplierId, b.districtId")
+    List<DeliveryBatch> search(@Param("supplierId") UUID supplierId, @Param("state") EDeliveryBatch state);
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.DeliveryManifestRowDTO(o.id, r.id, sc.id, sc.name, " +
+            "sc.Address, o.deliveryDate, r.quantity, o.orderPrice, i.Name) " +
+            "FROM DeliveryBatchOrder bo, Orders o JOIN o.requestItem r JOIN r.school sc LEFT JOIN r.items i " +
+            "WHERE bo.batchId = :batchId AND o.id = bo.orderId " +
+            "ORDER BY sc.name, sc.id, o.deliveryDate, o.id")
+    List<DeliveryManifestRowDTO> findManifestRows(@Param("batchId") UUID batchId);
+}
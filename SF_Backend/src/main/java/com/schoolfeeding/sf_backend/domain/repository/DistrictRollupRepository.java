@@ -0,0 +1,69 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO;
+import com.schoolfeeding.sf_backend.domain.entity.DistrictRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DistrictRollupRepository extends JpaRepository<DistrictRollup, UUID> {
+
+    // Add a delta to the district row, creating it on first use
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO district_rollup (district_id, province, school_count, student_count) " +
+            "VALUES (:districtId, :province, :schoolDelta, :studentDelta) " +
+            "ON CONFLICT (district_id) DO UPDATE SET " +
+            "school_count = district_rollup.school_count + EXCLUDED.school_count, " +
+            "student_count = district_rollup.student_count + EXCLUDED.student_count",
+            nativeQuery = true)
+    int applyDelta(@Param("districtId") UUID districtId,
+                   @Param("province") String province,
+                   @Param("schoolDelta") long schoolDelta,
+                   @Param("studentDelta") long studentDelta);
+
+    // Recompute every live district row from the school table in one statement. A district without a
+    // province of its own takes its EDistrict's, passed in as two parallel arrays, as the delta path does.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO district_rollup (district_id, province, school_count, student_count, reconciled_at) " +
+            "SELECT d.id, COALESCE(d.province, m.province), COUNT(s.id), COALESCE(SUM(s.number_student), 0), now() " +
+            "FROM district d " +
+            "LEFT JOIN unnest(CAST(:districts AS text[]), CAST(:provinces AS text[])) AS m(district, province) " +
+            "ON m.district = d.district " +
+            "LEFT JOIN school s ON s.district_id = d.id AND s.is_deleted = false " +
+            "WHERE d.is_deleted = false " +
+            "GROUP BY d.id, d.province, m.province " +
+            "ON CONFLICT (district_id) DO UPDATE SET " +
+            "province = EXCLUDED.province, " +
+            "school_count = EXCLUDED.school_count, " +
+            "student_count = EXCLUDED.student_count, " +
+            "reconciled_at = EXCLUDED.reconciled_at",
+            nativeQuery = true)
+    int reconcileAll(@Param("districts") String[] districts, @Param("provinces") String[] provinces);
+
+    // Deleted districts drop out of the totals
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM district_rollup WHERE district_id IN (SELECT id FROM district WHERE is_deleted = true)",
+            nativeQuery = true)
+    int removeDeletedDistricts();
+
+    // Districts without a province come back as one row with a null province
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO(r.province, SUM(r.schoolCount), SUM(r.studentCount)) " +
+            "FROM DistrictRollup r GROUP BY r.province")
+    List<ProvinceStatsDTO> sumByProvince();
+
+    @Query("SELECT COALESCE(SUM(r.studentCount), 0) FROM DistrictRollup r")
+    long totalStudents();
+
+    @Query("SELECT COALESCE(SUM(r.schoolCount), 0) FROM DistrictRollup r")
+    long totalSchools();
+}
@@ -0,0 +1,14 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.ExpiryAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ExpiryAlertRepository extends JpaRepository<ExpiryAlert, UUID> {
+
+    List<ExpiryAlert> findByRunIdOrderByExpiredQuantityDescExpiringQuantityDesc(UUID runId);
+}
@@ -0,0 +1,20 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.ExpirySweepRun;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ExpirySweepRunRepository extends JpaRepository<ExpirySweepRun, UUID> {
+
+    // A sweep of the given day left RUNNING by a crash or FAILED, to be picked up again
+    Optional<ExpirySweepRun> findFirstByRunDateAndStateInOrderByStartedAtDesc(LocalDate runDate, List<EJobState> states);
+
+    Optional<ExpirySweepRun> findFirstByOrderByStartedAtDesc();
+}
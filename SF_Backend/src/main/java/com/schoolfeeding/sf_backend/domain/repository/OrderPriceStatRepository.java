@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.OrderPriceStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OrderPriceStatRepository extends JpaRepository<OrderPriceStat, Long> {
+
+    @Query("SELECT s FROM OrderPriceStat s WHERE s.itemId = :itemId " +
+            "AND (:districtId IS NULL OR s.districtId = :districtId) " +
+            "AND s.month BETWEEN :from AND :to ORDER BY s.month, s.districtId")
+    List<OrderPriceStat> findForItem(@Param("itemId") UUID itemId,
+                                     @Param("districtId") UUID districtId,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+}
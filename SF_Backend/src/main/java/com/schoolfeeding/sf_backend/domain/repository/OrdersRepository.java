@@ -1,7 +1,9 @@
 package com.schoolfeeding.sf_backend.domain.repository;
 
+import com.schoolfeeding.sf_backend.domain.dto.SupplierStatDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Orders;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,23 @@ public interface OrdersRepository extends JpaRepository<Orders, UUID> {
 
     // Only fetch active (not deleted) orders
     List<Orders> findByIsDeletedFalse();
+
+    // Average unit price (order price / requested quantity) per supplier and item, cancelled orders excluded.
+    // A request carries one quantity and one price for all its items, so only single-item requests say
+    // what an item costs.
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SupplierStatDTO(o.supplier.id, i.id, AVG(o.orderPrice / r.quantity), COUNT(o)) " +
+            "FROM Orders o JOIN o.requestItem r JOIN r.items i " +
+            "WHERE o.isDeleted = false AND r.quantity > 0 " +
+            "AND r.id IN (SELECT r1.id FROM RequestItem r1 JOIN r1.items i1 GROUP BY r1.id HAVING COUNT(i1) = 1) " +
+            "AND o.deliveryStatus <> com.schoolfeeding.sf_backend.util.order.EDelivery.CANCELLED " +
+            "GROUP BY o.supplier.id, i.id")
+    List<SupplierStatDTO> averageUnitPriceBySupplierAndItem();
+
+    // Orders still to be delivered, per supplier
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SupplierStatDTO(o.supplier.id, COUNT(o)) " +
+            "FROM Orders o WHERE o.isDeleted = false " +
+            "AND o.deliveryStatus IN (com.schoolfeeding.sf_backend.util.order.EDelivery.APPROVED, " +
+            "com.schoolfeeding.sf_backend.util.order.EDelivery.PROCESSING) " +
+            "GROUP BY o.supplier.id")
+    List<SupplierStatDTO> countOpenOrdersBySupplier();
 }
@@ -0,0 +1,40 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.publishedAt IS NULL AND e.attempts < :maxAttempts")
+    long countPending(@Param("maxAttempts") int maxAttempts);
+
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.publishedAt IS NULL AND e.attempts >= :maxAttempts")
+    long countFailed(@Param("maxAttempts") int maxAttempts);
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.publishedAt IS NULL AND e.attempts < :maxAttempts")
+    LocalDateTime oldestPendingCreatedAt(@Param("maxAttempts") int maxAttempts);
+
+    // Order events for a supplier the relay claimed after the given dispatch sequence, for stream resume
+    @Query(value = "SELECT * FROM outbox_event WHERE supplier_id = :supplierId AND dispatch_seq > :afterSeq " +
+            "AND event_type IN ('ORDER_CREATED', 'ORDER_STATUS_CHANGED') " +
+            "ORDER BY dispatch_seq LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findSupplierOrderEventsAfter(@Param("supplierId") UUID supplierId,
+                                                   @Param("afterSeq") long afterSeq,
+                                                   @Param("limit") int limit);
+
+    // Order events for a school the relay claimed after the given dispatch sequence, for stream resume
+    @Query(value = "SELECT * FROM outbox_event WHERE school_id = :schoolId AND dispatch_seq > :afterSeq " +
+            "AND event_type IN ('ORDER_CREATED', 'ORDER_STATUS_CHANGED') " +
+            "ORDER BY dispatch_seq LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findSchoolOrderEventsAfter(@Param("schoolId") UUID schoolId,
+                                                 @Param("afterSeq") long afterSeq,
+                                                 @Param("limit") int limit);
+}
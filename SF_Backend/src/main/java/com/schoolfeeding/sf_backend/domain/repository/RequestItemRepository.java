@@ -1,15 +1,30 @@
 package com.schoolfeeding.sf_backend.domain.repository;
 
 import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.UUID;
 
-public interface RequestItemRepository extends JpaRepository<RequestItem, UUID> {
+public interface RequestItemRepository extends JpaRepository<RequestItem, UUID>, JpaSpecificationExecutor<RequestItem> {
 
     // ✅ Return only non-deleted items
+    @EntityGraph(attributePaths = {"district", "school", "school.district"})
     @Query("SELECT r FROM RequestItem r WHERE r.isDeleted = false")
     List<RequestItem> findAllActive();
+
+    // ✅ Filtered page; district and school are joined, items are batch-fetched
+    @Override
+    @EntityGraph(attributePaths = {"district", "school", "school.district"})
+    Page<RequestItem> findAll(Specification<RequestItem> spec, Pageable pageable);
+
+    @Query("SELECT r.school.id FROM RequestItem r WHERE r.id = :id")
+    UUID findSchoolIdById(@Param("id") UUID id);
 }
@@ -1,10 +1,14 @@
 package com.schoolfeeding.sf_backend.domain.repository;
 
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
 import com.schoolfeeding.sf_backend.domain.entity.School;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -12,4 +16,16 @@ public interface SchoolRepository extends JpaRepository<School, UUID> {
     
     List<School> findByIsDeletedFalse();
     long countByActiveTrueAndIsDeletedFalse();
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO(s.id, s.name, d.id, s.numberStudent) " +
+            "FROM School s LEFT JOIN s.district d WHERE s.isDeleted = false AND s.active = true")
+    List<SchoolHeadcountDTO> findActiveHeadcounts();
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO(s.id, s.name, d.id, s.numberStudent) " +
+            "FROM School s JOIN s.district d WHERE d.id = :districtId AND s.isDeleted = false AND s.active = true")
+    List<SchoolHeadcountDTO> findActiveHeadcountsByDistrict(@Param("districtId") UUID districtId);
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO(s.id, s.name, d.id, s.numberStudent) " +
+            "FROM School s LEFT JOIN s.district d WHERE s.id = :schoolId AND s.isDeleted = false AND s.active = true")
+    Optional<SchoolHeadcountDTO> findActiveHeadcount(@Param("schoolId") UUID schoolId);
 }
@@ -0,0 +1,19 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.SettlementRun;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SettlementRunRepository extends JpaRepository<SettlementRun, UUID> {
+
+    // A run left RUNNING by a crash or FAILED, to be picked up again
+    Optional<SettlementRun> findFirstByStateInOrderByStartedAtDesc(List<EJobState> states);
+
+    Optional<SettlementRun> findFirstByOrderByStartedAtDesc();
+}
@@ -1,9 +1,14 @@
 package com.schoolfeeding.sf_backend.domain.repository;
 
+import com.schoolfeeding.sf_backend.domain.dto.StockLotDTO;
 import com.schoolfeeding.sf_backend.domain.entity.StockIn;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,4 +16,25 @@ import java.util.UUID;
 public interface StockInRepository extends JpaRepository<StockIn, UUID> {
     // Only get records that are not deleted
     List<StockIn> findByIsDeletedFalse();
+
+    // Open lots of one (school, item) in consumption order, read off idx_stock_in_fefo
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLotDTO(s.id, s.school.id, i.id, i.Name, s.quantity, " +
+            "s.remainingQuantity, s.expirationDate) FROM StockIn s JOIN s.item i " +
+            "WHERE s.school.id = :schoolId AND i.id = :itemId AND s.isDeleted = false AND s.remainingQuantity > 0 " +
+            "ORDER BY s.expirationDate ASC NULLS LAST, s.id")
+    List<StockLotDTO> findOpenLots(@Param("schoolId") UUID schoolId, @Param("itemId") UUID itemId);
+
+    // Open lots expiring by the given day, soonest first; a range scan of the partial idx_stock_in_open_expiry
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLotDTO(s.id, s.school.id, i.id, i.Name, s.quantity, " +
+            "s.remainingQuantity, s.expirationDate) FROM StockIn s JOIN s.item i " +
+            "WHERE s.expirationDate <= :until AND s.isDeleted = false AND s.remainingQuantity > 0 " +
+            "ORDER BY s.expirationDate, s.id")
+    List<StockLotDTO> findExpiring(@Param("until") Date until, Limit limit);
+
+    // Same for one school, off the partial idx_stock_in_open_school
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLotDTO(s.id, s.school.id, i.id, i.Name, s.quantity, " +
+            "s.remainingQuantity, s.expirationDate) FROM StockIn s JOIN s.item i " +
+            "WHERE s.school.id = :schoolId AND s.expirationDate <= :until AND s.isDeleted = false " +
+            "AND s.remainingQuantity > 0 ORDER BY s.expirationDate, s.id")
+    List<StockLotDTO> findExpiringAtSchool(@Param("schoolId") UUID schoolId, @Param("until") Date until, Limit limit);
 }
@@ -0,0 +1,14 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockOutRepository extends JpaRepository<StockOut, UUID> {
+    // Only get records that are not deleted
+    List<StockOut> findByIsDeletedFalse();
+}
@@ -0,0 +1,38 @@
+package com.schoolfeeding.sf_backend.domain.repository;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockBalanceDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Stock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockRepository extends JpaRepository<Stock, UUID> {
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO(s.school.id, s.item.id, SUM(s.quantity)) " +
+            "FROM Stock s WHERE s.isDeleted = false GROUP BY s.school.id, s.item.id")
+    List<StockLevelDTO> sumQuantityBySchoolAndItem();
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO(s.school.id, s.item.id, SUM(s.quantity)) " +
+            "FROM Stock s WHERE s.school.district.id = :districtId AND s.isDeleted = false GROUP BY s.school.id, s.item.id")
+    List<StockLevelDTO> sumQuantityBySchoolAndItemInDistrict(@Param("districtId") UUID districtId);
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO(s.school.id, s.item.id, SUM(s.quantity)) " +
+            "FROM Stock s WHERE s.school.id = :schoolId AND s.isDeleted = false GROUP BY s.school.id, s.item.id")
+    List<StockLevelDTO> sumQuantityByItemForSchool(@Param("schoolId") UUID schoolId);
+
+    // Balance of one (school, item): a unique-key lookup
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockBalanceDTO(s.school.id, i.id, i.Name, s.quantity, s.stockState) " +
+            "FROM Stock s JOIN s.item i WHERE s.school.id = :schoolId AND i.id = :itemId AND s.isDeleted = false")
+    Optional<StockBalanceDTO> findBalance(@Param("schoolId") UUID schoolId, @Param("itemId") UUID itemId);
+
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.StockBalanceDTO(s.school.id, i.id, i.Name, s.quantity, s.stockState) " +
+            "FROM Stock s JOIN s.item i WHERE s.school.id = :schoolId AND s.isDeleted = false ORDER BY i.Name")
+    List<StockBalanceDTO> findBalancesBySchool(@Param("schoolId") UUID schoolId);
+}
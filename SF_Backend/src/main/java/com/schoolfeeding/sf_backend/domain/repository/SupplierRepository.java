@@ -1,7 +1,9 @@
 package com.schoolfeeding.sf_backend.domain.repository;
 
+import com.schoolfeeding.sf_backend.domain.dto.SupplierItemDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Supplier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,9 @@ import java.util.UUID;
 public interface SupplierRepository extends JpaRepository<Supplier, UUID> {
     // Only fetch active suppliers
     List<Supplier> findByIsDeletedFalse();
+
+    // (supplier, item) pairs for active suppliers, used to build the item -> supplier index
+    @Query("SELECT new com.schoolfeeding.sf_backend.domain.dto.SupplierItemDTO(s.id, s.names, i.id) " +
+            "FROM Supplier s JOIN s.items i WHERE s.isDeleted = false AND s.active = true")
+    List<SupplierItemDTO> findActiveSupplierItems();
 }
@@ -1,7 +1,6 @@
 package com.schoolfeeding.sf_backend.domain.service;
 
 import com.schoolfeeding.sf_backend.domain.dto.AdminDashboardSummaryDTO;
-import com.schoolfeeding.sf_backend.domain.repository.DistrictRepository;
 import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
 import com.schoolfeeding.sf_backend.domain.repository.UsersRepository;
 import lombok.RequiredArgsConstructor;
@@ -13,12 +12,12 @@ public class AdminDashboardService {
 
     private final UsersRepository userRepository;
     private final SchoolRepository schoolRepository;
-    private final DistrictRepository districtRepository;
+    private final DistrictRegistry districtRegistry;
 
     public AdminDashboardSummaryDTO getDashboardSummary() {
         long totalUsers = userRepository.count();
         long activeSchools = schoolRepository.countByActiveTrueAndIsDeletedFalse();
-        long totalDistricts = districtRepository.countByIsDeletedFalse();
+        long totalDistricts = districtRegistry.size();
 
         return new AdminDashboardSummaryDTO(totalUsers, activeSchools, totalDistricts);
     }
@@ -0,0 +1,317 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetShareDTO;
+import com.schoolfeeding.sf_backend.util.budget.EBudget;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Splits an active Budget_Gov across districts and schools. Every active school weighs
+ * {@code schoolWeight + studentWeight x numberStudent}, times its district's weight; a school gets
+ * the budget in proportion to its weight and a district the sum of its schools, so the two levels
+ * always add up. Amounts are whole cents, the cents left over by rounding going to the largest
+ * remainders, so the schools add up to the budget exactly.
+ * <p>
+ * Schools are read in one pass ordered by district into primitive arrays. The run is a diff
+ * against what the budget already has: only new, changed and dropped rows are written, in
+ * batches, and a re-run with nothing changed writes nothing. The budget row is locked for the
+ * run, so two runs of the same budget do not interleave, and a school row carries the budget's id
+ * itself, keyed with the school, so a school has one row per budget whichever district it sits in.
+ * Rows written before that column existed get it on the next run.
+ */
+@Slf4j
+@Service
+public class BudgetAllocationService {
+
+    private static final String LOCK_BUDGET =
+            "SELECT budget, status FROM budget_gov WHERE id = ? AND is_deleted = false FOR UPDATE";
+
+    private static final String SCHOOLS =
+            "SELECT id, district_id, COALESCE(number_student, 0) AS number_student FROM school " +
+            "WHERE is_deleted = false AND active = true AND district_id IS NOT NULL ORDER BY district_id, id";
+
+    // Deleted rows are read too: a district or school that comes back gets its old row again
+    private static final String DISTRICT_ROWS =
+            "SELECT id, district_id, budget, is_deleted FROM budget_district WHERE budget_id = ?";
+
+    private static final String SCHOOL_ROWS =
+            "SELECT bs.id, bs.school_id, bs.budget_id, bs.budget_gov_id, bs.budget, bs.is_deleted FROM budget_school bs " +
+            "JOIN budget_district bd ON bd.id = bs.budget_id WHERE bd.budget_id = ? AND bs.school_id IS NOT NULL";
+
+    private static final String INSERT_DISTRICT =
+            "INSERT INTO budget_district (id, active, is_deleted, budget_id, district_id, budget, budget_status) " +
+            "VALUES (?, true, false, ?, ?, ?, ?)";
+
+    private static final String UPDATE_DISTRICT =
+            "UPDATE budget_district SET budget = ?, is_deleted = false WHERE id = ?";
+
+    private static final String REMOVE_DISTRICT =
+            "UPDATE budget_district SET budget = 0, is_deleted = true WHERE id = ?";
+
+    private static final String INSERT_SCHOOL =
+            "INSERT INTO budget_school (id, active, is_deleted, budget_id, budget_gov_id, school_id, budget, " +
+            "budget_status) VALUES (?, true, false, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SCHOOL =
+            "UPDATE budget_school SET budget = ?, budget_id = ?, budget_gov_id = ?, is_deleted = false WHERE id = ?";
+
+    private static final String REMOVE_SCHOOL =
+            "UPDATE budget_school SET budget = 0, is_deleted = true WHERE id = ?";
+
+    private static final String DISTRICT_SHARES =
+            "SELECT bd.id, bd.district_id, d.district, bd.budget, bd.budget_status, " +
+            "COALESCE(SUM(sc.number_student), 0) AS students FROM budget_district bd " +
+            "LEFT JOIN district d ON d.id = bd.district_id " +
+            "LEFT JOIN budget_school bs ON bs.budget_id = bd.id AND bs.is_deleted = false " +
+            "LEFT JOIN school sc ON sc.id = bs.school_id " +
+            "WHERE bd.budget_id = ? AND bd.is_deleted = false " +
+            "GROUP BY bd.id, bd.district_id, d.district, bd.budget, bd.budget_status ORDER BY bd.budget DESC";
+
+    private static final String SCHOOL_SHARES =
+            "SELECT bs.id, bs.school_id, sc.school_name, COALESCE(sc.number_student, 0) AS students, bs.budget, " +
+            "bs.budget_status FROM budget_school bs JOIN budget_district bd ON bd.id = bs.budget_id " +
+            "LEFT JOIN school sc ON sc.id = bs.school_id " +
+            "WHERE bd.budget_id = ? AND bd.district_id = ? AND bs.is_deleted = false ORDER BY bs.budget DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double defaultSchoolWeight;
+    private final double defaultStudentWeight;
+
+    public BudgetAllocationService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${budget.allocation.school-weight:0}") double defaultSchoolWeight,
+                                   @Value("${budget.allocation.student-weight:1}") double defaultStudentWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultSchoolWeight = defaultSchoolWeight;
+        this.defaultStudentWeight = defaultStudentWeight;
+    }
+
+    // ✅ Allocate an active budget to districts and schools, writing only what changed since the last run
+    public BudgetAllocationResultDTO allocate(UUID budgetId, BudgetAllocationRequestDTO request) {
+        BudgetAllocationRequestDTO weights = request != null ? request : new BudgetAllocationRequestDTO();
+        double schoolWeight = weights.getSchoolWeight() != null ? weights.getSchoolWeight() : defaultSchoolWeight;
+        double studentWeight = weights.getStudentWeight() != null ? weights.getStudentWeight() : defaultStudentWeight;
+        Map<UUID, Double> districtWeights = weights.getDistrictWeights() != null ? weights.getDistrictWeights() : Map.of();
+        if (schoolWeight < 0 || studentWeight < 0 || districtWeights.values().stream().anyMatch(w -> w == null || w < 0)) {
+            throw new IllegalArgumentException("Weights must be non-negative numbers");
+        }
+        long start = System.nanoTime();
+        BudgetAllocationResultDTO result = transactionTemplate.execute(tx ->
+                allocateLocked(budgetId, schoolWeight, studentWeight, districtWeights));
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("Budget {} allocated to {} districts and {} schools in {} ms: districts +{} ~{} -{}, schools +{} ~{} -{}",
+                budgetId, result.getDistricts(), result.getSchools(), result.getDurationMillis(),
+                result.getDistrictsInserted(), result.getDistrictsUpdated(), result.getDistrictsRemoved(),
+                result.getSchoolsInserted(), result.getSchoolsUpdated(), result.getSchoolsRemoved());
+        return result;
+    }
+
+    // ✅ Districts' parts of a budget, largest first
+    public List<BudgetShareDTO> getDistrictShares(UUID budgetId) {
+        List<BudgetShareDTO> shares = new ArrayList<>();
+        jdbcTemplate.query(DISTRICT_SHARES, rs -> {
+            shares.add(new BudgetShareDTO(rs.getObject("id", UUID.class), rs.getObject("district_id", UUID.class),
+                    rs.getString("district"), rs.getLong("students"), rs.getDouble("budget"),
+                    status(rs.getObject("budget_status", Integer.class))));
+        }, budgetId);
+        return shares;
+    }
+
+    // ✅ Schools' parts of a district's share of a budget, largest first
+    public List<BudgetShareDTO> getSchoolShares(UUID budgetId, UUID districtId) {
+        List<BudgetShareDTO> shares = new ArrayList<>();
+        jdbcTemplate.query(SCHOOL_SHARES, rs -> {
+            shares.add(new BudgetShareDTO(rs.getObject("id", UUID.class), rs.getObject("school_id", UUID.class),
+                    rs.getString("school_name"), rs.getLong("students"), rs.getDouble("budget"),
+                    status(rs.getObject("budget_status", Integer.class))));
+        }, budgetId, districtId);
+        return shares;
+    }
+
+    private BudgetAllocationResultDTO allocateLocked(UUID budgetId, double schoolWeight, double studentWeight,
+                                                     Map<UUID, Double> districtWeights) {
+        List<Map<String, Object>> budget = jdbcTemplate.queryForList(LOCK_BUDGET, budgetId);
+        if (budget.isEmpty()) {
+            throw new EntityNotFoundException("Budget not found");
+        }
+        if (!Boolean.TRUE.equals(budget.get(0).get("status"))) {
+            throw new IllegalStateException("Only an active budget can be allocated");
+        }
+        double amount = ((Number) budget.get(0).get("budget")).doubleValue();
+
+        Schools schools = Schools.load(jdbcTemplate, schoolWeight, studentWeight, districtWeights);
+        if (schools.totalWeight <= 0) {
+            throw new IllegalStateException("No active school carries any weight to allocate to");
+        }
+        int n = schools.count;
+        int d = schools.districtIds.size();
+
+        // Whole cents by weight, the rounding leftovers to the largest remainders
+        long cents = Math.round(amount * 100);
+        long[] schoolCents = new long[n];
+        double[] remainder = new double[n];
+        long assigned = 0;
+        for (int i = 0; i < n; i++) {
+            double exact = cents * (schools.weight[i] / schools.totalWeight);
+            schoolCents[i] = (long) Math.floor(exact);
+            remainder[i] = exact - schoolCents[i];
+            assigned += schoolCents[i];
+        }
+        IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -remainder[i]).thenComparingInt(i -> i))
+                .limit(Math.max(0, cents - assigned))
+                .forEach(i -> schoolCents[i]++);
+        long[] districtCents = new long[d];
+        for (int i = 0; i < n; i++) {
+            districtCents[schools.district[i]] += schoolCents[i];
+        }
+
+        BudgetAllocationResultDTO result = new BudgetAllocationResultDTO();
+        result.setBudgetId(budgetId);
+        result.setBudget(cents / 100.0);
+        result.setDistricts(d);
+        result.setSchools(n);
+        result.setStudents(schools.studentTotal);
+
+        // Districts: diff against the rows the budget already has
+        Map<UUID, Row> districtRows = new HashMap<>();
+        jdbcTemplate.query(DISTRICT_ROWS, rs -> {
+            districtRows.put(rs.getObject("district_id", UUID.class), Row.of(rs.getObject("id", UUID.class), null,
+                    budgetId, rs.getDouble("budget"), rs.getBoolean("is_deleted")));
+        }, budgetId);
+        UUID[] districtRowIds = new UUID[d];
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (int k = 0; k < d; k++) {
+            UUID districtId = schools.districtIds.get(k);
+            Row row = districtRows.remove(districtId);
+            if (row == null) {
+                districtRowIds[k] = UUID.randomUUID();
+                inserts.add(new Object[]{districtRowIds[k], budgetId, districtId, districtCents[k] / 100.0,
+                        EBudget.ON_TRACK.ordinal()});
+                continue;
+            }
+            districtRowIds[k] = row.id;
+            if (row.deleted || row.cents != districtCents[k]) {
+                updates.add(new Object[]{districtCents[k] / 100.0, row.id});
+            }
+        }
+        List<Object[]> removals = districtRows.values().stream()
+                .filter(row -> !row.deleted)
+                .map(row -> new Object[]{row.id})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_DISTRICT, inserts);
+        jdbcTemplate.batchUpdate(UPDATE_DISTRICT, updates);
+        result.setDistrictsInserted(inserts.size());
+        result.setDistrictsUpdated(updates.size());
+        result.setDistrictsRemoved(removals.size());
+        result.setDistrictsUnchanged(d - inserts.size() - updates.size());
+
+        // Schools: same, a school that changed district moves to its new district's row
+        Map<UUID, Row> schoolRows = new HashMap<>();
+        jdbcTemplate.query(SCHOOL_ROWS, rs -> {
+            schoolRows.put(rs.getObject("school_id", UUID.class), Row.of(rs.getObject("id", UUID.class),
+                    rs.getObject("budget_id", UUID.class), rs.getObject("budget_gov_id", UUID.class),
+                    rs.getDouble("budget"), rs.getBoolean("is_deleted")));
+        }, budgetId);
+        List<Object[]> schoolInserts = new ArrayList<>();
+        List<Object[]> schoolUpdates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            UUID schoolId = schools.schoolIds.get(i);
+            UUID parentId = districtRowIds[schools.district[i]];
+            Row row = schoolRows.remove(schoolId);
+            if (row == null) {
+                schoolInserts.add(new Object[]{UUID.randomUUID(), parentId, budgetId, schoolId, schoolCents[i] / 100.0,
+                        EBudget.ON_TRACK.ordinal()});
+            } else if (row.deleted || row.cents != schoolCents[i] || !parentId.equals(row.parentId)
+                    || !budgetId.equals(row.budgetId)) {
+                schoolUpdates.add(new Object[]{schoolCents[i] / 100.0, parentId, budgetId, row.id});
+            }
+        }
+        List<Object[]> schoolRemovals = schoolRows.values().stream()
+                .filter(row -> !row.deleted)
+                .map(row -> new Object[]{row.id})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SCHOOL, schoolInserts);
+        jdbcTemplate.batchUpdate(UPDATE_SCHOOL, schoolUpdates);
+        jdbcTemplate.batchUpdate(REMOVE_SCHOOL, schoolRemovals);
+        jdbcTemplate.batchUpdate(REMOVE_DISTRICT, removals);
+        result.setSchoolsInserted(schoolInserts.size());
+        result.setSchoolsUpdated(schoolUpdates.size());
+        result.setSchoolsRemoved(schoolRemovals.size());
+        result.setSchoolsUnchanged(n - schoolInserts.size() - schoolUpdates.size());
+        return result;
+    }
+
+    private static EBudget status(Integer ordinal) {
+        return ordinal == null ? null : EBudget.values()[ordinal];
+    }
+
+    private record Row(UUID id, UUID parentId, UUID budgetId, long cents, boolean deleted) {
+
+        static Row of(UUID id, UUID parentId, UUID budgetId, double budget, boolean deleted) {
+            return new Row(id, parentId, budgetId, Math.round(budget * 100), deleted);
+        }
+    }
+
+    /**
+     * Active schools in district order: school {@code i} has {@code students[i]}, weighs
+     * {@code weight[i]} and belongs to district {@code districtIds.get(district[i])}.
+     */
+    private static final class Schools {
+
+        private final List<UUID> schoolIds = new ArrayList<>();
+        private final List<UUID> districtIds = new ArrayList<>();
+        private int[] students = new int[256];
+        private int[] district = new int[256];
+        private double[] weight = new double[256];
+        private int count;
+        private long studentTotal;
+        private double totalWeight;
+
+        static Schools load(JdbcTemplate jdbcTemplate, double schoolWeight, double studentWeight,
+                            Map<UUID, Double> districtWeights) {
+            Schools schools = new Schools();
+            double[] districtWeight = new double[1];
+            jdbcTemplate.query(SCHOOLS, rs -> {
+                UUID districtId = rs.getObject("district_id", UUID.class);
+                int last = schools.districtIds.size() - 1;
+                if (last < 0 || !schools.districtIds.get(last).equals(districtId)) {
+                    schools.districtIds.add(districtId);
+                    districtWeight[0] = districtWeights.getOrDefault(districtId, 1.0);
+                }
+                int headcount = rs.getInt("number_student");
+                schools.add(rs.getObject("id", UUID.class), headcount, schools.districtIds.size() - 1,
+                        districtWeight[0] * (schoolWeight + studentWeight * headcount));
+            });
+            return schools;
+        }
+
+        private void add(UUID schoolId, int headcount, int districtIndex, double schoolWeight) {
+            if (count == students.length) {
+                students = Arrays.copyOf(students, count * 2);
+                district = Arrays.copyOf(district, count * 2);
+                weight = Arrays.copyOf(weight, count * 2);
+            }
+            schoolIds.add(schoolId);
+            students[count] = headcount;
+            district[count] = districtIndex;
+            weight[count] = schoolWeight;
+            studentTotal += headcount;
+            totalWeight += schoolWeight;
+            count++;
+        }
+    }
+}
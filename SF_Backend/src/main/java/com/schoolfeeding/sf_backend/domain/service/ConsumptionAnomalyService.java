@@ -0,0 +1,381 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionPostingDTO;
+import com.schoolfeeding.sf_backend.domain.entity.ConsumptionAnomaly;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.ConsumptionAnomalyRepository;
+import com.schoolfeeding.sf_backend.util.stock.EConsumptionAnomaly;
+import com.schoolfeeding.sf_backend.util.tx.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Flags feeding days on which a school's consumption of an item is far from the norm (the item's
+ * grams per student times the school's {@code numberStudent}) or from the school's own history,
+ * as the stock-outs are posted.
+ * <p>
+ * Committed stock-outs are handed to a single detector thread that keeps rolling statistics per
+ * (school, item) in an open-addressing table of primitive arrays: the open day's running total and
+ * an exponentially weighted mean and variance of the closed days. A posting is one probe of the
+ * table and a few arithmetic steps. A day is flagged high as soon as its running total crosses a
+ * threshold and low once it closes, when the next day of the same (school, item) starts. Flags go
+ * to {@code consumption_anomaly}, at most once per (school, item, day, kind). The table is warmed
+ * from the recent stock-outs at startup without flagging; later corrections and deletions of
+ * stock-outs are not fed back into it.
+ */
+@Slf4j
+@Service
+public class ConsumptionAnomalyService {
+
+    public static final int DEFAULT_LIMIT = 200;
+    public static final int DEFAULT_DAYS = 30;
+    private static final int MAX_LIMIT = 1000;
+
+    // Spread never taken below a tenth of the mean, so a school that always uses the same amount is not flagged for noise
+    private static final double MIN_SPREAD = 0.1;
+
+    private static final String RECENT_DAYS =
+            "SELECT school_id, item_id, COALESCE(feeding_date, CAST(issued_at AS date)) AS day, SUM(quantity) AS quantity " +
+            "FROM stock_out WHERE is_deleted = false AND school_id IS NOT NULL AND item_id IS NOT NULL AND issued_at >= ? " +
+            "GROUP BY 1, 2, 3 ORDER BY 3";
+
+    private static final String HEADCOUNT =
+            "SELECT COALESCE(number_student, 0) FROM school WHERE id = ?";
+
+    private static final String INSERT_ANOMALY =
+            "INSERT INTO consumption_anomaly (school_id, item_id, consumption_date, kind, quantity, grams_per_student, " +
+            "norm_grams_per_student, expected_quantity, deviations, stock_out_id, detected_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (school_id, item_id, consumption_date, kind) DO NOTHING";
+
+    private final ConsumptionAnomalyRepository consumptionAnomalyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemCatalog itemCatalog;
+    private final double alpha;
+    private final int minDays;
+    private final double threshold;
+    private final double normHigh;
+    private final double normLow;
+    private final int warmupDays;
+
+    private final ExecutorService detector = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "consumption-anomaly");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only touched on the detector thread
+    private final Stats stats = new Stats(1 << 12);
+    private final Map<UUID, Integer> headcounts = new HashMap<>();
+
+    public ConsumptionAnomalyService(ConsumptionAnomalyRepository consumptionAnomalyRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     ItemCatalog itemCatalog,
+                                     @Value("${stock.anomaly.alpha:0.1}") double alpha,
+                                     @Value("${stock.anomaly.min-days:5}") int minDays,
+                                     @Value("${stock.anomaly.deviations:3}") double threshold,
+                                     @Value("${stock.anomaly.norm-high:2}") double normHigh,
+                                     @Value("${stock.anomaly.norm-low:0.25}") double normLow,
+                                     @Value("${stock.anomaly.warmup-days:60}") int warmupDays) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("stock.anomaly.alpha must be in (0, 1]");
+        }
+        this.consumptionAnomalyRepository = consumptionAnomalyRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.itemCatalog = itemCatalog;
+        this.alpha = alpha;
+        this.minDays = minDays;
+        this.threshold = threshold;
+        this.normHigh = normHigh;
+        this.normLow = normLow;
+        this.warmupDays = warmupDays;
+    }
+
+    @PostConstruct
+    void warmUp() {
+        detector.submit(this::replayRecentDays);
+    }
+
+    // Enrolment changes are picked up by dropping the cached headcounts now and then
+    @Scheduled(fixedDelayString = "${stock.anomaly.headcount-refresh-ms:3600000}",
+            initialDelayString = "${stock.anomaly.headcount-refresh-ms:3600000}")
+    public void refreshHeadcounts() {
+        detector.submit(headcounts::clear);
+    }
+
+    // Hands the postings to the detector once the caller's transaction commits
+    public void record(List<ConsumptionPostingDTO> postings) {
+        if (postings.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> detector.submit(() -> detect(postings)));
+    }
+
+    // ✅ Flagged days detected since a day (the last 30 days by default), most recent first
+    public List<ConsumptionAnomaly> getAnomalies(UUID schoolId, LocalDate since, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        LocalDateTime from = (since != null ? since : LocalDate.now().minusDays(DEFAULT_DAYS)).atStartOfDay();
+        return schoolId == null
+                ? consumptionAnomalyRepository.findByDetectedAtGreaterThanEqualOrderByDetectedAtDesc(from, Limit.of(limit))
+                : consumptionAnomalyRepository.findBySchoolIdAndDetectedAtGreaterThanEqualOrderByDetectedAtDesc(
+                        schoolId, from, Limit.of(limit));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        detector.shutdownNow();
+    }
+
+    private void replayRecentDays() {
+        try {
+            long start = System.nanoTime();
+            Timestamp since = Timestamp.valueOf(LocalDate.now().minusDays(warmupDays).atStartOfDay());
+            jdbcTemplate.query(RECENT_DAYS, rs -> {
+                accept(rs.getObject("school_id", UUID.class), rs.getObject("item_id", UUID.class), null,
+                        rs.getDouble("quantity"), rs.getDate("day").toLocalDate(), null, null);
+            }, since);
+            log.info("Consumption anomaly detector warmed up with {} series in {} ms", stats.size,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.error("Consumption anomaly detector warm-up failed", ex);
+        }
+    }
+
+    void detect(List<ConsumptionPostingDTO> postings) {
+        try {
+            List<Object[]> flagged = new ArrayList<>();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (ConsumptionPostingDTO p : postings) {
+                accept(p.getSchoolId(), p.getItemId(), p.getStockOutId(), p.getQuantity(), p.getDay(), flagged, now);
+            }
+            if (!flagged.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ANOMALY, flagged);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Consumption anomaly detection failed for {} postings", postings.size(), ex);
+        }
+    }
+
+    // Flags are only raised when flagged is not null
+    private void accept(UUID schoolId, UUID itemId, UUID stockOutId, double quantity, LocalDate date,
+                        List<Object[]> flagged, Timestamp now) {
+        if (schoolId == null || itemId == null || date == null) {
+            return;
+        }
+        int s = stats.slot(schoolId, itemId);
+        int day = (int) date.toEpochDay();
+        if (stats.day[s] == Stats.NO_DAY) {
+            stats.open(s, day);
+        } else if (day > stats.day[s]) {
+            if (flagged != null) {
+                judgeLow(s, schoolId, itemId, stats.day[s], stats.dayTotal[s], stats.raised[s], flagged, now);
+            }
+            stats.absorb(s, stats.dayTotal[s], alpha);
+            stats.open(s, day);
+        } else if (day < stats.day[s]) {
+            // A posting for an earlier day is judged and absorbed as a whole day of its own
+            if (flagged != null) {
+                int raised = judgeHigh(s, schoolId, itemId, day, quantity, 0, stockOutId, flagged, now);
+                judgeLow(s, schoolId, itemId, day, quantity, raised, flagged, now);
+            }
+            stats.absorb(s, quantity, alpha);
+            return;
+        }
+        stats.dayTotal[s] += quantity;
+        if (flagged != null) {
+            stats.raised[s] = judgeHigh(s, schoolId, itemId, day, stats.dayTotal[s], stats.raised[s], stockOutId,
+                    flagged, now);
+        }
+    }
+
+    private int judgeHigh(int s, UUID schoolId, UUID itemId, int day, double total, int raised, UUID stockOutId,
+                          List<Object[]> flagged, Timestamp now) {
+        double norm = norm(schoolId, itemId);
+        if (norm > 0 && total > normHigh * norm) {
+            raised = flag(EConsumptionAnomaly.ABOVE_NORM, s, schoolId, itemId, day, total, raised, stockOutId, flagged, now);
+        }
+        if (stats.deviations(s, total, minDays) > threshold) {
+            raised = flag(EConsumptionAnomaly.ABOVE_HISTORY, s, schoolId, itemId, day, total, raised, stockOutId, flagged, now);
+        }
+        return raised;
+    }
+
+    private void judgeLow(int s, UUID schoolId, UUID itemId, int day, double total, int raised,
+                          List<Object[]> flagged, Timestamp now) {
+        double norm = norm(schoolId, itemId);
+        if (norm > 0 && total < normLow * norm) {
+            raised = flag(EConsumptionAnomaly.BELOW_NORM, s, schoolId, itemId, day, total, raised, null, flagged, now);
+        }
+        if (stats.deviations(s, total, minDays) < -threshold) {
+            flag(EConsumptionAnomaly.BELOW_HISTORY, s, schoolId, itemId, day, total, raised, null, flagged, now);
+        }
+    }
+
+    private int flag(EConsumptionAnomaly kind, int s, UUID schoolId, UUID itemId, int day, double total, int raised,
+                     UUID stockOutId, List<Object[]> flagged, Timestamp now) {
+        int bit = 1 << kind.ordinal();
+        if ((raised & bit) != 0) {
+            return raised;
+        }
+        int students = headcount(schoolId);
+        Double grams = itemCatalog.findById(itemId).map(Item::getPerStudent).orElse(null);
+        double deviations = stats.deviations(s, total, minDays);
+        flagged.add(new Object[]{schoolId, itemId, Date.valueOf(LocalDate.ofEpochDay(day)), kind.name(), total,
+                students > 0 ? total * 1000.0 / students : null, grams,
+                Double.isNaN(deviations) ? null : stats.mean[s],
+                Double.isNaN(deviations) ? null : deviations, stockOutId, now});
+        return raised | bit;
+    }
+
+    // Kilograms of the item the school should use in a feeding day
+    private double norm(UUID schoolId, UUID itemId) {
+        double grams = itemCatalog.findById(itemId).map(Item::getPerStudent).orElse(0.0);
+        return grams <= 0 ? 0 : headcount(schoolId) * grams / 1000.0;
+    }
+
+    private int headcount(UUID schoolId) {
+        return headcounts.computeIfAbsent(schoolId, id -> {
+            List<Integer> count = jdbcTemplate.queryForList(HEADCOUNT, Integer.class, id);
+            return count.isEmpty() ? 0 : count.get(0);
+        });
+    }
+
+    /**
+     * Rolling statistics per (school, item), one slot each, found by linear probing on the two ids:
+     * the open day and its running total, the kinds already flagged for it, and the weighted mean
+     * and variance of the closed days.
+     */
+    static final class Stats {
+
+        static final int NO_DAY = Integer.MIN_VALUE;
+
+        // school id high, school id low, item id high, item id low
+        private long[] keys;
+        private boolean[] used;
+        int[] day;
+        double[] dayTotal;
+        int[] raised;
+        int[] days;
+        double[] mean;
+        double[] variance;
+        int size;
+        private int mask;
+
+        Stats(int capacity) {
+            allocate(capacity);
+        }
+
+        int slot(UUID schoolId, UUID itemId) {
+            long a = schoolId.getMostSignificantBits();
+            long b = schoolId.getLeastSignificantBits();
+            long c = itemId.getMostSignificantBits();
+            long d = itemId.getLeastSignificantBits();
+            int s = probe(a, b, c, d);
+            if (used[s]) {
+                return s;
+            }
+            if ((size + 1) * 2 > used.length) {
+                grow();
+                s = probe(a, b, c, d);
+            }
+            used[s] = true;
+            keys[4 * s] = a;
+            keys[4 * s + 1] = b;
+            keys[4 * s + 2] = c;
+            keys[4 * s + 3] = d;
+            day[s] = NO_DAY;
+            size++;
+            return s;
+        }
+
+        void open(int s, int newDay) {
+            day[s] = newDay;
+            dayTotal[s] = 0;
+            raised[s] = 0;
+        }
+
+        // Folds a closed day in; the first days weigh in fully until 1 / alpha of them are seen
+        void absorb(int s, double x, double alpha) {
+            days[s]++;
+            double a = Math.max(alpha, 1.0 / days[s]);
+            double diff = x - mean[s];
+            double step = a * diff;
+            mean[s] += step;
+            variance[s] = (1 - a) * (variance[s] + diff * step);
+        }
+
+        // How many deviations x is from the closed days' mean, NaN while there are too few of them
+        double deviations(int s, double x, int minDays) {
+            if (days[s] < minDays) {
+                return Double.NaN;
+            }
+            double spread = Math.max(Math.sqrt(variance[s]), MIN_SPREAD * Math.abs(mean[s]));
+            return spread > 0 ? (x - mean[s]) / spread : Double.NaN;
+        }
+
+        private int probe(long a, long b, long c, long d) {
+            long h = a * 0x9E3779B97F4A7C15L;
+            h = (h ^ b) * 0x9E3779B97F4A7C15L;
+            h = (h ^ c) * 0x9E3779B97F4A7C15L;
+            h = (h ^ d) * 0x9E3779B97F4A7C15L;
+            int s = (int) (h ^ (h >>> 32)) & mask;
+            while (used[s] && !(keys[4 * s] == a && keys[4 * s + 1] == b && keys[4 * s + 2] == c && keys[4 * s + 3] == d)) {
+                s = (s + 1) & mask;
+            }
+            return s;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[4 * capacity];
+            used = new boolean[capacity];
+            day = new int[capacity];
+            dayTotal = new double[capacity];
+            raised = new int[capacity];
+            days = new int[capacity];
+            mean = new double[capacity];
+            variance = new double[capacity];
+            mask = capacity - 1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            int[] oldDay = day;
+            double[] oldDayTotal = dayTotal;
+            int[] oldRaised = raised;
+            int[] oldDays = days;
+            double[] oldMean = mean;
+            double[] oldVariance = variance;
+            allocate(oldUsed.length * 2);
+            for (int o = 0; o < oldUsed.length; o++) {
+                if (!oldUsed[o]) {
+                    continue;
+                }
+                int s = probe(oldKeys[4 * o], oldKeys[4 * o + 1], oldKeys[4 * o + 2], oldKeys[4 * o + 3]);
+                used[s] = true;
+                System.arraycopy(oldKeys, 4 * o, keys, 4 * s, 4);
+                day[s] = oldDay[o];
+                dayTotal[s] = oldDayTotal[o];
+                raised[s] = oldRaised[o];
+                days[s] = oldDays[o];
+                mean[s] = oldMean[o];
+                variance[s] = oldVariance[o];
+            }
+        }
+    }
+}
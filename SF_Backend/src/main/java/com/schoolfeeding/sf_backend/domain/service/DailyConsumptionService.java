@@ -0,0 +1,184 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Posts a school's whole feeding day of consumption at once.
+ * <p>
+ * A day is one short transaction per school: the school's balances for the posted items are
+ * locked and read in one query, the lines are checked against them in memory, and the day goes
+ * in as one batch insert of StockOut lines, one batched ledger posting and one pass over the
+ * lots. A day that any item cannot cover is refused whole, and a day already posted is refused,
+ * so a retried upload never counts twice. The already-posted check holds a transaction-level
+ * advisory lock on (school, feeding date) first, since two uploads of the same day with different
+ * items lock different balance rows and would otherwise both find the day free. Schools only ever lock their own balances, so any
+ * number of them can post at the same time; a district upload runs its schools side by side on a
+ * bounded pool.
+ */
+@Slf4j
+@Service
+public class DailyConsumptionService {
+
+    private static final String LOCK_BALANCES =
+            "SELECT item_id, quantity FROM stock WHERE school_id = ? AND item_id = ANY(?::uuid[]) AND is_deleted = false " +
+            "ORDER BY item_id FOR UPDATE";
+
+    // Serializes posts of one (school, feeding date) until the transaction ends, whatever items they carry
+    private static final String LOCK_DAY =
+            "SELECT pg_advisory_xact_lock(hashtextextended('daily-consumption:' || ? || ':' || ?, 0))";
+
+    // Deleted lines count too: a posted day is corrected through the stock-out endpoints, not re-posted
+    private static final String DAY_POSTED =
+            "SELECT EXISTS (SELECT 1 FROM stock_out WHERE school_id = ? AND feeding_date = ?)";
+
+    private static final String INSERT_STOCK_OUT =
+            "INSERT INTO stock_out (id, active, is_deleted, school_id, item_id, quantity, issued_at, feeding_date) " +
+            "VALUES (?, true, false, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLedgerService stockLedgerService;
+    private final StockLotService stockLotService;
+    private final DemandForecastService demandForecastService;
+    private final ConsumptionAnomalyService consumptionAnomalyService;
+    private final ExecutorService pool;
+
+    public DailyConsumptionService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   StockLedgerService stockLedgerService,
+                                   StockLotService stockLotService,
+                                   DemandForecastService demandForecastService,
+                                   ConsumptionAnomalyService consumptionAnomalyService,
+                                   @Value("${stock.consumption.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockLedgerService = stockLedgerService;
+        this.stockLotService = stockLotService;
+        this.demandForecastService = demandForecastService;
+        this.consumptionAnomalyService = consumptionAnomalyService;
+        this.pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "daily-consumption");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ✅ One school's day, in its own transaction
+    public DailyConsumptionResultDTO post(DailyConsumptionDTO day) {
+        LocalDate feedingDate = day.getFeedingDate() == null ? LocalDate.now() : day.getFeedingDate();
+        Map<UUID, Double> lines = new TreeMap<>();
+        for (ConsumptionLineDTO line : day.getLines()) {
+            lines.merge(line.getItemId(), line.getQuantity(), Double::sum);
+        }
+        try {
+            return transactionTemplate.execute(tx -> postDay(day.getSchoolId(), feedingDate, lines));
+        } catch (DuplicateKeyException ex) {
+            // Lost a race with the same day posted concurrently
+            return refused(day.getSchoolId(), feedingDate, "Consumption for " + feedingDate + " is already posted", List.of());
+        }
+    }
+
+    // ✅ Many schools' days, one transaction per school; results are in upload order
+    public DailyConsumptionBatchResultDTO postAll(DailyConsumptionBatchDTO batch) {
+        long started = System.currentTimeMillis();
+        List<Future<DailyConsumptionResultDTO>> futures = new ArrayList<>(batch.getSchools().size());
+        for (DailyConsumptionDTO day : batch.getSchools()) {
+            futures.add(pool.submit(() -> post(day)));
+        }
+
+        List<DailyConsumptionResultDTO> results = new ArrayList<>(futures.size());
+        int applied = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            DailyConsumptionDTO day = batch.getSchools().get(i);
+            DailyConsumptionResultDTO result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while posting daily consumption", ex);
+            } catch (ExecutionException ex) {
+                log.warn("Daily consumption of school {} failed", day.getSchoolId(), ex.getCause());
+                result = refused(day.getSchoolId(), day.getFeedingDate(), ex.getCause().getMessage(), List.of());
+            }
+            applied += result.isApplied() ? 1 : 0;
+            results.add(result);
+        }
+        return new DailyConsumptionBatchResultDTO(results.size(), applied, results.size() - applied,
+                System.currentTimeMillis() - started, results);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private DailyConsumptionResultDTO postDay(UUID schoolId, LocalDate feedingDate, Map<UUID, Double> lines) {
+        jdbcTemplate.queryForList(LOCK_DAY, schoolId.toString(), feedingDate.toString());
+        UUID[] itemIds = lines.keySet().toArray(new UUID[0]);
+        Map<UUID, Double> balances = new HashMap<>();
+        jdbcTemplate.query(LOCK_BALANCES, rs -> {
+            balances.put(rs.getObject("item_id", UUID.class), rs.getDouble("quantity"));
+        }, schoolId, itemIds);
+
+        // Checked under the day lock, so a concurrent post of the same day is seen once it commits
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(DAY_POSTED, Boolean.class, schoolId, Date.valueOf(feedingDate)))) {
+            return refused(schoolId, feedingDate, "Consumption for " + feedingDate + " is already posted", List.of());
+        }
+
+        List<ConsumptionShortfallDTO> shortfalls = new ArrayList<>();
+        lines.forEach((itemId, quantity) -> {
+            double available = balances.getOrDefault(itemId, 0.0);
+            if (quantity > available) {
+                shortfalls.add(new ConsumptionShortfallDTO(itemId, quantity, available));
+            }
+        });
+        if (!shortfalls.isEmpty()) {
+            return refused(schoolId, feedingDate, "Stock does not cover " + shortfalls.size() + " of the items", shortfalls);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        List<StockPostingDTO> postings = new ArrayList<>(lines.size());
+        List<ConsumptionPostingDTO> consumption = new ArrayList<>(lines.size());
+        Map<UUID, Map<UUID, Double>> draws = new LinkedHashMap<>();
+        double total = 0;
+        for (Map.Entry<UUID, Double> line : lines.entrySet()) {
+            UUID stockOutId = UUID.randomUUID();
+            draws.put(line.getKey(), Map.of(stockOutId, line.getValue()));
+            rows.add(new Object[]{stockOutId, schoolId, line.getKey(), line.getValue(), now, Date.valueOf(feedingDate)});
+            postings.add(new StockPostingDTO(schoolId, line.getKey(), -line.getValue()));
+            consumption.add(new ConsumptionPostingDTO(stockOutId, schoolId, line.getKey(), line.getValue(), feedingDate));
+            total += line.getValue();
+        }
+        jdbcTemplate.batchUpdate(INSERT_STOCK_OUT, rows);
+        stockLedgerService.postAll(postings);
+        stockLotService.consumeAll(schoolId, draws);
+        demandForecastService.markConsumptionChanged(feedingDate);
+        consumptionAnomalyService.record(consumption);
+        return new DailyConsumptionResultDTO(schoolId, feedingDate, true, rows.size(), total, null, List.of());
+    }
+
+    private static DailyConsumptionResultDTO refused(UUID schoolId, LocalDate feedingDate, String reason,
+                                                     List<ConsumptionShortfallDTO> shortfalls) {
+        return new DailyConsumptionResultDTO(schoolId, feedingDate, false, 0, 0, reason, shortfalls);
+    }
+}
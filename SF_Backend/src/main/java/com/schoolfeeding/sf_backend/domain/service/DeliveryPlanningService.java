@@ -0,0 +1,243 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.*;
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.DeliveryBatchRepository;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EDeliveryBatch;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Consolidates approved orders into delivery batches: one batch per supplier, district and window
+ * of delivery dates, so a supplier serving many schools of a district makes one trip instead of one
+ * per order. Only APPROVED orders are planned, since dispatching a batch is what moves them on to
+ * PROCESSING; orders without a delivery date are left out and listed in the plan result.
+ * <p>
+ * Orders are grouped by (supplier, district) in parallel; within a group they are sorted by date
+ * and a new window starts at the first order falling past the current one. Re-planning replaces
+ * the batches that were not dispatched yet; dispatched batches and their orders are left alone.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryPlanningService {
+
+    public static final int DEFAULT_WINDOW_DAYS = 3;
+    private static final int MAX_WINDOW_DAYS = 31;
+
+    private static final String DELETE_PLANNED_ORDERS =
+            "DELETE FROM delivery_batch_order bo USING delivery_batch b WHERE b.id = bo.batch_id " +
+            "AND b.state = 'PLANNED' AND (?::uuid IS NULL OR b.supplier_id = ?::uuid)";
+
+    private static final String DELETE_PLANNED_BATCHES =
+            "DELETE FROM delivery_batch WHERE state = 'PLANNED' AND (?::uuid IS NULL OR supplier_id = ?::uuid)";
+
+    private static final String INSERT_BATCH =
+            "INSERT INTO delivery_batch (id, supplier_id, district_id, window_start, window_end, state, order_count, " +
+            "school_count, total_value, created_at) VALUES (?, ?, ?, ?, ?, 'PLANNED', ?, ?, ?, ?)";
+
+    private static final String INSERT_BATCH_ORDER =
+            "INSERT INTO delivery_batch_order (order_id, batch_id) VALUES (?, ?)";
+
+    private static final String DISPATCH_ORDERS =
+            "UPDATE orders o SET delivery_status = 'PROCESSING' FROM delivery_batch_order bo " +
+            "WHERE bo.batch_id = ? AND o.id = bo.order_id AND o.delivery_status = 'APPROVED' " +
+            "RETURNING o.id, o.supplier_id, o.order_pay_state, o.request_item_id, o.delivery_date, " +
+            "(SELECT r.school_id FROM request_item r WHERE r.id = o.request_item_id) AS school_id";
+
+    private final DeliveryBatchRepository deliveryBatchRepository;
+    private final OutboxService outboxService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // ✅ Rebuild the undispatched batches, for one supplier or for everyone
+    @Transactional
+    public DeliveryPlanDTO plan(UUID supplierId, int windowDays) {
+        if (windowDays < 1 || windowDays > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("windowDays must be between 1 and " + MAX_WINDOW_DAYS);
+        }
+        jdbcTemplate.update(DELETE_PLANNED_ORDERS, supplierId, supplierId);
+        jdbcTemplate.update(DELETE_PLANNED_BATCHES, supplierId, supplierId);
+
+        List<DeliveryOrderDTO> open = deliveryBatchRepository.findUnbatchedOpenOrders(supplierId);
+        Map<GroupKey, List<DeliveryOrderDTO>> groups = open.parallelStream()
+                .filter(o -> o.getDeliveryDate() != null)
+                .collect(Collectors.groupingByConcurrent(o -> new GroupKey(o.getSupplierId(), o.getDistrictId())));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<PlannedBatch> planned = groups.entrySet().parallelStream()
+                .flatMap(e -> window(e.getKey(), e.getValue(), windowDays, now).stream())
+                .sorted(Comparator.comparing((PlannedBatch p) -> p.batch.getWindowStart())
+                        .thenComparing(p -> p.batch.getSupplierId())
+                        .thenComparing(p -> p.batch.getDistrictId()))
+                .toList();
+
+        List<Object[]> batchRows = new ArrayList<>(planned.size());
+        List<Object[]> orderRows = new ArrayList<>(open.size());
+        int ordersPlanned = 0;
+        for (PlannedBatch p : planned) {
+            DeliveryBatch b = p.batch;
+            batchRows.add(new Object[]{b.getId(), b.getSupplierId(), b.getDistrictId(),
+                    java.sql.Date.valueOf(b.getWindowStart()), java.sql.Date.valueOf(b.getWindowEnd()),
+                    b.getOrderCount(), b.getSchoolCount(), b.getTotalValue(), Timestamp.valueOf(b.getCreatedAt())});
+            for (UUID orderId : p.orderIds) {
+                orderRows.add(new Object[]{orderId, b.getId()});
+            }
+            ordersPlanned += p.orderIds.size();
+        }
+        jdbcTemplate.batchUpdate(INSERT_BATCH, batchRows);
+        jdbcTemplate.batchUpdate(INSERT_BATCH_ORDER, orderRows);
+
+        List<UUID> withoutDate = open.stream()
+                .filter(o -> o.getDeliveryDate() == null)
+                .map(DeliveryOrderDTO::getOrderId)
+                .toList();
+        return new DeliveryPlanDTO(windowDays, ordersPlanned, withoutDate.size(), withoutDate,
+                planned.stream().map(p -> p.batch).toList());
+    }
+
+    // ✅ Batches by supplier and state
+    public List<DeliveryBatch> getBatches(UUID supplierId, EDeliveryBatch state) {
+        return deliveryBatchRepository.search(supplierId, state);
+    }
+
+    // ✅ Get by ID
+    public DeliveryBatch getBatch(UUID id) {
+        return deliveryBatchRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Delivery batch not found with id " + id));
+    }
+
+    // ✅ Stops and orders of a batch, one stop per school
+    public DeliveryManifestDTO getManifest(UUID id) {
+        DeliveryBatch batch = getBatch(id);
+        Map<UUID, DeliveryStopDTO> stops = new LinkedHashMap<>();
+        Map<UUID, DeliveryStopOrderDTO> orders = new HashMap<>();
+        for (DeliveryManifestRowDTO row : deliveryBatchRepository.findManifestRows(id)) {
+            DeliveryStopDTO stop = stops.computeIfAbsent(row.getSchoolId(), k -> {
+                DeliveryStopDTO s = new DeliveryStopDTO();
+                s.setSchoolId(row.getSchoolId());
+                s.setSchoolName(row.getSchoolName());
+                s.setSchoolAddress(row.getSchoolAddress());
+                return s;
+            });
+            DeliveryStopOrderDTO order = orders.computeIfAbsent(row.getOrderId(), k -> {
+                DeliveryStopOrderDTO o = new DeliveryStopOrderDTO();
+                o.setOrderId(row.getOrderId());
+                o.setRequestItemId(row.getRequestItemId());
+                o.setDeliveryDate(row.getDeliveryDate());
+                o.setQuantity(row.getQuantity());
+                o.setOrderPrice(row.getOrderPrice());
+                stop.getOrders().add(o);
+                return o;
+            });
+            if (row.getItemName() != null) {
+                order.getItems().add(row.getItemName());
+            }
+        }
+        return new DeliveryManifestDTO(batch, new ArrayList<>(stops.values()));
+    }
+
+    // ✅ Dispatch: approved orders of the batch move to PROCESSING and are published through the outbox
+    @Transactional
+    public DeliveryBatch dispatch(UUID id) {
+        DeliveryBatch batch = getBatch(id);
+        if (batch.getState() != EDeliveryBatch.PLANNED) {
+            throw new IllegalStateException("Delivery batch " + id + " is already " + batch.getState());
+        }
+        batch.setState(EDeliveryBatch.DISPATCHED);
+        batch.setDispatchedAt(LocalDateTime.now());
+
+        List<OutboxEvent> events = new ArrayList<>();
+        jdbcTemplate.query(DISPATCH_ORDERS, rs -> {
+            UUID orderId = rs.getObject("id", UUID.class);
+            java.sql.Date deliveryDate = rs.getDate("delivery_date");
+            EOrderPay payState = EOrderPay.valueOf(rs.getString("order_pay_state"));
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", orderId);
+            payload.put("requestItemId", rs.getObject("request_item_id", UUID.class));
+            payload.put("previousDeliveryStatus", EDelivery.APPROVED);
+            payload.put("deliveryStatus", EDelivery.PROCESSING);
+            payload.put("previousPayState", payState);
+            payload.put("orderPayState", payState);
+            payload.put("deliveryDate", deliveryDate == null ? null : deliveryDate.toLocalDate());
+            payload.put("deliveryBatchId", id);
+            events.add(outboxService.newEvent(EOutboxEvent.ORDER_STATUS_CHANGED, orderId,
+                    rs.getObject("supplier_id", UUID.class), rs.getObject("school_id", UUID.class), payload));
+        }, id);
+        if (!events.isEmpty()) {
+            outboxService.recordAll(events);
+        }
+        return deliveryBatchRepository.save(batch);
+    }
+
+    // Splits one (supplier, district) group into consecutive windows of at most windowDays days
+    private static List<PlannedBatch> window(GroupKey key, List<DeliveryOrderDTO> orders, int windowDays,
+                                             LocalDateTime now) {
+        List<DeliveryOrderDTO> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparing(DeliveryOrderDTO::getDeliveryDate));
+
+        List<PlannedBatch> batches = new ArrayList<>();
+        PlannedBatch current = null;
+        for (DeliveryOrderDTO order : sorted) {
+            LocalDate date = toLocalDate(order.getDeliveryDate());
+            if (current == null || date.isAfter(current.batch.getWindowStart().plusDays(windowDays - 1))) {
+                current = new PlannedBatch(key, date, now);
+                batches.add(current);
+            }
+            current.add(order, date);
+        }
+        batches.forEach(PlannedBatch::seal);
+        return batches;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date instanceof java.sql.Date sqlDate
+                ? sqlDate.toLocalDate()
+                : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private record GroupKey(UUID supplierId, UUID districtId) {
+    }
+
+    private static final class PlannedBatch {
+        private final DeliveryBatch batch = new DeliveryBatch();
+        private final List<UUID> orderIds = new ArrayList<>();
+        private final Set<UUID> schoolIds = new HashSet<>();
+
+        private PlannedBatch(GroupKey key, LocalDate windowStart, LocalDateTime now) {
+            batch.setId(UUID.randomUUID());
+            batch.setSupplierId(key.supplierId());
+            batch.setDistrictId(key.districtId());
+            batch.setWindowStart(windowStart);
+            batch.setWindowEnd(windowStart);
+            batch.setState(EDeliveryBatch.PLANNED);
+            batch.setCreatedAt(now);
+        }
+
+        private void add(DeliveryOrderDTO order, LocalDate date) {
+            orderIds.add(order.getOrderId());
+            schoolIds.add(order.getSchoolId());
+            batch.setTotalValue(batch.getTotalValue() + order.getOrderPrice());
+            if (date.isAfter(batch.getWindowEnd())) {
+                batch.setWindowEnd(date);
+            }
+        }
+
+        private void seal() {
+            batch.setOrderCount(orderIds.size());
+            batch.setSchoolCount(schoolIds.size());
+        }
+    }
+}
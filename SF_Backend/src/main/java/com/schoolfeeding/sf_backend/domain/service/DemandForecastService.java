@@ -0,0 +1,477 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.DemandForecastDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DemandForecastStatusDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.entity.School;
+import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Forecasts how much of each item every school will consume per feeding day, by simple
+ * exponential smoothing of its StockOut history. A series starts from the norm, the item's grams
+ * per student times the school's {@code numberStudent}, and absorbs one observation per feeding
+ * day: a complete day on which the school issued anything, where an item it did not issue counts
+ * as zero. Days on which the school issued nothing (weekends, holidays) are not observations.
+ * <p>
+ * The model is incremental with a re-open window: {@code demand_forecast} keeps each series'
+ * level through its last day and, next to it, a base level through the last day that is final,
+ * {@code reopen-days} before the newest. A refresh reads, for the schools that issued anything in
+ * the window or since the last refresh, only the days after each series' base and folds them again
+ * from that base, so consumption posted late for a recent day, or corrected, is taken in; days
+ * older than the window are final. The days are loaded a chunk of schools at a time into flat
+ * primitive arrays, smoothed in parallel and upserted in one batch. Forecasts are served from an
+ * immutable in-memory copy that is only rebuilt after a refresh updated a series. Issues count on
+ * the feeding day they were posted for, or the day of their {@code issued_at} when they carry none.
+ */
+@Slf4j
+@Service
+public class DemandForecastService {
+
+    private static final LocalDate HISTORY_START = LocalDate.of(1970, 1, 1);
+
+    private static final String ABSORBED_THROUGH =
+            "SELECT MAX(last_day) FROM demand_forecast";
+
+    // A daily posting belongs to its feeding day, however late it was entered
+    private static final String FEEDING_SCHOOLS =
+            "SELECT DISTINCT school_id FROM stock_out WHERE is_deleted = false AND school_id IS NOT NULL " +
+            "AND item_id IS NOT NULL AND COALESCE(feeding_date, CAST(issued_at AS date)) >= ? " +
+            "AND COALESCE(feeding_date, CAST(issued_at AS date)) < ? ORDER BY 1";
+
+    // The days after each series' base, in order, one row per (series, feeding day). A row from before the
+    // re-open window has no base of its own: its level through last_day is the base.
+    private static final String CHUNK_SERIES =
+            "WITH base AS (SELECT school_id, MIN(COALESCE(base_day, last_day)) AS since FROM demand_forecast " +
+            "  WHERE school_id = ANY(?::uuid[]) GROUP BY school_id), " +
+            "obs AS (SELECT o.school_id, o.item_id, COALESCE(o.feeding_date, CAST(o.issued_at AS date)) AS day, " +
+            "  SUM(o.quantity) AS quantity FROM stock_out o LEFT JOIN base b ON b.school_id = o.school_id " +
+            "  WHERE o.is_deleted = false AND o.item_id IS NOT NULL AND o.school_id = ANY(?::uuid[]) " +
+            "  AND COALESCE(o.feeding_date, CAST(o.issued_at AS date)) > COALESCE(b.since, '-infinity'::date) " +
+            "  AND COALESCE(o.feeding_date, CAST(o.issued_at AS date)) < ? GROUP BY 1, 2, 3), " +
+            "days AS (SELECT DISTINCT school_id, day FROM obs), " +
+            "series AS (SELECT school_id, item_id FROM demand_forecast WHERE school_id = ANY(?::uuid[]) " +
+            "  UNION SELECT school_id, item_id FROM obs) " +
+            "SELECT k.school_id, k.item_id, COALESCE(f.base_level, f.level) AS level, " +
+            "COALESCE(f.base_day, f.last_day) AS base_day, " +
+            "CASE WHEN f.base_day IS NULL THEN f.observations ELSE f.base_observations END AS base_observations, " +
+            "COALESCE(sc.number_student, 0) AS number_student, COALESCE(i.gram_per_student, 0) AS gram_per_student, " +
+            "d.day, COALESCE(o.quantity, 0) AS quantity " +
+            "FROM series k JOIN days d ON d.school_id = k.school_id " +
+            "JOIN school sc ON sc.id = k.school_id JOIN item i ON i.id = k.item_id " +
+            "LEFT JOIN demand_forecast f ON f.school_id = k.school_id AND f.item_id = k.item_id " +
+            "LEFT JOIN obs o ON o.school_id = k.school_id AND o.item_id = k.item_id AND o.day = d.day " +
+            "WHERE f.id IS NULL OR d.day > COALESCE(f.base_day, f.last_day) ORDER BY k.school_id, k.item_id, d.day";
+
+    // Every figure is refolded from the base, so each one replaces what was there
+    private static final String UPSERT_FORECAST =
+            "INSERT INTO demand_forecast (school_id, item_id, level, observations, last_day, updated_at, " +
+            "base_level, base_day, base_observations) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (school_id, item_id) DO UPDATE SET level = EXCLUDED.level, " +
+            "observations = EXCLUDED.observations, last_day = EXCLUDED.last_day, updated_at = EXCLUDED.updated_at, " +
+            "base_level = EXCLUDED.base_level, base_day = EXCLUDED.base_day, " +
+            "base_observations = EXCLUDED.base_observations";
+
+    private static final String ALL_FORECASTS =
+            "SELECT school_id, item_id, level, observations FROM demand_forecast";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchoolRepository schoolRepository;
+    private final ItemCatalog itemCatalog;
+    private final double alpha;
+    private final int horizonDays;
+    private final int chunkSize;
+    private final int reopenDays;
+
+    // Set by every stock-out write; starts set so the first refresh catches up on what came before
+    private final AtomicBoolean consumptionChanged = new AtomicBoolean(true);
+    // Set by writes for a day before today, which the window takes in without waiting for a new day
+    private final AtomicBoolean lateChange = new AtomicBoolean(true);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final DemandForecastStatusDTO status = new DemandForecastStatusDTO();
+    private volatile Index index = Index.EMPTY;
+    private volatile LocalDate absorbedThrough;
+
+    public DemandForecastService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 SchoolRepository schoolRepository,
+                                 ItemCatalog itemCatalog,
+                                 @Value("${stock.forecast.alpha:0.3}") double alpha,
+                                 @Value("${stock.forecast.horizon-days:5}") int horizonDays,
+                                 @Value("${stock.forecast.chunk-size:500}") int chunkSize,
+                                 @Value("${stock.forecast.reopen-days:14}") int reopenDays) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("stock.forecast.alpha must be in (0, 1]");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schoolRepository = schoolRepository;
+        this.itemCatalog = itemCatalog;
+        this.alpha = alpha;
+        this.horizonDays = horizonDays;
+        this.chunkSize = chunkSize;
+        this.reopenDays = reopenDays;
+    }
+
+    @PostConstruct
+    void init() {
+        absorbedThrough = jdbcTemplate.queryForObject(ABSORBED_THROUGH, LocalDate.class);
+        index = Index.load(jdbcTemplate);
+        synchronized (status) {
+            status.setAbsorbedThrough(absorbedThrough);
+            status.setForecastsCached(index.size());
+        }
+    }
+
+    // The feeding day the write counted on
+    public void markConsumptionChanged(LocalDate day) {
+        if (day != null && day.isBefore(LocalDate.now())) {
+            lateChange.set(true);
+        }
+        consumptionChanged.set(true);
+    }
+
+    // Only complete days are absorbed, so today's issues wait for the first refresh after midnight
+    @Scheduled(fixedDelayString = "${stock.forecast.refresh-ms:60000}")
+    public void refreshIfStale() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (absorbedThrough != null && !absorbedThrough.isBefore(yesterday) && !lateChange.get()) {
+            return;
+        }
+        if (!running.get() && consumptionChanged.compareAndSet(true, false)) {
+            DemandForecastStatusDTO result = refresh();
+            if (result.getState() == EJobState.FAILED) {
+                consumptionChanged.set(true);
+            }
+        }
+    }
+
+    // ✅ Absorb every complete day of consumption, folding the re-open window again; returns the run's figures
+    public DemandForecastStatusDTO refresh() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A demand forecast refresh is already in progress");
+        }
+        lateChange.set(false);
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDate until = startedAt.toLocalDate();
+        LocalDate finalThrough = until.minusDays(reopenDays + 1L);
+        // New days, and every day still open; the series themselves are read from their own base
+        LocalDate from = absorbedThrough == null ? HISTORY_START
+                : (absorbedThrough.isBefore(finalThrough) ? absorbedThrough : finalThrough).plusDays(1);
+        synchronized (status) {
+            BeanUtils.copyProperties(new DemandForecastStatusDTO(), status);
+            status.setState(EJobState.RUNNING);
+            status.setAbsorbedThrough(absorbedThrough);
+            status.setForecastsCached(index.size());
+            status.setStartedAt(startedAt);
+        }
+        try {
+            int[] totals = transactionTemplate.execute(tx -> absorb(from, until, finalThrough));
+            absorbedThrough = until.minusDays(1);
+            if (totals != null && totals[1] > 0) {
+                index = Index.load(jdbcTemplate);
+            }
+            finish(EJobState.COMPLETED, null);
+        } catch (RuntimeException ex) {
+            log.error("Demand forecast refresh from {} failed", from, ex);
+            lateChange.set(true);
+            finish(EJobState.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+        return getStatus();
+    }
+
+    public DemandForecastStatusDTO getStatus() {
+        DemandForecastStatusDTO copy = new DemandForecastStatusDTO();
+        synchronized (status) {
+            BeanUtils.copyProperties(status, copy);
+        }
+        return copy;
+    }
+
+    // ✅ Forecast of every active item at a school for the next feeding days
+    public List<DemandForecastDTO> getSchoolForecasts(UUID schoolId, Integer feedingDays) {
+        if (feedingDays != null && feedingDays < 0) {
+            throw new IllegalArgumentException("Feeding days must be a non-negative number");
+        }
+        School school = schoolRepository.findById(schoolId)
+                .filter(s -> !Boolean.TRUE.equals(s.getIsDeleted()))
+                .orElseThrow(() -> new EntityNotFoundException("School not found"));
+        int days = feedingDays != null ? feedingDays : horizonDays;
+        int students = school.getNumberStudent() != null ? school.getNumberStudent() : 0;
+        Index current = index;
+
+        List<DemandForecastDTO> forecasts = new ArrayList<>();
+        for (Item item : itemCatalog.getItems()) {
+            double norm = students * grams(item) / 1000.0;
+            int at = current.indexOf(schoolId, item.getId());
+            double daily = at < 0 ? norm : current.level[at];
+            forecasts.add(new DemandForecastDTO(schoolId, item.getId(), item.getName(), daily, days, daily * days,
+                    norm, at < 0 ? 0 : current.observations[at], absorbedThrough));
+        }
+        return forecasts;
+    }
+
+    /**
+     * Forecast kilograms per feeding day for every (school, item), row-major like
+     * {@link RequirementPlan}; NaN where the series has no history and the norm applies.
+     */
+    public double[] dailyDemand(List<SchoolHeadcountDTO> schools, List<Item> items) {
+        Index current = index;
+        int m = items.size();
+        double[] daily = new double[schools.size() * m];
+        Arrays.fill(daily, Double.NaN);
+        if (current.size() == 0) {
+            return daily;
+        }
+        for (int i = 0; i < schools.size(); i++) {
+            for (int j = 0; j < m; j++) {
+                int at = current.indexOf(schools.get(i).getSchoolId(), items.get(j).getId());
+                if (at >= 0) {
+                    daily[i * m + j] = current.level[at];
+                }
+            }
+        }
+        return daily;
+    }
+
+    // Returns {schools, series updated, observations absorbed}
+    private int[] absorb(LocalDate from, LocalDate until, LocalDate finalThrough) {
+        Date fromDay = Date.valueOf(from);
+        Date untilDay = Date.valueOf(until);
+        List<UUID> schools = jdbcTemplate.queryForList(FEEDING_SCHOOLS, UUID.class, fromDay, untilDay);
+        synchronized (status) {
+            status.setSchools(schools.size());
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Date lastDay = Date.valueOf(until.minusDays(1));
+        int[] totals = new int[]{schools.size(), 0, 0};
+        for (int start = 0; start < schools.size(); start += chunkSize) {
+            UUID[] chunk = schools.subList(start, Math.min(start + chunkSize, schools.size())).toArray(new UUID[0]);
+            Series series = Series.load(jdbcTemplate, chunk, untilDay);
+            Folded folded = smooth(series, finalThrough.toEpochDay());
+
+            List<Object[]> rows = new ArrayList<>(series.count);
+            for (int s = 0; s < series.count; s++) {
+                rows.add(new Object[]{series.schoolIds.get(s), series.itemIds.get(s), folded.level[s],
+                        folded.observations[s], lastDay, now, folded.baseLevel[s],
+                        Date.valueOf(LocalDate.ofEpochDay(folded.baseDay[s])), folded.baseObservations[s]});
+            }
+            jdbcTemplate.batchUpdate(UPSERT_FORECAST, rows);
+            totals[1] += series.count;
+            totals[2] += series.start[series.count];
+            synchronized (status) {
+                status.setSeriesUpdated(totals[1]);
+                status.setDaysAbsorbed(totals[2]);
+            }
+        }
+        return totals;
+    }
+
+    // L = alpha * x + (1 - alpha) * L over each series' days after its base, the series side by side;
+    // the days up to finalThrough are final and make the next base
+    private Folded smooth(Series series, long finalThrough) {
+        Folded folded = new Folded(series.count);
+        IntStream.range(0, series.count).parallel().forEach(s -> {
+            double level = series.initial[s];
+            double baseLevel = level;
+            int baseObservations = series.baseObservations[s];
+            for (int x = series.start[s]; x < series.start[s + 1]; x++) {
+                level = alpha * series.values[x] + (1 - alpha) * level;
+                if (series.days[x] <= finalThrough) {
+                    baseLevel = level;
+                    baseObservations++;
+                }
+            }
+            folded.level[s] = level;
+            folded.observations[s] = series.baseObservations[s] + series.start[s + 1] - series.start[s];
+            folded.baseLevel[s] = baseLevel;
+            folded.baseDay[s] = Math.max(series.baseDay[s], finalThrough);
+            folded.baseObservations[s] = baseObservations;
+        });
+        return folded;
+    }
+
+    private void finish(EJobState state, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (status) {
+            status.setState(state);
+            status.setAbsorbedThrough(absorbedThrough);
+            status.setForecastsCached(index.size());
+            status.setFinishedAt(now);
+            status.setDurationMillis(Duration.between(status.getStartedAt(), now).toMillis());
+            status.setError(error);
+        }
+        log.info("Demand forecast refresh {}: {} series took {} days of {} schools in {} ms, absorbed through {}",
+                state, status.getSeriesUpdated(), status.getDaysAbsorbed(), status.getSchools(),
+                status.getDurationMillis(), absorbedThrough);
+    }
+
+    private static double grams(Item item) {
+        return item.getPerStudent() != null ? item.getPerStudent() : 0;
+    }
+
+    // What a refresh writes back for each series of a chunk
+    private static final class Folded {
+
+        private final double[] level;
+        private final int[] observations;
+        private final double[] baseLevel;
+        private final long[] baseDay;
+        private final int[] baseObservations;
+
+        private Folded(int count) {
+            level = new double[count];
+            observations = new int[count];
+            baseLevel = new double[count];
+            baseDay = new long[count];
+            baseObservations = new int[count];
+        }
+    }
+
+    /**
+     * Days after the base of a chunk's series in flat arrays: series {@code s} starts from
+     * {@code initial[s]}, folded through {@code baseDay[s]} (an epoch day), and its observations are
+     * {@code values[start[s]]} up to {@code values[start[s + 1]]}, on the epoch days in {@code days}.
+     */
+    private static final class Series {
+
+        private final List<UUID> schoolIds = new ArrayList<>();
+        private final List<UUID> itemIds = new ArrayList<>();
+        private double[] initial = new double[64];
+        private long[] baseDay = new long[64];
+        private int[] baseObservations = new int[64];
+        private int[] start = new int[65];
+        private double[] values = new double[256];
+        private long[] days = new long[256];
+        private int count;
+
+        static Series load(JdbcTemplate jdbcTemplate, UUID[] schools, Date until) {
+            Series series = new Series();
+            int[] size = new int[1];
+            jdbcTemplate.query(CHUNK_SERIES, rs -> {
+                UUID schoolId = rs.getObject("school_id", UUID.class);
+                UUID itemId = rs.getObject("item_id", UUID.class);
+                int last = series.count - 1;
+                if (last < 0 || !itemId.equals(series.itemIds.get(last)) || !schoolId.equals(series.schoolIds.get(last))) {
+                    double level = rs.getDouble("level");
+                    if (rs.wasNull()) {
+                        level = rs.getInt("number_student") * rs.getDouble("gram_per_student") / 1000.0;
+                    }
+                    Date baseDay = rs.getDate("base_day");
+                    series.add(schoolId, itemId, level, baseDay == null ? Long.MIN_VALUE : baseDay.toLocalDate().toEpochDay(),
+                            rs.getInt("base_observations"), size[0]);
+                }
+                if (size[0] == series.values.length) {
+                    series.values = Arrays.copyOf(series.values, size[0] * 2);
+                    series.days = Arrays.copyOf(series.days, size[0] * 2);
+                }
+                series.days[size[0]] = rs.getDate("day").toLocalDate().toEpochDay();
+                series.values[size[0]++] = rs.getDouble("quantity");
+            }, schools, schools, until, schools);
+            series.start[series.count] = size[0];
+            return series;
+        }
+
+        private void add(UUID schoolId, UUID itemId, double level, long base, int observations, int offset) {
+            if (count == initial.length) {
+                initial = Arrays.copyOf(initial, count * 2);
+                baseDay = Arrays.copyOf(baseDay, count * 2);
+                baseObservations = Arrays.copyOf(baseObservations, count * 2);
+                start = Arrays.copyOf(start, count * 2 + 1);
+            }
+            schoolIds.add(schoolId);
+            itemIds.add(itemId);
+            initial[count] = level;
+            baseDay[count] = base;
+            baseObservations[count] = observations;
+            start[count] = offset;
+            count++;
+        }
+    }
+
+    // Immutable copy of demand_forecast; item columns are the items that have any series
+    private static final class Index {
+
+        static final Index EMPTY = new Index(Map.of(), Map.of(), new double[0], new int[0], 0);
+
+        private final Map<UUID, Integer> schools;
+        private final Map<UUID, Integer> items;
+        private final double[] level;
+        private final int[] observations;
+        private final int count;
+
+        private Index(Map<UUID, Integer> schools, Map<UUID, Integer> items, double[] level, int[] observations,
+                      int count) {
+            this.schools = schools;
+            this.items = items;
+            this.level = level;
+            this.observations = observations;
+            this.count = count;
+        }
+
+        static Index load(JdbcTemplate jdbcTemplate) {
+            List<UUID> schoolIds = new ArrayList<>();
+            List<UUID> itemIds = new ArrayList<>();
+            List<double[]> rows = new ArrayList<>();
+            jdbcTemplate.query(ALL_FORECASTS, rs -> {
+                schoolIds.add(rs.getObject("school_id", UUID.class));
+                itemIds.add(rs.getObject("item_id", UUID.class));
+                rows.add(new double[]{rs.getDouble("level"), rs.getInt("observations")});
+            });
+            Map<UUID, Integer> schools = new HashMap<>();
+            Map<UUID, Integer> items = new HashMap<>();
+            for (int r = 0; r < rows.size(); r++) {
+                schools.putIfAbsent(schoolIds.get(r), schools.size());
+                items.putIfAbsent(itemIds.get(r), items.size());
+            }
+            int m = items.size();
+            double[] level = new double[schools.size() * m];
+            int[] observations = new int[schools.size() * m];
+            Arrays.fill(observations, -1);
+            for (int r = 0; r < rows.size(); r++) {
+                int at = schools.get(schoolIds.get(r)) * m + items.get(itemIds.get(r));
+                level[at] = rows.get(r)[0];
+                observations[at] = (int) rows.get(r)[1];
+            }
+            return new Index(Map.copyOf(schools), Map.copyOf(items), level, observations, rows.size());
+        }
+
+        int size() {
+            return count;
+        }
+
+        // Position of the series, -1 when it has none
+        int indexOf(UUID schoolId, UUID itemId) {
+            Integer i = schools.get(schoolId);
+            Integer j = items.get(itemId);
+            if (i == null || j == null) {
+                return -1;
+            }
+            int at = i * items.size() + j;
+            return observations[at] < 0 ? -1 : at;
+        }
+    }
+}
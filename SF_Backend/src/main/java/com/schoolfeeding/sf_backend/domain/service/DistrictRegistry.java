@@ -0,0 +1,120 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.District;
+import com.schoolfeeding.sf_backend.domain.repository.DistrictRepository;
+import com.schoolfeeding.sf_backend.util.address.EDistrict;
+import com.schoolfeeding.sf_backend.util.tx.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * In-memory view of the district reference table. There are only as many rows as {@link EDistrict}
+ * values, so the whole table is loaded at startup and every read is served from an immutable
+ * snapshot. Writes go through {@link DistrictService}, which asks for a reload after commit.
+ * The cached {@link District} instances are shared and must not be modified by callers.
+ */
+@Slf4j
+@Service
+public class DistrictRegistry {
+
+    private final DistrictRepository districtRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public DistrictRegistry(DistrictRepository districtRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.districtRepository = districtRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate.executeWithoutResult(status -> seedMissing());
+        reload();
+    }
+
+    public Optional<District> findById(UUID id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot.byId.get(id));
+    }
+
+    public Optional<District> findByDistrict(EDistrict district) {
+        return district == null ? Optional.empty() : Optional.ofNullable(snapshot.byDistrict.get(district));
+    }
+
+    // Active (non-deleted) districts in enum order
+    public List<District> findAll() {
+        return snapshot.all;
+    }
+
+    public int size() {
+        return snapshot.all.size();
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::reload);
+    }
+
+    public synchronized void reload() {
+        snapshot = Snapshot.of(districtRepository.findByIsDeletedFalse());
+        log.debug("District registry loaded with {} districts", snapshot.all.size());
+    }
+
+    // Insert a row for every enum value the table has never seen (deleted rows count as seen)
+    private void seedMissing() {
+        Set<EDistrict> present = EnumSet.noneOf(EDistrict.class);
+        for (District d : districtRepository.findAll()) {
+            if (d.getDistrict() != null) {
+                present.add(d.getDistrict());
+            }
+        }
+
+        List<District> missing = new ArrayList<>();
+        for (EDistrict e : EDistrict.values()) {
+            if (!present.contains(e)) {
+                District district = new District();
+                district.setDistrict(e);
+                district.setProvince(e.getProvince());
+                missing.add(district);
+            }
+        }
+        if (!missing.isEmpty()) {
+            districtRepository.saveAll(missing);
+            log.info("Seeded {} districts from EDistrict", missing.size());
+        }
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new EnumMap<>(EDistrict.class), Map.of(), List.of());
+
+        final Map<EDistrict, District> byDistrict;
+        final Map<UUID, District> byId;
+        final List<District> all;
+
+        private Snapshot(Map<EDistrict, District> byDistrict, Map<UUID, District> byId, List<District> all) {
+            this.byDistrict = byDistrict;
+            this.byId = byId;
+            this.all = all;
+        }
+
+        static Snapshot of(List<District> districts) {
+            EnumMap<EDistrict, District> byDistrict = new EnumMap<>(EDistrict.class);
+            Map<UUID, District> byId = new HashMap<>();
+            for (District d : districts) {
+                byId.put(d.getId(), d);
+                if (d.getDistrict() != null) {
+                    byDistrict.putIfAbsent(d.getDistrict(), d);
+                }
+            }
+            List<District> all = new ArrayList<>(districts);
+            all.sort(Comparator.comparing(District::getDistrict, Comparator.nullsLast(Comparator.naturalOrder())));
+            return new Snapshot(Collections.unmodifiableMap(byDistrict), Map.copyOf(byId), List.copyOf(all));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO;
+import com.schoolfeeding.sf_backend.domain.entity.District;
+import com.schoolfeeding.sf_backend.domain.entity.DistrictRollup;
+import com.schoolfeeding.sf_backend.domain.entity.School;
+import com.schoolfeeding.sf_backend.domain.repository.DistrictRollupRepository;
+import com.schoolfeeding.sf_backend.util.address.EDistrict;
+import com.schoolfeeding.sf_backend.util.address.EProvince;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistrictRollupService {
+
+    // Each district's own province, for districts saved without one
+    private static final String[] DISTRICTS = Arrays.stream(EDistrict.values()).map(Enum::name).toArray(String[]::new);
+    private static final String[] PROVINCES = Arrays.stream(EDistrict.values())
+            .map(d -> d.getProvince() != null ? d.getProvince().name() : null)
+            .toArray(String[]::new);
+
+    private final DistrictRollupRepository rollupRepository;
+
+    // Called inside the school write transaction so the rollup commits or rolls back with it
+    @Transactional
+    public void schoolAdded(School school) {
+        apply(school.getDistrict(), 1, students(school));
+    }
+
+    @Transactional
+    public void schoolRemoved(School school) {
+        apply(school.getDistrict(), -1, -students(school));
+    }
+
+    // Moves a school between districts or adjusts its enrolment in place
+    @Transactional
+    public void schoolChanged(District oldDistrict, int oldStudents, School school) {
+        District newDistrict = school.getDistrict();
+        int newStudents = students(school);
+
+        if (sameDistrict(oldDistrict, newDistrict)) {
+            apply(newDistrict, 0, newStudents - oldStudents);
+            return;
+        }
+        apply(oldDistrict, -1, -oldStudents);
+        apply(newDistrict, 1, newStudents);
+    }
+
+    public List<DistrictRollup> getDistrictStats() {
+        return rollupRepository.findAll();
+    }
+
+    public List<ProvinceStatsDTO> getProvinceStats() {
+        return rollupRepository.sumByProvince();
+    }
+
+    public long getTotalStudents() {
+        return rollupRepository.totalStudents();
+    }
+
+    public long getTotalSchools() {
+        return rollupRepository.totalSchools();
+    }
+
+    // Rebuild from the school table; repairs any drift left by failed or concurrent writes
+    @Scheduled(cron = "${rollup.reconcile.cron:0 30 2 * * *}")
+    @Transactional
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        int rows = rollupRepository.reconcileAll(DISTRICTS, PROVINCES);
+        rollupRepository.removeDeletedDistricts();
+        log.info("District rollup reconciled: {} districts in {} ms", rows, System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        try {
+            reconcile();
+        } catch (RuntimeException ex) {
+            log.warn("District rollup reconciliation skipped at startup: {}", ex.getMessage());
+        }
+    }
+
+    public static int students(School school) {
+        return school.getNumberStudent() != null ? school.getNumberStudent() : 0;
+    }
+
+    private void apply(District district, long schoolDelta, long studentDelta) {
+        if (district == null || district.isDeleted() || (schoolDelta == 0 && studentDelta == 0)) {
+            return;
+        }
+        rollupRepository.applyDelta(district.getId(), provinceName(district), schoolDelta, studentDelta);
+    }
+
+    private static boolean sameDistrict(District a, District b) {
+        UUID idA = a != null ? a.getId() : null;
+        UUID idB = b != null ? b.getId() : null;
+        return idA == null ? idB == null : idA.equals(idB);
+    }
+
+    private static String provinceName(District district) {
+        EProvince province = district.getProvince();
+        if (province == null && district.getDistrict() != null) {
+            province = district.getDistrict().getProvince();
+        }
+        return province != null ? province.name() : null;
+    }
+}
@@ -13,9 +13,11 @@ import java.util.UUID;
 public class DistrictService {
 
     private final DistrictRepository districtRepository;
+    private final DistrictRegistry districtRegistry;
 
-    public DistrictService(DistrictRepository districtRepository) {
+    public DistrictService(DistrictRepository districtRepository, DistrictRegistry districtRegistry) {
         this.districtRepository = districtRepository;
+        this.districtRegistry = districtRegistry;
     }
 
     
@@ -32,17 +34,20 @@ public class DistrictService {
         district.setDistrict(dto.getDistrict());
         district.setDeleted(false);
         district.setActive(true);
-        return districtRepository.save(district);
+        District saved = districtRepository.save(district);
+        districtRegistry.refreshAfterCommit();
+        return saved;
     }
 
    
     public List<District> findAllDistricts() {
-        return districtRepository.findByIsDeletedFalse();
+        return districtRegistry.findAll();
     }
 
    
     public District getDistrictById(UUID id) {
-        return findDistrictById(id);
+        return districtRegistry.findById(id)
+                .orElseThrow(() -> new RuntimeException("District not found or deleted with ID: " + id));
     }
 
    
@@ -54,7 +59,9 @@ public class DistrictService {
         district.setProvince(dto.getProvince());
         district.setDistrict(dto.getDistrict());
 
-        return districtRepository.save(district);
+        District saved = districtRepository.save(district);
+        districtRegistry.refreshAfterCommit();
+        return saved;
     }
 
     
@@ -64,6 +71,7 @@ public class DistrictService {
         district.setDeleted(true);
         district.setActive(false);
         districtRepository.save(district);
+        districtRegistry.refreshAfterCommit();
     }
 
 }
@@ -0,0 +1,373 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockPostingDTO;
+import com.schoolfeeding.sf_backend.domain.entity.ExpiryAlert;
+import com.schoolfeeding.sf_backend.domain.entity.ExpirySweepRun;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.ExpiryAlertRepository;
+import com.schoolfeeding.sf_backend.domain.repository.ExpirySweepRunRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nightly sweep of the lots that expired or expire soon, across all schools.
+ * <p>
+ * Lots are read in pages off the partial {@code idx_stock_in_open_expiry}, keyset on
+ * (expiration_date, id) up to the alert horizon. The index holds open lots only, so starting the
+ * keyset at the first day never walks the closed lots of earlier years. Each page is one short
+ * transaction: expired lots are closed and their quantity written off through one batched ledger
+ * posting, the per-district digests are added to, and the run's checkpoint moves past the page.
+ * Ledger rows are locked before lots, in the order stock-outs lock them, so the sweep never
+ * deadlocks with issues running at the same time. When the last page is done, every district
+ * digest is published through the outbox as one alert.
+ * <p>
+ * A sweep that crashed or failed is resumed from its checkpoint on the same day only. One left
+ * over from an earlier day is closed as FAILED and a fresh sweep for today starts instead; its
+ * lots were already closed, so nothing is written off twice, but its digests stay unpublished.
+ */
+@Slf4j
+@Service
+public class ExpirySweepService {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1, 1, 1);
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final String NEXT_PAGE =
+            "SELECT si.id, si.school_id, si.item_id, si.remaining_quantity, si.expiration_date, sc.district_id " +
+            "FROM stock_in si JOIN school sc ON sc.id = si.school_id " +
+            "WHERE si.expiration_date <= ? AND (si.expiration_date, si.id) > (?, ?) " +
+            "AND si.is_deleted = false AND si.remaining_quantity > 0 AND si.item_id IS NOT NULL " +
+            "ORDER BY si.expiration_date, si.id LIMIT ?";
+
+    private static final String LOCK_BALANCES =
+            "SELECT school_id, item_id, quantity FROM stock WHERE (school_id, item_id) IN " +
+            "(SELECT * FROM unnest(?::uuid[], ?::uuid[])) AND is_deleted = false ORDER BY school_id, item_id FOR UPDATE";
+
+    // Closes the lots and hands back what was left in each, as of the lock
+    private static final String CLOSE_LOTS =
+            "UPDATE stock_in s SET remaining_quantity = 0 FROM (SELECT id, remaining_quantity FROM stock_in " +
+            "WHERE id = ANY(?::uuid[]) AND remaining_quantity > 0 ORDER BY id FOR UPDATE) o WHERE s.id = o.id " +
+            "RETURNING s.id, o.remaining_quantity";
+
+    private static final String INSERT_WRITE_OFF =
+            "INSERT INTO stock_write_off (run_id, stock_in_id, school_id, item_id, quantity, expiration_date, written_off_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADD_TO_ALERT =
+            "INSERT INTO expiry_alert (id, run_id, district_id, expired_lots, expired_quantity, expiring_lots, " +
+            "expiring_quantity, earliest_expiry) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (run_id, district_id) DO UPDATE SET " +
+            "expired_lots = expiry_alert.expired_lots + EXCLUDED.expired_lots, " +
+            "expired_quantity = expiry_alert.expired_quantity + EXCLUDED.expired_quantity, " +
+            "expiring_lots = expiry_alert.expiring_lots + EXCLUDED.expiring_lots, " +
+            "expiring_quantity = expiry_alert.expiring_quantity + EXCLUDED.expiring_quantity, " +
+            "earliest_expiry = LEAST(expiry_alert.earliest_expiry, EXCLUDED.earliest_expiry)";
+
+    private static final String ABANDON_STALE_RUNS =
+            "UPDATE expiry_sweep_run SET state = 'FAILED', finished_at = ?, " +
+            "error = 'Abandoned: not resumed before the day ended' WHERE state = 'RUNNING' AND run_date < ?";
+
+    private static final String ADVANCE_RUN =
+            "UPDATE expiry_sweep_run SET checkpoint_expiration_date = ?, checkpoint_stock_in_id = ?, " +
+            "lots_scanned = lots_scanned + ?, lots_expired = lots_expired + ?, " +
+            "quantity_written_off = quantity_written_off + ?, lots_expiring = lots_expiring + ? WHERE id = ?";
+
+    private final ExpirySweepRunRepository expirySweepRunRepository;
+    private final ExpiryAlertRepository expiryAlertRepository;
+    private final StockLedgerService stockLedgerService;
+    private final OutboxService outboxService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonDays;
+    private final int pageSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "expiry-sweep");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public ExpirySweepService(ExpirySweepRunRepository expirySweepRunRepository,
+                              ExpiryAlertRepository expiryAlertRepository,
+                              StockLedgerService stockLedgerService,
+                              OutboxService outboxService,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stock.expiry.horizon-days:7}") int horizonDays,
+                              @Value("${stock.expiry.page-size:500}") int pageSize) {
+        this.expirySweepRunRepository = expirySweepRunRepository;
+        this.expiryAlertRepository = expiryAlertRepository;
+        this.stockLedgerService = stockLedgerService;
+        this.outboxService = outboxService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonDays = horizonDays;
+        this.pageSize = pageSize;
+    }
+
+    @Scheduled(cron = "${stock.expiry.cron:0 30 1 * * *}")
+    public void scheduledSweep() {
+        if (running.get()) {
+            log.info("Skipping scheduled expiry sweep, a sweep is in progress");
+            return;
+        }
+        start();
+    }
+
+    // Resumes today's unfinished sweep if there is one, otherwise starts a sweep for today
+    public ExpirySweepRun start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An expiry sweep is already in progress");
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            int abandoned = jdbcTemplate.update(ABANDON_STALE_RUNS, Timestamp.valueOf(LocalDateTime.now()),
+                    Date.valueOf(today));
+            if (abandoned > 0) {
+                log.warn("Closed {} expiry sweeps left unfinished on an earlier day", abandoned);
+            }
+            ExpirySweepRun run = expirySweepRunRepository
+                    .findFirstByRunDateAndStateInOrderByStartedAtDesc(today, List.of(EJobState.RUNNING, EJobState.FAILED))
+                    .orElseGet(() -> {
+                        ExpirySweepRun fresh = new ExpirySweepRun();
+                        fresh.setRunDate(today);
+                        fresh.setHorizonDays(horizonDays);
+                        fresh.setStartedAt(LocalDateTime.now());
+                        return fresh;
+                    });
+            run.setState(EJobState.RUNNING);
+            run.setError(null);
+            run.setFinishedAt(null);
+            ExpirySweepRun saved = expirySweepRunRepository.save(run);
+            executor.submit(() -> execute(saved));
+            return saved;
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    public ExpirySweepRun getRun(UUID id) {
+        return expirySweepRunRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Expiry sweep not found with id " + id));
+    }
+
+    public ExpirySweepRun getLatestRun() {
+        return expirySweepRunRepository.findFirstByOrderByStartedAtDesc()
+                .orElseThrow(() -> new EntityNotFoundException("No expiry sweep yet"));
+    }
+
+    // ✅ District digests of a sweep, most written off first
+    public List<ExpiryAlert> getAlerts(UUID runId) {
+        getRun(runId);
+        return expiryAlertRepository.findByRunIdOrderByExpiredQuantityDescExpiringQuantityDesc(runId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void execute(ExpirySweepRun run) {
+        UUID runId = run.getId();
+        Cursor cursor = new Cursor(
+                run.getCheckpointExpirationDate() == null ? FIRST_DAY : run.getCheckpointExpirationDate(),
+                run.getCheckpointStockInId() == null ? FIRST_ID : run.getCheckpointStockInId());
+        LocalDate horizon = run.getRunDate().plusDays(run.getHorizonDays());
+        try {
+            while (cursor != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                Cursor from = cursor;
+                cursor = transactionTemplate.execute(tx -> sweepPage(run, from, horizon));
+            }
+            transactionTemplate.executeWithoutResult(tx -> publishAlerts(run));
+            finish(runId, EJobState.COMPLETED, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            finish(runId, EJobState.FAILED, "Interrupted");
+        } catch (RuntimeException ex) {
+            log.error("Expiry sweep {} failed", runId, ex);
+            finish(runId, EJobState.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Returns the checkpoint after the page, or null when no lot was left to sweep
+    private Cursor sweepPage(ExpirySweepRun run, Cursor from, LocalDate horizon) {
+        List<Lot> page = new ArrayList<>(pageSize);
+        jdbcTemplate.query(NEXT_PAGE, rs -> {
+            page.add(new Lot(rs.getObject("id", UUID.class), rs.getObject("school_id", UUID.class),
+                    rs.getObject("item_id", UUID.class), rs.getObject("district_id", UUID.class),
+                    rs.getDouble("remaining_quantity"), rs.getDate("expiration_date").toLocalDate()));
+        }, Date.valueOf(horizon), Date.valueOf(from.expirationDate()), from.stockInId(), pageSize);
+        if (page.isEmpty()) {
+            return null;
+        }
+
+        Map<UUID, Digest> digests = new HashMap<>();
+        List<Lot> expired = new ArrayList<>();
+        for (Lot lot : page) {
+            if (lot.expirationDate().isBefore(run.getRunDate())) {
+                expired.add(lot);
+            } else if (lot.districtId() != null) {
+                digests.computeIfAbsent(lot.districtId(), k -> new Digest()).expiring(lot.remaining(), lot.expirationDate());
+            }
+        }
+
+        double writtenOff = 0;
+        int closed = 0;
+        if (!expired.isEmpty()) {
+            Map<List<UUID>, Double> balances = lockBalances(expired);
+            Map<UUID, Double> left = closeLots(expired);
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> writeOffs = new ArrayList<>();
+            List<StockPostingDTO> postings = new ArrayList<>();
+            for (Lot lot : expired) {
+                Double remaining = left.get(lot.id());
+                if (remaining == null) {
+                    continue; // drawn down to nothing since the page was read
+                }
+                // Never write off more than the balance still holds
+                List<UUID> key = List.of(lot.schoolId(), lot.itemId());
+                double balance = balances.getOrDefault(key, 0.0);
+                double quantity = Math.max(0, Math.min(remaining, balance));
+                balances.put(key, balance - quantity);
+                closed++;
+                if (lot.districtId() != null) {
+                    digests.computeIfAbsent(lot.districtId(), k -> new Digest()).expired(quantity, lot.expirationDate());
+                }
+                if (quantity > 0) {
+                    writtenOff += quantity;
+                    writeOffs.add(new Object[]{run.getId(), lot.id(), lot.schoolId(), lot.itemId(), quantity,
+                            Date.valueOf(lot.expirationDate()), Timestamp.valueOf(now)});
+                    postings.add(new StockPostingDTO(lot.schoolId(), lot.itemId(), -quantity));
+                }
+            }
+            if (!writeOffs.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_WRITE_OFF, writeOffs);
+                stockLedgerService.postAll(postings);
+            }
+        }
+
+        List<Object[]> alertRows = new ArrayList<>(digests.size());
+        digests.forEach((districtId, d) -> alertRows.add(new Object[]{UUID.randomUUID(), run.getId(), districtId,
+                d.expiredLots, d.expiredQuantity, d.expiringLots, d.expiringQuantity, Date.valueOf(d.earliest)}));
+        if (!alertRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_TO_ALERT, alertRows);
+        }
+
+        Lot last = page.get(page.size() - 1);
+        jdbcTemplate.update(ADVANCE_RUN, Date.valueOf(last.expirationDate()), last.id(), page.size(), closed,
+                writtenOff, page.size() - expired.size(), run.getId());
+        return new Cursor(last.expirationDate(), last.id());
+    }
+
+    // Called with the ledger rows already locked: stock-outs lock the balance before the lots too
+    private Map<UUID, Double> closeLots(List<Lot> expired) {
+        Map<UUID, Double> left = new HashMap<>();
+        UUID[] ids = expired.stream().map(Lot::id).toArray(UUID[]::new);
+        jdbcTemplate.query(CLOSE_LOTS, rs -> {
+            left.put(rs.getObject("id", UUID.class), rs.getDouble("remaining_quantity"));
+        }, (Object) ids);
+        return left;
+    }
+
+    private Map<List<UUID>, Double> lockBalances(List<Lot> lots) {
+        Set<List<UUID>> keys = new LinkedHashSet<>();
+        lots.forEach(lot -> keys.add(List.of(lot.schoolId(), lot.itemId())));
+        UUID[] schoolIds = keys.stream().map(k -> k.get(0)).toArray(UUID[]::new);
+        UUID[] itemIds = keys.stream().map(k -> k.get(1)).toArray(UUID[]::new);
+        Map<List<UUID>, Double> balances = new HashMap<>();
+        jdbcTemplate.query(LOCK_BALANCES, rs -> {
+            balances.put(List.of(rs.getObject("school_id", UUID.class), rs.getObject("item_id", UUID.class)),
+                    rs.getDouble("quantity"));
+        }, schoolIds, itemIds);
+        return balances;
+    }
+
+    private void publishAlerts(ExpirySweepRun run) {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (ExpiryAlert alert : expiryAlertRepository.findByRunIdOrderByExpiredQuantityDescExpiringQuantityDesc(run.getId())) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("runId", run.getId());
+            payload.put("districtId", alert.getDistrictId());
+            payload.put("runDate", run.getRunDate());
+            payload.put("horizonDays", run.getHorizonDays());
+            payload.put("expiredLots", alert.getExpiredLots());
+            payload.put("expiredQuantity", alert.getExpiredQuantity());
+            payload.put("expiringLots", alert.getExpiringLots());
+            payload.put("expiringQuantity", alert.getExpiringQuantity());
+            payload.put("earliestExpiry", alert.getEarliestExpiry());
+            events.add(outboxService.newEvent(EOutboxEvent.EXPIRY_ALERT, alert.getId(), null, null, payload));
+        }
+        if (!events.isEmpty()) {
+            outboxService.recordAll(events);
+        }
+    }
+
+    private void finish(UUID runId, EJobState state, String error) {
+        ExpirySweepRun run = getRun(runId);
+        run.setState(state);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+        expirySweepRunRepository.save(run);
+        log.info("Expiry sweep {} {}: {} lots scanned, {} expired ({} written off), {} expiring", runId, state,
+                run.getLotsScanned(), run.getLotsExpired(), run.getQuantityWrittenOff(), run.getLotsExpiring());
+    }
+
+    private record Cursor(LocalDate expirationDate, UUID stockInId) {
+    }
+
+    private record Lot(UUID id, UUID schoolId, UUID itemId, UUID districtId, double remaining,
+                       LocalDate expirationDate) {
+    }
+
+    private static final class Digest {
+        private int expiredLots;
+        private double expiredQuantity;
+        private int expiringLots;
+        private double expiringQuantity;
+        private LocalDate earliest;
+
+        private void expired(double quantity, LocalDate expirationDate) {
+            expiredLots++;
+            expiredQuantity += quantity;
+            earliest(expirationDate);
+        }
+
+        private void expiring(double quantity, LocalDate expirationDate) {
+            expiringLots++;
+            expiringQuantity += quantity;
+            earliest(expirationDate);
+        }
+
+        private void earliest(LocalDate expirationDate) {
+            if (earliest == null || expirationDate.isBefore(earliest)) {
+                earliest = expirationDate;
+            }
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package com.schoolfeeding.sf_backend.domain.service;
 
 import com.schoolfeeding.sf_backend.domain.dto.GovernmentDashboardDTO;
+import com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Budget_Gov;
-import com.schoolfeeding.sf_backend.domain.entity.School;
-import com.schoolfeeding.sf_backend.domain.entity.District;
 import com.schoolfeeding.sf_backend.domain.repository.BudgetGovRepository;
-import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
-import com.schoolfeeding.sf_backend.domain.repository.DistrictRepository;
-import com.schoolfeeding.sf_backend.util.address.EDistrict;
-import com.schoolfeeding.sf_backend.util.address.EProvince;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -22,40 +17,25 @@ import java.util.Map;
 public class GovernmentDashboardService {
 
     private final BudgetGovRepository budgetRepo;
-    private final SchoolRepository schoolRepo;
-    private final DistrictRepository districtRepo;
+    private final DistrictRegistry districtRegistry;
+    private final DistrictRollupService rollupService;
 
     public GovernmentDashboardDTO getDashboard() {
 
         List<Budget_Gov> budgets = budgetRepo.findAll();
-        List<School> schools = schoolRepo.findAll();
-        List<District> districts = districtRepo.findAll();
 
-        
-        long totalStudents = schools.stream()
-                .mapToLong(s -> s.getNumberStudent() != null ? s.getNumberStudent() : 0)
-                .sum();
-
-        long totalSchools = schools.size();
-        long totalDistricts = districts.size();
+        // Totals come from the per-district rollup, so this is O(districts) rather than O(schools)
+        long totalStudents = rollupService.getTotalStudents();
+        long totalSchools = rollupService.getTotalSchools();
+        long totalDistricts = districtRegistry.size();
         long activeBudgets = budgets.stream().filter(Budget_Gov::getStatus).count();
 
        
         Map<String, Long> participationByProvince = new HashMap<>();
-        for (School s : schools) {
-            String province = "Unknown";
-
-            if (s.getDistrict() != null && s.getDistrict().getDistrict() != null) {
-                EDistrict districtEnum = s.getDistrict().getDistrict();
-                EProvince provEnum = districtEnum.getProvince();
-                province = provEnum != null ? provEnum.name() : "Unknown";
-            }
-
-            long studentsFed = s.getNumberStudent() != null ? s.getNumberStudent() : 0; // dummy for fed
-            participationByProvince.put(
-                    province,
-                    participationByProvince.getOrDefault(province, 0L) + studentsFed
-            );
+        for (ProvinceStatsDTO p : rollupService.getProvinceStats()) {
+            long studentsFed = p.getStudentCount(); // dummy for fed
+            String province = p.getProvince() != null ? p.getProvince().name() : "Unknown";
+            participationByProvince.merge(province, studentsFed, Long::sum);
         }
 
         
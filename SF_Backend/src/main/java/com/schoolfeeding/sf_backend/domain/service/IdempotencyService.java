@@ -0,0 +1,178 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Replays the result of a create call when a client retries it with the same
+ * {@code Idempotency-Key}. Results are kept in memory for a fixed TTL; since every key gets the
+ * same TTL, a FIFO queue in insertion order doubles as the expiry index, and it is also what the
+ * size bound evicts from, oldest completed result first. A call still in flight is never evicted,
+ * since its retry would then run the write a second time; when the store is full of those, a new
+ * key is refused with 503 instead. A retry that arrives while the first call is still running
+ * waits for that call instead of running the write a second time.
+ * <p>
+ * Each key also remembers a SHA-256 of the request body it was first used with; reusing the key
+ * for a different body is refused with 422 instead of replaying a result that belongs to another
+ * request.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitMillis;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Expiry> expiryQueue = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyService(ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl-minutes:60}") long ttlMinutes,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.wait-seconds:30}") long waitSeconds) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxEntries = maxEntries;
+        this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+    }
+
+    /**
+     * Runs {@code action} once per (scope, key) within the TTL and returns its result; later calls
+     * with the same key and the same {@code request} get the stored result. A blank key runs the
+     * action without recording it. If the action throws, the key is released so the client can retry.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String storeKey = scope + ':' + key;
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+
+        Entry mine = new Entry(now + ttlMillis, fingerprint(request));
+        while (true) {
+            Entry existing = entries.putIfAbsent(storeKey, mine);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now)) {
+                if (!MessageDigest.isEqual(existing.fingerprint, mine.fingerprint)) {
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            HEADER + " was already used for a different request");
+                }
+                return (T) existing.await(waitMillis);
+            }
+            if (entries.replace(storeKey, existing, mine)) {
+                break;
+            }
+        }
+        Expiry expiry = new Expiry(storeKey, mine);
+        expiryQueue.add(expiry);
+        if (!enforceBound()) {
+            entries.remove(storeKey, mine);
+            expiryQueue.remove(expiry);
+            ResponseStatusException full = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many requests with an " + HEADER + " in progress, retry later");
+            mine.result.completeExceptionally(full);
+            throw full;
+        }
+
+        try {
+            T result = action.get();
+            mine.result.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            entries.remove(storeKey, mine);
+            mine.result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // Taken before the action runs, which may fill in ids on the request
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot fingerprint the request for " + HEADER, ex);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Expiry head;
+        while ((head = expiryQueue.peek()) != null && head.entry.isExpired(now)) {
+            if (expiryQueue.remove(head)) {
+                entries.remove(head.key, head.entry);
+            }
+        }
+    }
+
+    // Evicts completed results, oldest first; false when in-flight calls alone exceed the bound
+    private boolean enforceBound() {
+        Iterator<Expiry> it = expiryQueue.iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Expiry oldest = it.next();
+            if (oldest.entry.result.isDone()) {
+                it.remove();
+                entries.remove(oldest.key, oldest.entry);
+            }
+        }
+        return entries.size() <= maxEntries;
+    }
+
+    private static final class Entry {
+
+        final long expiresAt;
+        final byte[] fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(long expiresAt, byte[] fingerprint) {
+            this.expiresAt = expiresAt;
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        Object await(long waitMillis) {
+            try {
+                return result.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(ex.getCause());
+            } catch (TimeoutException ex) {
+                throw new IllegalStateException("A request with this " + HEADER + " is still in progress");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an in-flight request");
+            }
+        }
+    }
+
+    private record Expiry(String key, Entry entry) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.ItemRepository;
+import com.schoolfeeding.sf_backend.util.tx.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Copy-on-write snapshot of the active item catalog. Readers get an immutable snapshot with
+ * indexes by id and by (case-insensitive) name; {@link ItemService} writes replace the whole
+ * snapshot after commit and bump {@link #getVersion()}, so clients can tell whether their copy
+ * is current without fetching the list. Cached items are shared and must not be modified.
+ */
+@Slf4j
+@Service
+public class ItemCatalog {
+
+    private final ItemRepository itemRepository;
+
+    // Seeded from the clock so versions keep increasing across restarts
+    private long nextVersion = System.currentTimeMillis();
+
+    private volatile Snapshot snapshot = new Snapshot(0L, List.of());
+
+    public ItemCatalog(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    public List<Item> getItems() {
+        return snapshot.items;
+    }
+
+    public Optional<Item> findById(UUID id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot.byId.get(id));
+    }
+
+    public Optional<Item> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(snapshot.byName.get(nameKey(name)));
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::reload);
+    }
+
+    public synchronized void reload() {
+        snapshot = new Snapshot(++nextVersion, itemRepository.findAllActive());
+        log.debug("Item catalog version {} loaded with {} items", snapshot.version, snapshot.items.size());
+    }
+
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Snapshot {
+
+        final long version;
+        final List<Item> items;
+        final Map<UUID, Item> byId;
+        final Map<String, Item> byName;
+
+        Snapshot(long version, List<Item> items) {
+            Map<UUID, Item> ids = new HashMap<>();
+            Map<String, Item> names = new HashMap<>();
+            for (Item item : items) {
+                ids.put(item.getId(), item);
+                if (item.getName() != null) {
+                    names.put(nameKey(item.getName()), item);
+                }
+            }
+            this.version = version;
+            this.items = List.copyOf(items);
+            this.byId = Map.copyOf(ids);
+            this.byName = Map.copyOf(names);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.schoolfeeding.sf_backend.domain.service;
 import com.schoolfeeding.sf_backend.domain.entity.Item;
 import com.schoolfeeding.sf_backend.domain.repository.ItemRepository;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -14,40 +15,66 @@ import java.util.UUID;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final ItemCatalog itemCatalog;
 
     // ✅ Create
+    @Transactional
     public Item createItem(Item item) {
         item.setIsDeleted(false);
         item.setActive(true);
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        itemCatalog.refreshAfterCommit();
+        return saved;
     }
 
-    // ✅ Get all (only active, non-deleted)
+    // ✅ Get all (only active, non-deleted) — served from the catalog snapshot
     public List<Item> getAllItems() {
-        return itemRepository.findAllActive();
+        return itemCatalog.getItems();
+    }
+
+    // ✅ Catalog version, changes whenever an item is created, updated or deleted
+    public long getCatalogVersion() {
+        return itemCatalog.getVersion();
     }
 
     // ✅ Get one by ID
     public Item getItemById(UUID id) {
-        return itemRepository.findById(id)
-                .filter(i -> !i.getIsDeleted())
+        return itemCatalog.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Item not found or deleted"));
+    }
+
+    // ✅ Get one by name
+    public Item getItemByName(String name) {
+        return itemCatalog.findByName(name)
                 .orElseThrow(() -> new EntityNotFoundException("Item not found or deleted"));
     }
 
     // ✅ Update
+    @Transactional
     public Item updateItem(UUID id, Item updatedItem) {
-        Item existing = getItemById(id);
+        Item existing = findActiveItem(id);
         existing.setName(updatedItem.getName());
         existing.setPerStudent(updatedItem.getPerStudent());
         existing.setDescription(updatedItem.getDescription());
-        return itemRepository.save(existing);
+        Item saved = itemRepository.save(existing);
+        itemCatalog.refreshAfterCommit();
+        return saved;
     }
 
     // ✅ Soft Delete (mark as deleted)
+    @Transactional
     public void deleteItem(UUID id) {
-        Item item = getItemById(id);
+        Item item = findActiveItem(id);
         item.setIsDeleted(true);
         item.setActive(false);
         itemRepository.save(item);
+        itemCatalog.refreshAfterCommit();
+    }
+
+    // Writes load a managed copy; the catalog instances are shared snapshots
+    private Item findActiveItem(UUID id) {
+        return itemRepository.findById(id)
+                .filter(i -> !i.getIsDeleted())
+                .orElseThrow(() -> new EntityNotFoundException("Item not found or deleted"));
     }
 }
@@ -0,0 +1,166 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hands order events from the outbox relay to the {@link OrderEventHub} of every instance. The
+ * relay dispatches a batch on whichever instance claimed it, while a client's stream lives on the
+ * instance it connected to, so the event goes through PostgreSQL: handling it only NOTIFYs its
+ * outbox id on {@value #CHANNEL}, and every instance LISTENs on a dedicated connection, loads the
+ * events it is told about and fans them out to its own subscribers.
+ * <p>
+ * Notifications sent while an instance's listener is down are lost to it, so after reconnecting
+ * the instance closes all its streams and the clients resume from their {@code Last-Event-ID}.
+ * With {@code stream.broadcast.enabled=false} events go straight to the local hub, which is only
+ * correct when a single instance runs both the relay and the streams.
+ */
+@Slf4j
+@Service
+public class OrderEventBroadcaster implements OutboxListener {
+
+    static final String CHANNEL = "order_events";
+
+    private static final String LISTEN = "LISTEN " + CHANNEL;
+
+    private static final String NOTIFY = "SELECT pg_notify('" + CHANNEL + "', ?)";
+
+    private final OrderEventHub orderEventHub;
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final int pollMillis;
+    private final long reconnectMillis;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread listener;
+
+    public OrderEventBroadcaster(OrderEventHub orderEventHub,
+                                 OutboxEventRepository outboxEventRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 DataSourceProperties dataSourceProperties,
+                                 @Value("${stream.broadcast.enabled:true}") boolean enabled,
+                                 @Value("${stream.broadcast.poll-ms:1000}") int pollMillis,
+                                 @Value("${stream.broadcast.reconnect-ms:5000}") long reconnectMillis) {
+        this.orderEventHub = orderEventHub;
+        this.outboxEventRepository = outboxEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.pollMillis = pollMillis;
+        this.reconnectMillis = reconnectMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "order-event-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    // Whether the LISTEN connection is up
+    boolean isListening() {
+        return listening;
+    }
+
+    @Override
+    public boolean supports(EOutboxEvent eventType) {
+        return eventType == EOutboxEvent.ORDER_CREATED || eventType == EOutboxEvent.ORDER_STATUS_CHANGED;
+    }
+
+    // Called on the relay thread; a failed NOTIFY throws, so the relay retries the event
+    @Override
+    public void onEvent(OutboxEvent event) {
+        if (!enabled) {
+            orderEventHub.onEvent(event);
+            return;
+        }
+        jdbcTemplate.queryForList(NOTIFY, String.valueOf(event.getId()));
+    }
+
+    // Name kept from when the hub itself was the listener, so delivered_to stays meaningful
+    @Override
+    public String name() {
+        return "OrderEventHub";
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(LISTEN);
+                }
+                listening = true;
+                if (reconnect) {
+                    orderEventHub.disconnectAll();
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMillis);
+                    if (notifications != null && notifications.length > 0) {
+                        deliver(notifications);
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (running) {
+                    log.warn("Order event listener lost its connection, reconnecting", ex);
+                }
+            } finally {
+                listening = false;
+            }
+            reconnect = true;
+            if (running) {
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(PGNotification[] notifications) {
+        List<Long> ids = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            ids.add(Long.valueOf(notification.getParameter()));
+        }
+        List<OutboxEvent> events = new ArrayList<>(outboxEventRepository.findAllById(ids));
+        events.sort(Comparator.comparing(OutboxEvent::getDispatchSeq));
+        events.forEach(orderEventHub::onEvent);
+    }
+}
@@ -0,0 +1,310 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.OrderStreamStatusDTO;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Pushes order events to the suppliers and schools connected to this instance over server-sent
+ * events. Fed by {@link OrderEventBroadcaster}, which hands every instance the events the outbox
+ * relay dispatched on any of them, so a stream only ever carries committed changes. The SSE event
+ * id is the outbox dispatch sequence: it grows in the order events reach this hub, which identity
+ * ids do not.
+ * <p>
+ * Each connection has a bounded buffer drained by a small sender pool, one sender per connection
+ * at a time and without holding any lock, so a slow client never holds up the relay or the other
+ * connections' heartbeats. A connection is closed when its buffer fills up or when a single write
+ * to it has been blocked for longer than {@code stream.send-timeout-ms}; the client reconnects
+ * with {@code Last-Event-ID} and the missed events are replayed from the outbox table.
+ */
+@Slf4j
+@Service
+public class OrderEventHub {
+
+    private static final int REPLAY_LIMIT = 500;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final long sendTimeoutMillis;
+    private final ExecutorService sender;
+
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong eventsReplayed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public OrderEventHub(OutboxEventRepository outboxEventRepository,
+                         @Value("${stream.timeout-ms:1800000}") long timeoutMillis,
+                         @Value("${stream.buffer-size:256}") int bufferSize,
+                         @Value("${stream.send-timeout-ms:10000}") long sendTimeoutMillis,
+                         @Value("${stream.sender-threads:4}") int senderThreads) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = bufferSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "order-stream-sender");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public SseEmitter subscribeSupplier(UUID supplierId, Long lastEventId) {
+        return subscribe(supplierScope(supplierId), lastEventId,
+                after -> outboxEventRepository.findSupplierOrderEventsAfter(supplierId, after, REPLAY_LIMIT));
+    }
+
+    public SseEmitter subscribeSchool(UUID schoolId, Long lastEventId) {
+        return subscribe(schoolScope(schoolId), lastEventId,
+                after -> outboxEventRepository.findSchoolOrderEventsAfter(schoolId, after, REPLAY_LIMIT));
+    }
+
+    public OrderStreamStatusDTO getStatus() {
+        int connections = subscribers.values().stream().mapToInt(Set::size).sum();
+        return new OrderStreamStatusDTO(connections, subscribers.size(), eventsSent.get(),
+                eventsReplayed.get(), evicted.get());
+    }
+
+    // Called on the broadcaster's listener thread: only enqueues, the sender pool does the writing
+    public void onEvent(OutboxEvent event) {
+        if (event.getSupplierId() != null) {
+            fanOut(supplierScope(event.getSupplierId()), event);
+        }
+        if (event.getSchoolId() != null) {
+            fanOut(schoolScope(event.getSchoolId()), event);
+        }
+    }
+
+    // Keeps idle connections alive through proxies, finds clients that went away and evicts stuck ones
+    @Scheduled(fixedDelayString = "${stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Set<Connection> connections : subscribers.values()) {
+            for (Connection connection : connections) {
+                long sendingSince = connection.sendingSince;
+                if (sendingSince > 0 && now - sendingSince > sendTimeoutMillis) {
+                    evict(connection, "a write blocked for " + (now - sendingSince) + " ms");
+                } else {
+                    connection.pingDue = true;
+                    scheduleDrain(connection);
+                }
+            }
+        }
+    }
+
+    // Ends every stream so each client resumes from its Last-Event-ID; used when live events may have been missed
+    public void disconnectAll() {
+        for (Set<Connection> connections : subscribers.values()) {
+            for (Connection connection : connections) {
+                if (close(connection)) {
+                    completeWhenIdle(connection);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        subscribers.values().forEach(connections -> connections.forEach(c -> c.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private SseEmitter subscribe(String scope, Long lastEventId, LongFunction<List<OutboxEvent>> replay) {
+        Connection connection = new Connection(scope, newEmitter(), bufferSize);
+        connection.emitter.onCompletion(() -> close(connection));
+        connection.emitter.onTimeout(() -> close(connection));
+        connection.emitter.onError(ex -> close(connection));
+
+        // Registered before the replay is read so nothing falls in between. The subscriber holds the
+        // drain until the replay is queued: live events wait in the buffer and go out after it.
+        connection.draining.set(true);
+        subscribers.computeIfAbsent(scope, k -> ConcurrentHashMap.newKeySet()).add(connection);
+        if (lastEventId != null) {
+            List<OutboxEvent> missed;
+            try {
+                missed = replay.apply(lastEventId);
+            } catch (RuntimeException ex) {
+                close(connection);
+                throw ex;
+            }
+            missed.forEach(event -> connection.replayed.add(event.getId()));
+            connection.backlog.addAll(missed);
+            connection.resync = missed.size() == REPLAY_LIMIT;
+            eventsReplayed.addAndGet(missed.size());
+        }
+        sender.execute(() -> drain(connection));
+        return connection.emitter;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void fanOut(String scope, OutboxEvent event) {
+        Set<Connection> connections = subscribers.get(scope);
+        if (connections == null) {
+            return;
+        }
+        for (Connection connection : connections) {
+            if (connection.buffer.offer(event)) {
+                scheduleDrain(connection);
+            } else {
+                evict(connection, bufferSize + " buffered events");
+            }
+        }
+    }
+
+    private void scheduleDrain(Connection connection) {
+        if (!connection.closed.get() && connection.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(connection));
+        }
+    }
+
+    // Runs for one connection at a time, guarded by its draining flag
+    private void drain(Connection connection) {
+        try {
+            OutboxEvent event;
+            while ((event = connection.backlog.poll()) != null) {
+                if (!send(connection, toSse(event))) {
+                    return;
+                }
+            }
+            if (connection.resync) {
+                // Too far behind to catch up from the stream; the client should reload its inbox
+                connection.resync = false;
+                if (!send(connection, SseEmitter.event().name("RESYNC").data("{}", MediaType.APPLICATION_JSON))) {
+                    return;
+                }
+            }
+            while ((event = connection.buffer.poll()) != null) {
+                if (connection.replayed.remove(event.getId())) {
+                    continue;
+                }
+                if (!send(connection, toSse(event))) {
+                    return;
+                }
+                eventsSent.incrementAndGet();
+            }
+            if (connection.pingDue) {
+                connection.pingDue = false;
+                send(connection, SseEmitter.event().comment("ping"));
+            }
+        } finally {
+            if (connection.closed.get()) {
+                complete(connection);
+            }
+            connection.draining.set(false);
+        }
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!connection.buffer.isEmpty()) {
+            scheduleDrain(connection);
+        }
+    }
+
+    private boolean send(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (connection.closed.get()) {
+            return false;
+        }
+        connection.sendingSince = System.currentTimeMillis();
+        try {
+            connection.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            close(connection);
+            return false;
+        } finally {
+            connection.sendingSince = 0;
+        }
+    }
+
+    // Drops a slow client. Completing the emitter waits for a write in progress, so it is left to the
+    // drain holding the connection; that thread is freed once the container gives up on the write.
+    private void evict(Connection connection, String reason) {
+        if (close(connection)) {
+            evicted.incrementAndGet();
+            log.info("Closing slow order stream {} after {}", connection.scope, reason);
+            completeWhenIdle(connection);
+        }
+    }
+
+    private void completeWhenIdle(Connection connection) {
+        if (connection.draining.compareAndSet(false, true)) {
+            sender.execute(() -> complete(connection));
+        }
+    }
+
+    private static void complete(Connection connection) {
+        try {
+            connection.emitter.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed by the container
+        }
+    }
+
+    // Returns whether this call did the closing
+    private boolean close(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscribers.computeIfPresent(connection.scope, (k, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+        connection.buffer.clear();
+        connection.backlog.clear();
+        return true;
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(OutboxEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getDispatchSeq()))
+                .name(event.getEventType().name())
+                .data(event.getPayload(), MediaType.APPLICATION_JSON);
+    }
+
+    private static String supplierScope(UUID supplierId) {
+        return "supplier:" + supplierId;
+    }
+
+    private static String schoolScope(UUID schoolId) {
+        return "school:" + schoolId;
+    }
+
+    private static final class Connection {
+        private final String scope;
+        private final SseEmitter emitter;
+        private final BlockingQueue<OutboxEvent> buffer;
+        // Resume replay, sent ahead of the buffer
+        private final Queue<OutboxEvent> backlog = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // Outbox ids in the resume replay, skipped if they also arrive live
+        private final Set<Long> replayed = ConcurrentHashMap.newKeySet();
+        private volatile boolean resync;
+        private volatile boolean pingDue;
+        // When the write in progress started, 0 when idle
+        private volatile long sendingSince;
+
+        private Connection(String scope, SseEmitter emitter, int bufferSize) {
+            this.scope = scope;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
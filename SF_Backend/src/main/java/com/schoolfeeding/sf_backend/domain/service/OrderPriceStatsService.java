@@ -0,0 +1,226 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.OrderPriceStatDTO;
+import com.schoolfeeding.sf_backend.domain.entity.OrderPriceStat;
+import com.schoolfeeding.sf_backend.domain.entity.Orders;
+import com.schoolfeeding.sf_backend.domain.repository.OrderPriceStatRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Keeps running unit price figures per (item, district, month) for price trends: order count,
+ * sum, min, max and a {@link PriceSketch} for percentiles. The unit price is the order price over
+ * the requested quantity, as in supplier matching, and the month is that of the delivery date.
+ * A request carries one quantity and one price for all its items, so only orders of single-item
+ * requests are counted. Orders without a delivery date are left out too: orders keep no record of
+ * when they were placed, so the startup backfill would have no month to file them under. Such an
+ * order is counted once it is given a date.
+ * <p>
+ * Each created order updates its item's row in place with one upsert in the order's own
+ * transaction, so the analytics read finished figures and never scan orders. Orders placed
+ * before the figures existed are folded in at startup, and so is everything again when the rows
+ * were built under older counting rules than {@link #RULES_VERSION}. Other edits and deletions of
+ * orders are not reflected: the figures describe prices as they were ordered.
+ */
+@Slf4j
+@Service
+public class OrderPriceStatsService {
+
+    private static final int DEFAULT_MONTHS = 12;
+
+    // Bumped whenever the rules of which orders count, and how, change
+    static final int RULES_VERSION = 1;
+
+    // Instances starting together rebuild one after the other, so the second finds the rows current
+    private static final String LOCK_BACKFILL =
+            "SELECT pg_advisory_xact_lock(hashtextextended('order-price-stat-backfill', 0))";
+
+    private static final String ANY_STAT =
+            "SELECT EXISTS (SELECT 1 FROM order_price_stat)";
+
+    private static final String ANY_STALE_STAT =
+            "SELECT EXISTS (SELECT 1 FROM order_price_stat WHERE rules_version <> ?)";
+
+    private static final String DELETE_STATS =
+            "DELETE FROM order_price_stat";
+
+    private static final String SINGLE_ITEM_REQUESTS =
+            "SELECT request_id FROM request_items GROUP BY request_id HAVING COUNT(*) = 1";
+
+    private static final String PAST_ORDERS =
+            "SELECT ri.item_id, r.district_id, CAST(date_trunc('month', o.delivery_date) AS date) AS month, " +
+            "o.order_price / r.quantity AS price FROM orders o " +
+            "JOIN request_item r ON r.id = o.request_item_id JOIN request_items ri ON ri.request_id = r.id " +
+            "WHERE o.is_deleted = false AND o.delivery_date IS NOT NULL AND r.quantity > 0 AND r.district_id IS NOT NULL " +
+            "AND r.id IN (" + SINGLE_ITEM_REQUESTS + ")";
+
+    private static final String REQUEST_LINE =
+            "SELECT ri.item_id, r.district_id, r.quantity FROM request_item r " +
+            "JOIN request_items ri ON ri.request_id = r.id WHERE r.id = ? AND r.id IN (" + SINGLE_ITEM_REQUESTS + ")";
+
+    private static final String INSERT_STAT =
+            "INSERT INTO order_price_stat (item_id, district_id, month, order_count, price_sum, price_min, price_max, " +
+            "sketch, updated_at, rules_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?::int[], ?, " + RULES_VERSION + ") " +
+            "ON CONFLICT (item_id, district_id, month) DO NOTHING";
+
+    // Bucket subscripts are 1-based
+    private static final String UPSERT_STAT =
+            "INSERT INTO order_price_stat (item_id, district_id, month, order_count, price_sum, price_min, price_max, " +
+            "sketch, updated_at, rules_version) VALUES (?, ?, ?, 1, ?, ?, ?, ?::int[], ?, " + RULES_VERSION + ") " +
+            "ON CONFLICT (item_id, district_id, month) DO UPDATE SET " +
+            "order_count = order_price_stat.order_count + 1, " +
+            "price_sum = order_price_stat.price_sum + EXCLUDED.price_sum, " +
+            "price_min = LEAST(order_price_stat.price_min, EXCLUDED.price_min), " +
+            "price_max = GREATEST(order_price_stat.price_max, EXCLUDED.price_max), " +
+            "sketch[?] = order_price_stat.sketch[?] + 1, updated_at = EXCLUDED.updated_at";
+
+    private final OrderPriceStatRepository orderPriceStatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderPriceStatsService(OrderPriceStatRepository orderPriceStatRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager) {
+        this.orderPriceStatRepository = orderPriceStatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void backfill() {
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList(LOCK_BACKFILL);
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(ANY_STALE_STAT, Boolean.class, RULES_VERSION))) {
+                int dropped = jdbcTemplate.update(DELETE_STATS);
+                log.info("Order price figures built under older rules dropped for a rebuild: {} rows", dropped);
+            } else if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(ANY_STAT, Boolean.class))) {
+                return;
+            }
+            Map<List<Object>, Figures> figures = new HashMap<>();
+            jdbcTemplate.query(PAST_ORDERS, rs -> {
+                List<Object> key = List.of(rs.getObject("item_id", UUID.class), rs.getObject("district_id", UUID.class),
+                        rs.getDate("month").toLocalDate());
+                figures.computeIfAbsent(key, k -> new Figures()).add(rs.getDouble("price"));
+            });
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> rows = new ArrayList<>(figures.size());
+            figures.forEach((key, f) -> rows.add(new Object[]{key.get(0), key.get(1), Date.valueOf((LocalDate) key.get(2)),
+                    f.count, f.sum, f.min, f.max, boxed(f.sketch), now}));
+            jdbcTemplate.batchUpdate(INSERT_STAT, rows);
+            if (!rows.isEmpty()) {
+                log.info("Order price figures started from past orders: {} (item, district, month) rows", rows.size());
+            }
+        });
+    }
+
+    // Folds a new or newly dated order's unit price into its rows, in the order's transaction
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void record(Orders order) {
+        if (order.getRequestItem() == null || order.getRequestItem().getId() == null || order.getDeliveryDate() == null) {
+            return;
+        }
+        Date month = Date.valueOf(monthOf(order.getDeliveryDate()));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query(REQUEST_LINE, rs -> {
+            UUID districtId = rs.getObject("district_id", UUID.class);
+            double quantity = rs.getDouble("quantity");
+            if (districtId == null || quantity <= 0) {
+                return;
+            }
+            double price = order.getOrderPrice() / quantity;
+            int bucket = PriceSketch.bucket(price);
+            Integer[] sketch = new Integer[PriceSketch.SIZE];
+            Arrays.fill(sketch, 0);
+            sketch[bucket] = 1;
+            rows.add(new Object[]{rs.getObject("item_id", UUID.class), districtId, month, price, price, price,
+                    sketch, now, bucket + 1, bucket + 1});
+        }, order.getRequestItem().getId());
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_STAT, rows);
+        }
+    }
+
+    // ✅ Unit price figures of an item per district and month, or all districts together; oldest month first
+    public List<OrderPriceStatDTO> getPriceStats(UUID itemId, UUID districtId, LocalDate from, LocalDate to,
+                                                 boolean combineDistricts) {
+        LocalDate toMonth = (to != null ? to : LocalDate.now()).withDayOfMonth(1);
+        LocalDate fromMonth = from != null ? from.withDayOfMonth(1) : toMonth.minusMonths(DEFAULT_MONTHS - 1);
+        if (fromMonth.isAfter(toMonth)) {
+            throw new IllegalArgumentException("Invalid period: " + from + " to " + to);
+        }
+        List<OrderPriceStat> stats = orderPriceStatRepository.findForItem(itemId, districtId, fromMonth, toMonth);
+        if (!combineDistricts) {
+            return stats.stream()
+                    .map(s -> toDTO(itemId, s.getDistrictId(), s.getMonth(), s.getOrderCount(), s.getPriceSum(),
+                            s.getPriceMin(), s.getPriceMax(), s.getSketch()))
+                    .toList();
+        }
+
+        Map<LocalDate, Figures> byMonth = new TreeMap<>();
+        for (OrderPriceStat s : stats) {
+            byMonth.computeIfAbsent(s.getMonth(), m -> new Figures()).merge(s);
+        }
+        List<OrderPriceStatDTO> result = new ArrayList<>(byMonth.size());
+        byMonth.forEach((month, f) -> result.add(toDTO(itemId, districtId, month, f.count, f.sum, f.min, f.max, f.sketch)));
+        return result;
+    }
+
+    private static OrderPriceStatDTO toDTO(UUID itemId, UUID districtId, LocalDate month, long count, double sum,
+                                           double min, double max, int[] sketch) {
+        return new OrderPriceStatDTO(itemId, districtId, month, count, count == 0 ? 0 : sum / count, min, max,
+                PriceSketch.quantile(sketch, 0.5, min, max),
+                PriceSketch.quantile(sketch, 0.9, min, max),
+                PriceSketch.quantile(sketch, 0.95, min, max));
+    }
+
+    private static LocalDate monthOf(java.util.Date deliveryDate) {
+        LocalDate day;
+        if (deliveryDate instanceof Date sqlDate) {
+            day = sqlDate.toLocalDate();
+        } else {
+            day = deliveryDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        return day.withDayOfMonth(1);
+    }
+
+    private static Integer[] boxed(int[] sketch) {
+        return Arrays.stream(sketch).boxed().toArray(Integer[]::new);
+    }
+
+    private static final class Figures {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private final int[] sketch = new int[PriceSketch.SIZE];
+
+        void add(double price) {
+            count++;
+            sum += price;
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+            sketch[PriceSketch.bucket(price)]++;
+        }
+
+        void merge(OrderPriceStat stat) {
+            count += stat.getOrderCount();
+            sum += stat.getPriceSum();
+            min = Math.min(min, stat.getPriceMin());
+            max = Math.max(max, stat.getPriceMax());
+            PriceSketch.merge(sketch, stat.getSketch());
+        }
+    }
+}
@@ -1,23 +1,64 @@
 package com.schoolfeeding.sf_backend.domain.service;
 
+import com.schoolfeeding.sf_backend.domain.dto.OrderInboxDTO;
+import com.schoolfeeding.sf_backend.domain.dto.OrderInboxPageDTO;
 import com.schoolfeeding.sf_backend.domain.entity.Orders;
 import com.schoolfeeding.sf_backend.domain.repository.OrdersRepository;
+import com.schoolfeeding.sf_backend.domain.repository.RequestItemRepository;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class OrdersService {
 
+    private static final int MAX_INBOX_PAGE = 100;
+
+    // Start-of-inbox cursor: later than any real (deliveryDate, id)
+    private static final Date INBOX_START_DATE = java.sql.Date.valueOf(LocalDate.of(9999, 12, 31));
+    private static final UUID INBOX_START_ID = new UUID(-1L, -1L);
+
+    // Cursor for the undated tail of the inbox
+    private static final String UNDATED_CURSOR = "-";
+
+    private static final String INBOX_SELECT =
+            "SELECT o.id, r.id AS request_item_id, sc.id AS school_id, sc.school_name, o.delivery_date, " +
+            "o.delivery_status, o.order_price, o.order_pay_state FROM orders o " +
+            "LEFT JOIN request_item r ON r.id = o.request_item_id LEFT JOIN school sc ON sc.id = r.school_id " +
+            "WHERE o.supplier_id = ? AND o.is_deleted = false";
+
     private final OrdersRepository ordersRepository;
+    private final RequestItemRepository requestItemRepository;
+    private final SupplierMatchingService supplierMatchingService;
+    private final OutboxService outboxService;
+    private final OrderPriceStatsService orderPriceStatsService;
+    private final JdbcTemplate jdbcTemplate;
 
-    // ✅ Create
+    // ✅ Create — published through the outbox like later status changes, and folded into the price figures
+    @Transactional
     public Orders createOrder(Orders order) {
-        return ordersRepository.save(order);
+        Orders saved = ordersRepository.save(order);
+        recordOrderEvent(EOutboxEvent.ORDER_CREATED, saved, null, null);
+        orderPriceStatsService.record(saved);
+        supplierMatchingService.markOrdersChanged();
+        return saved;
     }
 
     // ✅ Get all (only active)
@@ -25,15 +66,106 @@ public class OrdersService {
         return ordersRepository.findByIsDeletedFalse();
     }
 
+    // ✅ Supplier inbox, keyset-paged on (deliveryDate, id) so every page costs the same
+    public OrderInboxPageDTO getSupplierInbox(UUID supplierId, EDelivery status, EOrderPay payState,
+                                              String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_INBOX_PAGE));
+        Date afterDate = INBOX_START_DATE;
+        UUID afterId = INBOX_START_ID;
+        boolean undated = false;
+
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid inbox cursor: " + cursor);
+            }
+            undated = UNDATED_CURSOR.equals(parts[0]);
+            if (!undated) {
+                afterDate = java.sql.Date.valueOf(LocalDate.parse(parts[0]));
+            }
+            afterId = UUID.fromString(parts[1]);
+        }
+
+        // One row past the page tells whether there is a next page
+        List<OrderInboxDTO> rows = new ArrayList<>(pageSize + 1);
+        if (!undated) {
+            rows.addAll(findInbox(supplierId, status, payState, afterDate, afterId, pageSize + 1));
+            afterId = INBOX_START_ID;
+        }
+        if (rows.size() <= pageSize) {
+            rows.addAll(findInbox(supplierId, status, payState, null, afterId, pageSize + 1 - rows.size()));
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderInboxDTO> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? inboxCursor(page.get(page.size() - 1)) : null;
+        return new OrderInboxPageDTO(new ArrayList<>(page), nextCursor, hasMore);
+    }
+
+    /*
+     * One inbox page after the cursor: dated orders when afterDate is set, the undated tail otherwise.
+     * Only the filters given go into the WHERE clause, so the planner can use the matching
+     * (supplier, status or pay state, delivery date, id) index, and the cursor is a row-value
+     * comparison that the index scan starts from.
+     */
+    private List<OrderInboxDTO> findInbox(UUID supplierId, EDelivery status, EOrderPay payState,
+                                          Date afterDate, UUID afterId, int limit) {
+        StringBuilder sql = new StringBuilder(INBOX_SELECT);
+        List<Object> args = new ArrayList<>(6);
+        args.add(supplierId);
+        if (status != null) {
+            sql.append(" AND o.delivery_status = ?");
+            args.add(status.name());
+        }
+        if (payState != null) {
+            sql.append(" AND o.order_pay_state = ?");
+            args.add(payState.name());
+        }
+        if (afterDate != null) {
+            sql.append(" AND o.delivery_date IS NOT NULL AND (o.delivery_date, o.id) < (?, ?)")
+                    .append(" ORDER BY o.delivery_date DESC, o.id DESC LIMIT ?");
+            args.add(afterDate);
+        } else {
+            sql.append(" AND o.delivery_date IS NULL AND o.id < ? ORDER BY o.id DESC LIMIT ?");
+        }
+        args.add(afterId);
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> inboxRow(rs), args.toArray());
+    }
+
+    private static OrderInboxDTO inboxRow(ResultSet rs) throws SQLException {
+        String payState = rs.getString("order_pay_state");
+        return new OrderInboxDTO(rs.getObject("id", UUID.class), rs.getObject("request_item_id", UUID.class),
+                rs.getObject("school_id", UUID.class), rs.getString("school_name"), rs.getDate("delivery_date"),
+                EDelivery.valueOf(rs.getString("delivery_status")), rs.getDouble("order_price"),
+                payState != null ? EOrderPay.valueOf(payState) : null);
+    }
+
+    private static String inboxCursor(OrderInboxDTO last) {
+        Date date = last.getDeliveryDate();
+        if (date == null) {
+            return UNDATED_CURSOR + "|" + last.getId();
+        }
+        LocalDate day = date instanceof java.sql.Date sqlDate
+                ? sqlDate.toLocalDate()
+                : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return day + "|" + last.getId();
+    }
+
     // ✅ Get by ID
     public Orders getOrderById(UUID id) {
         return ordersRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Order not found with id " + id));
     }
 
-    // ✅ Update
+    // ✅ Update — a delivery or payment status change is published through the outbox, and an order
+    // given its first delivery date is folded into the price figures
+    @Transactional
     public Orders updateOrder(UUID id, Orders orderDetails) {
         Orders existingOrder = getOrderById(id);
+        EDelivery previousDelivery = existingOrder.getDeliveryStatus();
+        EOrderPay previousPay = existingOrder.getOrderPayState();
+        boolean wasUndated = existingOrder.getDeliveryDate() == null;
 
         existingOrder.setRequestItem(orderDetails.getRequestItem());
         existingOrder.setSupplier(orderDetails.getSupplier());
@@ -42,7 +174,32 @@ public class OrdersService {
         existingOrder.setOrderPrice(orderDetails.getOrderPrice());
         existingOrder.setOrderPayState(orderDetails.getOrderPayState());
 
-        return ordersRepository.save(existingOrder);
+        Orders saved = ordersRepository.save(existingOrder);
+        if (saved.getDeliveryStatus() != previousDelivery || saved.getOrderPayState() != previousPay) {
+            recordOrderEvent(EOutboxEvent.ORDER_STATUS_CHANGED, saved, previousDelivery, previousPay);
+        }
+        if (wasUndated && saved.getDeliveryDate() != null && !Boolean.TRUE.equals(saved.getIsDeleted())) {
+            orderPriceStatsService.record(saved);
+        }
+        supplierMatchingService.markOrdersChanged();
+        return saved;
+    }
+
+    private void recordOrderEvent(EOutboxEvent eventType, Orders order,
+                                  EDelivery previousDelivery, EOrderPay previousPay) {
+        UUID requestItemId = order.getRequestItem() == null ? null : order.getRequestItem().getId();
+        UUID supplierId = order.getSupplier() == null ? null : order.getSupplier().getId();
+        UUID schoolId = requestItemId == null ? null : requestItemRepository.findSchoolIdById(requestItemId);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("requestItemId", requestItemId);
+        payload.put("previousDeliveryStatus", previousDelivery);
+        payload.put("deliveryStatus", order.getDeliveryStatus());
+        payload.put("previousPayState", previousPay);
+        payload.put("orderPayState", order.getOrderPayState());
+        payload.put("deliveryDate", order.getDeliveryDate());
+        outboxService.record(eventType, order.getId(), supplierId, schoolId, payload);
     }
 
     // ✅ Soft Delete
@@ -50,5 +207,6 @@ public class OrdersService {
         Orders existingOrder = getOrderById(id);
         existingOrder.setIsDeleted(true);
         ordersRepository.save(existingOrder);
+        supplierMatchingService.markOrdersChanged();
     }
 }
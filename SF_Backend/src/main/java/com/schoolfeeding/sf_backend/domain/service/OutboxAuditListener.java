@@ -0,0 +1,51 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Records order status changes, stock arrivals and expiry digests in the audit log as system notifications
+@Component
+@RequiredArgsConstructor
+public class OutboxAuditListener implements OutboxListener {
+
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(EOutboxEvent eventType) {
+        return true;
+    }
+
+    @Override
+    public void onEvent(OutboxEvent event) {
+        JsonNode payload = readPayload(event);
+        String details = switch (event.getEventType()) {
+            case ORDER_CREATED -> "Order " + event.getAggregateId() + " created for supplier "
+                    + event.getSupplierId() + ", school " + event.getSchoolId();
+            case ORDER_STATUS_CHANGED -> "Order " + event.getAggregateId() + " delivery "
+                    + payload.path("previousDeliveryStatus").asText() + " -> " + payload.path("deliveryStatus").asText()
+                    + ", payment " + payload.path("previousPayState").asText() + " -> "
+                    + payload.path("orderPayState").asText();
+            case STOCK_RECEIVED -> "Stock-in " + event.getAggregateId() + " of "
+                    + payload.path("quantity").asDouble() + " for school " + event.getSchoolId();
+            case EXPIRY_ALERT -> "District " + payload.path("districtId").asText() + ": "
+                    + payload.path("expiredLots").asInt() + " lots expired (" + payload.path("expiredQuantity").asDouble()
+                    + " written off), " + payload.path("expiringLots").asInt() + " expiring within "
+                    + payload.path("horizonDays").asInt() + " days";
+        };
+        auditLogService.createLog(event.getEventType().name(), "SYSTEM", "INFO", details);
+    }
+
+    private JsonNode readPayload(OutboxEvent event) {
+        try {
+            return objectMapper.readTree(event.getPayload() == null ? "{}" : event.getPayload());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable payload on outbox event " + event.getId(), ex);
+        }
+    }
+}
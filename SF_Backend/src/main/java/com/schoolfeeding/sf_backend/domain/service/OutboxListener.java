@@ -0,0 +1,23 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import org.springframework.util.ClassUtils;
+
+/**
+ * In-process consumer of outbox events. Delivery is tracked per listener: when one listener fails,
+ * the event is retried only for the listeners that have not handled it yet. Delivery is still
+ * at-least-once, since the relay can stop between a listener handling an event and recording it,
+ * so handlers must tolerate seeing the same event id twice.
+ */
+public interface OutboxListener {
+
+    boolean supports(EOutboxEvent eventType);
+
+    void onEvent(OutboxEvent event);
+
+    // Recorded on the event once this listener handled it; must stay stable across restarts
+    default String name() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+}
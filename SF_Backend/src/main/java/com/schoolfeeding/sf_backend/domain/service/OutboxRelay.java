@@ -0,0 +1,199 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.OutboxStatusDTO;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Dispatches committed outbox events to the {@link OutboxListener} beans in claim order, one
+ * batch at a time, on the scheduler thread rather than the request path.
+ * <p>
+ * Each batch is claimed first: the rows are picked with {@code FOR UPDATE SKIP LOCKED} and leased
+ * through {@code claimed_until}, so several instances never dispatch the same event at once, and
+ * an instance that dies mid-batch only holds its events until the lease runs out. The claim also
+ * draws each event a {@code dispatch_seq}, which only grows in the order listeners see events.
+ * <p>
+ * An event is marked published only after every interested listener handled it; when one throws,
+ * the listeners that succeeded are recorded in {@code delivered_to} and skipped on the retry. A
+ * failed event does not hold back the ones behind it: its attempt count goes up and it is claimed
+ * again after a backoff with a new, higher {@code dispatch_seq}, so listeners can see it after
+ * later events. Once {@code outbox.relay.max-attempts} is reached it is reported as failed instead.
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private static final String CREATE_DISPATCH_SEQUENCE =
+            "CREATE SEQUENCE IF NOT EXISTS outbox_dispatch_seq";
+
+    // Databases created before event_type was converted still carry Hibernate's enum check constraint
+    private static final String DROP_EVENT_TYPE_CHECK =
+            "ALTER TABLE outbox_event DROP CONSTRAINT IF EXISTS outbox_event_event_type_check";
+
+    // Next events to dispatch, oldest first; events backing off, out of attempts or leased elsewhere are
+    // left out. The sequence is drawn over the already sorted and locked rows, so it follows id order.
+    private static final String CLAIM =
+            "UPDATE outbox_event o SET claimed_until = now() + make_interval(secs => ?), dispatch_seq = c.seq " +
+            "FROM (SELECT id, nextval('outbox_dispatch_seq') AS seq FROM (" +
+            "SELECT id FROM outbox_event WHERE published_at IS NULL AND attempts < ? " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= now()) " +
+            "AND (claimed_until IS NULL OR claimed_until < now()) " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) s) c WHERE o.id = c.id RETURNING o.id";
+
+    private static final String MARK_PUBLISHED =
+            "UPDATE outbox_event SET published_at = ?, claimed_until = NULL WHERE id = ANY(?::bigint[])";
+
+    // Backs off 2, 4, 8 ... seconds between attempts, capped at five minutes
+    private static final String MARK_FAILED =
+            "UPDATE outbox_event SET attempts = attempts + 1, last_error = ?, delivered_to = ?::text[], " +
+            "claimed_until = NULL, " +
+            "next_attempt_at = now() + make_interval(secs => least(power(2, attempts + 1), 300)) WHERE id = ?";
+
+    private static final String PURGE_PUBLISHED =
+            "DELETE FROM outbox_event WHERE published_at < ?";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxListener> listeners;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final int maxAttempts;
+    private final int retentionDays;
+    private final int claimSeconds;
+
+    private final OutboxStatusDTO stats = new OutboxStatusDTO();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       List<OutboxListener> listeners,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.max-batches-per-run:20}") int maxBatchesPerRun,
+                       @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+                       @Value("${outbox.retention-days:7}") int retentionDays,
+                       @Value("${outbox.relay.claim-seconds:60}") int claimSeconds) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.listeners = listeners;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        this.claimSeconds = claimSeconds;
+    }
+
+    @PostConstruct
+    void prepareSchema() {
+        jdbcTemplate.execute(CREATE_DISPATCH_SEQUENCE);
+        jdbcTemplate.execute(DROP_EVENT_TYPE_CHECK);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (relayBatch() < batchSize) {
+                break;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${outbox.cleanup.cron:0 30 3 * * *}")
+    public void purgePublished() {
+        int deleted = jdbcTemplate.update(PURGE_PUBLISHED,
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Purged {} published outbox events older than {} days", deleted, retentionDays);
+    }
+
+    public OutboxStatusDTO getStatus() {
+        OutboxStatusDTO copy = new OutboxStatusDTO();
+        synchronized (stats) {
+            BeanUtils.copyProperties(stats, copy);
+        }
+        LocalDateTime oldest = outboxEventRepository.oldestPendingCreatedAt(maxAttempts);
+        copy.setPending(outboxEventRepository.countPending(maxAttempts));
+        copy.setFailed(outboxEventRepository.countFailed(maxAttempts));
+        copy.setOldestPendingAt(oldest);
+        copy.setLagSeconds(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).getSeconds());
+        return copy;
+    }
+
+    // Returns how many events were fetched
+    private int relayBatch() {
+        List<Long> claimed = jdbcTemplate.queryForList(CLAIM, Long.class, claimSeconds, maxAttempts, batchSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<OutboxEvent> events = new ArrayList<>(outboxEventRepository.findAllById(claimed));
+        events.sort(Comparator.comparing(OutboxEvent::getDispatchSeq));
+
+        List<Long> published = new ArrayList<>(events.size());
+        List<Object[]> failed = new ArrayList<>();
+        long delayMillis = 0;
+        for (OutboxEvent event : events) {
+            Set<String> delivered = new LinkedHashSet<>();
+            if (event.getDeliveredTo() != null) {
+                delivered.addAll(Arrays.asList(event.getDeliveredTo()));
+            }
+            String error = dispatch(event, delivered);
+            if (error == null) {
+                published.add(event.getId());
+                delayMillis += Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis();
+            } else {
+                failed.add(new Object[]{error, delivered.toArray(new String[0]), event.getId()});
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!published.isEmpty()) {
+            jdbcTemplate.update(MARK_PUBLISHED, Timestamp.valueOf(now), published.toArray(new Long[0]));
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_FAILED, failed);
+        }
+
+        synchronized (stats) {
+            stats.setLastRelayAt(now);
+            stats.setLastBatchSize(events.size());
+            stats.setLastDispatchDelayMillis(published.isEmpty() ? 0 : delayMillis / published.size());
+            stats.setDispatchedTotal(stats.getDispatchedTotal() + published.size());
+            stats.setListenerFailuresTotal(stats.getListenerFailuresTotal() + failed.size());
+        }
+        return claimed.size();
+    }
+
+    // Calls the interested listeners not yet in delivered, adding those that succeed; returns the first error
+    private String dispatch(OutboxEvent event, Set<String> delivered) {
+        String error = null;
+        for (OutboxListener listener : listeners) {
+            if (!listener.supports(event.getEventType()) || delivered.contains(listener.name())) {
+                continue;
+            }
+            try {
+                listener.onEvent(event);
+                delivered.add(listener.name());
+            } catch (RuntimeException ex) {
+                log.warn("Outbox listener {} failed on event {}", listener.getClass().getSimpleName(),
+                        event.getId(), ex);
+                if (error == null) {
+                    error = truncate(listener.getClass().getSimpleName() + ": " + ex.getMessage());
+                }
+            }
+        }
+        return error;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,72 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes outbox events. Must be called inside the transaction making the change, so the event
+ * exists exactly when the change committed; {@link OutboxRelay} dispatches it afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO outbox_event (event_type, aggregate_id, supplier_id, school_id, payload, created_at, attempts) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public OutboxEvent record(EOutboxEvent eventType, UUID aggregateId, UUID supplierId, UUID schoolId,
+                              Map<String, Object> payload) {
+        return outboxEventRepository.save(newEvent(eventType, aggregateId, supplierId, schoolId, payload));
+    }
+
+    // Batch form of record() for set-based writers; the events come from newEvent()
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordAll(List<OutboxEvent> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            rows.add(new Object[]{event.getEventType().name(), event.getAggregateId(), event.getSupplierId(),
+                    event.getSchoolId(), event.getPayload(), Timestamp.valueOf(event.getCreatedAt())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+    }
+
+    public OutboxEvent newEvent(EOutboxEvent eventType, UUID aggregateId, UUID supplierId, UUID schoolId,
+                                Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setSupplierId(supplierId);
+        event.setSchoolId(schoolId);
+        event.setPayload(toJson(payload));
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", ex);
+        }
+    }
+}
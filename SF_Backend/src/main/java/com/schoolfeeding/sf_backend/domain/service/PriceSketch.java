@@ -0,0 +1,53 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+/**
+ * Fixed-size log-scale histogram of prices for approximate percentiles. Bucket {@code k} counts the
+ * prices in (LOWEST * GAMMA^(k-1), LOWEST * GAMMA^k], so a percentile read back is within 5% of a
+ * recorded price; prices up to LOWEST go to the first bucket and prices past the last bound (about
+ * 3.6e8) to the last one. Sketches add up bucket by bucket, so districts and months can be merged.
+ */
+final class PriceSketch {
+
+    static final int SIZE = 256;
+
+    private static final double LOWEST = 0.01;
+    private static final double GAMMA = 1.1;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private PriceSketch() {
+    }
+
+    static int bucket(double price) {
+        if (price <= LOWEST) {
+            return 0;
+        }
+        return (int) Math.min(SIZE - 1, Math.ceil(Math.log(price / LOWEST) / LOG_GAMMA));
+    }
+
+    // The q-quantile as the middle of the bucket holding that rank, kept within the recorded min and max
+    static double quantile(int[] counts, double q, double min, double max) {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int k = 0; k < counts.length; k++) {
+            seen += counts[k];
+            if (seen >= rank) {
+                double estimate = k == 0 ? LOWEST : LOWEST * 2 * Math.pow(GAMMA, k) / (GAMMA + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    static void merge(int[] into, int[] other) {
+        for (int k = 0; k < Math.min(into.length, other.length); k++) {
+            into[k] += other[k];
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequestGenerationStatusDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates PENDING request items for every active school for a feeding period: one request per
+ * item the school is short of (requirement minus current stock, rounded up to whole kilograms).
+ * The requirement is the demand forecast where the school has consumption history of the item,
+ * the per-student norm otherwise.
+ * <p>
+ * Runs on its own background thread in chunks of schools, each chunk in one transaction with
+ * JDBC batch inserts, pausing between chunks so online traffic keeps the connection pool.
+ * A {@code request_generation} marker per (school, period) is inserted in the same transaction,
+ * so re-running the same period only fills in the schools that were not done yet.
+ */
+@Slf4j
+@Service
+public class RequestGenerationService {
+
+    private static final String INSERT_MARKER =
+            "INSERT INTO request_generation (id, school_id, period_start, period_end, request_count, generated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (school_id, period_start, period_end) DO NOTHING";
+
+    private static final String INSERT_REQUEST =
+            "INSERT INTO request_item (id, active, is_deleted, district_id, school_id, quantity, description, " +
+            "request_status, period_start, period_end) VALUES (?, true, false, ?, ?, ?, ?, 'PENDING', ?, ?)";
+
+    private static final String INSERT_REQUEST_ITEM =
+            "INSERT INTO request_items (request_id, item_id) VALUES (?, ?)";
+
+    private final RequirementPlanner requirementPlanner;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final boolean useForecast;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "request-generation");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final RequestGenerationStatusDTO status = new RequestGenerationStatusDTO();
+
+    public RequestGenerationService(RequirementPlanner requirementPlanner,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${request.generation.chunk-size:200}") int chunkSize,
+                                    @Value("${request.generation.pause-ms:200}") long pauseMillis,
+                                    @Value("${request.generation.use-forecast:true}") boolean useForecast) {
+        this.requirementPlanner = requirementPlanner;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.useForecast = useForecast;
+    }
+
+    public RequestGenerationStatusDTO start(LocalDate from, LocalDate to, Integer feedingDays) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid feeding period: " + from + " to " + to);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A request generation run is already in progress");
+        }
+        synchronized (status) {
+            BeanUtils.copyProperties(new RequestGenerationStatusDTO(), status);
+            status.setState(EJobState.RUNNING);
+            status.setFrom(from);
+            status.setTo(to);
+            status.setStartedAt(LocalDateTime.now());
+        }
+        try {
+            executor.submit(() -> run(from, to, feedingDays));
+        } catch (RuntimeException ex) {
+            finish(EJobState.FAILED, ex.getMessage());
+            running.set(false);
+            throw ex;
+        }
+        return getStatus();
+    }
+
+    public RequestGenerationStatusDTO getStatus() {
+        RequestGenerationStatusDTO copy = new RequestGenerationStatusDTO();
+        synchronized (status) {
+            BeanUtils.copyProperties(status, copy);
+        }
+        return copy;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(LocalDate from, LocalDate to, Integer feedingDays) {
+        try {
+            RequirementPlan plan = useForecast
+                    ? requirementPlanner.planFromForecast(from, to, feedingDays)
+                    : requirementPlanner.plan(from, to, feedingDays);
+            synchronized (status) {
+                status.setFeedingDays(plan.getFeedingDays());
+                status.setSchoolsTotal(plan.schoolCount());
+            }
+
+            for (int start = 0; start < plan.schoolCount(); start += chunkSize) {
+                int lo = start;
+                int hi = Math.min(lo + chunkSize, plan.schoolCount());
+                int[] result = transactionTemplate.execute(tx -> writeChunk(plan, lo, hi));
+                synchronized (status) {
+                    status.setSchoolsProcessed(status.getSchoolsProcessed() + (hi - lo));
+                    status.setSchoolsSkipped(status.getSchoolsSkipped() + result[0]);
+                    status.setRequestsCreated(status.getRequestsCreated() + result[1]);
+                }
+                if (hi < plan.schoolCount() && pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+            finish(EJobState.COMPLETED, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            finish(EJobState.FAILED, "Interrupted");
+        } catch (RuntimeException ex) {
+            log.error("Request generation for {} to {} failed", from, to, ex);
+            finish(EJobState.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Returns {schools skipped, requests created}
+    private int[] writeChunk(RequirementPlan plan, int lo, int hi) {
+        Date periodStart = Date.valueOf(plan.getFrom());
+        Date periodEnd = Date.valueOf(plan.getTo());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> markers = new ArrayList<>(hi - lo);
+        for (int i = lo; i < hi; i++) {
+            markers.add(new Object[]{UUID.randomUUID(), plan.getSchools().get(i).getSchoolId(),
+                    periodStart, periodEnd, shortItems(plan, i), now});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_MARKER, markers);
+
+        String description = "Generated for feeding period " + plan.getFrom() + " to " + plan.getTo();
+        List<Object[]> requests = new ArrayList<>();
+        List<Object[]> links = new ArrayList<>();
+        int skipped = 0;
+        for (int i = lo; i < hi; i++) {
+            if (inserted[i - lo] == 0) {
+                skipped++;
+                continue;
+            }
+            SchoolHeadcountDTO school = plan.getSchools().get(i);
+            for (int j = 0; j < plan.itemCount(); j++) {
+                double quantity = Math.ceil(plan.shortfall(i, j));
+                if (quantity <= 0) {
+                    continue;
+                }
+                UUID requestId = UUID.randomUUID();
+                requests.add(new Object[]{requestId, school.getDistrictId(), school.getSchoolId(),
+                        quantity, description, periodStart, periodEnd});
+                links.add(new Object[]{requestId, plan.getItems().get(j).getId()});
+            }
+        }
+        if (!requests.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_REQUEST, requests);
+            jdbcTemplate.batchUpdate(INSERT_REQUEST_ITEM, links);
+        }
+        return new int[]{skipped, requests.size()};
+    }
+
+    private static int shortItems(RequirementPlan plan, int school) {
+        int count = 0;
+        for (int j = 0; j < plan.itemCount(); j++) {
+            if (Math.ceil(plan.shortfall(school, j)) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void finish(EJobState state, String error) {
+        synchronized (status) {
+            status.setState(state);
+            status.setError(error);
+            status.setFinishedAt(LocalDateTime.now());
+        }
+        log.info("Request generation {}: {} requests for {} schools ({} skipped)", state,
+                status.getRequestsCreated(), status.getSchoolsProcessed(), status.getSchoolsSkipped());
+    }
+}
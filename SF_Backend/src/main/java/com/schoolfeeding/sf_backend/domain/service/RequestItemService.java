@@ -1,19 +1,44 @@
 package com.schoolfeeding.sf_backend.domain.service;
 
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StatusConflictDTO;
+import com.schoolfeeding.sf_backend.domain.dto.VersionedIdDTO;
 import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
 import com.schoolfeeding.sf_backend.domain.repository.RequestItemRepository;
+import com.schoolfeeding.sf_backend.util.order.ERequest;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.UUID;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class RequestItemService {
 
+    // Ids per set-based UPDATE
+    private static final int STATUS_BATCH_SIZE = 500;
+
+    // Compare-and-set on (id, version): only PENDING, non-deleted rows at the expected version change
+    private static final String BULK_STATUS_UPDATE =
+            "UPDATE request_item r SET request_status = ?, version = r.version + 1 " +
+            "FROM unnest(?::uuid[], ?::bigint[]) AS v(id, version) " +
+            "WHERE r.id = v.id AND r.version = v.version " +
+            "AND r.is_deleted = false AND r.request_status = 'PENDING' " +
+            "RETURNING r.id";
+
+    private static final String STATUS_LOOKUP =
+            "SELECT id, version, request_status, is_deleted FROM request_item WHERE id = ANY(?::uuid[])";
+
     private final RequestItemRepository requestItemRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     // ✅ Create a new RequestItem
     public RequestItem createRequestItem(RequestItem requestItem) {
@@ -25,6 +50,21 @@ public class RequestItemService {
         return requestItemRepository.findAllActive();
     }
 
+    // ✅ Page of active request items, filtered by any of status, district and school
+    public Page<RequestItem> searchRequestItems(ERequest status, UUID districtId, UUID schoolId, Pageable pageable) {
+        Specification<RequestItem> spec = (root, query, cb) -> cb.isFalse(root.get("isDeleted"));
+        if (status != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("requestStatus"), status));
+        }
+        if (districtId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("district").get("id"), districtId));
+        }
+        if (schoolId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("school").get("id"), schoolId));
+        }
+        return requestItemRepository.findAll(spec, pageable);
+    }
+
     // ✅ Get one by ID
     public RequestItem getRequestItemById(UUID id) {
         return requestItemRepository.findById(id)
@@ -44,6 +84,76 @@ public class RequestItemService {
         return requestItemRepository.save(existing);
     }
 
+    // ✅ Approve or reject many PENDING requests; rows changed by someone else come back as conflicts
+    public BulkStatusResultDTO bulkUpdateStatus(BulkStatusRequestDTO request) {
+        if (request.getStatus() == ERequest.PENDING) {
+            throw new IllegalArgumentException("Requests can only be moved from PENDING to COMPLETED or REJECTED");
+        }
+        Map<UUID, Long> expected = new LinkedHashMap<>();
+        for (VersionedIdDTO item : request.getItems()) {
+            if (item.getVersion() == null) {
+                throw new IllegalArgumentException("Version is required for request item " + item.getId());
+            }
+            expected.putIfAbsent(item.getId(), item.getVersion());
+        }
+
+        List<UUID> ids = new ArrayList<>(expected.keySet());
+        List<UUID> updatedIds = new ArrayList<>(ids.size());
+        List<StatusConflictDTO> conflicts = new ArrayList<>();
+        for (int lo = 0; lo < ids.size(); lo += STATUS_BATCH_SIZE) {
+            List<UUID> batch = ids.subList(lo, Math.min(lo + STATUS_BATCH_SIZE, ids.size()));
+            Set<UUID> updated = applyStatusBatch(request.getStatus(), batch, expected);
+            updatedIds.addAll(updated);
+            if (updated.size() < batch.size()) {
+                List<UUID> missed = batch.stream().filter(id -> !updated.contains(id)).toList();
+                conflicts.addAll(describeConflicts(missed, expected));
+            }
+        }
+        return new BulkStatusResultDTO(updatedIds.size(), updatedIds, conflicts);
+    }
+
+    private Set<UUID> applyStatusBatch(ERequest status, List<UUID> batch, Map<UUID, Long> expected) {
+        Long[] versions = batch.stream().map(expected::get).toArray(Long[]::new);
+        List<UUID> updated = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(BULK_STATUS_UPDATE);
+            ps.setString(1, status.name());
+            ps.setArray(2, con.createArrayOf("uuid", batch.toArray()));
+            ps.setArray(3, con.createArrayOf("bigint", versions));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class));
+        return new HashSet<>(updated);
+    }
+
+    private List<StatusConflictDTO> describeConflicts(List<UUID> missed, Map<UUID, Long> expected) {
+        Map<UUID, StatusConflictDTO> found = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STATUS_LOOKUP);
+            Array ids = con.createArrayOf("uuid", missed.toArray());
+            ps.setArray(1, ids);
+            return ps;
+        }, rs -> {
+            UUID id = rs.getObject("id", UUID.class);
+            long version = rs.getLong("version");
+            ERequest current = ERequest.valueOf(rs.getString("request_status"));
+            Long wanted = expected.get(id);
+            String reason;
+            if (rs.getBoolean("is_deleted")) {
+                reason = StatusConflictDTO.NOT_FOUND;
+            } else if (wanted != null && wanted != version) {
+                reason = StatusConflictDTO.STALE_VERSION;
+            } else {
+                reason = StatusConflictDTO.INVALID_STATE;
+            }
+            found.put(id, new StatusConflictDTO(id, reason, version, current));
+        });
+
+        List<StatusConflictDTO> conflicts = new ArrayList<>(missed.size());
+        for (UUID id : missed) {
+            conflicts.add(found.getOrDefault(id, new StatusConflictDTO(id, StatusConflictDTO.NOT_FOUND, null, null)));
+        }
+        return conflicts;
+    }
+
     // ✅ Soft Delete — change `isDeleted` to true
     public void deleteRequestItem(UUID id) {
         RequestItem requestItem = getRequestItemById(id);
@@ -0,0 +1,89 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Result of a {@link RequirementPlanner} run. Quantities are kilograms, kept in flat row-major
+ * arrays: school {@code i}, item {@code j} lives at {@code i * itemCount + j}, and district
+ * {@code k} at {@code k * itemCount + j}. Requirements are the items' grams per student converted
+ * to kilograms; stock is {@code Stock.quantity}, which is kept in kilograms, so the two compare as is.
+ */
+@Getter
+public class RequirementPlan {
+
+    public static final String UNIT = "kg";
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int feedingDays;
+
+    private final List<SchoolHeadcountDTO> schools;
+    private final List<Item> items;
+    private final List<UUID> districtIds;
+
+    // District index of each school, -1 when the school has no district
+    private final int[] schoolDistrict;
+
+    private final double[] schoolRequired;
+    private final double[] schoolStock;
+    private final double[] districtRequired;
+    private final double[] districtStock;
+
+    private final Map<UUID, Integer> schoolIndex;
+
+    RequirementPlan(LocalDate from, LocalDate to, int feedingDays,
+                    List<SchoolHeadcountDTO> schools, List<Item> items, List<UUID> districtIds,
+                    int[] schoolDistrict, double[] schoolRequired, double[] schoolStock,
+                    double[] districtRequired, double[] districtStock) {
+        this.from = from;
+        this.to = to;
+        this.feedingDays = feedingDays;
+        this.schools = schools;
+        this.items = items;
+        this.districtIds = districtIds;
+        this.schoolDistrict = schoolDistrict;
+        this.schoolRequired = schoolRequired;
+        this.schoolStock = schoolStock;
+        this.districtRequired = districtRequired;
+        this.districtStock = districtStock;
+
+        Map<UUID, Integer> index = new HashMap<>(schools.size() * 2);
+        for (int i = 0; i < schools.size(); i++) {
+            index.put(schools.get(i).getSchoolId(), i);
+        }
+        this.schoolIndex = index;
+    }
+
+    public int schoolCount() {
+        return schools.size();
+    }
+
+    public int itemCount() {
+        return items.size();
+    }
+
+    public int indexOfSchool(UUID schoolId) {
+        Integer i = schoolIndex.get(schoolId);
+        return i != null ? i : -1;
+    }
+
+    public double required(int school, int item) {
+        return schoolRequired[school * items.size() + item];
+    }
+
+    public double inStock(int school, int item) {
+        return schoolStock[school * items.size() + item];
+    }
+
+    public double shortfall(int school, int item) {
+        return Math.max(0, required(school, item) - inStock(school, item));
+    }
+}
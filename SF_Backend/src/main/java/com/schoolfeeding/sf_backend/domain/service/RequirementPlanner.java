@@ -0,0 +1,266 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequirementDTO;
+import com.schoolfeeding.sf_backend.domain.dto.RequirementLineDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO;
+import com.schoolfeeding.sf_backend.domain.entity.District;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
+import com.schoolfeeding.sf_backend.domain.repository.StockRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes how much of each item every school and district needs for a feeding period:
+ * {@code Item.PerStudent} grams x {@code School.numberStudent} x feeding days, compared against
+ * current stock. The per-school pass runs as a fork-join over primitive arrays; district totals
+ * are summed per leaf task and merged on the way back up. A forecast plan takes the
+ * {@link DemandForecastService} daily forecast instead of the norm wherever a (school, item) has
+ * consumption history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RequirementPlanner {
+
+    // Schools handled by one leaf task
+    private static final int LEAF_SIZE = 256;
+
+    private final SchoolRepository schoolRepository;
+    private final StockRepository stockRepository;
+    private final ItemCatalog itemCatalog;
+    private final DistrictRegistry districtRegistry;
+    private final DemandForecastService demandForecastService;
+
+    public RequirementPlan plan(LocalDate from, LocalDate to, Integer feedingDays) {
+        return plan(from, to, feedingDays, schoolRepository.findActiveHeadcounts(),
+                stockRepository.sumQuantityBySchoolAndItem(), false);
+    }
+
+    public RequirementPlan planFromForecast(LocalDate from, LocalDate to, Integer feedingDays) {
+        return plan(from, to, feedingDays, schoolRepository.findActiveHeadcounts(),
+                stockRepository.sumQuantityBySchoolAndItem(), true);
+    }
+
+    public List<RequirementDTO> getDistrictRequirements(LocalDate from, LocalDate to, Integer feedingDays) {
+        RequirementPlan plan = plan(from, to, feedingDays);
+        int m = plan.itemCount();
+        long[] students = new long[plan.getDistrictIds().size()];
+        for (int i = 0; i < plan.schoolCount(); i++) {
+            int k = plan.getSchoolDistrict()[i];
+            if (k >= 0) {
+                students[k] += headcount(plan.getSchools().get(i));
+            }
+        }
+
+        List<RequirementDTO> result = new ArrayList<>(plan.getDistrictIds().size());
+        for (int k = 0; k < plan.getDistrictIds().size(); k++) {
+            UUID districtId = plan.getDistrictIds().get(k);
+            List<RequirementLineDTO> lines = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                double required = plan.getDistrictRequired()[k * m + j];
+                double inStock = plan.getDistrictStock()[k * m + j];
+                lines.add(line(plan.getItems().get(j), required, inStock));
+            }
+            result.add(new RequirementDTO(districtId, districtName(districtId), districtId, students[k],
+                    plan.getFrom(), plan.getTo(), plan.getFeedingDays(), lines));
+        }
+        return result;
+    }
+
+    public List<RequirementDTO> getSchoolRequirements(LocalDate from, LocalDate to, Integer feedingDays, UUID districtId) {
+        RequirementPlan plan = districtId == null
+                ? plan(from, to, feedingDays)
+                : plan(from, to, feedingDays, schoolRepository.findActiveHeadcountsByDistrict(districtId),
+                        stockRepository.sumQuantityBySchoolAndItemInDistrict(districtId), false);
+        List<RequirementDTO> result = new ArrayList<>(plan.schoolCount());
+        for (int i = 0; i < plan.schoolCount(); i++) {
+            result.add(toSchoolRequirement(plan, i));
+        }
+        return result;
+    }
+
+    public RequirementDTO getSchoolRequirement(LocalDate from, LocalDate to, Integer feedingDays, UUID schoolId) {
+        SchoolHeadcountDTO school = schoolRepository.findActiveHeadcount(schoolId)
+                .orElseThrow(() -> new EntityNotFoundException("School not found"));
+        return toSchoolRequirement(plan(from, to, feedingDays, List.of(school),
+                stockRepository.sumQuantityByItemForSchool(schoolId), false), 0);
+    }
+
+    // Weekdays between the two dates, both inclusive
+    public static int countFeedingDays(LocalDate from, LocalDate to) {
+        int days = 0;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days++;
+            }
+        }
+        return days;
+    }
+
+    // Stock levels of schools outside the list are ignored
+    RequirementPlan plan(LocalDate from, LocalDate to, Integer feedingDays, List<SchoolHeadcountDTO> schools,
+                         List<StockLevelDTO> stockLevels, boolean fromForecast) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid feeding period: " + from + " to " + to);
+        }
+        if (feedingDays != null && feedingDays < 0) {
+            throw new IllegalArgumentException("Feeding days must be a non-negative number");
+        }
+        long start = System.nanoTime();
+        int days = feedingDays != null ? feedingDays : countFeedingDays(from, to);
+
+        List<Item> items = itemCatalog.getItems();
+        int n = schools.size();
+        int m = items.size();
+
+        Map<UUID, Integer> itemIndex = new HashMap<>(m * 2);
+        double[] grams = new double[m];
+        for (int j = 0; j < m; j++) {
+            Item item = items.get(j);
+            itemIndex.put(item.getId(), j);
+            grams[j] = item.getPerStudent() != null ? item.getPerStudent() : 0;
+        }
+
+        Map<UUID, Integer> districtIndex = new LinkedHashMap<>();
+        Map<UUID, Integer> schoolIndex = new HashMap<>(n * 2);
+        int[] students = new int[n];
+        int[] schoolDistrict = new int[n];
+        for (int i = 0; i < n; i++) {
+            SchoolHeadcountDTO s = schools.get(i);
+            schoolIndex.put(s.getSchoolId(), i);
+            students[i] = headcount(s);
+            schoolDistrict[i] = s.getDistrictId() == null ? -1
+                    : districtIndex.computeIfAbsent(s.getDistrictId(), id -> districtIndex.size());
+        }
+        int d = districtIndex.size();
+
+        double[] schoolStock = new double[n * m];
+        for (StockLevelDTO level : stockLevels) {
+            Integer i = schoolIndex.get(level.getSchoolId());
+            Integer j = itemIndex.get(level.getItemId());
+            if (i != null && j != null) {
+                schoolStock[i * m + j] += level.getQuantity();
+            }
+        }
+
+        double[] forecast = fromForecast ? demandForecastService.dailyDemand(schools, items) : null;
+        double[] schoolRequired = new double[n * m];
+        double[] districtTotals = n == 0 || m == 0 ? new double[2 * d * m]
+                : ForkJoinPool.commonPool().invoke(new PlanTask(
+                        0, n, m, d, days, students, grams, forecast, schoolDistrict, schoolStock, schoolRequired));
+
+        double[] districtRequired = Arrays.copyOfRange(districtTotals, 0, d * m);
+        double[] districtStock = Arrays.copyOfRange(districtTotals, d * m, 2 * d * m);
+
+        log.debug("Requirement plan for {} schools x {} items computed in {} ms",
+                n, m, (System.nanoTime() - start) / 1_000_000);
+        return new RequirementPlan(from, to, days, schools, items, new ArrayList<>(districtIndex.keySet()),
+                schoolDistrict, schoolRequired, schoolStock, districtRequired, districtStock);
+    }
+
+    private RequirementDTO toSchoolRequirement(RequirementPlan plan, int i) {
+        SchoolHeadcountDTO s = plan.getSchools().get(i);
+        List<RequirementLineDTO> lines = new ArrayList<>(plan.itemCount());
+        for (int j = 0; j < plan.itemCount(); j++) {
+            lines.add(line(plan.getItems().get(j), plan.required(i, j), plan.inStock(i, j)));
+        }
+        return new RequirementDTO(s.getSchoolId(), s.getSchoolName(), s.getDistrictId(), headcount(s),
+                plan.getFrom(), plan.getTo(), plan.getFeedingDays(), lines);
+    }
+
+    private static RequirementLineDTO line(Item item, double required, double inStock) {
+        return new RequirementLineDTO(item.getId(), item.getName(), required, inStock, Math.max(0, required - inStock),
+                RequirementPlan.UNIT);
+    }
+
+    private String districtName(UUID districtId) {
+        return districtRegistry.findById(districtId)
+                .map(District::getDistrict)
+                .map(Enum::name)
+                .orElse(null);
+    }
+
+    private static int headcount(SchoolHeadcountDTO s) {
+        return s.getNumberStudent() != null ? s.getNumberStudent() : 0;
+    }
+
+    /**
+     * Fills {@code required} for schools [lo, hi) and returns this range's district totals:
+     * required quantities in the first {@code d * m} slots, stock in the second.
+     */
+    private static final class PlanTask extends RecursiveTask<double[]> {
+
+        private final int lo, hi, m, d, days;
+        private final int[] students;
+        private final double[] grams;
+        // Daily forecast per (school, item), NaN where the norm applies; null for a norm-only plan
+        private final double[] forecast;
+        private final int[] schoolDistrict;
+        private final double[] stock;
+        private final double[] required;
+
+        PlanTask(int lo, int hi, int m, int d, int days, int[] students, double[] grams, double[] forecast,
+                 int[] schoolDistrict, double[] stock, double[] required) {
+            this.lo = lo;
+            this.hi = hi;
+            this.m = m;
+            this.d = d;
+            this.days = days;
+            this.students = students;
+            this.grams = grams;
+            this.forecast = forecast;
+            this.schoolDistrict = schoolDistrict;
+            this.stock = stock;
+            this.required = required;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (hi - lo <= LEAF_SIZE) {
+                return computeLeaf();
+            }
+            int mid = (lo + hi) >>> 1;
+            PlanTask left = new PlanTask(lo, mid, m, d, days, students, grams, forecast, schoolDistrict, stock, required);
+            PlanTask right = new PlanTask(mid, hi, m, d, days, students, grams, forecast, schoolDistrict, stock, required);
+            left.fork();
+            double[] totals = right.compute();
+            double[] other = left.join();
+            for (int x = 0; x < totals.length; x++) {
+                totals[x] += other[x];
+            }
+            return totals;
+        }
+
+        private double[] computeLeaf() {
+            double[] totals = new double[2 * d * m];
+            int stockOffset = d * m;
+            for (int i = lo; i < hi; i++) {
+                // grams per student per day -> kilograms for the whole period
+                double factor = (double) students[i] * days / 1000.0;
+                int row = i * m;
+                int k = schoolDistrict[i];
+                for (int j = 0; j < m; j++) {
+                    double r = forecast != null && !Double.isNaN(forecast[row + j])
+                            ? forecast[row + j] * days
+                            : factor * grams[j];
+                    required[row + j] = r;
+                    if (k >= 0) {
+                        totals[k * m + j] += r;
+                        totals[stockOffset + k * m + j] += stock[row + j];
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+}
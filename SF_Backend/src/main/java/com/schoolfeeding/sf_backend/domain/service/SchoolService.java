@@ -4,8 +4,8 @@ import com.schoolfeeding.sf_backend.domain.dto.SchoolDTO;
 import com.schoolfeeding.sf_backend.domain.entity.District;
 import com.schoolfeeding.sf_backend.domain.entity.School;
 import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
-import com.schoolfeeding.sf_backend.domain.repository.DistrictRepository;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -18,11 +18,13 @@ import java.util.stream.Collectors;
 public class SchoolService {
 
     private final SchoolRepository schoolRepository;
-    private final DistrictRepository districtRepository;
+    private final DistrictRegistry districtRegistry;
+    private final DistrictRollupService districtRollupService;
 
    
+    @Transactional
     public School createSchool(SchoolDTO dto) {
-        District district = districtRepository.findById(dto.getDistrictId())
+        District district = districtRegistry.findById(dto.getDistrictId())
                 .orElseThrow(() -> new EntityNotFoundException("District not found"));
 
         School school = new School();
@@ -37,7 +39,9 @@ public class SchoolService {
        
         school.setNumberStudent(dto.getNumberStudent()); 
 
-        return schoolRepository.save(school);
+        School saved = schoolRepository.save(school);
+        districtRollupService.schoolAdded(saved);
+        return saved;
     }
 
     
@@ -52,11 +56,14 @@ public class SchoolService {
                 .orElseThrow(() -> new EntityNotFoundException("School not found"));
     }
 
+    @Transactional
     public School updateSchool(UUID id, SchoolDTO dto) {
         School school = schoolRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("School not found"));
+        District oldDistrict = school.getDistrict();
+        int oldStudents = DistrictRollupService.students(school);
 
-        District district = districtRepository.findById(dto.getDistrictId())
+        District district = districtRegistry.findById(dto.getDistrictId())
                 .orElseThrow(() -> new EntityNotFoundException("District not found"));
 
         school.setName(dto.getName());
@@ -70,14 +77,23 @@ public class SchoolService {
        
         school.setNumberStudent(dto.getNumberStudent()); 
 
-        return schoolRepository.save(school);
+        School saved = schoolRepository.save(school);
+        if (!saved.getIsDeleted()) {
+            districtRollupService.schoolChanged(oldDistrict, oldStudents, saved);
+        }
+        return saved;
     }
 
    
+    @Transactional
     public void deleteSchool(UUID id) {
         School school = schoolRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("School not found"));
+        if (school.getIsDeleted()) {
+            return;
+        }
         school.setIsDeleted(true);
         schoolRepository.save(school);
+        districtRollupService.schoolRemoved(school);
     }
 }
\ No newline at end of file
@@ -0,0 +1,358 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.entity.SettlementRun;
+import com.schoolfeeding.sf_backend.domain.repository.SettlementRunRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pays every DELIVERED order still PENDING in one background run and writes one payment file
+ * per bank, with a line per supplier.
+ * <p>
+ * Orders are claimed in chunks, each chunk in its own short transaction: the orders are flipped
+ * to PAYED with one UPDATE, recorded as {@code settlement_line} rows, published through the
+ * outbox and added to the run's counters. A crash loses at most the chunk in flight, and the
+ * unfinished run is resumed by its id; a new run is refused until it is. Payment files are built
+ * from the settlement lines at the end, written to a temporary file and moved into place, so they
+ * can simply be rewritten on resume.
+ * <p>
+ * Orders of suppliers without a bank cannot go in any payment file, so they stay PENDING and the
+ * run reports how many there are and what they are worth.
+ */
+@Slf4j
+@Service
+public class SettlementService {
+
+    private static final String SETTLE_CHUNK =
+            "WITH picked AS (" +
+            "  SELECT o.id FROM orders o JOIN supplier s ON s.id = o.supplier_id" +
+            "  WHERE o.delivery_status = 'DELIVERED' AND o.order_pay_state = 'PENDING' AND o.is_deleted = false" +
+            "  AND s.bank IS NOT NULL ORDER BY o.id LIMIT ? FOR UPDATE OF o SKIP LOCKED) " +
+            "UPDATE orders o SET order_pay_state = 'PAYED' FROM picked, supplier s " +
+            "WHERE o.id = picked.id AND s.id = o.supplier_id " +
+            "RETURNING o.id, o.supplier_id, s.bank, o.order_price, o.request_item_id, o.delivery_date, " +
+            "(SELECT r.school_id FROM request_item r WHERE r.id = o.request_item_id) AS school_id";
+
+    // Delivered orders left unpaid because their supplier has no bank on record
+    private static final String UNSETTLED_WITHOUT_BANK =
+            "SELECT COUNT(*) AS orders, COALESCE(SUM(o.order_price), 0) AS amount " +
+            "FROM orders o LEFT JOIN supplier s ON s.id = o.supplier_id " +
+            "WHERE o.delivery_status = 'DELIVERED' AND o.order_pay_state = 'PENDING' AND o.is_deleted = false " +
+            "AND s.bank IS NULL";
+
+    private static final String RECORD_UNSETTLED =
+            "UPDATE settlement_run SET orders_without_bank = ?, amount_without_bank = ? WHERE id = ?";
+
+    private static final String INSERT_LINE =
+            "INSERT INTO settlement_line (order_id, run_id, supplier_id, bank, amount) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (order_id) DO NOTHING";
+
+    private static final String ADVANCE_RUN =
+            "UPDATE settlement_run SET orders_settled = orders_settled + ?, total_amount = total_amount + ? WHERE id = ?";
+
+    // One row per (bank, supplier), in file order
+    private static final String PAYMENT_LINES =
+            "SELECT l.bank, l.supplier_id, u.user_names, s.tin_number, s.bank_account, COUNT(*) AS orders, " +
+            "SUM(l.amount) AS amount FROM settlement_line l " +
+            "JOIN supplier s ON s.id = l.supplier_id JOIN users u ON u.id = l.supplier_id " +
+            "WHERE l.run_id = ? GROUP BY l.bank, l.supplier_id, u.user_names, s.tin_number, s.bank_account " +
+            "ORDER BY l.bank, u.user_names, l.supplier_id";
+
+    private static final String FILE_HEADER = "supplier_id,supplier_name,tin_number,bank_account,orders,amount";
+
+    private final SettlementRunRepository settlementRunRepository;
+    private final OutboxService outboxService;
+    private final SupplierMatchingService supplierMatchingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path outputRoot;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "settlement");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public SettlementService(SettlementRunRepository settlementRunRepository,
+                             OutboxService outboxService,
+                             SupplierMatchingService supplierMatchingService,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${settlement.output-dir:settlements}") String outputDir,
+                             @Value("${settlement.chunk-size:500}") int chunkSize,
+                             @Value("${settlement.pause-ms:100}") long pauseMillis) {
+        this.settlementRunRepository = settlementRunRepository;
+        this.outboxService = outboxService;
+        this.supplierMatchingService = supplierMatchingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outputRoot = Paths.get(outputDir);
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    // Starts a new run; refused while an earlier run is unfinished, which has to be resumed by id instead
+    public SettlementRun start() {
+        Optional<SettlementRun> unfinished = settlementRunRepository
+                .findFirstByStateInOrderByStartedAtDesc(List.of(EJobState.RUNNING, EJobState.FAILED));
+        if (unfinished.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Settlement run " + unfinished.get().getId()
+                    + " did not complete; resume it instead of starting a new one");
+        }
+        SettlementRun run = new SettlementRun();
+        run.setState(EJobState.RUNNING);
+        run.setStartedAt(LocalDateTime.now());
+        run = settlementRunRepository.save(run);
+        run.setOutputDir(outputRoot.resolve(run.getId().toString()).toString());
+        return launch(run);
+    }
+
+    // Picks up a run that crashed or failed where its counters left off
+    public SettlementRun resume(UUID runId) {
+        SettlementRun run = getRun(runId);
+        if (run.getState() == EJobState.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Settlement run " + runId + " already completed");
+        }
+        run.setState(EJobState.RUNNING);
+        run.setError(null);
+        run.setFinishedAt(null);
+        return launch(run);
+    }
+
+    private SettlementRun launch(SettlementRun run) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A settlement run is already in progress");
+        }
+        try {
+            SettlementRun saved = settlementRunRepository.save(run);
+            executor.submit(() -> execute(saved.getId(), Paths.get(saved.getOutputDir())));
+            return saved;
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    public SettlementRun getRun(UUID id) {
+        return settlementRunRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Settlement run not found with id " + id));
+    }
+
+    public SettlementRun getLatestRun() {
+        return settlementRunRepository.findFirstByOrderByStartedAtDesc()
+                .orElseThrow(() -> new EntityNotFoundException("No settlement run yet"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void execute(UUID runId, Path outputDir) {
+        try {
+            int settled;
+            do {
+                settled = transactionTemplate.execute(tx -> settleChunk(runId));
+                if (settled > 0 && pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            } while (settled > 0);
+
+            recordUnsettled(runId);
+            int files = writePaymentFiles(runId, outputDir);
+            finish(runId, EJobState.COMPLETED, files, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            finish(runId, EJobState.FAILED, 0, "Interrupted");
+        } catch (RuntimeException ex) {
+            log.error("Settlement run {} failed", runId, ex);
+            finish(runId, EJobState.FAILED, 0, ex.getMessage());
+        } finally {
+            supplierMatchingService.markOrdersChanged();
+            running.set(false);
+        }
+    }
+
+    // Returns how many orders the chunk paid
+    private int settleChunk(UUID runId) {
+        List<Object[]> lines = new ArrayList<>(chunkSize);
+        List<OutboxEvent> events = new ArrayList<>(chunkSize);
+        double[] total = new double[1];
+
+        jdbcTemplate.query(SETTLE_CHUNK, rs -> {
+            UUID orderId = rs.getObject("id", UUID.class);
+            UUID supplierId = rs.getObject("supplier_id", UUID.class);
+            double amount = rs.getDouble("order_price");
+            lines.add(new Object[]{orderId, runId, supplierId, rs.getString("bank"), amount});
+            total[0] += amount;
+
+            Date deliveryDate = rs.getDate("delivery_date");
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", orderId);
+            payload.put("requestItemId", rs.getObject("request_item_id", UUID.class));
+            payload.put("previousDeliveryStatus", EDelivery.DELIVERED);
+            payload.put("deliveryStatus", EDelivery.DELIVERED);
+            payload.put("previousPayState", EOrderPay.PENDING);
+            payload.put("orderPayState", EOrderPay.PAYED);
+            payload.put("deliveryDate", deliveryDate == null ? null : deliveryDate.toLocalDate());
+            payload.put("settlementRunId", runId);
+            events.add(outboxService.newEvent(EOutboxEvent.ORDER_STATUS_CHANGED, orderId, supplierId,
+                    rs.getObject("school_id", UUID.class), payload));
+        }, chunkSize);
+
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINE, lines);
+        outboxService.recordAll(events);
+        jdbcTemplate.update(ADVANCE_RUN, lines.size(), total[0], runId);
+        return lines.size();
+    }
+
+    private void recordUnsettled(UUID runId) {
+        Map<String, Object> unsettled = jdbcTemplate.queryForMap(UNSETTLED_WITHOUT_BANK);
+        long orders = ((Number) unsettled.get("orders")).longValue();
+        if (orders > 0) {
+            log.warn("Settlement run {} left {} delivered orders unpaid: their suppliers have no bank", runId, orders);
+        }
+        jdbcTemplate.update(RECORD_UNSETTLED, orders, ((Number) unsettled.get("amount")).doubleValue(), runId);
+    }
+
+    // Streams the run's totals per (bank, supplier) into one file per bank; returns the file count
+    private int writePaymentFiles(UUID runId, Path outputDir) {
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        PaymentFileWriter writer = new PaymentFileWriter(outputDir);
+        try {
+            jdbcTemplate.query(PAYMENT_LINES, rs -> {
+                writer.write(rs.getString("bank"), String.join(",",
+                        rs.getString("supplier_id"),
+                        csv(rs.getString("user_names")),
+                        String.valueOf(rs.getInt("tin_number")),
+                        csv(rs.getString("bank_account")),
+                        String.valueOf(rs.getLong("orders")),
+                        String.format(Locale.ROOT, "%.2f", rs.getDouble("amount"))));
+            }, runId);
+            writer.close();
+        } catch (RuntimeException ex) {
+            writer.abort();
+            throw ex;
+        }
+        return writer.files;
+    }
+
+    private void finish(UUID runId, EJobState state, int files, String error) {
+        SettlementRun run = getRun(runId);
+        run.setState(state);
+        run.setFilesWritten(files);
+        run.setError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+        run.setFinishedAt(LocalDateTime.now());
+        settlementRunRepository.save(run);
+        log.info("Settlement run {} {}: {} orders, {} paid, {} files", runId, state,
+                run.getOrdersSettled(), run.getTotalAmount(), files);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    // Writes rows bank by bank; each file is written as .tmp and moved into place when complete
+    private static final class PaymentFileWriter {
+        private final Path dir;
+        private String bank;
+        private Path tmp;
+        private BufferedWriter out;
+        private int files;
+
+        private PaymentFileWriter(Path dir) {
+            this.dir = dir;
+        }
+
+        private void write(String rowBank, String row) {
+            try {
+                if (!rowBank.equals(bank)) {
+                    close();
+                    bank = rowBank;
+                    tmp = dir.resolve(rowBank + ".csv.tmp");
+                    out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+                    out.write(FILE_HEADER);
+                    out.newLine();
+                }
+                out.write(row);
+                out.newLine();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void close() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                Files.move(tmp, dir.resolve(bank + ".csv"),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                files++;
+                out = null;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void abort() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException ex) {
+                log.warn("Could not clean up {}", tmp, ex);
+            }
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockClassificationStatusDTO;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import com.schoolfeeding.sf_backend.util.stock.EStock;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Classifies every stock balance as NORMAL, LOW or CRITICAL by its days of supply left: the
+ * balance divided by the daily consumption. Consumption is the StockOut average over the recent
+ * window; a balance with no recent issues falls back to the expected daily need, the item's grams
+ * per student times the school's {@code numberStudent}.
+ * <p>
+ * Schools are split into chunks classified in parallel on a bounded pool, one query per chunk,
+ * and only rows whose class changed are written back. The scheduled run is handed to its own
+ * runner thread, so it never holds the shared scheduler thread while the chunks are classified.
+ */
+@Slf4j
+@Service
+public class StockClassifierService {
+
+    private static final String SCHOOLS_WITH_STOCK =
+            "SELECT DISTINCT school_id FROM stock WHERE is_deleted = false AND school_id IS NOT NULL";
+
+    private static final String CHUNK_BALANCES =
+            "SELECT s.id, s.quantity, s.stock_state, COALESCE(sc.number_student, 0) AS number_student, i.gram_per_student, " +
+            "COALESCE(c.consumed, 0) AS consumed FROM stock s " +
+            "JOIN school sc ON sc.id = s.school_id JOIN item i ON i.id = s.item_id " +
+            "LEFT JOIN (SELECT school_id, item_id, SUM(quantity) AS consumed FROM stock_out " +
+            "  WHERE is_deleted = false AND issued_at >= ? AND school_id = ANY(?::uuid[]) " +
+            "  GROUP BY school_id, item_id) c ON c.school_id = s.school_id AND c.item_id = s.item_id " +
+            "WHERE s.school_id = ANY(?::uuid[]) AND s.is_deleted = false";
+
+    private static final String UPDATE_STATE =
+            "UPDATE stock SET stock_state = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int windowDays;
+    private final double criticalDays;
+    private final double lowDays;
+    private final int chunkSize;
+    private final ExecutorService pool;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-classifier-run");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final StockClassificationStatusDTO status = new StockClassificationStatusDTO();
+
+    public StockClassifierService(JdbcTemplate jdbcTemplate,
+                                  @Value("${stock.classifier.window-days:14}") int windowDays,
+                                  @Value("${stock.classifier.critical-days:3}") double criticalDays,
+                                  @Value("${stock.classifier.low-days:7}") double lowDays,
+                                  @Value("${stock.classifier.chunk-size:250}") int chunkSize,
+                                  @Value("${stock.classifier.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowDays = windowDays;
+        this.criticalDays = criticalDays;
+        this.lowDays = lowDays;
+        this.chunkSize = chunkSize;
+        this.pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "stock-classifier");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(cron = "${stock.classifier.cron:0 15 * * * *}")
+    public void scheduledRun() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Skipping scheduled stock classification, a run is in progress");
+            return;
+        }
+        LocalDateTime startedAt = begin();
+        try {
+            runner.submit(() -> run(startedAt));
+        } catch (RuntimeException ex) {
+            finish(EJobState.FAILED, 0, 0, 0, ex.getMessage());
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    // ✅ Classify every balance now; returns the finished run's figures
+    public StockClassificationStatusDTO classifyAll() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A stock classification run is already in progress");
+        }
+        run(begin());
+        return getStatus();
+    }
+
+    private LocalDateTime begin() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        synchronized (status) {
+            BeanUtils.copyProperties(new StockClassificationStatusDTO(), status);
+            status.setState(EJobState.RUNNING);
+            status.setStartedAt(startedAt);
+        }
+        return startedAt;
+    }
+
+    // Called with the running flag held; releases it
+    private void run(LocalDateTime startedAt) {
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger changed = new AtomicInteger();
+        try {
+            List<UUID> schools = jdbcTemplate.queryForList(SCHOOLS_WITH_STOCK, UUID.class);
+            Timestamp since = Timestamp.valueOf(startedAt.minusDays(windowDays));
+
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int start = 0; start < schools.size(); start += chunkSize) {
+                UUID[] chunk = schools.subList(start, Math.min(start + chunkSize, schools.size())).toArray(new UUID[0]);
+                chunks.add(pool.submit(() -> classifyChunk(chunk, since, scanned, changed)));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+            finish(EJobState.COMPLETED, schools.size(), scanned.get(), changed.get(), null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            finish(EJobState.FAILED, 0, scanned.get(), changed.get(), "Interrupted");
+        } catch (ExecutionException | RuntimeException ex) {
+            Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+            log.error("Stock classification failed", cause);
+            finish(EJobState.FAILED, 0, scanned.get(), changed.get(), cause.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public StockClassificationStatusDTO getStatus() {
+        StockClassificationStatusDTO copy = new StockClassificationStatusDTO();
+        synchronized (status) {
+            BeanUtils.copyProperties(status, copy);
+        }
+        return copy;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void classifyChunk(UUID[] schools, Timestamp since, AtomicInteger scanned, AtomicInteger changed) {
+        List<Object[]> updates = new ArrayList<>();
+        int[] rows = new int[1];
+        jdbcTemplate.query(CHUNK_BALANCES, rs -> {
+            rows[0]++;
+            double dailyUse = rs.getDouble("consumed") / windowDays;
+            if (dailyUse <= 0) {
+                dailyUse = rs.getInt("number_student") * rs.getDouble("gram_per_student") / 1000.0;
+            }
+            EStock next = classify(rs.getDouble("quantity"), dailyUse);
+            String current = rs.getString("stock_state");
+            if (current == null || EStock.valueOf(current) != next) {
+                updates.add(new Object[]{next.name(), rs.getObject("id", UUID.class)});
+            }
+        }, since, schools, schools);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_STATE, updates);
+        }
+        scanned.addAndGet(rows[0]);
+        changed.addAndGet(updates.size());
+    }
+
+    EStock classify(double quantity, double dailyUse) {
+        if (quantity <= 0) {
+            return EStock.CRITICAL;
+        }
+        if (dailyUse <= 0) {
+            return EStock.NORMAL;
+        }
+        double daysLeft = quantity / dailyUse;
+        if (daysLeft < criticalDays) {
+            return EStock.CRITICAL;
+        }
+        return daysLeft < lowDays ? EStock.LOW : EStock.NORMAL;
+    }
+
+    private void finish(EJobState state, int schools, int scanned, int changed, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (status) {
+            status.setState(state);
+            status.setSchools(schools);
+            status.setRowsScanned(scanned);
+            status.setRowsChanged(changed);
+            status.setFinishedAt(now);
+            status.setDurationMillis(Duration.between(status.getStartedAt(), now).toMillis());
+            status.setError(error);
+        }
+        log.info("Stock classification {}: {} balances over {} schools, {} changed in {} ms", state,
+                scanned, schools, changed, status.getDurationMillis());
+    }
+}
@@ -1,12 +1,20 @@
 package com.schoolfeeding.sf_backend.domain.service;
 
+import com.schoolfeeding.sf_backend.domain.dto.StockPostingDTO;
 import com.schoolfeeding.sf_backend.domain.entity.StockIn;
 import com.schoolfeeding.sf_backend.domain.repository.StockInRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -14,10 +22,27 @@ import java.util.UUID;
 public class StockInService {
 
     private final StockInRepository stockInRepository;
+    private final OutboxService outboxService;
+    private final StockLedgerService stockLedgerService;
+    private final StockLotService stockLotService;
 
-    // Create
+    // Create — posted to the stock ledger and published through the outbox in the same transaction
+    @Transactional
     public StockIn createStockIn(StockIn stockIn) {
-        return stockInRepository.save(stockIn);
+        stockIn.setRemainingQuantity(stockIn.getQuantity());
+        StockIn saved = stockInRepository.save(stockIn);
+        UUID schoolId = saved.getSchool() == null ? null : saved.getSchool().getId();
+        stockLedgerService.post(schoolId, itemId(saved), saved.getQuantity());
+        UUID orderId = saved.getOrders() == null ? null : saved.getOrders().getId();
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("stockInId", saved.getId());
+        payload.put("orderId", orderId);
+        payload.put("itemId", itemId(saved));
+        payload.put("quantity", saved.getQuantity());
+        payload.put("expirationDate", saved.getExpirationDate());
+        outboxService.record(EOutboxEvent.STOCK_RECEIVED, saved.getId(), null, schoolId, payload);
+        return saved;
     }
 
     // Get all active
@@ -31,21 +56,88 @@ public class StockInService {
                 .orElseThrow(() -> new EntityNotFoundException("StockIn not found with id " + id));
     }
 
-    // Update
+    // Update — the ledger takes back the old quantity and posts the new one; the lot keeps what was drawn from it.
+    // 409 when a lot that was already drawn from would move to another school or item: its draws would go with it.
+    // 409 as well when the lot would give back more than it still holds, or the balance no longer covers it.
+    @Transactional
     public StockIn updateStockIn(UUID id, StockIn updatedStockIn) {
         StockIn existing = getStockInById(id);
+        boolean moved = !Objects.equals(schoolId(existing), schoolId(updatedStockIn))
+                || !Objects.equals(itemId(existing), itemId(updatedStockIn));
+        if (moved && stockLotService.hasDraws(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "StockIn " + id + " has been drawn from; its school and item can no longer change");
+        }
+        boolean posted = !Boolean.TRUE.equals(existing.getIsDeleted());
+        double remaining = remaining(existing);
+        double delta = updatedStockIn.getQuantity() - existing.getQuantity();
+        // What leaves the old balance: all of it when the lot moves, otherwise only the cut
+        StockPostingDTO takenBack = moved ? posting(existing, -1)
+                : new StockPostingDTO(schoolId(existing), itemId(existing), Math.min(0, delta));
+        if (posted && -takenBack.getQuantity() > remaining) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "StockIn " + id + " has only " + remaining + " kg left; it cannot give back " + -takenBack.getQuantity());
+        }
         existing.setSchool(updatedStockIn.getSchool());
         existing.setOrders(updatedStockIn.getOrders());
         existing.setItem(updatedStockIn.getItem());
+        existing.setRemainingQuantity(remaining + delta);
         existing.setQuantity(updatedStockIn.getQuantity());
         existing.setExpirationDate(updatedStockIn.getExpirationDate());
-        return stockInRepository.save(existing);
+        StockIn saved = stockInRepository.save(existing);
+        if (posted) {
+            takeBack(id, takenBack);
+            double added = moved ? saved.getQuantity() : Math.max(0, delta);
+            stockLedgerService.postAll(List.of(new StockPostingDTO(schoolId(saved), itemId(saved), added)));
+        }
+        return saved;
     }
 
-    // Soft delete
+    // Soft delete — the quantity is taken back off the balance; 409 once the lot was drawn from or written off
+    @Transactional
     public void deleteStockIn(UUID id) {
         StockIn existing = getStockInById(id);
+        if (Boolean.TRUE.equals(existing.getIsDeleted())) {
+            return;
+        }
+        double remaining = remaining(existing);
+        if (existing.getQuantity() > remaining) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "StockIn " + id + " has only " + remaining + " kg left of " + existing.getQuantity() +
+                    "; it can no longer be deleted");
+        }
         existing.setIsDeleted(true);
+        existing.setRemainingQuantity(0.0);
         stockInRepository.save(existing);
+        takeBack(id, posting(existing, -1));
+    }
+
+    // Negative postings go through tryDecrement, so a correction never drives a balance below zero
+    private void takeBack(UUID id, StockPostingDTO posting) {
+        if (posting.getSchoolId() == null || posting.getItemId() == null || posting.getQuantity() == 0) {
+            return;
+        }
+        if (stockLedgerService.tryDecrement(posting.getSchoolId(), posting.getItemId(), -posting.getQuantity()) == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Stock balance no longer covers the " + -posting.getQuantity() + " kg StockIn " + id + " gives back");
+        }
+        stockLedgerService.journal(List.of(posting));
+    }
+
+    private static double remaining(StockIn stockIn) {
+        return stockIn.getRemainingQuantity() == null ? stockIn.getQuantity() : stockIn.getRemainingQuantity();
+    }
+
+    private static UUID schoolId(StockIn stockIn) {
+        return stockIn.getSchool() == null ? null : stockIn.getSchool().getId();
+    }
+
+    private static UUID itemId(StockIn stockIn) {
+        return stockIn.getItem() == null ? null : stockIn.getItem().getId();
+    }
+
+    private static StockPostingDTO posting(StockIn stockIn, int sign) {
+        UUID schoolId = stockIn.getSchool() == null ? null : stockIn.getSchool().getId();
+        return new StockPostingDTO(schoolId, itemId(stockIn), sign * stockIn.getQuantity());
     }
 }
@@ -0,0 +1,167 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockBalanceDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMigrationResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockPostingDTO;
+import com.schoolfeeding.sf_backend.domain.repository.StockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps one {@code stock} balance row per (school, item) in step with the stock movements.
+ * Every StockIn and StockOut write posts its signed quantity here in the same transaction, as a
+ * single upsert that adds to the row in place, so nothing is read before it is written and
+ * concurrent postings to the same balance never lose an update. Withdrawals that must not overdraw
+ * go through {@link #tryDecrement} instead, which only moves a balance that covers them. Each posting
+ * is also appended to the {@code stock_ledger_entry} journal, which the balance snapshots are
+ * compacted from.
+ * <p>
+ * The upsert needs the (school, item) key. A fresh schema gets it from the entity; a database that
+ * predates it may hold duplicate rows, which {@link #migrateBalanceKey} merges once when asked to.
+ */
+@Slf4j
+@Service
+public class StockLedgerService {
+
+    private static final String POST =
+            "INSERT INTO stock (id, active, is_deleted, school_id, item_id, quantity) VALUES (?, true, false, ?, ?, ?) " +
+            "ON CONFLICT (school_id, item_id) DO UPDATE SET quantity = stock.quantity + EXCLUDED.quantity, is_deleted = false";
+
+    private static final String DECREMENT =
+            "UPDATE stock SET quantity = quantity - ? WHERE school_id = ? AND item_id = ? AND is_deleted = false " +
+            "AND quantity >= ? RETURNING quantity";
+
+    private static final String JOURNAL =
+            "INSERT INTO stock_ledger_entry (school_id, item_id, quantity, posted_at) VALUES (?, ?, ?, ?)";
+
+    private static final String COUNT_DUPLICATE_KEYS =
+            "SELECT COUNT(*) FROM (SELECT 1 FROM stock GROUP BY school_id, item_id HAVING COUNT(*) > 1) d";
+
+    // Folds duplicate (school, item) rows left from before the balance key into the first row
+    private static final String MERGE_DUPLICATES =
+            "WITH ranked AS (SELECT id, row_number() OVER w AS rn, " +
+            "SUM(CASE WHEN is_deleted THEN 0 ELSE quantity END) OVER (PARTITION BY school_id, item_id) AS total " +
+            "FROM stock WINDOW w AS (PARTITION BY school_id, item_id ORDER BY is_deleted, id)) " +
+            "UPDATE stock s SET quantity = r.total FROM ranked r WHERE s.id = r.id AND r.rn = 1";
+
+    private static final String DELETE_DUPLICATES =
+            "DELETE FROM stock s USING (SELECT id, row_number() OVER (PARTITION BY school_id, item_id " +
+            "ORDER BY is_deleted, id) AS rn FROM stock) r WHERE s.id = r.id AND r.rn > 1";
+
+    private static final String ENSURE_KEY =
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_stock_school_item ON stock (school_id, item_id)";
+
+    private static final String HAS_KEY =
+            "SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'stock' AND indexname = 'uk_stock_school_item'";
+
+    private final StockRepository stockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockLedgerService(StockRepository stockRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.stockRepository = stockRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Only looks: the merge rewrites balances, so it waits for an explicit migrateBalanceKey()
+    @PostConstruct
+    void checkBalanceKey() {
+        Long keys = jdbcTemplate.queryForObject(HAS_KEY, Long.class);
+        if (keys == null || keys == 0) {
+            log.warn("stock has no (school, item) key; postings fail until POST /api/v1/stocks/migrations/balance-key is run");
+        }
+    }
+
+    // ✅ One-off: merges duplicate (school, item) rows left from before the balance key, then adds the key
+    public StockMigrationResultDTO migrateBalanceKey() {
+        Long duplicates = transactionTemplate.execute(tx -> {
+            Long count = jdbcTemplate.queryForObject(COUNT_DUPLICATE_KEYS, Long.class);
+            if (count != null && count > 0) {
+                jdbcTemplate.update(MERGE_DUPLICATES);
+                jdbcTemplate.update(DELETE_DUPLICATES);
+                log.info("Merged duplicate stock rows for {} (school, item) balances", count);
+            }
+            jdbcTemplate.execute(ENSURE_KEY);
+            return count;
+        });
+        return new StockMigrationResultDTO("balance-key", duplicates == null ? 0 : duplicates);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void post(UUID schoolId, UUID itemId, double quantity) {
+        if (schoolId == null || itemId == null || quantity == 0) {
+            return;
+        }
+        jdbcTemplate.update(POST, UUID.randomUUID(), schoolId, itemId, quantity);
+        jdbcTemplate.update(JOURNAL, schoolId, itemId, quantity, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    // Nets postings per balance and applies them in key order, so concurrent batches lock rows alike
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void postAll(List<StockPostingDTO> postings) {
+        Map<List<UUID>, Double> net = new TreeMap<>(Comparator
+                .<List<UUID>, UUID>comparing(k -> k.get(0))
+                .thenComparing(k -> k.get(1)));
+        for (StockPostingDTO posting : postings) {
+            if (posting.getSchoolId() != null && posting.getItemId() != null) {
+                net.merge(List.of(posting.getSchoolId(), posting.getItemId()), posting.getQuantity(), Double::sum);
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(net.size());
+        List<StockPostingDTO> applied = new ArrayList<>(net.size());
+        net.forEach((key, quantity) -> {
+            if (quantity != 0) {
+                rows.add(new Object[]{UUID.randomUUID(), key.get(0), key.get(1), quantity});
+                applied.add(new StockPostingDTO(key.get(0), key.get(1), quantity));
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(POST, rows);
+            journal(applied);
+        }
+    }
+
+    // Takes quantity off the balance only if it covers it; returns the new balance, or null when short.
+    // Not journalled, so a caller can retry with less and journal what was finally taken.
+    @Transactional(Transactional.TxType.MANDATORY)
+    public Double tryDecrement(UUID schoolId, UUID itemId, double quantity) {
+        List<Double> updated = jdbcTemplate.queryForList(DECREMENT, Double.class, quantity, schoolId, itemId, quantity);
+        return updated.isEmpty() ? null : updated.get(0);
+    }
+
+    // For writers that move a balance with tryDecrement or their own update; postings are already applied
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void journal(List<StockPostingDTO> postings) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(postings.size());
+        for (StockPostingDTO posting : postings) {
+            rows.add(new Object[]{posting.getSchoolId(), posting.getItemId(), posting.getQuantity(), now});
+        }
+        jdbcTemplate.batchUpdate(JOURNAL, rows);
+    }
+
+    // ✅ Current balance of one item at a school
+    public StockBalanceDTO getBalance(UUID schoolId, UUID itemId) {
+        return stockRepository.findBalance(schoolId, itemId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "No stock of item " + itemId + " at school " + schoolId));
+    }
+
+    // ✅ All balances of a school
+    public List<StockBalanceDTO> getSchoolBalances(UUID schoolId) {
+        return stockRepository.findBalancesBySchool(schoolId);
+    }
+}
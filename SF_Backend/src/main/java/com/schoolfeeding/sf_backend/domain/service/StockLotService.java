@@ -0,0 +1,229 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockLotDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMigrationResultDTO;
+import com.schoolfeeding.sf_backend.domain.repository.StockInRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Tracks stock by lot: every StockIn is a lot with an expiration date and a remaining quantity,
+ * and stock-outs draw from the lots of their (school, item) earliest expiry first (FEFO).
+ * <p>
+ * The per-key priority order lives in {@code idx_stock_in_fefo} on (school_id, item_id,
+ * expiration_date): taking the head is an ordered index scan of the key's open lots, locked in
+ * that order, so nothing has to be kept warm in memory or re-sorted per draw. Each draw is
+ * recorded in {@code stock_out_lot} so a deleted or edited stock-out gives back exactly what it
+ * took. The lots follow the ledger and never refuse an issue: the balance decides what may be
+ * issued, the lots only decide where it is taken from.
+ * <p>
+ * The expiry listings read partial indexes over open lots only ({@code remaining_quantity > 0}
+ * and not deleted), so they stay small however many closed lots pile up. Those indexes and the
+ * opening of lots received before lot tracking are a one-off {@link #migrateOpenLots} run, which
+ * also drops the full {@code idx_stock_in_expiry} index they replaced.
+ */
+@Slf4j
+@Service
+public class StockLotService {
+
+    public static final int DEFAULT_EXPIRING_LIMIT = 200;
+    private static final int MAX_EXPIRING_LIMIT = 1000;
+    private static final int MAX_EXPIRING_DAYS = 365;
+
+    private static final String OPEN_LOTS =
+            "SELECT id, item_id, remaining_quantity FROM stock_in WHERE school_id = ? AND item_id = ANY(?::uuid[]) " +
+            "AND is_deleted = false AND remaining_quantity > 0 ORDER BY item_id, expiration_date ASC NULLS LAST, id FOR UPDATE";
+
+    private static final String SET_REMAINING =
+            "UPDATE stock_in SET remaining_quantity = ? WHERE id = ?";
+
+    private static final String INSERT_DRAW =
+            "INSERT INTO stock_out_lot (stock_out_id, stock_in_id, quantity) VALUES (?, ?, ?)";
+
+    private static final String RELEASE_DRAWS =
+            "UPDATE stock_in s SET remaining_quantity = COALESCE(s.remaining_quantity, 0) + d.quantity " +
+            "FROM (SELECT stock_in_id, SUM(quantity) AS quantity FROM stock_out_lot WHERE stock_out_id = ANY(?::uuid[]) " +
+            "GROUP BY stock_in_id) d WHERE s.id = d.stock_in_id";
+
+    private static final String DELETE_DRAWS =
+            "DELETE FROM stock_out_lot WHERE stock_out_id = ANY(?::uuid[])";
+
+    private static final String HAS_DRAWS =
+            "SELECT EXISTS (SELECT 1 FROM stock_out_lot WHERE stock_in_id = ?)";
+
+    // Cross-school expiry listing and the nightly sweep, keyset on (expiration_date, id)
+    private static final String CREATE_OPEN_EXPIRY_INDEX =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stock_in_open_expiry ON stock_in (expiration_date, id) " +
+            "WHERE remaining_quantity > 0 AND is_deleted = false";
+
+    private static final String CREATE_OPEN_SCHOOL_INDEX =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stock_in_open_school ON stock_in (school_id, expiration_date, id) " +
+            "WHERE remaining_quantity > 0 AND is_deleted = false";
+
+    // Full index the open-lot ones replaced; nothing reads it any more
+    private static final String DROP_EXPIRY_INDEX =
+            "DROP INDEX CONCURRENTLY IF EXISTS idx_stock_in_expiry";
+
+    private static final String COUNT_OPEN_INDEXES =
+            "SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'stock_in' " +
+            "AND indexname IN ('idx_stock_in_open_expiry', 'idx_stock_in_open_school')";
+
+    // Lots from before lot tracking: what is still on hand is the latest-expiring part of the receipts
+    private static final String BACKFILL_REMAINING =
+            "WITH lots AS (SELECT si.id, si.quantity, COALESCE(st.quantity, 0) AS balance, " +
+            "SUM(si.quantity) OVER (PARTITION BY si.school_id, si.item_id " +
+            "ORDER BY si.expiration_date DESC NULLS FIRST, si.id DESC) AS from_latest " +
+            "FROM stock_in si LEFT JOIN stock st ON st.school_id = si.school_id AND st.item_id = si.item_id " +
+            "AND st.is_deleted = false WHERE si.is_deleted = false AND si.remaining_quantity IS NULL) " +
+            "UPDATE stock_in s SET remaining_quantity = GREATEST(0, LEAST(l.quantity, l.balance - (l.from_latest - l.quantity))) " +
+            "FROM lots l WHERE s.id = l.id";
+
+    private final StockInRepository stockInRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockLotService(StockInRepository stockInRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager) {
+        this.stockInRepository = stockInRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Only looks: opening old lots rewrites stock_in, so it waits for an explicit migrateOpenLots()
+    @PostConstruct
+    void checkOpenLots() {
+        Long indexes = jdbcTemplate.queryForObject(COUNT_OPEN_INDEXES, Long.class);
+        if (indexes == null || indexes < 2) {
+            log.warn("Open-lot indexes are missing; run POST /api/v1/stocks/migrations/open-lots");
+        }
+    }
+
+    // ✅ One-off: opens the lots received before lot tracking, then builds the open-lot indexes and drops the old one
+    public StockMigrationResultDTO migrateOpenLots() {
+        Integer lots = transactionTemplate.execute(tx -> jdbcTemplate.update(BACKFILL_REMAINING));
+        if (lots != null && lots > 0) {
+            log.info("Opened {} stock-in lots received before lot tracking", lots);
+        }
+        // Built concurrently, outside a transaction, so receipts and issues carry on meanwhile
+        jdbcTemplate.execute(CREATE_OPEN_EXPIRY_INDEX);
+        jdbcTemplate.execute(CREATE_OPEN_SCHOOL_INDEX);
+        jdbcTemplate.execute(DROP_EXPIRY_INDEX);
+        return new StockMigrationResultDTO("open-lots", lots == null ? 0 : lots);
+    }
+
+    /**
+     * Draws stock-outs of one (school, item) from its lots, earliest expiry first, in the order
+     * given. Returns the quantity no lot could cover (stock that predates its receipts).
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public double consume(UUID schoolId, UUID itemId, Map<UUID, Double> draws) {
+        if (itemId == null) {
+            return 0;
+        }
+        return consumeAll(schoolId, Map.of(itemId, draws));
+    }
+
+    // Same as consume() for several items of a school, with one read of their open lots
+    @Transactional(Transactional.TxType.MANDATORY)
+    public double consumeAll(UUID schoolId, Map<UUID, Map<UUID, Double>> drawsByItem) {
+        if (schoolId == null || drawsByItem.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, Deque<Lot>> open = new HashMap<>();
+        jdbcTemplate.query(OPEN_LOTS, rs -> {
+            open.computeIfAbsent(rs.getObject("item_id", UUID.class), k -> new ArrayDeque<>())
+                    .add(new Lot(rs.getObject("id", UUID.class), rs.getDouble("remaining_quantity")));
+        }, schoolId, drawsByItem.keySet().toArray(new UUID[0]));
+
+        List<Lot> touched = new ArrayList<>();
+        List<Object[]> drawRows = new ArrayList<>();
+        double uncovered = 0;
+        for (Map.Entry<UUID, Map<UUID, Double>> item : drawsByItem.entrySet()) {
+            Deque<Lot> lots = open.getOrDefault(item.getKey(), new ArrayDeque<>());
+            for (Map.Entry<UUID, Double> draw : item.getValue().entrySet()) {
+                double wanted = draw.getValue();
+                while (wanted > 0 && !lots.isEmpty()) {
+                    Lot lot = lots.peekFirst();
+                    double taken = Math.min(wanted, lot.remaining);
+                    lot.remaining -= taken;
+                    wanted -= taken;
+                    drawRows.add(new Object[]{draw.getKey(), lot.id, taken});
+                    if (touched.isEmpty() || touched.get(touched.size() - 1) != lot) {
+                        touched.add(lot);
+                    }
+                    if (lot.remaining <= 0) {
+                        lots.pollFirst();
+                    }
+                }
+                uncovered += Math.max(0, wanted);
+            }
+        }
+
+        if (!drawRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_REMAINING, touched.stream()
+                    .map(lot -> new Object[]{lot.remaining, lot.id})
+                    .toList());
+            jdbcTemplate.batchUpdate(INSERT_DRAW, drawRows);
+        }
+        if (uncovered > 0) {
+            log.debug("{} issued at school {} beyond its open lots", uncovered, schoolId);
+        }
+        return uncovered;
+    }
+
+    // Gives the lots back what the stock-outs drew from them
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(Collection<UUID> stockOutIds) {
+        if (stockOutIds.isEmpty()) {
+            return;
+        }
+        UUID[] ids = stockOutIds.toArray(new UUID[0]);
+        jdbcTemplate.update(RELEASE_DRAWS, (Object) ids);
+        jdbcTemplate.update(DELETE_DRAWS, (Object) ids);
+    }
+
+    // Whether any stock-out has drawn from the lot
+    public boolean hasDraws(UUID stockInId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DRAWS, Boolean.class, stockInId));
+    }
+
+    // ✅ Open lots of an item at a school, in the order they will be consumed
+    public List<StockLotDTO> getOpenLots(UUID schoolId, UUID itemId) {
+        return stockInRepository.findOpenLots(schoolId, itemId);
+    }
+
+    // ✅ Open lots expiring within the next days (already expired ones included), soonest first
+    public List<StockLotDTO> getExpiring(UUID schoolId, int days, int limit) {
+        if (days < 0 || days > MAX_EXPIRING_DAYS) {
+            throw new IllegalArgumentException("days must be between 0 and " + MAX_EXPIRING_DAYS);
+        }
+        if (limit < 1 || limit > MAX_EXPIRING_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_EXPIRING_LIMIT);
+        }
+        Date until = Date.valueOf(LocalDate.now().plusDays(days));
+        return schoolId == null
+                ? stockInRepository.findExpiring(until, Limit.of(limit))
+                : stockInRepository.findExpiringAtSchool(schoolId, until, Limit.of(limit));
+    }
+
+    private static final class Lot {
+        private final UUID id;
+        private double remaining;
+
+        private Lot(UUID id, double remaining) {
+            this.id = id;
+            this.remaining = remaining;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionPostingDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMovementStatsDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockPostingDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Issues stock out of a school store without losing or serialising concurrent decrements.
+ * <p>
+ * Issues queue up per (school, item). Whoever holds that key's stripe lock takes everything
+ * queued for the key and applies it as one batch: a single conditional
+ * {@code UPDATE ... SET quantity = quantity - total WHERE quantity >= total} plus one batch insert
+ * of the StockOut rows, in one transaction. When the balance cannot cover the whole batch, issues
+ * are admitted in arrival order up to the first one that does not fit; that one and every issue
+ * behind it are refused, so a small late issue never jumps a larger earlier one. Callers that queued while
+ * a batch was running are usually served by the next one, so a busy key costs one transaction per
+ * batch rather than per issue, and other keys are never held up by it. Admitted issues are drawn
+ * from the key's lots earliest expiry first in the same transaction.
+ */
+@Slf4j
+@Service
+public class StockMovementService {
+
+    private static final String BALANCE =
+            "SELECT quantity FROM stock WHERE school_id = ? AND item_id = ? AND is_deleted = false";
+
+    private static final String INSERT_STOCK_OUT =
+            "INSERT INTO stock_out (id, active, is_deleted, school_id, item_id, request_item_id, quantity, issued_at) " +
+            "VALUES (?, true, false, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLotService stockLotService;
+    private final StockLedgerService stockLedgerService;
+    private final DemandForecastService demandForecastService;
+    private final ConsumptionAnomalyService consumptionAnomalyService;
+    private final int maxBatch;
+    private final ReentrantLock[] stripes;
+
+    private final Map<Key, ConcurrentLinkedQueue<Pending>> queues = new ConcurrentHashMap<>();
+
+    private final AtomicLong issues = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile long statsSince = System.nanoTime();
+
+    public StockMovementService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                StockLotService stockLotService,
+                                StockLedgerService stockLedgerService,
+                                DemandForecastService demandForecastService,
+                                ConsumptionAnomalyService consumptionAnomalyService,
+                                @Value("${stock.movement.stripes:64}") int stripeCount,
+                                @Value("${stock.movement.max-batch:200}") int maxBatch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockLotService = stockLotService;
+        this.stockLedgerService = stockLedgerService;
+        this.demandForecastService = demandForecastService;
+        this.consumptionAnomalyService = consumptionAnomalyService;
+        this.maxBatch = maxBatch;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public StockIssueResultDTO issue(StockIssueRequestDTO request) {
+        if (request.getSchoolId() == null || request.getItemId() == null || request.getQuantity() <= 0) {
+            throw new IllegalArgumentException("schoolId, itemId and a positive quantity are required");
+        }
+        long started = System.nanoTime();
+        Key key = new Key(request.getSchoolId(), request.getItemId());
+        Pending pending = new Pending(request);
+        ConcurrentLinkedQueue<Pending> queue = queues.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>());
+        queue.add(pending);
+
+        ReentrantLock lock = stripes[key.hashCode() & (stripes.length - 1)];
+        lock.lock();
+        try {
+            while (!pending.result.isDone()) {
+                List<Pending> batch = new ArrayList<>();
+                Pending next;
+                while (batch.size() < maxBatch && (next = queue.poll()) != null) {
+                    batch.add(next);
+                }
+                if (!batch.isEmpty()) {
+                    applyBatch(key, batch);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        StockIssueResultDTO result = pending.result.join();
+        issues.incrementAndGet();
+        (result.isApplied() ? applied : refused).incrementAndGet();
+        latencyNanos.addAndGet(System.nanoTime() - started);
+        return result;
+    }
+
+    public StockMovementStatsDTO getStats() {
+        long count = issues.get();
+        long batchCount = batches.get();
+        double seconds = (System.nanoTime() - statsSince) / 1e9;
+        return new StockMovementStatsDTO(count, applied.get(), refused.get(), batchCount,
+                batchCount == 0 ? 0 : (double) (applied.get() + refused.get()) / batchCount,
+                largestBatch.get(),
+                count == 0 ? 0 : latencyNanos.get() / 1e6 / count,
+                seconds <= 0 ? 0 : count / seconds);
+    }
+
+    public void resetStats() {
+        issues.set(0);
+        applied.set(0);
+        refused.set(0);
+        batches.set(0);
+        largestBatch.set(0);
+        latencyNanos.set(0);
+        statsSince = System.nanoTime();
+    }
+
+    private void applyBatch(Key key, List<Pending> batch) {
+        try {
+            List<StockIssueResultDTO> results = transactionTemplate.execute(tx -> decrement(key, batch));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results.get(i));
+            }
+            batches.incrementAndGet();
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+        } catch (RuntimeException ex) {
+            log.warn("Stock issue batch for {} failed", key, ex);
+            batch.forEach(p -> p.result.completeExceptionally(ex));
+        }
+    }
+
+    // Runs in one transaction; results line up with the batch
+    private List<StockIssueResultDTO> decrement(Key key, List<Pending> batch) {
+        double total = 0;
+        for (Pending p : batch) {
+            total += p.request.getQuantity();
+        }
+
+        boolean[] admitted = new boolean[batch.size()];
+        Double balance = tryDecrement(key, total);
+        if (balance != null) {
+            Arrays.fill(admitted, true);
+        } else {
+            // Not enough for everyone: admit in arrival order until the first issue that does not fit
+            List<Double> current = jdbcTemplate.queryForList(BALANCE, Double.class, key.schoolId(), key.itemId());
+            double available = current.isEmpty() ? 0 : current.get(0);
+            double admittedTotal = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                double quantity = batch.get(i).request.getQuantity();
+                if (admittedTotal + quantity > available) {
+                    break;
+                }
+                admitted[i] = true;
+                admittedTotal += quantity;
+            }
+            balance = admittedTotal > 0 ? tryDecrement(key, admittedTotal) : null;
+            if (balance == null) {
+                // The balance moved under us (another node or a stock-in reversal); refuse the batch
+                Arrays.fill(admitted, false);
+                balance = available;
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        Map<UUID, Double> draws = new LinkedHashMap<>();
+        List<StockIssueResultDTO> results = new ArrayList<>(batch.size());
+        int appliedCount = 0;
+        for (boolean a : admitted) {
+            appliedCount += a ? 1 : 0;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            StockIssueRequestDTO request = batch.get(i).request;
+            UUID stockOutId = null;
+            if (admitted[i]) {
+                stockOutId = UUID.randomUUID();
+                rows.add(new Object[]{stockOutId, key.schoolId(), key.itemId(), request.getRequestItemId(),
+                        request.getQuantity(), now});
+                draws.put(stockOutId, request.getQuantity());
+            }
+            results.add(new StockIssueResultDTO(key.schoolId(), key.itemId(), request.getQuantity(), admitted[i],
+                    stockOutId, balance, admitted[i] ? appliedCount : 0));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_STOCK_OUT, rows);
+            stockLedgerService.journal(List.of(new StockPostingDTO(key.schoolId(), key.itemId(),
+                    -draws.values().stream().mapToDouble(Double::doubleValue).sum())));
+            stockLotService.consume(key.schoolId(), key.itemId(), draws);
+            demandForecastService.markConsumptionChanged(now.toLocalDateTime().toLocalDate());
+            consumptionAnomalyService.record(draws.entrySet().stream()
+                    .map(d -> new ConsumptionPostingDTO(d.getKey(), key.schoolId(), key.itemId(), d.getValue(),
+                            now.toLocalDateTime().toLocalDate()))
+                    .toList());
+        }
+        return results;
+    }
+
+    // Returns the new balance, or null when it could not cover the quantity
+    private Double tryDecrement(Key key, double quantity) {
+        return stockLedgerService.tryDecrement(key.schoolId(), key.itemId(), quantity);
+    }
+
+    private record Key(UUID schoolId, UUID itemId) {
+    }
+
+    private static final class Pending {
+        private final StockIssueRequestDTO request;
+        private final CompletableFuture<StockIssueResultDTO> result = new CompletableFuture<>();
+
+        private Pending(StockIssueRequestDTO request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionPostingDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockPostingDTO;
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import com.schoolfeeding.sf_backend.domain.repository.StockOutRepository;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class StockOutService {
+
+    private final StockOutRepository stockOutRepository;
+    private final StockLedgerService stockLedgerService;
+    private final StockLotService stockLotService;
+    private final DemandForecastService demandForecastService;
+    private final ConsumptionAnomalyService consumptionAnomalyService;
+
+    // Create — the quantity is taken off the (school, item) balance and its earliest-expiring lots in the same transaction;
+    // 409 when the balance cannot cover it
+    @Transactional
+    public StockOut createStockOut(StockOut stockOut) {
+        if (stockOut.getIssuedAt() == null) {
+            stockOut.setIssuedAt(LocalDateTime.now());
+        }
+        StockPostingDTO posting = posting(stockOut, -1);
+        withdraw(posting);
+        StockOut saved = stockOutRepository.save(stockOut);
+        stockLotService.consume(posting.getSchoolId(), posting.getItemId(), Map.of(saved.getId(), saved.getQuantity()));
+        demandForecastService.markConsumptionChanged(feedingDay(saved));
+        consumptionAnomalyService.record(List.of(new ConsumptionPostingDTO(saved.getId(), posting.getSchoolId(),
+                posting.getItemId(), saved.getQuantity(), saved.getIssuedAt().toLocalDate())));
+        return saved;
+    }
+
+    // Get all active
+    public List<StockOut> getAllStockOuts() {
+        return stockOutRepository.findByIsDeletedFalse();
+    }
+
+    // Get by ID
+    public StockOut getStockOutById(UUID id) {
+        return stockOutRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("StockOut not found with id " + id));
+    }
+
+    // Update — the ledger and the lots give back the old quantity and take the new one; 409 when the balance
+    // cannot cover the new quantity
+    @Transactional
+    public StockOut updateStockOut(UUID id, StockOut updatedStockOut) {
+        StockOut existing = getStockOutById(id);
+        StockPostingDTO reversal = posting(existing, 1);
+        existing.setSchool(updatedStockOut.getSchool());
+        existing.setItem(updatedStockOut.getItem());
+        existing.setRequestItem(updatedStockOut.getRequestItem());
+        existing.setQuantity(updatedStockOut.getQuantity());
+        StockOut saved = stockOutRepository.save(existing);
+        if (!Boolean.TRUE.equals(saved.getIsDeleted())) {
+            StockPostingDTO posting = posting(saved, -1);
+            stockLedgerService.postAll(List.of(reversal));
+            withdraw(posting);
+            stockLotService.release(List.of(id));
+            stockLotService.consume(posting.getSchoolId(), posting.getItemId(), Map.of(id, saved.getQuantity()));
+        }
+        demandForecastService.markConsumptionChanged(feedingDay(saved));
+        return saved;
+    }
+
+    // Soft delete — the quantity goes back on the balance and on the lots it was drawn from
+    @Transactional
+    public void deleteStockOut(UUID id) {
+        StockOut existing = getStockOutById(id);
+        if (Boolean.TRUE.equals(existing.getIsDeleted())) {
+            return;
+        }
+        existing.setIsDeleted(true);
+        stockOutRepository.save(existing);
+        stockLedgerService.postAll(List.of(posting(existing, 1)));
+        stockLotService.release(List.of(id));
+        demandForecastService.markConsumptionChanged(feedingDay(existing));
+    }
+
+    // The day the forecast counts the issue on
+    private static LocalDate feedingDay(StockOut stockOut) {
+        if (stockOut.getFeedingDate() != null) {
+            return stockOut.getFeedingDate();
+        }
+        return stockOut.getIssuedAt() == null ? null : stockOut.getIssuedAt().toLocalDate();
+    }
+
+    // Guarded so an issue never overdraws the balance; the exception rolls the whole write back
+    private void withdraw(StockPostingDTO posting) {
+        if (posting.getSchoolId() == null || posting.getItemId() == null || posting.getQuantity() == 0) {
+            return;
+        }
+        double quantity = -posting.getQuantity();
+        if (stockLedgerService.tryDecrement(posting.getSchoolId(), posting.getItemId(), quantity) == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Stock of item " + posting.getItemId() +
+                    " at school " + posting.getSchoolId() + " cannot cover " + quantity);
+        }
+        stockLedgerService.journal(List.of(posting));
+    }
+
+    private static StockPostingDTO posting(StockOut stockOut, int sign) {
+        UUID schoolId = stockOut.getSchool() == null ? null : stockOut.getSchool().getId();
+        UUID itemId = stockOut.getItem() == null ? null : stockOut.getItem().getId();
+        return new StockPostingDTO(schoolId, itemId, sign * stockOut.getQuantity());
+    }
+}
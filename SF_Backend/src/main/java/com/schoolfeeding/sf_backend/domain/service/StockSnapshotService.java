@@ -0,0 +1,374 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockHistoryDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockSnapshotStatusDTO;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compacts the stock journal into periodic balance snapshots and answers "what was the stock on
+ * day D" from them.
+ * <p>
+ * A snapshot holds every (school, item) balance at the start of its day. The first one is taken
+ * from the live balances when the journal starts; each later one is the previous snapshot plus
+ * the journal entries posted in between, built by the database one chunk of schools at a time,
+ * so the journal is streamed through SQL and never loaded here. A point-in-time balance reads the
+ * school's nearest snapshot and replays only the entries after it.
+ * <p>
+ * Each build is recorded in stock_snapshot_run and its rows only count once the run is COMPLETED:
+ * a build that failed or was cut short by a restart leaves some schools written and others not, so
+ * reads and later builds go to the last complete snapshot before it, and the failed day is cleared
+ * and built again by the retry job. Several instances may run the jobs: a RUNNING build is a lease
+ * renewed by a heartbeat after every chunk, another instance cannot start the same day while the
+ * heartbeat is fresh, and only a build whose heartbeat has been quiet for {@code lease-minutes} is
+ * failed over, so a live build on another node is never taken for dead.
+ */
+@Slf4j
+@Service
+public class StockSnapshotService {
+
+    private static final String ANY_RUN =
+            "SELECT EXISTS (SELECT 1 FROM stock_snapshot_run)";
+
+    private static final String SNAPSHOT_DATES =
+            "SELECT DISTINCT snapshot_date FROM stock_snapshot ORDER BY 1";
+
+    // Balances at the start of the day: today's journal entries are taken back off the live rows
+    private static final String BASELINE =
+            "INSERT INTO stock_snapshot (snapshot_date, school_id, item_id, quantity) " +
+            "SELECT ?, s.school_id, s.item_id, s.quantity - COALESCE(e.delta, 0) FROM stock s " +
+            "LEFT JOIN (SELECT school_id, item_id, SUM(quantity) AS delta FROM stock_ledger_entry WHERE posted_at >= ? " +
+            "GROUP BY school_id, item_id) e ON e.school_id = s.school_id AND e.item_id = s.item_id " +
+            "WHERE s.is_deleted = false AND s.school_id IS NOT NULL AND s.item_id IS NOT NULL " +
+            "ON CONFLICT (school_id, snapshot_date, item_id) DO NOTHING";
+
+    private static final String FIRST_SNAPSHOT_DATE =
+            "SELECT MIN(snapshot_date) FROM stock_snapshot_run WHERE state = 'COMPLETED'";
+
+    private static final String PREVIOUS_SNAPSHOT_DATE =
+            "SELECT MAX(snapshot_date) FROM stock_snapshot_run WHERE state = 'COMPLETED' AND snapshot_date < ?";
+
+    private static final String SNAPSHOT_COMPLETE =
+            "SELECT EXISTS (SELECT 1 FROM stock_snapshot_run WHERE snapshot_date = ? AND state = 'COMPLETED')";
+
+    private static final String OLDEST_FAILED =
+            "SELECT MIN(snapshot_date) FROM stock_snapshot_run WHERE state = 'FAILED'";
+
+    // One run per day: starting it again resets the row under a fresh id, unless a live build holds it
+    private static final String RECORD_RUN =
+            "INSERT INTO stock_snapshot_run (id, snapshot_date, previous_snapshot_date, state, schools, rows_written, " +
+            "started_at, finished_at, error, heartbeat_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, now()) " +
+            "ON CONFLICT (snapshot_date) DO UPDATE SET id = EXCLUDED.id, " +
+            "previous_snapshot_date = EXCLUDED.previous_snapshot_date, " +
+            "state = EXCLUDED.state, schools = EXCLUDED.schools, rows_written = EXCLUDED.rows_written, " +
+            "started_at = EXCLUDED.started_at, finished_at = EXCLUDED.finished_at, error = EXCLUDED.error, " +
+            "heartbeat_at = EXCLUDED.heartbeat_at " +
+            "WHERE stock_snapshot_run.state <> 'RUNNING' OR stock_snapshot_run.heartbeat_at IS NULL " +
+            "OR stock_snapshot_run.heartbeat_at < now() - make_interval(mins => ?)";
+
+    // Renews the lease; no row means the attempt was failed over and must stop
+    private static final String HEARTBEAT =
+            "UPDATE stock_snapshot_run SET heartbeat_at = now() WHERE id = ? AND state = 'RUNNING'";
+
+    private static final String FINISH_RUN =
+            "UPDATE stock_snapshot_run SET state = ?, schools = ?, rows_written = ?, finished_at = ?, error = ? " +
+            "WHERE id = ? AND state = 'RUNNING'";
+
+    // A build whose heartbeat went quiet died with its instance, whichever node that was
+    private static final String ABANDON_STALE =
+            "UPDATE stock_snapshot_run SET state = 'FAILED', finished_at = ?, " +
+            "error = 'Abandoned: its builder stopped renewing the heartbeat' WHERE state = 'RUNNING' " +
+            "AND (heartbeat_at IS NULL OR heartbeat_at < now() - make_interval(mins => ?))";
+
+    private static final String CLEAR_SNAPSHOT =
+            "DELETE FROM stock_snapshot WHERE snapshot_date = ?";
+
+    private static final String SCHOOLS =
+            "SELECT school_id FROM stock WHERE school_id IS NOT NULL " +
+            "UNION SELECT school_id FROM stock_snapshot WHERE snapshot_date = ? ORDER BY 1";
+
+    // Previous snapshot plus the entries in between, for one chunk of schools
+    private static final String BUILD_CHUNK =
+            "INSERT INTO stock_snapshot (snapshot_date, school_id, item_id, quantity) " +
+            "SELECT ?, COALESCE(p.school_id, e.school_id), COALESCE(p.item_id, e.item_id), " +
+            "COALESCE(p.quantity, 0) + COALESCE(e.delta, 0) " +
+            "FROM (SELECT school_id, item_id, quantity FROM stock_snapshot " +
+            "  WHERE snapshot_date = ? AND school_id = ANY(?::uuid[])) p " +
+            "FULL JOIN (SELECT school_id, item_id, SUM(quantity) AS delta FROM stock_ledger_entry " +
+            "  WHERE school_id = ANY(?::uuid[]) AND posted_at >= ? AND posted_at < ? GROUP BY school_id, item_id) e " +
+            "ON e.school_id = p.school_id AND e.item_id = p.item_id " +
+            "ON CONFLICT (school_id, snapshot_date, item_id) DO NOTHING";
+
+    // Nearest complete snapshot on or before the day after D, plus what the school posted from it up to D
+    private static final String HISTORY =
+            "WITH snap AS (SELECT MAX(snapshot_date) AS d FROM stock_snapshot_run " +
+            "  WHERE state = 'COMPLETED' AND snapshot_date <= ?) " +
+            "SELECT COALESCE(p.item_id, e.item_id) AS item_id, i.item_name, " +
+            "COALESCE(p.quantity, 0) + COALESCE(e.delta, 0) AS quantity, (SELECT d FROM snap) AS snapshot_date, " +
+            "COALESCE(e.entries, 0) AS entries " +
+            "FROM (SELECT item_id, quantity FROM stock_snapshot WHERE school_id = ? AND snapshot_date = (SELECT d FROM snap) " +
+            "  AND (?::uuid IS NULL OR item_id = ?::uuid)) p " +
+            "FULL JOIN (SELECT item_id, SUM(quantity) AS delta, COUNT(*) AS entries FROM stock_ledger_entry " +
+            "  WHERE school_id = ? AND (?::uuid IS NULL OR item_id = ?::uuid) " +
+            "  AND posted_at >= COALESCE((SELECT d FROM snap), '-infinity'::date) AND posted_at < ? GROUP BY item_id) e " +
+            "ON e.item_id = p.item_id " +
+            "JOIN item i ON i.id = COALESCE(p.item_id, e.item_id) ORDER BY i.item_name";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int leaseMinutes;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-snapshot");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final StockSnapshotStatusDTO status = new StockSnapshotStatusDTO();
+
+    public StockSnapshotService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${stock.snapshot.chunk-size:500}") int chunkSize,
+                                @Value("${stock.snapshot.lease-minutes:10}") int leaseMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.leaseMinutes = leaseMinutes;
+    }
+
+    // The journal only knows postings made since it started; the first snapshot carries what came before
+    @PostConstruct
+    void ensureBaseline() {
+        transactionTemplate.executeWithoutResult(tx -> {
+            abandonStale();
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(ANY_RUN, Boolean.class))) {
+                return;
+            }
+            List<LocalDate> taken = jdbcTemplate.queryForList(SNAPSHOT_DATES, LocalDate.class);
+            if (!taken.isEmpty()) {
+                recordUntrackedSnapshots(taken);
+                return;
+            }
+            LocalDate today = LocalDate.now();
+            int rows = jdbcTemplate.update(BASELINE, Date.valueOf(today), Timestamp.valueOf(today.atStartOfDay()));
+            recordRun(today, null, EJobState.COMPLETED, rows, null);
+            log.info("Stock history starts {}: baseline snapshot of {} balances", today, rows);
+        });
+    }
+
+    @Scheduled(cron = "${stock.snapshot.cron:0 0 2 * * MON}")
+    public void scheduledSnapshot() {
+        if (running.get() || snapshotComplete(LocalDate.now())) {
+            return;
+        }
+        try {
+            start(LocalDate.now());
+        } catch (IllegalStateException ex) {
+            log.info("Skipping the scheduled stock snapshot: {}", ex.getMessage());
+        }
+    }
+
+    // A build that failed, or whose builder went quiet, is cleared and built again, oldest day first
+    @Scheduled(cron = "${stock.snapshot.retry-cron:0 30 * * * *}")
+    public void retryFailed() {
+        abandonStale();
+        if (running.get()) {
+            return;
+        }
+        LocalDate failed = jdbcTemplate.queryForObject(OLDEST_FAILED, LocalDate.class);
+        if (failed != null) {
+            log.info("Retrying the stock snapshot for {}", failed);
+            try {
+                start(failed);
+            } catch (IllegalStateException ex) {
+                log.info("Not retrying the stock snapshot for {}: {}", failed, ex.getMessage());
+            }
+        }
+    }
+
+    // ✅ Build the snapshot for the start of a day, in the background
+    public StockSnapshotStatusDTO start(LocalDate snapshotDate) {
+        if (snapshotDate.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("A snapshot cannot be taken for a future day");
+        }
+        LocalDate previous = jdbcTemplate.queryForObject(PREVIOUS_SNAPSHOT_DATE, LocalDate.class, Date.valueOf(snapshotDate));
+        if (previous == null) {
+            throw new IllegalArgumentException("Stock history starts on " + firstSnapshotDate());
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A stock snapshot is already being built");
+        }
+        UUID runId;
+        try {
+            runId = recordRun(snapshotDate, previous, EJobState.RUNNING, 0, null);
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+        if (runId == null) {
+            running.set(false);
+            throw new IllegalStateException("The stock snapshot for " + snapshotDate + " is being built on another instance");
+        }
+        synchronized (status) {
+            BeanUtils.copyProperties(new StockSnapshotStatusDTO(), status);
+            status.setState(EJobState.RUNNING);
+            status.setSnapshotDate(snapshotDate);
+            status.setPreviousSnapshotDate(previous);
+            status.setStartedAt(LocalDateTime.now());
+        }
+        try {
+            executor.submit(() -> build(runId, snapshotDate, previous));
+        } catch (RuntimeException ex) {
+            finish(runId, EJobState.FAILED, ex.getMessage());
+            running.set(false);
+            throw ex;
+        }
+        return getStatus();
+    }
+
+    public StockSnapshotStatusDTO getStatus() {
+        StockSnapshotStatusDTO copy = new StockSnapshotStatusDTO();
+        synchronized (status) {
+            BeanUtils.copyProperties(status, copy);
+        }
+        return copy;
+    }
+
+    // ✅ Balances of a school (or one of its items) at the end of a day
+    public List<StockHistoryDTO> getBalancesAt(UUID schoolId, UUID itemId, LocalDate date) {
+        LocalDate first = firstSnapshotDate();
+        if (first == null || date.isBefore(first)) {
+            throw new IllegalArgumentException("Stock history starts on " + first);
+        }
+        LocalDate dayAfter = date.plusDays(1);
+        List<StockHistoryDTO> balances = new ArrayList<>();
+        jdbcTemplate.query(HISTORY, rs -> {
+            Date snapshotDate = rs.getDate("snapshot_date");
+            balances.add(new StockHistoryDTO(schoolId, rs.getObject("item_id", UUID.class), rs.getString("item_name"),
+                    date, rs.getDouble("quantity"), snapshotDate == null ? null : snapshotDate.toLocalDate(),
+                    rs.getInt("entries")));
+        }, Date.valueOf(dayAfter), schoolId, itemId, itemId, schoolId, itemId, itemId,
+                Timestamp.valueOf(dayAfter.atStartOfDay()));
+        return balances;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void build(UUID runId, LocalDate snapshotDate, LocalDate previous) {
+        try {
+            // Whatever an earlier attempt left of this day is rebuilt, not trusted
+            jdbcTemplate.update(CLEAR_SNAPSHOT, Date.valueOf(snapshotDate));
+            List<UUID> schools = jdbcTemplate.queryForList(SCHOOLS, UUID.class, Date.valueOf(previous));
+            synchronized (status) {
+                status.setSchools(schools.size());
+            }
+            Timestamp from = Timestamp.valueOf(previous.atStartOfDay());
+            Timestamp until = Timestamp.valueOf(snapshotDate.atStartOfDay());
+            for (int start = 0; start < schools.size(); start += chunkSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Interrupted");
+                }
+                UUID[] chunk = schools.subList(start, Math.min(start + chunkSize, schools.size())).toArray(new UUID[0]);
+                Integer rows = transactionTemplate.execute(tx -> {
+                    if (jdbcTemplate.update(HEARTBEAT, runId) == 0) {
+                        throw new IllegalStateException("The build lost its lease to a retry");
+                    }
+                    return jdbcTemplate.update(BUILD_CHUNK,
+                            Date.valueOf(snapshotDate), Date.valueOf(previous), chunk, chunk, from, until);
+                });
+                synchronized (status) {
+                    status.setSchoolsDone(status.getSchoolsDone() + chunk.length);
+                    status.setRowsWritten(status.getRowsWritten() + (rows == null ? 0 : rows));
+                }
+            }
+            finish(runId, EJobState.COMPLETED, null);
+        } catch (RuntimeException ex) {
+            log.error("Stock snapshot for {} failed", snapshotDate, ex);
+            finish(runId, EJobState.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void finish(UUID runId, EJobState state, String error) {
+        synchronized (status) {
+            status.setState(state);
+            status.setFinishedAt(LocalDateTime.now());
+            status.setError(error);
+        }
+        try {
+            jdbcTemplate.update(FINISH_RUN, state.name(), status.getSchools(), status.getRowsWritten(),
+                    Timestamp.valueOf(status.getFinishedAt()), truncate(error), runId);
+        } catch (RuntimeException ex) {
+            // Left RUNNING, the run is failed over once its heartbeat goes stale and built again
+            log.error("Could not record the end of the stock snapshot for {}", status.getSnapshotDate(), ex);
+        }
+        log.info("Stock snapshot for {} {}: {} balances over {} schools", status.getSnapshotDate(), state,
+                status.getRowsWritten(), status.getSchoolsDone());
+    }
+
+    // Returns the attempt's id, or null when a live build on another instance holds the day
+    private UUID recordRun(LocalDate snapshotDate, LocalDate previous, EJobState state, int rows, String error) {
+        UUID runId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        int recorded = jdbcTemplate.update(RECORD_RUN, runId, Date.valueOf(snapshotDate),
+                previous == null ? null : Date.valueOf(previous), state.name(), 0, rows, Timestamp.valueOf(now),
+                state == EJobState.RUNNING ? null : Timestamp.valueOf(now), error, leaseMinutes);
+        return recorded == 0 ? null : runId;
+    }
+
+    private void abandonStale() {
+        int abandoned = jdbcTemplate.update(ABANDON_STALE, Timestamp.valueOf(LocalDateTime.now()), leaseMinutes);
+        if (abandoned > 0) {
+            log.warn("{} stock snapshot build(s) stopped renewing their heartbeat and will be built again", abandoned);
+        }
+    }
+
+    // Snapshots from before builds were recorded: the baseline went in as one statement and is whole, but
+    // nothing says whether a later one finished, so those are built again
+    private void recordUntrackedSnapshots(List<LocalDate> taken) {
+        recordRun(taken.get(0), null, EJobState.COMPLETED, 0, null);
+        for (int i = 1; i < taken.size(); i++) {
+            recordRun(taken.get(i), taken.get(i - 1), EJobState.FAILED, 0, "Taken before snapshot builds were recorded");
+        }
+        log.warn("Recorded {} untracked stock snapshot(s); all but the baseline of {} will be built again",
+                taken.size(), taken.get(0));
+    }
+
+    private boolean snapshotComplete(LocalDate date) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SNAPSHOT_COMPLETE, Boolean.class, Date.valueOf(date)));
+    }
+
+    private static String truncate(String error) {
+        return error == null ? null : error.substring(0, Math.min(error.length(), 1000));
+    }
+
+    private LocalDate firstSnapshotDate() {
+        return jdbcTemplate.queryForObject(FIRST_SNAPSHOT_DATE, LocalDate.class);
+    }
+}
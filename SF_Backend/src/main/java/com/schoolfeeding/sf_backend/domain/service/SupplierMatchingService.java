@@ -0,0 +1,260 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequestAssignmentDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierItemDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierProposalDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierStatDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
+import com.schoolfeeding.sf_backend.domain.repository.OrdersRepository;
+import com.schoolfeeding.sf_backend.domain.repository.SupplierRepository;
+import com.schoolfeeding.sf_backend.util.order.ERequest;
+import com.schoolfeeding.sf_backend.util.tx.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Proposes suppliers for request items from an in-memory inverted index (item id -> suppliers
+ * providing it, from {@code supplier_items}). Each candidate is scored on how many of the
+ * request's items it covers, its historical unit price against the cheapest candidate, and how
+ * many orders it still has open. Unit prices come from single-item requests only: a request has
+ * one quantity and one order price for all its items, which says nothing about any one of them.
+ * <p>
+ * The index is rebuilt after every {@link SupplierService} write. Price history and open-order
+ * load change with orders, so order writes only mark them stale and a scheduled refresh reloads
+ * them; proposals never query the database.
+ */
+@Slf4j
+@Service
+public class SupplierMatchingService {
+
+    private final SupplierRepository supplierRepository;
+    private final OrdersRepository ordersRepository;
+    private final RequestItemService requestItemService;
+
+    private final double coverageWeight;
+    private final double priceWeight;
+    private final double loadWeight;
+
+    private final AtomicBoolean statsStale = new AtomicBoolean(false);
+    private volatile Index index = Index.EMPTY;
+
+    public SupplierMatchingService(SupplierRepository supplierRepository,
+                                   OrdersRepository ordersRepository,
+                                   RequestItemService requestItemService,
+                                   @Value("${matching.weight.coverage:0.6}") double coverageWeight,
+                                   @Value("${matching.weight.price:0.25}") double priceWeight,
+                                   @Value("${matching.weight.load:0.15}") double loadWeight) {
+        this.supplierRepository = supplierRepository;
+        this.ordersRepository = ordersRepository;
+        this.requestItemService = requestItemService;
+        this.coverageWeight = coverageWeight;
+        this.priceWeight = priceWeight;
+        this.loadWeight = loadWeight;
+    }
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::rebuild);
+    }
+
+    // Order writes only flag the price and load figures; the scheduled refresh picks them up
+    public void markOrdersChanged() {
+        statsStale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${matching.stats-refresh-ms:30000}")
+    public void refreshStatsIfStale() {
+        if (statsStale.compareAndSet(true, false)) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        index = Index.build(supplierRepository.findActiveSupplierItems(),
+                ordersRepository.averageUnitPriceBySupplierAndItem(),
+                ordersRepository.countOpenOrdersBySupplier());
+        log.debug("Supplier index rebuilt: {} suppliers, {} items in {} ms",
+                index.supplierIds.length, index.itemSuppliers.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public List<UUID> getSuppliersForItem(UUID itemId) {
+        int[] suppliers = index.itemSuppliers.get(itemId);
+        if (suppliers == null) {
+            return List.of();
+        }
+        List<UUID> ids = new ArrayList<>(suppliers.length);
+        for (int s : suppliers) {
+            ids.add(index.supplierIds[s]);
+        }
+        return ids;
+    }
+
+    public List<SupplierProposalDTO> proposeForRequest(UUID requestId, int limit) {
+        RequestItem request = requestItemService.getRequestItemById(requestId);
+        return propose(itemIds(request), limit);
+    }
+
+    // Proposals for one page of PENDING requests, optionally within a district
+    public List<RequestAssignmentDTO> proposeForPending(UUID districtId, int limit, Pageable pageable) {
+        List<RequestAssignmentDTO> result = new ArrayList<>();
+        for (RequestItem r : requestItemService.searchRequestItems(ERequest.PENDING, districtId, null, pageable)) {
+            result.add(new RequestAssignmentDTO(r.getId(),
+                    r.getSchool() != null ? r.getSchool().getId() : null,
+                    r.getDistrict() != null ? r.getDistrict().getId() : null,
+                    r.getQuantity(),
+                    propose(itemIds(r), limit)));
+        }
+        return result;
+    }
+
+    public List<SupplierProposalDTO> propose(List<UUID> itemIds, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        Index idx = index;
+        int n = idx.supplierIds.length;
+        if (itemIds.isEmpty() || n == 0) {
+            return List.of();
+        }
+
+        int[] covered = new int[n];
+        double[] priceRatioSum = new double[n];
+        double[] priceSum = new double[n];
+        int[] pricedItems = new int[n];
+        int[] touched = new int[n];
+        int touchedCount = 0;
+
+        for (UUID itemId : itemIds) {
+            int[] suppliers = idx.itemSuppliers.get(itemId);
+            if (suppliers == null) {
+                continue;
+            }
+            double[] prices = idx.itemPrices.get(itemId);
+            double best = Double.MAX_VALUE;
+            if (prices != null) {
+                for (int s : suppliers) {
+                    if (!Double.isNaN(prices[s]) && prices[s] > 0) {
+                        best = Math.min(best, prices[s]);
+                    }
+                }
+            }
+            for (int s : suppliers) {
+                if (covered[s]++ == 0) {
+                    touched[touchedCount++] = s;
+                }
+                if (prices != null && !Double.isNaN(prices[s]) && prices[s] > 0) {
+                    priceRatioSum[s] += best / prices[s];
+                    priceSum[s] += prices[s];
+                    pricedItems[s]++;
+                }
+            }
+        }
+
+        List<SupplierProposalDTO> proposals = new ArrayList<>(touchedCount);
+        for (int t = 0; t < touchedCount; t++) {
+            int s = touched[t];
+            double coverage = (double) covered[s] / itemIds.size();
+            // No price history scores as middling rather than best or worst
+            double priceScore = pricedItems[s] > 0 ? priceRatioSum[s] / pricedItems[s] : 0.5;
+            int open = idx.openOrders[s];
+            double loadScore = 1.0 / (1 + open);
+            double score = coverageWeight * coverage + priceWeight * priceScore + loadWeight * loadScore;
+            proposals.add(new SupplierProposalDTO(idx.supplierIds[s], idx.supplierNames[s], coverage,
+                    pricedItems[s] > 0 ? priceSum[s] / pricedItems[s] : null, open, score));
+        }
+        proposals.sort(Comparator.comparingDouble(SupplierProposalDTO::getScore).reversed());
+        return proposals.size() > limit ? new ArrayList<>(proposals.subList(0, limit)) : proposals;
+    }
+
+    private static List<UUID> itemIds(RequestItem request) {
+        if (request.getItems() == null) {
+            return List.of();
+        }
+        List<UUID> ids = new ArrayList<>(request.getItems().size());
+        for (Item item : request.getItems()) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Immutable index snapshot. Suppliers are numbered 0..n-1; per-item arrays are indexed by
+     * that number, with NaN marking "no price history".
+     */
+    private static final class Index {
+
+        static final Index EMPTY = new Index(new UUID[0], new String[0], new int[0], Map.of(), Map.of());
+
+        final UUID[] supplierIds;
+        final String[] supplierNames;
+        final int[] openOrders;
+        final Map<UUID, int[]> itemSuppliers;
+        final Map<UUID, double[]> itemPrices;
+
+        private Index(UUID[] supplierIds, String[] supplierNames, int[] openOrders,
+                      Map<UUID, int[]> itemSuppliers, Map<UUID, double[]> itemPrices) {
+            this.supplierIds = supplierIds;
+            this.supplierNames = supplierNames;
+            this.openOrders = openOrders;
+            this.itemSuppliers = itemSuppliers;
+            this.itemPrices = itemPrices;
+        }
+
+        static Index build(List<SupplierItemDTO> pairs, List<SupplierStatDTO> prices, List<SupplierStatDTO> loads) {
+            Map<UUID, Integer> supplierIndex = new LinkedHashMap<>();
+            List<String> names = new ArrayList<>();
+            Map<UUID, List<Integer>> bySupplierItem = new HashMap<>();
+            for (SupplierItemDTO pair : pairs) {
+                Integer s = supplierIndex.get(pair.getSupplierId());
+                if (s == null) {
+                    s = supplierIndex.size();
+                    supplierIndex.put(pair.getSupplierId(), s);
+                    names.add(pair.getSupplierName());
+                }
+                bySupplierItem.computeIfAbsent(pair.getItemId(), k -> new ArrayList<>()).add(s);
+            }
+            int n = supplierIndex.size();
+
+            Map<UUID, int[]> itemSuppliers = new HashMap<>();
+            bySupplierItem.forEach((item, list) ->
+                    itemSuppliers.put(item, list.stream().mapToInt(Integer::intValue).distinct().toArray()));
+
+            Map<UUID, double[]> itemPrices = new HashMap<>();
+            for (SupplierStatDTO price : prices) {
+                Integer s = supplierIndex.get(price.getSupplierId());
+                if (s == null || !itemSuppliers.containsKey(price.getItemId())) {
+                    continue;
+                }
+                itemPrices.computeIfAbsent(price.getItemId(), k -> {
+                    double[] p = new double[n];
+                    Arrays.fill(p, Double.NaN);
+                    return p;
+                })[s] = price.getValue();
+            }
+
+            int[] openOrders = new int[n];
+            for (SupplierStatDTO load : loads) {
+                Integer s = supplierIndex.get(load.getSupplierId());
+                if (s != null) {
+                    openOrders[s] = (int) load.getCount();
+                }
+            }
+
+            return new Index(supplierIndex.keySet().toArray(new UUID[0]), names.toArray(new String[0]),
+                    openOrders, Map.copyOf(itemSuppliers), Map.copyOf(itemPrices));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.schoolfeeding.sf_backend.domain.service;
 import com.schoolfeeding.sf_backend.domain.entity.Supplier;
 import com.schoolfeeding.sf_backend.domain.repository.SupplierRepository;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -14,10 +15,14 @@ import java.util.UUID;
 public class SupplierService {
 
     private final SupplierRepository supplierRepository;
+    private final SupplierMatchingService supplierMatchingService;
 
     // ✅ Create
+    @Transactional
     public Supplier createSupplier(Supplier supplier) {
-        return supplierRepository.save(supplier);
+        Supplier saved = supplierRepository.save(supplier);
+        supplierMatchingService.refreshAfterCommit();
+        return saved;
     }
 
     // ✅ Get all (only active)
@@ -32,6 +37,7 @@ public class SupplierService {
     }
 
     // ✅ Update
+    @Transactional
     public Supplier updateSupplier(UUID id, Supplier supplierDetails) {
         Supplier supplier = getSupplierById(id);
 
@@ -41,14 +47,18 @@ public class SupplierService {
         supplier.setBankAccount(supplierDetails.getBankAccount());
         supplier.setItems(supplierDetails.getItems());
 
-        return supplierRepository.save(supplier);
+        Supplier saved = supplierRepository.save(supplier);
+        supplierMatchingService.refreshAfterCommit();
+        return saved;
     }
 
     // ✅ Soft Delete
+    @Transactional
     public void deleteSupplier(UUID id) {
         Supplier supplier = getSupplierById(id);
         supplier.setIsDeleted(true);
         supplier.setActive(false);
         supplierRepository.save(supplier);
+        supplierMatchingService.refreshAfterCommit();
     }
 }
@@ -5,7 +5,6 @@ import com.schoolfeeding.sf_backend.domain.dto.UserUpdateDTO;
 import com.schoolfeeding.sf_backend.domain.entity.District;
 import com.schoolfeeding.sf_backend.domain.entity.School;
 import com.schoolfeeding.sf_backend.domain.entity.Users;
-import com.schoolfeeding.sf_backend.domain.repository.DistrictRepository;
 import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
 import com.schoolfeeding.sf_backend.domain.repository.UsersRepository;
 import com.schoolfeeding.sf_backend.util.role.ERole;
@@ -22,16 +21,16 @@ import java.util.UUID;
 public class UsersService {
 
     private final UsersRepository usersRepository;
-    private final DistrictRepository districtRepository;
+    private final DistrictRegistry districtRegistry;
     private final SchoolRepository schoolRepository;
     private final AuditLogService auditLogService;
 
     public UsersService(UsersRepository usersRepository,
-                        DistrictRepository districtRepository,
+                        DistrictRegistry districtRegistry,
                         SchoolRepository schoolRepository,
                         AuditLogService auditLogService) {
         this.usersRepository = usersRepository;
-        this.districtRepository = districtRepository;
+        this.districtRegistry = districtRegistry;
         this.schoolRepository = schoolRepository;
         this.auditLogService = auditLogService;
     }
@@ -52,7 +51,7 @@ public class UsersService {
         user.setStatus(EStatus.ACTIVE);
 
         if (dto.getDistrictId() != null) {
-            District district = districtRepository.findById(dto.getDistrictId())
+            District district = districtRegistry.findById(dto.getDistrictId())
                     .orElseThrow(() -> new RuntimeException("District not found"));
             user.setDistrict(district);
         }
@@ -94,7 +93,7 @@ public class UsersService {
         if (dto.getProfile() != null) user.setProfile(dto.getProfile());
 
         if (dto.getDistrictId() != null) {
-            District district = districtRepository.findById(dto.getDistrictId())
+            District district = districtRegistry.findById(dto.getDistrictId())
                     .orElseThrow(() -> new RuntimeException("District not found"));
             user.setDistrict(district);
         }
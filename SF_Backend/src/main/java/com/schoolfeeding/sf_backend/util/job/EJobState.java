@@ -0,0 +1,8 @@
+package com.schoolfeeding.sf_backend.util.job;
+
+public enum EJobState {
+    IDLE,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
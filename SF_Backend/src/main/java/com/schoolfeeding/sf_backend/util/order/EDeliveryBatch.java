@@ -0,0 +1,6 @@
+package com.schoolfeeding.sf_backend.util.order;
+
+public enum EDeliveryBatch {
+    PLANNED,
+    DISPATCHED
+}
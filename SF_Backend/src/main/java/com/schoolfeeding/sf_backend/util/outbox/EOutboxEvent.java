@@ -0,0 +1,8 @@
+package com.schoolfeeding.sf_backend.util.outbox;
+
+public enum EOutboxEvent {
+    ORDER_CREATED,
+    ORDER_STATUS_CHANGED,
+    STOCK_RECEIVED,
+    EXPIRY_ALERT
+}
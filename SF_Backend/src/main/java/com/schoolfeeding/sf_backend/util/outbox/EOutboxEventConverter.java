@@ -0,0 +1,18 @@
+package com.schoolfeeding.sf_backend.util.outbox;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class EOutboxEventConverter implements AttributeConverter<EOutboxEvent, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EOutboxEvent eventType) {
+        return eventType == null ? null : eventType.name();
+    }
+
+    @Override
+    public EOutboxEvent convertToEntityAttribute(String value) {
+        return value == null ? null : EOutboxEvent.valueOf(value);
+    }
+}
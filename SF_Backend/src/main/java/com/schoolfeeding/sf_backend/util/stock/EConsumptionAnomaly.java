@@ -0,0 +1,8 @@
+package com.schoolfeeding.sf_backend.util.stock;
+
+public enum EConsumptionAnomaly {
+    ABOVE_NORM,
+    BELOW_NORM,
+    ABOVE_HISTORY,
+    BELOW_HISTORY
+}
@@ -0,0 +1,93 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.service.ItemCatalog;
+import com.schoolfeeding.sf_backend.domain.service.ItemService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemCatalog itemCatalog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (UUID id : created) {
+            jdbcTemplate.update("DELETE FROM item WHERE id = ?", id);
+        }
+        itemCatalog.reload();
+    }
+
+    @Test
+    void unchangedCatalogAnswersNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/items"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isEqualTo("\"" + itemCatalog.getVersion() + "\"");
+
+        mockMvc.perform(get("/api/v1/items").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void writeChangesTheETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/items")).andReturn().getResponse().getHeader("ETag");
+
+        Item item = create("Catalog test " + UUID.randomUUID());
+
+        String next = mockMvc.perform(get("/api/v1/items").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == '" + item.getId() + "')]").exists())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(next).isNotEqualTo(etag);
+    }
+
+    @Test
+    void lookupByNameIgnoresCaseAndSurroundingSpace() throws Exception {
+        String name = "Catalog test " + UUID.randomUUID();
+        Item item = create(name);
+
+        mockMvc.perform(get("/api/v1/items/by-name/{name}", "  " + name.toUpperCase() + " "))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(item.getId().toString()));
+        assertThat(itemCatalog.findByName("Catalog test missing")).isEmpty();
+    }
+
+    private Item create(String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setPerStudent(100.0);
+        Item saved = itemService.createItem(item);
+        created.add(saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,111 @@
+package com.schoolfeeding.sf_backend.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderStreamControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID districtId = UUID.randomUUID();
+    private final List<UUID> users = new ArrayList<>();
+    private final List<UUID> schools = new ArrayList<>();
+    private UUID supplier;
+    private UUID school;
+    private String supplierEmail;
+    private String keeperEmail;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'GASABO')",
+                districtId);
+        school = school();
+        supplier = account("SUPPLIER", null);
+        supplierEmail = emailOf(supplier);
+        keeperEmail = emailOf(account("STOCK_KEEPER", school));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID id : users) {
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        }
+        for (UUID id : schools) {
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", id);
+        }
+        jdbcTemplate.update("DELETE FROM district WHERE id = ?", districtId);
+    }
+
+    @Test
+    void anonymousCallerIsRefused() throws Exception {
+        mockMvc.perform(get("/api/v1/streams/suppliers/{id}/orders", supplier))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/streams/schools/{id}/orders", school))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void supplierFollowsOnlyItsOwnOrders() throws Exception {
+        mockMvc.perform(get("/api/v1/streams/suppliers/{id}/orders", supplier).with(user(supplierEmail)))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/v1/streams/suppliers/{id}/orders", account("SUPPLIER", null)).with(user(supplierEmail)))
+                .andExpect(status().isForbidden());
+        // A school user cannot pass itself off as a supplier
+        mockMvc.perform(get("/api/v1/streams/suppliers/{id}/orders", supplier).with(user(keeperEmail)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void schoolStaffFollowOnlyTheirOwnSchool() throws Exception {
+        mockMvc.perform(get("/api/v1/streams/schools/{id}/orders", school).with(user(keeperEmail)))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/v1/streams/schools/{id}/orders", school()).with(user(keeperEmail)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/streams/schools/{id}/orders", school).with(user(supplierEmail)))
+                .andExpect(status().isForbidden());
+    }
+
+    private UUID school() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                "director_name, email, phone_number, student, number_student, district_id) " +
+                "VALUES (?, true, false, 'Stream test', '-', '-', '-', 'stream-test@example.org', '0000', 10, 10, ?)",
+                id, districtId);
+        schools.add(id);
+        return id;
+    }
+
+    private UUID account(String role, UUID schoolId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, active, is_deleted, email, user_names, password, phone_number, " +
+                "role, status, school_id) VALUES (?, true, false, ?, 'Stream test', '-', '0000', ?, 'ACTIVE', ?)",
+                id, "stream-" + id + "@example.org", role, schoolId);
+        users.add(id);
+        return id;
+    }
+
+    private static String emailOf(UUID userId) {
+        return "stream-" + userId + "@example.org";
+    }
+}
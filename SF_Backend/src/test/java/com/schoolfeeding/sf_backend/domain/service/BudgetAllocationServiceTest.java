@@ -0,0 +1,148 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetAllocationResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BudgetShareDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class BudgetAllocationServiceTest {
+
+    @Autowired
+    private BudgetAllocationService budgetAllocationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID budgetId = UUID.randomUUID();
+    private final UUID districtId = UUID.randomUUID();
+    private final List<UUID> schools = new ArrayList<>();
+    private BudgetAllocationRequestDTO request;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'GASABO')",
+                districtId);
+        jdbcTemplate.update("INSERT INTO budget_gov (id, active, is_deleted, budget, fiscal_year, status, description) " +
+                "VALUES (?, true, false, 100, '2026/27', true, 'Allocation test')", budgetId);
+        for (int i = 0; i < 3; i++) {
+            UUID id = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                    "director_name, email, phone_number, student, number_student, district_id) " +
+                    "VALUES (?, true, false, 'Allocation test', '-', '-', '-', 'allocation-test@example.org', '0000', " +
+                    "100, 100, ?)", id, districtId);
+            schools.add(id);
+        }
+
+        // Every other district weighs nothing, so the whole budget lands on the three schools here
+        Map<UUID, Double> weights = new HashMap<>();
+        jdbcTemplate.queryForList("SELECT DISTINCT district_id FROM school WHERE district_id IS NOT NULL", UUID.class)
+                .forEach(d -> weights.put(d, 0.0));
+        weights.put(districtId, 1.0);
+        request = new BudgetAllocationRequestDTO();
+        request.setDistrictWeights(weights);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM budget_school WHERE budget_gov_id = ? " +
+                "OR budget_id IN (SELECT id FROM budget_district WHERE budget_id = ?)", budgetId, budgetId);
+        jdbcTemplate.update("DELETE FROM budget_district WHERE budget_id = ?", budgetId);
+        jdbcTemplate.update("DELETE FROM budget_gov WHERE id = ?", budgetId);
+        for (UUID school : schools) {
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", school);
+        }
+        jdbcTemplate.update("DELETE FROM district WHERE id = ?", districtId);
+    }
+
+    @Test
+    void leftoverCentGoesToOneSchoolAndTheSharesAddUp() {
+        budgetAllocationService.allocate(budgetId, request);
+
+        assertThat(schoolShares()).extracting(BudgetShareDTO::getBudget).containsExactly(33.34, 33.33, 33.33);
+        assertThat(districtShare().getBudget()).isEqualTo(100.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(ROUND(CAST(bs.budget * 100 AS numeric))) FROM budget_school bs " +
+                "WHERE bs.budget_gov_id = ? AND bs.is_deleted = false", Long.class, budgetId)).isEqualTo(10_000L);
+    }
+
+    @Test
+    void rerunWritesOnlyWhatChanged() {
+        BudgetAllocationResultDTO first = budgetAllocationService.allocate(budgetId, request);
+        assertThat(first.getSchoolsInserted()).isEqualTo(first.getSchools());
+
+        BudgetAllocationResultDTO same = budgetAllocationService.allocate(budgetId, request);
+        assertThat(same.getSchoolsInserted() + same.getSchoolsUpdated() + same.getSchoolsRemoved()).isZero();
+        assertThat(same.getDistrictsInserted() + same.getDistrictsUpdated() + same.getDistrictsRemoved()).isZero();
+
+        UUID closed = schools.get(0);
+        UUID rowId = schoolRowId(closed);
+        jdbcTemplate.update("UPDATE school SET active = false WHERE id = ?", closed);
+        BudgetAllocationResultDTO without = budgetAllocationService.allocate(budgetId, request);
+        assertThat(without.getSchoolsRemoved()).isEqualTo(1);
+        assertThat(without.getSchoolsUpdated()).isEqualTo(2);
+        assertThat(schoolShares()).extracting(BudgetShareDTO::getBudget).containsExactly(50.0, 50.0);
+
+        // The school comes back on its old row
+        jdbcTemplate.update("UPDATE school SET active = true WHERE id = ?", closed);
+        BudgetAllocationResultDTO back = budgetAllocationService.allocate(budgetId, request);
+        assertThat(back.getSchoolsInserted()).isZero();
+        assertThat(back.getSchoolsUpdated()).isEqualTo(3);
+        assertThat(schoolRowId(closed)).isEqualTo(rowId);
+    }
+
+    @Test
+    void rowWithoutTheBudgetIdIsStampedOnTheNextRun() {
+        budgetAllocationService.allocate(budgetId, request);
+        UUID rowId = schoolRowId(schools.get(1));
+        jdbcTemplate.update("UPDATE budget_school SET budget_gov_id = NULL WHERE id = ?", rowId);
+
+        BudgetAllocationResultDTO rerun = budgetAllocationService.allocate(budgetId, request);
+
+        assertThat(rerun.getSchoolsUpdated()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT budget_gov_id FROM budget_school WHERE id = ?", UUID.class, rowId))
+                .isEqualTo(budgetId);
+    }
+
+    @Test
+    void schoolHasOneRowPerBudgetAcrossDistricts() {
+        budgetAllocationService.allocate(budgetId, request);
+        UUID otherDistrictRow = jdbcTemplate.queryForObject("SELECT id FROM budget_district WHERE budget_id = ? " +
+                "AND district_id <> ? LIMIT 1", UUID.class, budgetId, districtId);
+
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO budget_school (id, active, is_deleted, budget_id, " +
+                        "budget_gov_id, school_id, budget, budget_status) VALUES (?, true, false, ?, ?, ?, 0, 0)",
+                UUID.randomUUID(), otherDistrictRow, budgetId, schools.get(0)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private List<BudgetShareDTO> schoolShares() {
+        return budgetAllocationService.getSchoolShares(budgetId, districtId);
+    }
+
+    private BudgetShareDTO districtShare() {
+        return budgetAllocationService.getDistrictShares(budgetId).stream()
+                .filter(s -> districtId.equals(s.getTargetId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private UUID schoolRowId(UUID schoolId) {
+        return jdbcTemplate.queryForObject("SELECT id FROM budget_school WHERE budget_gov_id = ? AND school_id = ?",
+                UUID.class, budgetId, schoolId);
+    }
+}
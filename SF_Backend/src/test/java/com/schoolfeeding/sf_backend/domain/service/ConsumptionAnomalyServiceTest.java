@@ -0,0 +1,218 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionPostingDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.ConsumptionAnomalyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsumptionAnomalyServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 3, 2);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ItemCatalog itemCatalog = mock(ItemCatalog.class);
+    // Norm of 10 kg a day: 100 students at 100 g; flagged above 20 kg, below 2.5 kg or 3 deviations out after 5 days
+    private final ConsumptionAnomalyService service = new ConsumptionAnomalyService(
+            mock(ConsumptionAnomalyRepository.class), jdbcTemplate, itemCatalog, 0.1, 5, 3, 2, 0.25, 60);
+
+    private final UUID school = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), any())).thenReturn(List.of(100));
+        Item item = new Item();
+        item.setPerStudent(100.0);
+        when(itemCatalog.findById(any())).thenReturn(Optional.of(item));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void slotsSurviveTheTableGrowing() {
+        ConsumptionAnomalyService.Stats stats = new ConsumptionAnomalyService.Stats(4);
+        List<UUID[]> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Every school shares an item with the one before, so the two ids both matter
+            UUID[] key = {UUID.randomUUID(), i % 2 == 0 ? UUID.randomUUID() : keys.get(i - 1)[1]};
+            int s = stats.slot(key[0], key[1]);
+            stats.open(s, i);
+            stats.absorb(s, i, 1.0);
+            keys.add(key);
+        }
+
+        assertThat(stats.size).isEqualTo(100);
+        assertThat(stats.day.length).isGreaterThanOrEqualTo(256);
+        for (int i = 0; i < keys.size(); i++) {
+            int s = stats.slot(keys.get(i)[0], keys.get(i)[1]);
+            assertThat(stats.day[s]).isEqualTo(i);
+            assertThat(stats.mean[s]).isEqualTo(i);
+            assertThat(stats.days[s]).isEqualTo(1);
+        }
+        assertThat(stats.size).isEqualTo(100);
+
+        int fresh = stats.slot(keys.get(0)[0], keys.get(2)[1]);
+        assertThat(stats.day[fresh]).isEqualTo(ConsumptionAnomalyService.Stats.NO_DAY);
+        assertThat(stats.size).isEqualTo(101);
+    }
+
+    @Test
+    void firstDaysWeighInFullyThenTheWeightSettlesOnAlpha() {
+        ConsumptionAnomalyService.Stats stats = new ConsumptionAnomalyService.Stats(16);
+        int s = stats.slot(UUID.randomUUID(), UUID.randomUUID());
+        for (double x : new double[]{2, 4, 4, 6}) {
+            stats.absorb(s, x, 0.25);
+        }
+        // Plain mean and population variance while 1 / days is above alpha
+        assertThat(stats.mean[s]).isCloseTo(4, offset(1e-9));
+        assertThat(stats.variance[s]).isCloseTo(2, offset(1e-9));
+
+        // From then on a = alpha: mean 4 + 0.25 * 4, variance 0.75 * (2 + 4 * 1)
+        stats.absorb(s, 8, 0.25);
+        assertThat(stats.mean[s]).isCloseTo(5, offset(1e-9));
+        assertThat(stats.variance[s]).isCloseTo(4.5, offset(1e-9));
+        assertThat(stats.days[s]).isEqualTo(5);
+    }
+
+    @Test
+    void deviationsWaitForMinDaysAndNeverUseASpreadBelowATenthOfTheMean() {
+        ConsumptionAnomalyService.Stats stats = new ConsumptionAnomalyService.Stats(16);
+        int s = stats.slot(UUID.randomUUID(), UUID.randomUUID());
+        stats.absorb(s, 10, 0.1);
+        stats.absorb(s, 10, 0.1);
+        assertThat(stats.deviations(s, 13, 3)).isNaN();
+
+        stats.absorb(s, 10, 0.1);
+        // No variance at all, so the spread is 1 kg
+        assertThat(stats.deviations(s, 13, 3)).isCloseTo(3, offset(1e-9));
+
+        stats.absorb(s, 30, 0.1);
+        double spread = Math.sqrt(stats.variance[s]);
+        assertThat(spread).isGreaterThan(0.1 * stats.mean[s]);
+        assertThat(stats.deviations(s, 40, 3)).isCloseTo((40 - stats.mean[s]) / spread, offset(1e-9));
+    }
+
+    @Test
+    void dayAboveTheNormIsFlaggedOnceAsSoonAsItsTotalCrossesIt() {
+        UUID item = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID crossing = UUID.randomUUID();
+
+        List<Object[]> flags = detect(
+                posting(first, item, 15, 0),
+                posting(crossing, item, 6, 0),
+                posting(UUID.randomUUID(), item, 5, 0));
+
+        // Too few days for history: no expected quantity or deviations
+        assertThat(flags).extracting(f -> f[3], f -> f[4], f -> f[5], f -> f[6], f -> f[7], f -> f[8], f -> f[9])
+                .containsExactly(tuple("ABOVE_NORM", 21.0, 210.0, 100.0, null, null, crossing));
+        assertThat(flags.get(0)[2]).isEqualTo(Date.valueOf(START));
+    }
+
+    @Test
+    void dayFarAboveTheSchoolsOwnHistoryIsFlagged() {
+        UUID item = UUID.randomUUID();
+        List<ConsumptionPostingDTO> postings = steadyDays(item, 5);
+        UUID high = UUID.randomUUID();
+        postings.add(posting(high, item, 14, 5));
+
+        List<Object[]> flags = detect(postings.toArray(new ConsumptionPostingDTO[0]));
+
+        // Five days of exactly 10 kg: the spread is its floor of 1 kg, so 14 kg is 4 deviations out
+        assertThat(flags).extracting(f -> f[3], f -> f[4], f -> f[7], f -> f[8], f -> f[9])
+                .containsExactly(tuple("ABOVE_HISTORY", 14.0, 10.0, 4.0, high));
+    }
+
+    @Test
+    void lowDaysAreFlaggedWhenTheNextDayStarts() {
+        UUID historyItem = UUID.randomUUID();
+        UUID normItem = UUID.randomUUID();
+        List<ConsumptionPostingDTO> postings = steadyDays(historyItem, 5);
+        postings.add(posting(UUID.randomUUID(), historyItem, 6, 5));
+        postings.add(posting(UUID.randomUUID(), normItem, 2, 5));
+        assertThat(detect(postings.toArray(new ConsumptionPostingDTO[0]))).isEmpty();
+
+        List<Object[]> flags = detect(
+                posting(UUID.randomUUID(), historyItem, 10, 6),
+                posting(UUID.randomUUID(), normItem, 10, 6));
+
+        // Closed by the next day's posting, so no single stock-out is blamed
+        assertThat(flags).extracting(f -> f[1], f -> f[2], f -> f[3], f -> f[4], f -> f[9])
+                .containsExactly(
+                        tuple(historyItem, Date.valueOf(START.plusDays(5)), "BELOW_HISTORY", 6.0, null),
+                        tuple(normItem, Date.valueOf(START.plusDays(5)), "BELOW_NORM", 2.0, null));
+    }
+
+    @Test
+    void postingForAnEarlierDayIsJudgedAsAWholeDayWithoutClosingTheOpenOne() {
+        UUID highItem = UUID.randomUUID();
+        UUID lowItem = UUID.randomUUID();
+        List<ConsumptionPostingDTO> postings = steadyDays(highItem, 6);
+        postings.addAll(steadyDays(lowItem, 6));
+        assertThat(detect(postings.toArray(new ConsumptionPostingDTO[0]))).isEmpty();
+
+        UUID late = UUID.randomUUID();
+        List<Object[]> flags = detect(
+                posting(late, highItem, 25, -1),
+                posting(UUID.randomUUID(), lowItem, 1, -1));
+
+        LocalDate earlier = START.minusDays(1);
+        assertThat(flags).extracting(f -> f[1], f -> f[2], f -> f[3], f -> f[9])
+                .containsExactly(
+                        tuple(highItem, Date.valueOf(earlier), "ABOVE_NORM", late),
+                        tuple(highItem, Date.valueOf(earlier), "ABOVE_HISTORY", late),
+                        tuple(lowItem, Date.valueOf(earlier), "BELOW_NORM", null),
+                        tuple(lowItem, Date.valueOf(earlier), "BELOW_HISTORY", null));
+
+        // The sixth day is still open: topping it up to 11 kg raises nothing
+        assertThat(detect(posting(UUID.randomUUID(), highItem, 1, 5))).isEmpty();
+    }
+
+    // Runs the postings the way the detector thread does and returns the flags it wrote, if any
+    @SuppressWarnings("unchecked")
+    private List<Object[]> detect(ConsumptionPostingDTO... postings) {
+        clearInvocations(jdbcTemplate);
+        service.detect(List.of(postings));
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atMost(1)).batchUpdate(anyString(), rows.capture());
+        return rows.getAllValues().isEmpty() ? List.of() : rows.getValue();
+    }
+
+    // A day of exactly the norm, every day from START on
+    private List<ConsumptionPostingDTO> steadyDays(UUID item, int count) {
+        List<ConsumptionPostingDTO> postings = new ArrayList<>();
+        for (int d = 0; d < count; d++) {
+            postings.add(posting(UUID.randomUUID(), item, 10, d));
+        }
+        return postings;
+    }
+
+    private ConsumptionPostingDTO posting(UUID stockOut, UUID item, double quantity, int day) {
+        return new ConsumptionPostingDTO(stockOut, school, item, quantity, START.plusDays(day));
+    }
+}
@@ -0,0 +1,174 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionLineDTO;
+import com.schoolfeeding.sf_backend.domain.dto.ConsumptionShortfallDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionBatchDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionBatchResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionDTO;
+import com.schoolfeeding.sf_backend.domain.dto.DailyConsumptionResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class DailyConsumptionServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 9, 14);
+
+    @Autowired
+    private DailyConsumptionService dailyConsumptionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StockTestData data;
+    private UUID rice;
+    private UUID beans;
+
+    @BeforeEach
+    void setUp() {
+        data = new StockTestData(jdbcTemplate);
+        rice = data.item();
+        beans = data.item();
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanUp();
+    }
+
+    @Test
+    void bulkUploadAppliesEachSchoolOnItsOwnAndKeepsUploadOrder() {
+        UUID covered = stocked(20, 20);
+        UUID shortOfBeans = stocked(20, 1);
+        UUID alsoCovered = stocked(5, 5);
+
+        DailyConsumptionBatchResultDTO result = dailyConsumptionService.postAll(batch(
+                day(covered, 6, 4), day(shortOfBeans, 6, 4), day(alsoCovered, 5, 5)));
+
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(result.getRefused()).isEqualTo(1);
+        assertThat(result.getResults()).extracting(DailyConsumptionResultDTO::getSchoolId)
+                .containsExactly(covered, shortOfBeans, alsoCovered);
+        assertThat(result.getResults().get(0).getTotalQuantity()).isEqualTo(10);
+
+        // Refused whole: the covered rice line is not taken either
+        DailyConsumptionResultDTO refused = result.getResults().get(1);
+        assertThat(refused.isApplied()).isFalse();
+        assertThat(refused.getShortfalls()).extracting(ConsumptionShortfallDTO::getItemId).containsExactly(beans);
+        assertThat(data.balanceOf(shortOfBeans, rice)).isEqualTo(20);
+        assertThat(data.balanceOf(shortOfBeans, beans)).isEqualTo(1);
+
+        assertThat(data.balanceOf(covered, rice)).isEqualTo(14);
+        assertThat(data.balanceOf(covered, beans)).isEqualTo(16);
+        assertThat(data.journalled(covered, rice)).isEqualTo(-6);
+        assertThat(data.balanceOf(alsoCovered, rice)).isZero();
+    }
+
+    @Test
+    void dayAlreadyPostedIsRefusedOnRetry() {
+        UUID school = stocked(20, 20);
+
+        assertThat(dailyConsumptionService.post(day(school, 6, 4)).isApplied()).isTrue();
+        DailyConsumptionResultDTO retry = dailyConsumptionService.post(day(school, 6, 4));
+
+        assertThat(retry.isApplied()).isFalse();
+        assertThat(retry.getReason()).contains("already posted");
+        assertThat(data.balanceOf(school, rice)).isEqualTo(14);
+    }
+
+    @Test
+    void sameDayPostedConcurrentlyCountsOnce() throws Exception {
+        UUID school = stocked(100, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<DailyConsumptionResultDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return dailyConsumptionService.post(day(school, 3, 2));
+                }));
+            }
+            start.countDown();
+            int applied = 0;
+            for (Future<DailyConsumptionResultDTO> result : results) {
+                applied += result.get(30, TimeUnit.SECONDS).isApplied() ? 1 : 0;
+            }
+
+            assertThat(applied).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(data.balanceOf(school, rice)).isEqualTo(97);
+        assertThat(data.balanceOf(school, beans)).isEqualTo(98);
+    }
+
+    @Test
+    void sameDayWithDifferentItemsPostedConcurrentlyCountsOnce() throws Exception {
+        UUID school = stocked(100, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            // Rice-only and beans-only uploads lock different balance rows
+            List<Future<DailyConsumptionResultDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                UUID item = i % 2 == 0 ? rice : beans;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return dailyConsumptionService.post(day(school, new ConsumptionLineDTO(item, 1)));
+                }));
+            }
+            start.countDown();
+            int applied = 0;
+            for (Future<DailyConsumptionResultDTO> result : results) {
+                applied += result.get(30, TimeUnit.SECONDS).isApplied() ? 1 : 0;
+            }
+
+            assertThat(applied).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(data.balanceOf(school, rice) + data.balanceOf(school, beans)).isEqualTo(199);
+    }
+
+    private UUID stocked(double riceQuantity, double beansQuantity) {
+        UUID school = data.school();
+        data.balance(school, rice, riceQuantity);
+        data.balance(school, beans, beansQuantity);
+        return school;
+    }
+
+    private DailyConsumptionDTO day(UUID school, double riceQuantity, double beansQuantity) {
+        return day(school, new ConsumptionLineDTO(rice, riceQuantity), new ConsumptionLineDTO(beans, beansQuantity));
+    }
+
+    private static DailyConsumptionDTO day(UUID school, ConsumptionLineDTO... lines) {
+        DailyConsumptionDTO day = new DailyConsumptionDTO();
+        day.setSchoolId(school);
+        day.setFeedingDate(DAY);
+        day.setLines(List.of(lines));
+        return day;
+    }
+
+    private static DailyConsumptionBatchDTO batch(DailyConsumptionDTO... days) {
+        DailyConsumptionBatchDTO batch = new DailyConsumptionBatchDTO();
+        batch.setSchools(List.of(days));
+        return batch;
+    }
+}
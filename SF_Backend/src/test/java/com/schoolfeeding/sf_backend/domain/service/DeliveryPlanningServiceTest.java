@@ -0,0 +1,154 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.DeliveryPlanDTO;
+import com.schoolfeeding.sf_backend.domain.entity.DeliveryBatch;
+import com.schoolfeeding.sf_backend.util.order.EDeliveryBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class DeliveryPlanningServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2091, 4, 1);
+
+    @Autowired
+    private DeliveryPlanningService deliveryPlanningService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID districtId = UUID.randomUUID();
+    private final UUID schoolId = UUID.randomUUID();
+    private final UUID requestId = UUID.randomUUID();
+    private final UUID supplierId = UUID.randomUUID();
+    private final List<UUID> orders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'MUSANZE')",
+                districtId);
+        jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                "director_name, email, phone_number, student, number_student, district_id) " +
+                "VALUES (?, true, false, 'Planning test', '-', '-', '-', 'planning-test@example.org', '0000', " +
+                "100, 100, ?)", schoolId, districtId);
+        jdbcTemplate.update("INSERT INTO request_item (id, active, is_deleted, quantity, district_id, school_id, " +
+                "request_status, version) VALUES (?, true, false, 10, ?, ?, 'COMPLETED', 0)",
+                requestId, districtId, schoolId);
+        jdbcTemplate.update("INSERT INTO users (id, active, is_deleted, email, user_names, password, phone_number, " +
+                "role, status) VALUES (?, true, false, ?, 'Planning test', '-', '0000', 'SUPPLIER', 'ACTIVE')",
+                supplierId, "planning-" + supplierId + "@example.org");
+        jdbcTemplate.update("INSERT INTO supplier (id, tin_number, address, bank, bank_account) " +
+                "VALUES (?, 1, '-', 'BK', '-')", supplierId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID order : orders) {
+            jdbcTemplate.update("DELETE FROM outbox_event WHERE aggregate_id = ?", order);
+            jdbcTemplate.update("DELETE FROM delivery_batch_order WHERE order_id = ?", order);
+            jdbcTemplate.update("DELETE FROM orders WHERE id = ?", order);
+        }
+        jdbcTemplate.update("DELETE FROM delivery_batch WHERE supplier_id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM supplier WHERE id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM request_item WHERE id = ?", requestId);
+        jdbcTemplate.update("DELETE FROM school WHERE id = ?", schoolId);
+        jdbcTemplate.update("DELETE FROM district WHERE id = ?", districtId);
+    }
+
+    @Test
+    void planWindowsApprovedOrdersAndReportsTheUndatedOnes() {
+        UUID first = order(DAY, "APPROVED", 100);
+        UUID second = order(DAY.plusDays(2), "APPROVED", 50);
+        UUID later = order(DAY.plusDays(5), "APPROVED", 20);
+        UUID undated = order(null, "APPROVED", 10);
+        // Already on its way; a dispatch would not move it, so planning leaves it out too
+        order(DAY, "PROCESSING", 30);
+
+        DeliveryPlanDTO plan = deliveryPlanningService.plan(supplierId, 3);
+
+        assertThat(plan.getOrdersPlanned()).isEqualTo(3);
+        assertThat(plan.getOrdersWithoutDate()).isEqualTo(1);
+        assertThat(plan.getOrdersWithoutDateIds()).containsExactly(undated);
+        assertThat(plan.getBatches()).extracting(DeliveryBatch::getWindowStart, DeliveryBatch::getWindowEnd,
+                        DeliveryBatch::getOrderCount, DeliveryBatch::getTotalValue)
+                .containsExactly(
+                        tuple(DAY, DAY.plusDays(2), 2, 150.0),
+                        tuple(DAY.plusDays(5), DAY.plusDays(5), 1, 20.0));
+        assertThat(batchOrders(plan.getBatches().get(0).getId())).containsExactlyInAnyOrder(first, second);
+        assertThat(batchOrders(plan.getBatches().get(1).getId())).containsExactly(later);
+    }
+
+    @Test
+    void replanningReplacesThePlannedBatches() {
+        order(DAY, "APPROVED", 100);
+        order(DAY.plusDays(2), "APPROVED", 50);
+        order(DAY.plusDays(5), "APPROVED", 20);
+        List<UUID> before = deliveryPlanningService.plan(supplierId, 3).getBatches().stream()
+                .map(DeliveryBatch::getId).toList();
+
+        DeliveryPlanDTO wider = deliveryPlanningService.plan(supplierId, 7);
+
+        assertThat(wider.getOrdersPlanned()).isEqualTo(3);
+        assertThat(wider.getBatches()).singleElement().satisfies(b -> assertThat(b.getOrderCount()).isEqualTo(3));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM delivery_batch WHERE supplier_id = ?",
+                Integer.class, supplierId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM delivery_batch_order WHERE order_id = ANY(?)",
+                Integer.class, (Object) orders.toArray(new UUID[0]))).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM delivery_batch WHERE id = ANY(?)",
+                Integer.class, (Object) before.toArray(new UUID[0]))).isZero();
+    }
+
+    @Test
+    void dispatchMovesTheBatchOnAndReplanningLeavesItAlone() {
+        UUID first = order(DAY, "APPROVED", 100);
+        UUID second = order(DAY.plusDays(1), "APPROVED", 50);
+        UUID batchId = deliveryPlanningService.plan(supplierId, 3).getBatches().get(0).getId();
+
+        DeliveryBatch dispatched = deliveryPlanningService.dispatch(batchId);
+
+        assertThat(dispatched.getState()).isEqualTo(EDeliveryBatch.DISPATCHED);
+        assertThat(dispatched.getDispatchedAt()).isNotNull();
+        assertThat(jdbcTemplate.queryForList("SELECT delivery_status FROM orders WHERE id IN (?, ?)", String.class,
+                first, second)).containsOnly("PROCESSING");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE aggregate_id IN (?, ?) " +
+                "AND event_type = 'ORDER_STATUS_CHANGED'", Integer.class, first, second)).isEqualTo(2);
+        assertThatThrownBy(() -> deliveryPlanningService.dispatch(batchId)).isInstanceOf(IllegalStateException.class);
+
+        UUID added = order(DAY.plusDays(1), "APPROVED", 20);
+        DeliveryPlanDTO replan = deliveryPlanningService.plan(supplierId, 3);
+
+        assertThat(replan.getOrdersPlanned()).isEqualTo(1);
+        assertThat(batchOrders(replan.getBatches().get(0).getId())).containsExactly(added);
+        assertThat(deliveryPlanningService.getBatch(batchId).getState()).isEqualTo(EDeliveryBatch.DISPATCHED);
+        assertThat(batchOrders(batchId)).containsExactlyInAnyOrder(first, second);
+    }
+
+    private UUID order(LocalDate deliveryDate, String status, double price) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO orders (id, active, is_deleted, delivery_date, request_item_id, supplier_id, " +
+                "order_price, delivery_status, order_pay_state) VALUES (?, true, false, ?, ?, ?, ?, ?, 'PENDING')",
+                id, deliveryDate == null ? null : java.sql.Date.valueOf(deliveryDate), requestId, supplierId, price,
+                status);
+        orders.add(id);
+        return id;
+    }
+
+    private List<UUID> batchOrders(UUID batchId) {
+        return jdbcTemplate.queryForList("SELECT order_id FROM delivery_batch_order WHERE batch_id = ?",
+                UUID.class, batchId);
+    }
+}
@@ -0,0 +1,133 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+class DemandForecastServiceTest {
+
+    // The application's own smoothing, so refreshing the shared database leaves other schools as they were
+    private static final double ALPHA = 0.3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    @Autowired
+    private ItemCatalog itemCatalog;
+
+    private final LocalDate today = LocalDate.now();
+    private DemandForecastService service;
+    private StockTestData data;
+    private UUID school;
+    private UUID item;
+
+    @BeforeEach
+    void setUp() {
+        service = new DemandForecastService(jdbcTemplate, transactionManager, schoolRepository, itemCatalog,
+                ALPHA, 5, 500, 14);
+        service.init();
+        data = new StockTestData(jdbcTemplate);
+        // 100 students at 100 g: a norm of 10 kg a day
+        school = data.school();
+        item = data.item();
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanUp();
+    }
+
+    @Test
+    void lateDaysInTheWindowAreFoldedAgainFromTheBase() {
+        UUID first = issue(today.minusDays(3), 20);
+        issue(today.minusDays(2), 30);
+        refresh();
+        assertThat(forecast()).containsEntry("observations", 2);
+        assertThat(level()).isCloseTo(fold(10, 20, 30), within(1e-9));
+
+        // Yesterday's consumption is entered after the refresh that closed yesterday
+        issue(today.minusDays(1), 40);
+        service.markConsumptionChanged(today.minusDays(1));
+        refresh();
+        assertThat(forecast()).containsEntry("observations", 3)
+                .containsEntry("last_day", Date.valueOf(today.minusDays(1)))
+                .containsEntry("base_day", Date.valueOf(today.minusDays(15)));
+        assertThat(level()).isCloseTo(fold(10, 20, 30, 40), within(1e-9));
+
+        // A correction inside the window is replayed too
+        jdbcTemplate.update("UPDATE stock_out SET is_deleted = true WHERE id = ?", first);
+        refresh();
+        assertThat(forecast()).containsEntry("observations", 2);
+        assertThat(level()).isCloseTo(fold(10, 30, 40), within(1e-9));
+
+        // Past the window the days are final
+        issue(today.minusDays(20), 500);
+        refresh();
+        assertThat(level()).isCloseTo(fold(10, 30, 40), within(1e-9));
+    }
+
+    @Test
+    void rowFromBeforeTheWindowIsFoldedOnFromItsLevel() {
+        jdbcTemplate.update("INSERT INTO demand_forecast (school_id, item_id, level, observations, last_day, updated_at) " +
+                "VALUES (?, ?, 12, 5, ?, ?)", school, item, Date.valueOf(today.minusDays(2)),
+                Timestamp.valueOf(LocalDateTime.now()));
+        issue(today.minusDays(1), 20);
+
+        refresh();
+
+        assertThat(level()).isCloseTo(fold(12, 20), within(1e-9));
+        assertThat(forecast()).containsEntry("observations", 6)
+                .containsEntry("base_day", Date.valueOf(today.minusDays(2)))
+                .containsEntry("base_observations", 5);
+    }
+
+    private void refresh() {
+        assertThat(service.refresh().getState()).isEqualTo(EJobState.COMPLETED);
+    }
+
+    private UUID issue(LocalDate day, double quantity) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO stock_out (id, active, is_deleted, school_id, item_id, quantity, issued_at, " +
+                "feeding_date) VALUES (?, true, false, ?, ?, ?, ?, ?)", id, school, item, quantity,
+                Timestamp.valueOf(LocalDateTime.now()), Date.valueOf(day));
+        return id;
+    }
+
+    private Map<String, Object> forecast() {
+        return jdbcTemplate.queryForMap("SELECT * FROM demand_forecast WHERE school_id = ? AND item_id = ?", school, item);
+    }
+
+    private double level() {
+        return ((Number) forecast().get("level")).doubleValue();
+    }
+
+    private static double fold(double level, double... days) {
+        for (double x : days) {
+            level = ALPHA * x + (1 - ALPHA) * level;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,86 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.DistrictDTO;
+import com.schoolfeeding.sf_backend.domain.entity.District;
+import com.schoolfeeding.sf_backend.util.address.EDistrict;
+import com.schoolfeeding.sf_backend.util.address.EProvince;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class DistrictRegistryTest {
+
+    @Autowired
+    private DistrictRegistry districtRegistry;
+
+    @Autowired
+    private DistrictService districtService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<UUID> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (UUID id : created) {
+            jdbcTemplate.update("DELETE FROM district WHERE id = ?", id);
+        }
+        districtRegistry.reload();
+    }
+
+    @Test
+    void everyEnumDistrictHasARow() {
+        for (EDistrict district : EDistrict.values()) {
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM district WHERE district = ?", Integer.class,
+                    district.name())).as(district.name()).isPositive();
+        }
+    }
+
+    @Test
+    void createdDistrictIsServedOnlyOnceCommitted() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        UUID id = tx.execute(status -> {
+            District district = districtService.createDistrict(dto());
+            created.add(district.getId());
+            assertThat(districtRegistry.findById(district.getId())).isEmpty();
+            return district.getId();
+        });
+
+        assertThat(districtRegistry.findById(id)).isPresent();
+        assertThat(districtRegistry.findAll()).extracting(District::getId).contains(id);
+    }
+
+    @Test
+    void rolledBackCreateIsNeverServed() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        UUID id = tx.execute(status -> {
+            District district = districtService.createDistrict(dto());
+            status.setRollbackOnly();
+            return district.getId();
+        });
+
+        assertThat(districtRegistry.findById(id)).isEmpty();
+    }
+
+    private static DistrictDTO dto() {
+        DistrictDTO dto = new DistrictDTO();
+        dto.setDistrict(EDistrict.MUSANZE);
+        dto.setProvince(EProvince.NORTHERN);
+        return dto;
+    }
+}
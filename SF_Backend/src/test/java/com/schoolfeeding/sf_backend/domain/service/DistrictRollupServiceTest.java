@@ -0,0 +1,83 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class DistrictRollupServiceTest {
+
+    @Autowired
+    private DistrictRollupService districtRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> districts = new ArrayList<>();
+    private final List<UUID> schools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (UUID school : schools) {
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", school);
+        }
+        for (UUID district : districts) {
+            jdbcTemplate.update("DELETE FROM district_rollup WHERE district_id = ?", district);
+            jdbcTemplate.update("DELETE FROM district WHERE id = ?", district);
+        }
+    }
+
+    @Test
+    void districtWithoutProvinceTakesItsDistrictsProvince() {
+        UUID musanze = district("MUSANZE", null, false);
+        school(musanze, 40);
+        school(musanze, 60);
+
+        districtRollupService.reconcile();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT province, school_count, student_count FROM district_rollup WHERE district_id = ?", musanze);
+        assertThat(row.get("province")).isEqualTo("NORTHERN");
+        assertThat(((Number) row.get("school_count")).longValue()).isEqualTo(2);
+        assertThat(((Number) row.get("student_count")).longValue()).isEqualTo(100);
+    }
+
+    @Test
+    void deletedDistrictDropsOutOfTheRollup() {
+        UUID huye = district("HUYE", "SOUTHERN", true);
+        school(huye, 30);
+        jdbcTemplate.update("INSERT INTO district_rollup (district_id, province, school_count, student_count) " +
+                "VALUES (?, 'SOUTHERN', 1, 30)", huye);
+
+        districtRollupService.reconcile();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM district_rollup WHERE district_id = ?",
+                Integer.class, huye)).isZero();
+    }
+
+    private UUID district(String name, String province, boolean deleted) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district, province) VALUES (?, true, ?, ?, ?)",
+                id, deleted, name, province);
+        districts.add(id);
+        return id;
+    }
+
+    private void school(UUID districtId, int students) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                "director_name, email, phone_number, student, number_student, district_id) " +
+                "VALUES (?, true, false, 'Rollup test', '-', '-', '-', 'rollup-test@example.org', '0000', ?, ?, ?)",
+                id, students, students, districtId);
+        schools.add(id);
+    }
+}
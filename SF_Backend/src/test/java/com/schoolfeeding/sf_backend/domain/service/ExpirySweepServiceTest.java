@@ -0,0 +1,102 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.ExpirySweepRun;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest
+class ExpirySweepServiceTest {
+
+    @Autowired
+    private ExpirySweepService expirySweepService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StockTestData data;
+    private UUID schoolId;
+    private UUID itemId;
+    private UUID lotId;
+    private final List<UUID> runs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        data = new StockTestData(jdbcTemplate);
+        schoolId = data.school();
+        itemId = data.item();
+        data.balance(schoolId, itemId, 5);
+        lotId = data.lot(schoolId, itemId, 5, LocalDate.now().minusDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID run : runs) {
+            jdbcTemplate.update("DELETE FROM stock_write_off WHERE run_id = ?", run);
+            jdbcTemplate.update("DELETE FROM outbox_event WHERE aggregate_id IN (SELECT id FROM expiry_alert WHERE run_id = ?)", run);
+            jdbcTemplate.update("DELETE FROM expiry_alert WHERE run_id = ?", run);
+            jdbcTemplate.update("DELETE FROM expiry_sweep_run WHERE id = ?", run);
+        }
+        data.cleanUp();
+    }
+
+    @Test
+    void runLeftFromAnEarlierDayIsAbandonedForAFreshSweep() {
+        // Resuming this one would start past every lot and write nothing off
+        UUID stale = run(EJobState.RUNNING, LocalDate.now().minusDays(1), LocalDate.now().plusYears(1));
+
+        ExpirySweepRun run = sweep();
+
+        assertThat(run.getId()).isNotEqualTo(stale);
+        assertThat(run.getRunDate()).isEqualTo(LocalDate.now());
+        assertThat(expirySweepService.getRun(stale).getState()).isEqualTo(EJobState.FAILED);
+        assertThat(expirySweepService.getRun(stale).getError()).startsWith("Abandoned");
+        assertThat(jdbcTemplate.queryForObject("SELECT remaining_quantity FROM stock_in WHERE id = ?",
+                Double.class, lotId)).isZero();
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+    }
+
+    @Test
+    void failedSweepOfTodayIsResumed() {
+        UUID failed = run(EJobState.FAILED, LocalDate.now(), null);
+
+        assertThat(sweep().getId()).isEqualTo(failed);
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+    }
+
+    private ExpirySweepRun sweep() {
+        ExpirySweepRun started = expirySweepService.start();
+        runs.add(started.getId());
+        await().atMost(30, TimeUnit.SECONDS)
+                .until(() -> expirySweepService.getRun(started.getId()).getState() != EJobState.RUNNING);
+        ExpirySweepRun finished = expirySweepService.getRun(started.getId());
+        assertThat(finished.getState()).isEqualTo(EJobState.COMPLETED);
+        return finished;
+    }
+
+    private UUID run(EJobState state, LocalDate runDate, LocalDate checkpoint) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO expiry_sweep_run (id, state, run_date, horizon_days, checkpoint_expiration_date, " +
+                        "checkpoint_stock_in_id, lots_scanned, lots_expired, quantity_written_off, lots_expiring, started_at) " +
+                        "VALUES (?, ?, ?, 7, ?, ?, 0, 0, 0, 0, ?)",
+                id, state.name(), Date.valueOf(runDate), checkpoint == null ? null : Date.valueOf(checkpoint),
+                checkpoint == null ? null : new UUID(-1, -1), Timestamp.valueOf(runDate.atStartOfDay()));
+        runs.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,36 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.GovernmentDashboardDTO;
+import com.schoolfeeding.sf_backend.domain.dto.ProvinceStatsDTO;
+import com.schoolfeeding.sf_backend.domain.repository.BudgetGovRepository;
+import com.schoolfeeding.sf_backend.util.address.EProvince;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GovernmentDashboardServiceTest {
+
+    @Test
+    void districtsWithoutProvinceAreCountedUnderUnknown() {
+        BudgetGovRepository budgetRepo = mock(BudgetGovRepository.class);
+        DistrictRegistry districtRegistry = mock(DistrictRegistry.class);
+        DistrictRollupService rollupService = mock(DistrictRollupService.class);
+        when(budgetRepo.findAll()).thenReturn(List.of());
+        when(rollupService.getTotalStudents()).thenReturn(600L);
+        when(rollupService.getProvinceStats()).thenReturn(List.of(
+                new ProvinceStatsDTO(EProvince.NORTHERN, 2, 400),
+                new ProvinceStatsDTO(null, 1, 200)));
+
+        GovernmentDashboardDTO dashboard =
+                new GovernmentDashboardService(budgetRepo, districtRegistry, rollupService).getDashboard();
+
+        assertThat(dashboard.getParticipationByProvince())
+                .containsEntry("NORTHERN", 400L)
+                .containsEntry("Unknown", 200L);
+        assertThat(dashboard.getFeedingParticipationRate()).isEqualTo(100.0);
+    }
+}
@@ -0,0 +1,149 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyService service = new IdempotencyService(new ObjectMapper(), 60, 10_000, 5);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void retryWithSameKeyAndBodyReplaysFirstResult() {
+        Map<String, Object> body = Map.of("quantity", 5);
+
+        int first = service.execute("orders", "k1", body, calls::incrementAndGet);
+        int second = service.execute("orders", "k1", Map.of("quantity", 5), calls::incrementAndGet);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRefused() {
+        service.execute("orders", "k1", Map.of("quantity", 5), calls::incrementAndGet);
+
+        assertThatThrownBy(() -> service.execute("orders", "k1", Map.of("quantity", 6), calls::incrementAndGet))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void keysAreScoped() {
+        service.execute("orders", "k1", Map.of(), calls::incrementAndGet);
+        service.execute("stock-ins", "k1", Map.of(), calls::incrementAndGet);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void blankKeyAlwaysRuns() {
+        service.execute("orders", " ", Map.of(), calls::incrementAndGet);
+        service.execute("orders", null, Map.of(), calls::incrementAndGet);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void keyIsReleasedWhenTheActionFails() {
+        assertThatThrownBy(() -> service.execute("orders", "k1", Map.of(), () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.execute("orders", "k1", Map.of(), calls::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    void keyIsReleasedWhenTheActionThrowsAnError() {
+        assertThatThrownBy(() -> service.execute("orders", "k1", Map.of(), () -> {
+            throw new AssertionError("boom");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThat(service.execute("orders", "k1", Map.of(), calls::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRetryWaitsForTheFirstCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = pool.submit(() -> service.execute("orders", "k1", Map.of(), () -> {
+                started.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Integer> retry = pool.submit(() -> service.execute("orders", "k1", Map.of(), calls::incrementAndGet));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(calls).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void boundEvictsOnlyCompletedResultsAndRefusesWhenAllAreInFlight() throws Exception {
+        IdempotencyService small = new IdempotencyService(new ObjectMapper(), 60, 2, 5);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // k1 is registered before k2, so it is the older of the two
+            Future<Integer> first = pool.submit(() -> small.execute("orders", "k1", Map.of(), () -> {
+                firstStarted.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Integer> second = pool.submit(() -> small.execute("orders", "k2", Map.of(), () -> {
+                secondStarted.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            assertThat(secondStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Both slots are in flight: a new key is refused rather than evicting one of them
+            assertThatThrownBy(() -> small.execute("orders", "k3", Map.of(), calls::incrementAndGet))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isPositive();
+            int k2 = second.get(5, TimeUnit.SECONDS);
+            assertThat(calls).hasValue(2);
+
+            // Once they are done, the oldest completed result makes room
+            assertThat(small.execute("orders", "k3", Map.of(), calls::incrementAndGet)).isEqualTo(3);
+            assertThat(small.execute("orders", "k2", Map.of(), calls::incrementAndGet)).isEqualTo(k2);
+            assertThat(small.execute("orders", "k1", Map.of(), calls::incrementAndGet)).isEqualTo(4);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class OrderEventBroadcasterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    private final List<OrderEventBroadcaster> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(OrderEventBroadcaster::stop);
+    }
+
+    @Test
+    void eventRelayedOnOneInstanceReachesTheHubsOfAll() {
+        // An id no real outbox row has, so the application's own listener finds nothing to send
+        OutboxEvent event = event(-ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+        OrderEventHub relayingHub = mock(OrderEventHub.class);
+        OrderEventHub otherHub = mock(OrderEventHub.class);
+        OrderEventBroadcaster relaying = broadcaster(relayingHub, event);
+        broadcaster(otherHub, event);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> started.stream().allMatch(OrderEventBroadcaster::isListening));
+
+        relaying.onEvent(event);
+
+        verify(relayingHub, timeout(5_000)).onEvent(event);
+        verify(otherHub, timeout(5_000)).onEvent(event);
+    }
+
+    @Test
+    void singleInstanceModeHandsEventsStraightToTheHub() {
+        OutboxEvent event = event(1L);
+        OrderEventHub hub = mock(OrderEventHub.class);
+        OutboxEventRepository repository = mock(OutboxEventRepository.class);
+        OrderEventBroadcaster local = new OrderEventBroadcaster(hub, repository, jdbcTemplate, dataSourceProperties,
+                false, 100, 100);
+        local.start();
+
+        local.onEvent(event);
+
+        verify(hub).onEvent(event);
+        verifyNoInteractions(repository);
+    }
+
+    private OrderEventBroadcaster broadcaster(OrderEventHub hub, OutboxEvent event) {
+        OutboxEventRepository repository = mock(OutboxEventRepository.class);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(event));
+        OrderEventBroadcaster broadcaster = new OrderEventBroadcaster(hub, repository, jdbcTemplate,
+                dataSourceProperties, true, 100, 100);
+        broadcaster.start();
+        started.add(broadcaster);
+        return broadcaster;
+    }
+
+    private static OutboxEvent event(long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setDispatchSeq(1L);
+        event.setEventType(EOutboxEvent.ORDER_CREATED);
+        return event;
+    }
+}
@@ -0,0 +1,152 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderEventHubTest {
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final UUID supplierId = UUID.randomUUID();
+    private final Queue<RecordingEmitter> emitters = new ArrayDeque<>();
+    private final OrderEventHub hub = new OrderEventHub(repository, 60_000, 4, 50, 2) {
+        @Override
+        SseEmitter newEmitter() {
+            return emitters.remove();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void resumeReplaysFromTheDispatchSequenceAndSkipsTheLiveCopy() {
+        RecordingEmitter client = expectEmitter();
+        OutboxEvent replayed = event(10L, 5L);
+        OutboxEvent inFlight = event(11L, 6L);
+        when(repository.findSupplierOrderEventsAfter(eq(supplierId), eq(4L), anyInt())).thenAnswer(inv -> {
+            // Fanned out while the replay was being read: waits behind it and is not sent twice
+            hub.onEvent(inFlight);
+            return List.of(replayed, inFlight);
+        });
+
+        hub.subscribeSupplier(supplierId, 4L);
+        hub.onEvent(event(9L, 7L));
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertThat(client.ids()).containsExactly("5", "6", "7"));
+        assertThat(hub.getStatus().getEventsReplayed()).isEqualTo(2);
+        assertThat(hub.getStatus().getEventsSent()).isEqualTo(1);
+    }
+
+    @Test
+    void writeBlockedPastTheSendTimeoutIsEvictedWithoutStallingOthers() throws Exception {
+        RecordingEmitter stuck = expectEmitter();
+        RecordingEmitter healthy = expectEmitter();
+        stuck.block = new CountDownLatch(1);
+        UUID otherSupplier = UUID.randomUUID();
+
+        hub.subscribeSupplier(supplierId, null);
+        hub.subscribeSupplier(otherSupplier, null);
+        hub.onEvent(event(1L, 1L));
+        assertThat(stuck.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+
+        hub.heartbeat();
+
+        assertThat(hub.getStatus().getSlowConsumersEvicted()).isEqualTo(1);
+        assertThat(hub.getStatus().getConnections()).isEqualTo(1);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertThat(healthy.sent).anyMatch(e -> e.contains("ping")));
+        stuck.block.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> stuck.completed);
+    }
+
+    @Test
+    void fullBufferEvictsTheConnection() {
+        RecordingEmitter slow = expectEmitter();
+        slow.block = new CountDownLatch(1);
+
+        hub.subscribeSupplier(supplierId, null);
+        for (long seq = 1; seq <= 6; seq++) {
+            hub.onEvent(event(seq, seq));
+        }
+
+        assertThat(hub.getStatus().getSlowConsumersEvicted()).isEqualTo(1);
+        assertThat(hub.getStatus().getConnections()).isZero();
+        slow.block.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> slow.completed);
+    }
+
+    private RecordingEmitter expectEmitter() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    private OutboxEvent event(long id, long dispatchSeq) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setDispatchSeq(dispatchSeq);
+        event.setEventType(EOutboxEvent.ORDER_STATUS_CHANGED);
+        event.setSupplierId(supplierId);
+        event.setPayload("{}");
+        return event;
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private volatile CountDownLatch block;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            writing.countDown();
+            if (block != null) {
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        private List<String> ids() {
+            return sent.stream()
+                    .filter(e -> e.startsWith("id:"))
+                    .map(e -> e.substring(3, e.indexOf('\n')))
+                    .toList();
+        }
+    }
+}
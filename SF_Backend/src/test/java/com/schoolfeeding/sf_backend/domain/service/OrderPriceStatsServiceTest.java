@@ -0,0 +1,195 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.OrderPriceStatDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Orders;
+import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderPriceStatsServiceTest {
+
+    private static final LocalDate MAY = LocalDate.of(2026, 5, 1);
+
+    @Autowired
+    private OrderPriceStatsService orderPriceStatsService;
+
+    @Autowired
+    private OrdersService ordersService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID districtId = UUID.randomUUID();
+    private final List<UUID> items = new ArrayList<>();
+    private final List<UUID> requests = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'GASABO')",
+                districtId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID request : requests) {
+            jdbcTemplate.update("DELETE FROM orders WHERE request_item_id = ?", request);
+            jdbcTemplate.update("DELETE FROM request_items WHERE request_id = ?", request);
+            jdbcTemplate.update("DELETE FROM request_item WHERE id = ?", request);
+        }
+        jdbcTemplate.update("DELETE FROM order_price_stat WHERE district_id = ?", districtId);
+        for (UUID item : items) {
+            jdbcTemplate.update("DELETE FROM item WHERE id = ?", item);
+        }
+        jdbcTemplate.update("DELETE FROM district WHERE id = ?", districtId);
+    }
+
+    @Test
+    void singleItemOrderIsPricedPerUnit() {
+        UUID rice = item();
+
+        record(request(10, rice), 50, MAY.plusDays(9));
+        record(request(4, rice), 10, MAY.plusDays(20));
+
+        OrderPriceStatDTO may = stats(rice).get(0);
+        assertThat(stats(rice)).hasSize(1);
+        assertThat(may.getMonth()).isEqualTo(MAY);
+        assertThat(may.getOrders()).isEqualTo(2);
+        assertThat(may.getMin()).isEqualTo(2.5);
+        assertThat(may.getMax()).isEqualTo(5);
+    }
+
+    @Test
+    void multiItemOrderIsNotChargedToEachItem() {
+        UUID rice = item();
+        UUID beans = item();
+
+        record(request(10, rice), 50, MAY.plusDays(9));
+        record(request(10, rice, beans), 500, MAY.plusDays(9));
+
+        assertThat(stats(rice)).singleElement().satisfies(s -> {
+            assertThat(s.getOrders()).isEqualTo(1);
+            assertThat(s.getMax()).isEqualTo(5);
+        });
+        assertThat(stats(beans)).isEmpty();
+    }
+
+    @Test
+    void undatedOrderIsLeftOutAsTheBackfillLeavesIt() {
+        UUID rice = item();
+
+        record(request(10, rice), 50, null);
+
+        assertThat(stats(rice)).isEmpty();
+    }
+
+    @Test
+    void orderIsCountedWhenItIsFirstGivenADate() {
+        UUID rice = item();
+        UUID request = request(10, rice);
+        UUID order = order(request, 50, null);
+
+        ordersService.updateOrder(order, details(request, 50, MAY.plusDays(9)));
+        assertThat(stats(rice)).singleElement().satisfies(s -> {
+            assertThat(s.getOrders()).isEqualTo(1);
+            assertThat(s.getMax()).isEqualTo(5);
+        });
+
+        // Moving an already dated order does not count it again
+        ordersService.updateOrder(order, details(request, 50, MAY.plusDays(12)));
+        assertThat(stats(rice)).singleElement().satisfies(s -> assertThat(s.getOrders()).isEqualTo(1));
+    }
+
+    @Test
+    void figuresOfOlderRulesAreRebuiltAtStartup() {
+        UUID rice = item();
+        order(request(10, rice), 50, MAY.plusDays(9));
+        jdbcTemplate.update("INSERT INTO order_price_stat (item_id, district_id, month, order_count, price_sum, " +
+                "price_min, price_max, sketch, updated_at, rules_version) " +
+                "VALUES (?, ?, ?, 3, 150, 50, 50, ?::int[], now(), 0)", rice, districtId, Date.valueOf(MAY),
+                new Integer[PriceSketch.SIZE]);
+
+        orderPriceStatsService.backfill();
+        orderPriceStatsService.backfill();
+
+        assertThat(stats(rice)).singleElement().satisfies(s -> {
+            assertThat(s.getOrders()).isEqualTo(1);
+            assertThat(s.getMin()).isEqualTo(5);
+            assertThat(s.getMax()).isEqualTo(5);
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_price_stat WHERE rules_version <> ?",
+                Integer.class, OrderPriceStatsService.RULES_VERSION)).isZero();
+    }
+
+    private UUID item() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO item (id, active, is_deleted, item_name, gram_per_student) " +
+                "VALUES (?, true, false, ?, 100)", id, "Price test " + id);
+        items.add(id);
+        return id;
+    }
+
+    private UUID request(double quantity, UUID... requested) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO request_item (id, active, is_deleted, quantity, district_id, request_status, version) " +
+                "VALUES (?, true, false, ?, ?, 'COMPLETED', 0)", id, quantity, districtId);
+        for (UUID item : requested) {
+            jdbcTemplate.update("INSERT INTO request_items (request_id, item_id) VALUES (?, ?)", id, item);
+        }
+        requests.add(id);
+        return id;
+    }
+
+    private UUID order(UUID requestId, double price, LocalDate deliveryDate) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO orders (id, active, is_deleted, request_item_id, delivery_date, order_price, " +
+                "delivery_status, order_pay_state) VALUES (?, true, false, ?, ?, ?, 'APPROVED', 'PENDING')",
+                id, requestId, deliveryDate == null ? null : Date.valueOf(deliveryDate), price);
+        return id;
+    }
+
+    private static Orders details(UUID requestId, double price, LocalDate deliveryDate) {
+        RequestItem request = new RequestItem();
+        request.setId(requestId);
+        Orders order = new Orders();
+        order.setRequestItem(request);
+        order.setOrderPrice(price);
+        order.setDeliveryDate(Date.valueOf(deliveryDate));
+        order.setDeliveryStatus(EDelivery.APPROVED);
+        order.setOrderPayState(EOrderPay.PENDING);
+        return order;
+    }
+
+    private void record(UUID requestId, double price, LocalDate deliveryDate) {
+        RequestItem request = new RequestItem();
+        request.setId(requestId);
+        Orders order = new Orders();
+        order.setRequestItem(request);
+        order.setOrderPrice(price);
+        order.setDeliveryDate(deliveryDate == null ? null : Date.valueOf(deliveryDate));
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> orderPriceStatsService.record(order));
+    }
+
+    private List<OrderPriceStatDTO> stats(UUID itemId) {
+        return orderPriceStatsService.getPriceStats(itemId, districtId, MAY.minusMonths(1), MAY.plusMonths(12), false);
+    }
+}
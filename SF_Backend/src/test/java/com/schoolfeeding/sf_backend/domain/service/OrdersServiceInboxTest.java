@@ -0,0 +1,121 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.OrderInboxDTO;
+import com.schoolfeeding.sf_backend.domain.dto.OrderInboxPageDTO;
+import com.schoolfeeding.sf_backend.util.order.EDelivery;
+import com.schoolfeeding.sf_backend.util.order.EOrderPay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class OrdersServiceInboxTest {
+
+    // Newest delivery first, then id, as Postgres orders uuids (unsigned bytes, same as their hex text)
+    private static final Comparator<Row> INBOX_ORDER = Comparator
+            .comparing((Row r) -> r.date == null ? LocalDate.MIN : r.date, Comparator.reverseOrder())
+            .thenComparing(r -> r.id.toString(), Comparator.reverseOrder());
+
+    @Autowired
+    private OrdersService ordersService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID supplierId = UUID.randomUUID();
+    private final List<Row> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (id, active, is_deleted, user_names, email, phone_number, password, role, status) " +
+                "VALUES (?, true, false, 'Inbox test', 'inbox-test@example.org', '0000', '-', 'SUPPLIER', 'ACTIVE')", supplierId);
+        jdbcTemplate.update("INSERT INTO supplier (id, address, bank_account, tin_number) VALUES (?, 'Inbox test', '-', ?)",
+                supplierId, ThreadLocalRandom.current().nextInt(100_000_000, Integer.MAX_VALUE));
+        LocalDate day = LocalDate.of(2026, 5, 1);
+        for (int i = 0; i < 23; i++) {
+            // Several orders share a delivery day so the id breaks ties; the last few have no date
+            LocalDate date = i < 19 ? day.plusDays(i / 3) : null;
+            EDelivery status = i % 2 == 0 ? EDelivery.APPROVED : EDelivery.PROCESSING;
+            Row row = new Row(UUID.randomUUID(), date, status);
+            jdbcTemplate.update("INSERT INTO orders (id, active, is_deleted, supplier_id, delivery_date, delivery_status, " +
+                            "order_pay_state, order_price) VALUES (?, true, ?, ?, ?, ?, ?, 10)",
+                    row.id, i == 7, supplierId, date != null ? Date.valueOf(date) : null, status.name(),
+                    EOrderPay.PENDING.name());
+            if (i != 7) {
+                rows.add(row);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM orders WHERE supplier_id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM supplier WHERE id = ?", supplierId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", supplierId);
+    }
+
+    @Test
+    void pagesThroughDatedThenUndatedWithoutGapsOrRepeats() {
+        assertThat(readAll(null, 4)).containsExactlyElementsOf(expected(null));
+    }
+
+    @Test
+    void statusFilterPagesOnlyMatchingOrders() {
+        assertThat(readAll(EDelivery.APPROVED, 3)).containsExactlyElementsOf(expected(EDelivery.APPROVED));
+    }
+
+    @Test
+    void pageSizeMatchingTheDatedRowsMovesOnToTheUndatedTail() {
+        long dated = rows.stream().filter(r -> r.date != null).count();
+        OrderInboxPageDTO first = ordersService.getSupplierInbox(supplierId, null, null, null, (int) dated);
+
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getOrders()).allMatch(o -> o.getDeliveryDate() != null);
+        assertThat(ordersService.getSupplierInbox(supplierId, null, null, first.getNextCursor(), 100).getOrders())
+                .allMatch(o -> o.getDeliveryDate() == null)
+                .hasSize(rows.size() - (int) dated);
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> ordersService.getSupplierInbox(supplierId, null, null, "nonsense", 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<UUID> readAll(EDelivery status, int size) {
+        List<UUID> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderInboxPageDTO page = ordersService.getSupplierInbox(supplierId, status, null, cursor, size);
+            assertThat(page.getOrders().size()).isLessThanOrEqualTo(size);
+            page.getOrders().stream().map(OrderInboxDTO::getId).forEach(ids::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<UUID> expected(EDelivery status) {
+        return rows.stream()
+                .filter(r -> status == null || r.status == status)
+                .sorted(INBOX_ORDER)
+                .map(r -> r.id)
+                .toList();
+    }
+
+    private record Row(UUID id, LocalDate date, EDelivery status) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.OutboxEvent;
+import com.schoolfeeding.sf_backend.domain.repository.OutboxEventRepository;
+import com.schoolfeeding.sf_backend.util.outbox.EOutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RecordingListener audit = new RecordingListener("Audit");
+    private final RecordingListener stream = new RecordingListener("Stream");
+    private OutboxEvent event;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        event = new OutboxEvent();
+        event.setId(42L);
+        event.setDispatchSeq(7L);
+        event.setEventType(EOutboxEvent.ORDER_CREATED);
+        event.setAggregateId(UUID.randomUUID());
+        event.setCreatedAt(LocalDateTime.now());
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE SKIP LOCKED"), eq(Long.class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(List.of(42L))
+                .thenReturn(List.of());
+        when(repository.findAllById(List.of(42L))).thenReturn(List.of(event));
+        relay = new OutboxRelay(repository, List.of(audit, stream), jdbcTemplate, 200, 1, 10, 7, 60);
+    }
+
+    @Test
+    void publishesWhenEveryListenerSucceeds() {
+        relay.relay();
+
+        assertThat(audit.seen).containsExactly(42L);
+        assertThat(stream.seen).containsExactly(42L);
+        verify(jdbcTemplate).update(contains("published_at = ?"), any(Object[].class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedListenerIsRetriedAloneWithTheOthersRecorded() {
+        stream.failuresLeft = 1;
+
+        relay.relay();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> failed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("delivered_to"), failed.capture());
+        Object[] row = failed.getValue().get(0);
+        assertThat((String[]) row[1]).containsExactly("Audit");
+        assertThat(row[2]).isEqualTo(42L);
+        verify(jdbcTemplate, never()).update(contains("published_at = ?"), any(Object[].class));
+
+        // The retry comes back with what was recorded
+        event.setDeliveredTo((String[]) row[1]);
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE SKIP LOCKED"), eq(Long.class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(List.of(42L));
+        relay.relay();
+
+        assertThat(audit.seen).containsExactly(42L);
+        assertThat(stream.seen).containsExactly(42L, 42L);
+        verify(jdbcTemplate).update(contains("published_at = ?"), any(Object[].class));
+    }
+
+    @Test
+    void nothingClaimedDispatchesNothing() {
+        reset(jdbcTemplate);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt(), anyInt(), anyInt())).thenReturn(List.of());
+
+        relay.relay();
+
+        assertThat(audit.seen).isEmpty();
+        verify(repository, never()).findAllById(any());
+    }
+
+    private static final class RecordingListener implements OutboxListener {
+
+        private final String name;
+        private final List<Long> seen = new ArrayList<>();
+        private int failuresLeft;
+
+        RecordingListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean supports(EOutboxEvent eventType) {
+            return true;
+        }
+
+        @Override
+        public void onEvent(OutboxEvent event) {
+            seen.add(event.getId());
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("listener down");
+            }
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
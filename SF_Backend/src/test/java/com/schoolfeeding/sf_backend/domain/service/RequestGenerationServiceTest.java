@@ -0,0 +1,162 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.RequestGenerationStatusDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
+import com.schoolfeeding.sf_backend.domain.repository.StockRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class RequestGenerationServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 2);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 6);
+
+    // A period no real run uses, so the markers here are the test's own
+    private static final LocalDate TEST_FROM = LocalDate.of(2091, 3, 5);
+    private static final LocalDate TEST_TO = LocalDate.of(2091, 3, 9);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID districtId = UUID.randomUUID();
+    private final List<UUID> schools = new ArrayList<>();
+    private final List<Item> items = new ArrayList<>();
+    private RequestGenerationService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+        for (UUID school : schools) {
+            jdbcTemplate.update("DELETE FROM request_items WHERE request_id IN " +
+                    "(SELECT id FROM request_item WHERE school_id = ?)", school);
+            jdbcTemplate.update("DELETE FROM request_item WHERE school_id = ?", school);
+            jdbcTemplate.update("DELETE FROM request_generation WHERE school_id = ?", school);
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", school);
+        }
+        for (Item item : items) {
+            jdbcTemplate.update("DELETE FROM item WHERE id = ?", item.getId());
+        }
+        jdbcTemplate.update("DELETE FROM district WHERE id = ?", districtId);
+    }
+
+    @Test
+    void rejectedSubmitReleasesTheRunningFlag() {
+        service = new RequestGenerationService(mock(RequirementPlanner.class),
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), 200, 0, false);
+        service.shutdown();
+
+        assertThatThrownBy(() -> service.start(FROM, TO, null)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(service.getStatus().getState()).isEqualTo(EJobState.FAILED);
+        // Not locked as "already in progress": the next attempt gets as far as the executor again
+        assertThatThrownBy(() -> service.start(FROM, TO, null)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void chunksWriteEveryRequestWithItsItemAndRerunInsertsNothing() {
+        service = serviceOver(5, 2);
+
+        RequestGenerationStatusDTO first = run();
+        // Five schools in chunks of two: three transactions, each writing its own requests
+        assertThat(first.getSchoolsProcessed()).isEqualTo(5);
+        assertThat(first.getSchoolsSkipped()).isZero();
+        assertThat(first.getRequestsCreated()).isEqualTo(10);
+        assertThat(requestCount()).isEqualTo(10);
+        assertThat(linkCount()).isEqualTo(10);
+        assertThat(markerCount()).isEqualTo(5);
+        // 100 students x 100 g x 5 days, with nothing in stock
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT quantity FROM request_item WHERE school_id = ANY(?)",
+                Double.class, (Object) schools.toArray(new UUID[0]))).containsExactly(50.0);
+
+        RequestGenerationStatusDTO second = run();
+        assertThat(second.getSchoolsSkipped()).isEqualTo(5);
+        assertThat(second.getRequestsCreated()).isZero();
+        assertThat(requestCount()).isEqualTo(10);
+        assertThat(linkCount()).isEqualTo(10);
+        assertThat(markerCount()).isEqualTo(5);
+    }
+
+    private RequestGenerationService serviceOver(int schoolCount, int chunkSize) {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'GASABO')",
+                districtId);
+        List<SchoolHeadcountDTO> headcounts = new ArrayList<>();
+        for (int i = 0; i < schoolCount; i++) {
+            UUID id = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                    "director_name, email, phone_number, student, number_student, district_id) " +
+                    "VALUES (?, true, false, 'Generation test', '-', '-', '-', 'generation-test@example.org', '0000', " +
+                    "100, 100, ?)", id, districtId);
+            schools.add(id);
+            headcounts.add(new SchoolHeadcountDTO(id, "Generation test", districtId, 100));
+        }
+        for (int j = 0; j < 2; j++) {
+            Item item = new Item();
+            item.setId(UUID.randomUUID());
+            item.setName("Generation test " + item.getId());
+            item.setPerStudent(100.0);
+            jdbcTemplate.update("INSERT INTO item (id, active, is_deleted, item_name, gram_per_student) " +
+                    "VALUES (?, true, false, ?, 100)", item.getId(), item.getName());
+            items.add(item);
+        }
+
+        ItemCatalog itemCatalog = mock(ItemCatalog.class);
+        when(itemCatalog.getItems()).thenReturn(items);
+        RequirementPlan plan = new RequirementPlanner(mock(SchoolRepository.class), mock(StockRepository.class),
+                itemCatalog, mock(DistrictRegistry.class), mock(DemandForecastService.class))
+                .plan(TEST_FROM, TEST_TO, null, headcounts, List.of(), false);
+        RequirementPlanner planner = mock(RequirementPlanner.class);
+        when(planner.plan(TEST_FROM, TEST_TO, null)).thenReturn(plan);
+        return new RequestGenerationService(planner, jdbcTemplate, transactionManager, chunkSize, 0, false);
+    }
+
+    private RequestGenerationStatusDTO run() {
+        service.start(TEST_FROM, TEST_TO, null);
+        await().atMost(30, TimeUnit.SECONDS).until(() -> service.getStatus().getState() != EJobState.RUNNING);
+        RequestGenerationStatusDTO status = service.getStatus();
+        assertThat(status.getState()).isEqualTo(EJobState.COMPLETED);
+        return status;
+    }
+
+    private int requestCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM request_item WHERE school_id = ANY(?) " +
+                "AND period_start = ? AND request_status = 'PENDING'", Integer.class,
+                schools.toArray(new UUID[0]), Date.valueOf(TEST_FROM));
+    }
+
+    private int linkCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM request_items ri JOIN request_item r ON r.id = ri.request_id " +
+                "WHERE r.school_id = ANY(?) AND ri.item_id = ANY(?)", Integer.class,
+                schools.toArray(new UUID[0]), items.stream().map(Item::getId).toArray(UUID[]::new));
+    }
+
+    private int markerCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM request_generation WHERE school_id = ANY(?)",
+                Integer.class, (Object) schools.toArray(new UUID[0]));
+    }
+}
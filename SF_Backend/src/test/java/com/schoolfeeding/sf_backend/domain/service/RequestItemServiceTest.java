@@ -0,0 +1,208 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.BulkStatusResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StatusConflictDTO;
+import com.schoolfeeding.sf_backend.domain.dto.VersionedIdDTO;
+import com.schoolfeeding.sf_backend.domain.entity.RequestItem;
+import com.schoolfeeding.sf_backend.util.order.ERequest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class RequestItemServiceTest {
+
+    @Autowired
+    private RequestItemService requestItemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID districtId = UUID.randomUUID();
+    private final UUID otherDistrictId = UUID.randomUUID();
+    private final List<UUID> schools = new ArrayList<>();
+    private final List<UUID> requests = new ArrayList<>();
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'GASABO')",
+                districtId);
+        jdbcTemplate.update("INSERT INTO district (id, active, is_deleted, district) VALUES (?, true, false, 'HUYE')",
+                otherDistrictId);
+        itemId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO item (id, active, is_deleted, item_name, gram_per_student) " +
+                "VALUES (?, true, false, ?, 100)", itemId, "Request test " + itemId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID request : requests) {
+            jdbcTemplate.update("DELETE FROM request_items WHERE request_id = ?", request);
+            jdbcTemplate.update("DELETE FROM request_item WHERE id = ?", request);
+        }
+        for (UUID school : schools) {
+            jdbcTemplate.update("DELETE FROM request_item WHERE school_id = ?", school);
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", school);
+        }
+        jdbcTemplate.update("DELETE FROM item WHERE id = ?", itemId);
+        jdbcTemplate.update("DELETE FROM district WHERE id IN (?, ?)", districtId, otherDistrictId);
+    }
+
+    @Test
+    void searchFiltersOnStatusDistrictAndSchool() {
+        UUID school = school(districtId);
+        UUID otherSchool = school(otherDistrictId);
+        UUID pending = request(school, districtId, "PENDING", false);
+        UUID rejected = request(school, districtId, "REJECTED", false);
+        UUID elsewhere = request(otherSchool, otherDistrictId, "PENDING", false);
+        request(school, districtId, "PENDING", true);
+
+        assertThat(ids(requestItemService.searchRequestItems(null, null, school, PageRequest.of(0, 10))))
+                .containsExactlyInAnyOrder(pending, rejected);
+        assertThat(ids(requestItemService.searchRequestItems(ERequest.PENDING, districtId, null, PageRequest.of(0, 10))))
+                .containsExactly(pending);
+        assertThat(ids(requestItemService.searchRequestItems(ERequest.PENDING, null, otherSchool, PageRequest.of(0, 10))))
+                .containsExactly(elsewhere);
+        assertThat(requestItemService.searchRequestItems(ERequest.COMPLETED, districtId, null, PageRequest.of(0, 10)))
+                .isEmpty();
+    }
+
+    @Test
+    void pageLoadsItsAssociationsInAFixedNumberOfQueries() {
+        UUID school = school(districtId);
+        for (int i = 0; i < 5; i++) {
+            request(school, districtId, "PENDING", false);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        boolean enabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            Page<RequestItem> page = new TransactionTemplate(transactionManager).execute(tx -> {
+                Page<RequestItem> p = requestItemService.searchRequestItems(null, null, school,
+                        PageRequest.of(0, 4, Sort.by("id")));
+                p.forEach(r -> {
+                    assertThat(r.getSchool().getDistrict().getId()).isEqualTo(districtId);
+                    assertThat(r.getItems()).extracting("id").containsExactly(itemId);
+                });
+                return p;
+            });
+
+            assertThat(page.getTotalElements()).isEqualTo(5);
+            assertThat(page.getTotalPages()).isEqualTo(2);
+            assertThat(page.getContent()).hasSize(4);
+            // Rows with district and school joined, the count, and one batch for the items of the page
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        } finally {
+            statistics.setStatisticsEnabled(enabled);
+        }
+
+        assertThat(requestItemService.searchRequestItems(null, null, school, PageRequest.of(1, 4, Sort.by("id"))))
+                .hasSize(1);
+    }
+
+    @Test
+    void staleVersionsComeBackAsConflictsInEveryBatch() {
+        UUID school = school(districtId);
+        // More than two batches of 500
+        List<Object[]> rows = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1_100; i++) {
+            UUID id = UUID.randomUUID();
+            rows.add(new Object[]{id, districtId, school});
+            ids.add(id);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO request_item (id, active, is_deleted, quantity, district_id, school_id, " +
+                "request_status, version) VALUES (?, true, false, 10, ?, ?, 'PENDING', 0)", rows);
+        // Someone else edited one row in each batch since the client read them
+        List<UUID> changed = List.of(ids.get(10), ids.get(600), ids.get(1_050));
+        for (UUID id : changed) {
+            jdbcTemplate.update("UPDATE request_item SET description = 'edited', version = version + 1 WHERE id = ?", id);
+        }
+
+        BulkStatusRequestDTO request = bulk(ERequest.COMPLETED, ids, 0L);
+        BulkStatusResultDTO result = requestItemService.bulkUpdateStatus(request);
+
+        assertThat(result.getUpdated()).isEqualTo(1_097);
+        assertThat(result.getConflicts()).extracting(StatusConflictDTO::getId).containsExactlyElementsOf(changed);
+        assertThat(result.getConflicts()).allSatisfy(c -> {
+            assertThat(c.getReason()).isEqualTo(StatusConflictDTO.STALE_VERSION);
+            assertThat(c.getCurrentVersion()).isEqualTo(1L);
+            assertThat(c.getCurrentStatus()).isEqualTo(ERequest.PENDING);
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM request_item WHERE school_id = ? " +
+                "AND request_status = 'COMPLETED' AND version = 1", Integer.class, school)).isEqualTo(1_097);
+
+        // Replaying the same request now fails on every row: the versions moved on
+        BulkStatusResultDTO replay = requestItemService.bulkUpdateStatus(bulk(ERequest.REJECTED, ids, 0L));
+        assertThat(replay.getUpdated()).isZero();
+        assertThat(replay.getConflicts()).hasSize(1_100)
+                .extracting(StatusConflictDTO::getReason).containsOnly(StatusConflictDTO.STALE_VERSION);
+    }
+
+    @Test
+    void bulkUpdateRequiresAVersion() {
+        UUID pending = request(school(districtId), districtId, "PENDING", false);
+
+        assertThatThrownBy(() -> requestItemService.bulkUpdateStatus(bulk(ERequest.COMPLETED, List.of(pending), null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT request_status FROM request_item WHERE id = ?",
+                String.class, pending)).isEqualTo("PENDING");
+    }
+
+    private static BulkStatusRequestDTO bulk(ERequest status, List<UUID> ids, Long version) {
+        BulkStatusRequestDTO request = new BulkStatusRequestDTO();
+        request.setStatus(status);
+        request.setItems(ids.stream().map(id -> new VersionedIdDTO(id, version)).toList());
+        return request;
+    }
+
+    private UUID school(UUID district) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                "director_name, email, phone_number, student, number_student, district_id) " +
+                "VALUES (?, true, false, 'Request test', '-', '-', '-', 'request-test@example.org', '0000', " +
+                "100, 100, ?)", id, district);
+        schools.add(id);
+        return id;
+    }
+
+    private UUID request(UUID school, UUID district, String status, boolean deleted) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO request_item (id, active, is_deleted, quantity, district_id, school_id, " +
+                "request_status, version) VALUES (?, true, ?, 10, ?, ?, ?, 0)", id, deleted, district, school, status);
+        jdbcTemplate.update("INSERT INTO request_items (request_id, item_id) VALUES (?, ?)", id, itemId);
+        requests.add(id);
+        return id;
+    }
+
+    private static List<UUID> ids(Page<RequestItem> page) {
+        return page.getContent().stream().map(RequestItem::getId).toList();
+    }
+}
@@ -0,0 +1,124 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.SchoolHeadcountDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockLevelDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.repository.SchoolRepository;
+import com.schoolfeeding.sf_backend.domain.repository.StockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequirementPlannerTest {
+
+    // Enough schools for several levels of fork-join splitting
+    private static final int SCHOOLS = 1_500;
+    private static final int DAYS = 5;
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 2);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 6);
+
+    private final List<UUID> districts = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    private final List<SchoolHeadcountDTO> schools = new ArrayList<>();
+    private final List<StockLevelDTO> stock = new ArrayList<>();
+    private List<Item> items;
+    private DemandForecastService demandForecastService;
+    private RequirementPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        items = List.of(item(150), item(40));
+        for (int i = 0; i < SCHOOLS; i++) {
+            // Every tenth school has no district and must stay out of the district totals
+            UUID districtId = i % 10 == 9 ? null : districts.get(i % districts.size());
+            SchoolHeadcountDTO school = new SchoolHeadcountDTO(UUID.randomUUID(), "School " + i, districtId,
+                    i % 7 == 0 ? null : 100 + i);
+            schools.add(school);
+            stock.add(new StockLevelDTO(school.getSchoolId(), items.get(i % 2).getId(), i));
+        }
+        // Stock of a school outside the plan is ignored
+        stock.add(new StockLevelDTO(UUID.randomUUID(), items.get(0).getId(), 1_000_000));
+
+        ItemCatalog itemCatalog = mock(ItemCatalog.class);
+        when(itemCatalog.getItems()).thenReturn(items);
+        demandForecastService = mock(DemandForecastService.class);
+        planner = new RequirementPlanner(mock(SchoolRepository.class), mock(StockRepository.class), itemCatalog,
+                mock(DistrictRegistry.class), demandForecastService);
+    }
+
+    @Test
+    void normPlanMatchesSerialComputation() {
+        RequirementPlan plan = planner.plan(FROM, TO, null, schools, stock, false);
+
+        assertThat(plan.getFeedingDays()).isEqualTo(DAYS);
+        assertMatchesSerial(plan, null);
+    }
+
+    @Test
+    void forecastPlanUsesForecastWhereThereIsHistory() {
+        double[] forecast = new double[SCHOOLS * items.size()];
+        Arrays.fill(forecast, Double.NaN);
+        for (int i = 0; i < SCHOOLS; i += 3) {
+            forecast[i * items.size()] = 2.5 + i;
+        }
+        when(demandForecastService.dailyDemand(any(), any())).thenReturn(forecast);
+
+        RequirementPlan plan = planner.plan(FROM, TO, null, schools, stock, true);
+
+        assertThat(plan.required(0, 0)).isEqualTo(2.5 * DAYS);
+        assertMatchesSerial(plan, forecast);
+    }
+
+    @Test
+    void rejectsInvertedPeriod() {
+        assertThatThrownBy(() -> planner.plan(TO, FROM, null, schools, stock, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertMatchesSerial(RequirementPlan plan, double[] forecast) {
+        int m = items.size();
+        double[] districtRequired = new double[districts.size() * m];
+        double[] districtStock = new double[districts.size() * m];
+        for (int i = 0; i < SCHOOLS; i++) {
+            SchoolHeadcountDTO school = schools.get(i);
+            int students = school.getNumberStudent() != null ? school.getNumberStudent() : 0;
+            for (int j = 0; j < m; j++) {
+                double expected = forecast != null && !Double.isNaN(forecast[i * m + j])
+                        ? forecast[i * m + j] * DAYS
+                        : students * DAYS * items.get(j).getPerStudent() / 1000.0;
+                double inStock = j == i % 2 ? i : 0;
+                assertThat(plan.required(i, j)).isCloseTo(expected, within(1e-9));
+                assertThat(plan.inStock(i, j)).isEqualTo(inStock);
+                if (school.getDistrictId() != null) {
+                    int k = plan.getDistrictIds().indexOf(school.getDistrictId());
+                    districtRequired[k * m + j] += expected;
+                    districtStock[k * m + j] += inStock;
+                }
+            }
+        }
+        assertThat(plan.getDistrictIds()).containsExactlyInAnyOrderElementsOf(districts);
+        for (int x = 0; x < districtRequired.length; x++) {
+            assertThat(plan.getDistrictRequired()[x]).isCloseTo(districtRequired[x], within(1e-6));
+            assertThat(plan.getDistrictStock()[x]).isCloseTo(districtStock[x], within(1e-6));
+        }
+    }
+
+    private static Item item(double gramsPerStudent) {
+        Item item = new Item();
+        item.setId(UUID.randomUUID());
+        item.setName("Item " + gramsPerStudent);
+        item.setPerStudent(gramsPerStudent);
+        return item;
+    }
+}
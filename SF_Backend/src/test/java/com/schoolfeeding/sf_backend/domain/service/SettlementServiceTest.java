@@ -0,0 +1,206 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.SettlementRun;
+import com.schoolfeeding.sf_backend.domain.repository.SettlementRunRepository;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest
+class SettlementServiceTest {
+
+    @Autowired
+    private SettlementRunRepository settlementRunRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private SupplierMatchingService supplierMatchingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path outputDir;
+
+    // Chunks settled so far, and the chunk that "loses the database"; 0 never fails
+    private final AtomicInteger chunks = new AtomicInteger();
+    private final AtomicInteger failOnChunk = new AtomicInteger();
+    private final List<UUID> users = new ArrayList<>();
+    private final List<UUID> orders = new ArrayList<>();
+    private final List<UUID> runs = new ArrayList<>();
+    private SettlementService service;
+
+    @BeforeEach
+    void setUp() {
+        // The run settles every delivered, unpaid order; the shared database must have none of its own
+        assumeThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE delivery_status = 'DELIVERED' " +
+                "AND order_pay_state = 'PENDING' AND is_deleted = false", Integer.class)).isZero();
+        assumeThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM settlement_run WHERE state <> 'COMPLETED'",
+                Integer.class)).isZero();
+
+        JdbcTemplate counting = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) {
+                if (sql.contains("FOR UPDATE OF o SKIP LOCKED") && chunks.incrementAndGet() == failOnChunk.get()) {
+                    throw new IllegalStateException("Connection lost");
+                }
+                super.query(sql, rch, args);
+            }
+        };
+        service = new SettlementService(settlementRunRepository, outboxService, supplierMatchingService, counting,
+                transactionManager, outputDir.toString(), 2, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service == null) {
+            return;
+        }
+        service.shutdown();
+        for (UUID run : runs) {
+            jdbcTemplate.update("DELETE FROM settlement_line WHERE run_id = ?", run);
+            jdbcTemplate.update("DELETE FROM settlement_run WHERE id = ?", run);
+        }
+        for (UUID order : orders) {
+            jdbcTemplate.update("DELETE FROM outbox_event WHERE aggregate_id = ?", order);
+            jdbcTemplate.update("DELETE FROM orders WHERE id = ?", order);
+        }
+        for (UUID user : users) {
+            jdbcTemplate.update("DELETE FROM supplier WHERE id = ?", user);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user);
+        }
+    }
+
+    @Test
+    void chunksPayEveryOrderAndWriteOneFilePerBank() throws Exception {
+        UUID bkOne = supplier("A supplier", "BK");
+        UUID bkTwo = supplier("B supplier", "BK");
+        UUID equity = supplier("C supplier", "EQUITY");
+        UUID noBank = supplier("D supplier", null);
+        order(bkOne, 100);
+        order(bkOne, 50);
+        order(bkTwo, 10);
+        order(equity, 20);
+        order(equity, 30);
+        UUID unpaid = order(noBank, 70);
+
+        SettlementRun run = awaitFinished(service.start().getId());
+
+        assertThat(run.getState()).isEqualTo(EJobState.COMPLETED);
+        // Five orders in chunks of two, then the empty chunk that ends the loop
+        assertThat(chunks).hasValue(4);
+        assertThat(run.getOrdersSettled()).isEqualTo(5);
+        assertThat(run.getTotalAmount()).isEqualTo(210);
+        assertThat(run.getOrdersWithoutBank()).isEqualTo(1);
+        assertThat(run.getAmountWithoutBank()).isEqualTo(70);
+        assertThat(payState(unpaid)).isEqualTo("PENDING");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE aggregate_id = ANY(?) " +
+                "AND event_type = 'ORDER_STATUS_CHANGED'", Integer.class, (Object) orders.toArray(new UUID[0])))
+                .isEqualTo(5);
+
+        assertThat(run.getFilesWritten()).isEqualTo(2);
+        assertThat(Files.readAllLines(outputDir.resolve(run.getId() + "/BK.csv"))).containsExactly(
+                "supplier_id,supplier_name,tin_number,bank_account,orders,amount",
+                bkOne + ",A supplier,1,ACC-" + bkOne + ",2,150.00",
+                bkTwo + ",B supplier,1,ACC-" + bkTwo + ",1,10.00");
+        assertThat(Files.readAllLines(outputDir.resolve(run.getId() + "/EQUITY.csv")))
+                .endsWith(equity + ",C supplier,1,ACC-" + equity + ",2,50.00");
+    }
+
+    @Test
+    void failedRunIsResumedByIdAndBlocksNewRunsUntilThen() throws Exception {
+        UUID supplier = supplier("A supplier", "BK");
+        for (int i = 0; i < 5; i++) {
+            order(supplier, 10);
+        }
+
+        failOnChunk.set(2);
+        SettlementRun failed = awaitFinished(service.start().getId());
+        assertThat(failed.getState()).isEqualTo(EJobState.FAILED);
+        assertThat(failed.getOrdersSettled()).isEqualTo(2);
+
+        assertThatThrownBy(() -> service.start())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        failOnChunk.set(0);
+        // The worker releases its running flag just after saving the FAILED state
+        await().atMost(5, TimeUnit.SECONDS).ignoreException(IllegalStateException.class)
+                .until(() -> service.resume(failed.getId()), Objects::nonNull);
+        SettlementRun resumed = awaitFinished(failed.getId());
+        assertThat(resumed.getId()).isEqualTo(failed.getId());
+        assertThat(resumed.getState()).isEqualTo(EJobState.COMPLETED);
+        assertThat(resumed.getOrdersSettled()).isEqualTo(5);
+        assertThat(resumed.getTotalAmount()).isEqualTo(50);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM settlement_line WHERE run_id = ?",
+                Integer.class, failed.getId())).isEqualTo(5);
+        assertThat(Files.readAllLines(outputDir.resolve(failed.getId() + "/BK.csv")))
+                .endsWith(supplier + ",A supplier,1,ACC-" + supplier + ",5,50.00");
+
+        assertThatThrownBy(() -> service.resume(failed.getId()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    private SettlementRun awaitFinished(UUID runId) {
+        runs.add(runId);
+        await().atMost(30, TimeUnit.SECONDS).until(() -> service.getRun(runId).getState() != EJobState.RUNNING);
+        return service.getRun(runId);
+    }
+
+    private UUID supplier(String name, String bank) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, active, is_deleted, email, user_names, password, phone_number, " +
+                "role, status) VALUES (?, true, false, ?, ?, '-', '0000', 'SUPPLIER', 'ACTIVE')",
+                id, "settlement-" + id + "@example.org", name);
+        jdbcTemplate.update("INSERT INTO supplier (id, tin_number, address, bank, bank_account) VALUES (?, 1, '-', ?, ?)",
+                id, bank, "ACC-" + id);
+        users.add(id);
+        return id;
+    }
+
+    private UUID order(UUID supplierId, double price) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO orders (id, active, is_deleted, delivery_date, supplier_id, order_price, " +
+                "delivery_status, order_pay_state) VALUES (?, true, false, CURRENT_DATE, ?, ?, 'DELIVERED', 'PENDING')",
+                id, supplierId, price);
+        orders.add(id);
+        return id;
+    }
+
+    private String payState(UUID orderId) {
+        return jdbcTemplate.queryForObject("SELECT order_pay_state FROM orders WHERE id = ?", String.class, orderId);
+    }
+}
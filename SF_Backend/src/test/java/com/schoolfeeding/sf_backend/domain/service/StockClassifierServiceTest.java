@@ -0,0 +1,142 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockClassificationStatusDTO;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import com.schoolfeeding.sf_backend.util.stock.EStock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockClassifierServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StockClassifierService service = new StockClassifierService(jdbcTemplate, 14, 3, 7, 250, 2);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void scheduledRunReturnsWhileTheRunIsStillGoing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(UUID.class))).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.<UUID>of();
+        });
+
+        service.scheduledRun();
+
+        assertThat(service.getStatus().getState()).isEqualTo(EJobState.RUNNING);
+        // A second tick while the first is running is skipped, a manual run is refused
+        service.scheduledRun();
+        assertThatThrownBy(service::classifyAll).isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> service.getStatus().getState() == EJobState.COMPLETED);
+        assertThat(service.classifyAll().getState()).isEqualTo(EJobState.COMPLETED);
+    }
+
+    @Test
+    void classifyCutsAtTheCriticalAndLowDaysOfSupply() {
+        // 3 and 7 days of supply are the thresholds, each belonging to the class above it
+        assertThat(service.classify(0, 10)).isEqualTo(EStock.CRITICAL);
+        assertThat(service.classify(-5, 10)).isEqualTo(EStock.CRITICAL);
+        assertThat(service.classify(29.9, 10)).isEqualTo(EStock.CRITICAL);
+        assertThat(service.classify(30, 10)).isEqualTo(EStock.LOW);
+        assertThat(service.classify(69.9, 10)).isEqualTo(EStock.LOW);
+        assertThat(service.classify(70, 10)).isEqualTo(EStock.NORMAL);
+        // No use at all: any positive balance lasts
+        assertThat(service.classify(1, 0)).isEqualTo(EStock.NORMAL);
+    }
+
+    @Test
+    void balancesWithoutRecentIssuesFallBackOnTheNormAndOnlyChangedRowsAreWritten() {
+        UUID steady = UUID.randomUUID();
+        UUID runningLow = UUID.randomUUID();
+        UUID neverClassified = UUID.randomUUID();
+        UUID normLow = UUID.randomUUID();
+        UUID normCritical = UUID.randomUUID();
+        UUID noNorm = UUID.randomUUID();
+        // 140 kg over the 14-day window is 10 kg a day; 200 students at 100 g is a norm of 20 kg a day
+        rows(row(steady, 100, "NORMAL", 200, 100, 140),
+                row(runningLow, 50, "NORMAL", 200, 100, 140),
+                row(neverClassified, 20, null, 200, 100, 140),
+                row(normLow, 100, "LOW", 200, 100, 0),
+                row(normCritical, 40, "NORMAL", 200, 100, 0),
+                row(noNorm, 5, "NORMAL", 0, 100, 0));
+
+        StockClassificationStatusDTO status = service.classifyAll();
+
+        assertThat(status.getState()).isEqualTo(EJobState.COMPLETED);
+        assertThat(status.getRowsScanned()).isEqualTo(6);
+        assertThat(status.getRowsChanged()).isEqualTo(3);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        assertThat(updates.getValue()).containsExactly(
+                new Object[]{"LOW", runningLow},
+                new Object[]{"CRITICAL", neverClassified},
+                new Object[]{"CRITICAL", normCritical});
+    }
+
+    @Test
+    void nothingIsWrittenWhenNoClassChanged() {
+        rows(row(UUID.randomUUID(), 100, "NORMAL", 200, 100, 140),
+                row(UUID.randomUUID(), 100, "LOW", 200, 100, 0));
+
+        assertThat(service.classifyAll().getRowsChanged()).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    // One school whose balances are the given rows
+    private void rows(ResultSet... rows) {
+        when(jdbcTemplate.queryForList(anyString(), eq(UUID.class))).thenReturn(List.of(UUID.randomUUID()));
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+    }
+
+    private static ResultSet row(UUID id, double quantity, String state, int students, double gramPerStudent,
+                                 double consumed) {
+        ResultSet rs = mock(ResultSet.class);
+        try {
+            when(rs.getObject("id", UUID.class)).thenReturn(id);
+            when(rs.getDouble("quantity")).thenReturn(quantity);
+            when(rs.getString("stock_state")).thenReturn(state);
+            when(rs.getInt("number_student")).thenReturn(students);
+            when(rs.getDouble("gram_per_student")).thenReturn(gramPerStudent);
+            when(rs.getDouble("consumed")).thenReturn(consumed);
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return rs;
+    }
+}
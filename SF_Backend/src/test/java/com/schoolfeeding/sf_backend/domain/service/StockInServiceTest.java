@@ -0,0 +1,162 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockLotDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.entity.School;
+import com.schoolfeeding.sf_backend.domain.entity.StockIn;
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class StockInServiceTest {
+
+    @Autowired
+    private StockInService stockInService;
+
+    @Autowired
+    private StockOutService stockOutService;
+
+    @Autowired
+    private StockLotService stockLotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StockTestData data;
+    private UUID schoolId;
+    private UUID otherSchoolId;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        data = new StockTestData(jdbcTemplate);
+        schoolId = data.school();
+        otherSchoolId = data.school();
+        itemId = data.item();
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanUp();
+    }
+
+    @Test
+    void drawnLotCannotMoveToAnotherSchool() {
+        StockIn lot = stockInService.createStockIn(stockIn(schoolId, 10));
+        stockOutService.createStockOut(stockOut(schoolId, 4));
+
+        assertThatThrownBy(() -> stockInService.updateStockIn(lot.getId(), stockIn(otherSchoolId, 10)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(6);
+        assertThat(stockLotService.getOpenLots(schoolId, itemId))
+                .extracting(StockLotDTO::getRemainingQuantity).containsExactly(6.0);
+
+        // Its quantity can still be corrected in place
+        stockInService.updateStockIn(lot.getId(), stockIn(schoolId, 12));
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(8);
+    }
+
+    @Test
+    void untouchedLotMovesWithItsBalance() {
+        StockIn lot = stockInService.createStockIn(stockIn(schoolId, 10));
+
+        stockInService.updateStockIn(lot.getId(), stockIn(otherSchoolId, 10));
+
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+        assertThat(data.balanceOf(otherSchoolId, itemId)).isEqualTo(10);
+        assertThat(stockLotService.getOpenLots(otherSchoolId, itemId)).hasSize(1);
+    }
+
+    @Test
+    void lotGivesBackNoMoreThanItStillHolds() {
+        StockIn lot = stockInService.createStockIn(stockIn(schoolId, 10));
+        stockOutService.createStockOut(stockOut(schoolId, 4));
+
+        // 6 kg left in the lot: cutting it to 3 would take back 7
+        assertThatThrownBy(() -> stockInService.updateStockIn(lot.getId(), stockIn(schoolId, 3)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThatThrownBy(() -> stockInService.deleteStockIn(lot.getId()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(6);
+
+        stockInService.updateStockIn(lot.getId(), stockIn(schoolId, 4));
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+        assertThat(stockLotService.getOpenLots(schoolId, itemId)).isEmpty();
+    }
+
+    @Test
+    void correctionRefusedWhenTheBalanceNoLongerCoversIt() {
+        StockIn lot = stockInService.createStockIn(stockIn(schoolId, 10));
+        // Taken off the balance by a writer that does not draw from lots
+        jdbcTemplate.update("UPDATE stock SET quantity = 2 WHERE school_id = ? AND item_id = ?", schoolId, itemId);
+
+        assertThatThrownBy(() -> stockInService.deleteStockIn(lot.getId()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(2);
+        assertThat(stockInService.getStockInById(lot.getId()).getIsDeleted()).isFalse();
+
+        stockInService.updateStockIn(lot.getId(), stockIn(schoolId, 9));
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(1);
+    }
+
+    @Test
+    void expiringListsOnlyOpenLotsOffThePartialIndexes() {
+        stockLotService.migrateOpenLots();
+        UUID open = data.lot(schoolId, itemId, 5, LocalDate.now().plusDays(1));
+        UUID drawnDown = data.lot(schoolId, itemId, 5, LocalDate.now());
+        jdbcTemplate.update("UPDATE stock_in SET remaining_quantity = 0 WHERE id = ?", drawnDown);
+
+        assertThat(stockLotService.getExpiring(schoolId, 3, 10)).extracting(StockLotDTO::getStockInId).containsExactly(open);
+        assertThat(jdbcTemplate.queryForList("SELECT indexdef FROM pg_indexes WHERE tablename = 'stock_in' " +
+                "AND indexname IN ('idx_stock_in_open_expiry', 'idx_stock_in_open_school')", String.class))
+                .hasSize(2)
+                .allMatch(def -> def.contains("WHERE ((remaining_quantity > (0)::double precision) AND (is_deleted = false))"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_indexes WHERE indexname = 'idx_stock_in_expiry'",
+                Integer.class)).isZero();
+    }
+
+    private StockIn stockIn(UUID school, double quantity) {
+        StockIn stockIn = new StockIn();
+        stockIn.setSchool(school(school));
+        stockIn.setItem(item());
+        stockIn.setQuantity(quantity);
+        return stockIn;
+    }
+
+    private StockOut stockOut(UUID school, double quantity) {
+        StockOut stockOut = new StockOut();
+        stockOut.setSchool(school(school));
+        stockOut.setItem(item());
+        stockOut.setQuantity(quantity);
+        return stockOut;
+    }
+
+    private static School school(UUID id) {
+        School school = new School();
+        school.setId(id);
+        return school;
+    }
+
+    private Item item() {
+        Item item = new Item();
+        item.setId(itemId);
+        return item;
+    }
+}
@@ -0,0 +1,177 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueRequestDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockIssueResultDTO;
+import com.schoolfeeding.sf_backend.domain.dto.StockMovementStatsDTO;
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.entity.School;
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest
+class StockMovementServiceTest {
+
+    private static final int BALANCE = 3_000;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private StockOutService stockOutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private StockTestData data;
+    private UUID schoolId;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        data = new StockTestData(jdbcTemplate);
+        schoolId = data.school();
+        itemId = data.item();
+        data.balance(schoolId, itemId, BALANCE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanUp();
+    }
+
+    @Test
+    void concurrentIssuesTakeExactlyTheBalanceAndNoMore() throws Exception {
+        // More unit issues than the balance, through the batching path and the plain stock-out path at once
+        int issues = BALANCE + 400;
+        int stockOuts = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        int batchedIssues = 0;
+        stockMovementService.resetStats();
+        try {
+            for (int i = 0; i < issues + stockOuts; i++) {
+                boolean batched = i % ((issues + stockOuts) / stockOuts) != 0;
+                batchedIssues += batched ? 1 : 0;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return batched ? issue() : stockOut();
+                }));
+            }
+            start.countDown();
+            long taken = 0;
+            for (Future<Boolean> result : results) {
+                taken += result.get(60, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertThat(taken).isEqualTo(BALANCE);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+        assertThat(data.journalled(schoolId, itemId)).isEqualTo(-BALANCE);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM stock_out WHERE school_id = ?",
+                Double.class, schoolId)).isEqualTo(BALANCE);
+
+        // Figures depend on the machine, so only their consistency is asserted; the rest is logged
+        StockMovementStatsDTO stats = stockMovementService.getStats();
+        log.info("Concurrent issues: {} issues in {} batches (average {}, largest {}), {} ms average latency, {}/s",
+                stats.getIssues(), stats.getBatches(), stats.getAverageBatchSize(), stats.getLargestBatch(),
+                stats.getAverageLatencyMillis(), stats.getThroughputPerSecond());
+        assertThat(stats.getIssues()).isEqualTo(batchedIssues);
+        assertThat(stats.getApplied() + stats.getRefused()).isEqualTo(batchedIssues);
+        assertThat(stats.getBatches()).isBetween(1L, (long) batchedIssues);
+        assertThat(stats.getAverageBatchSize()).isEqualTo((double) batchedIssues / stats.getBatches());
+        assertThat(stats.getLargestBatch()).isBetween(1, batchedIssues);
+        assertThat(stats.getThroughputPerSecond()).isPositive();
+    }
+
+    @Test
+    void partialFitStopsAtTheFirstIssueThatDoesNotFit() throws Exception {
+        jdbcTemplate.update("UPDATE stock SET quantity = 5 WHERE school_id = ? AND item_id = ?", schoolId, itemId);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (Connection blocker = dataSource.getConnection()) {
+            // Holding the balance row keeps the first issue's batch open while the others queue behind it
+            blocker.setAutoCommit(false);
+            try (PreparedStatement lock = blocker.prepareStatement(
+                    "SELECT quantity FROM stock WHERE school_id = ? AND item_id = ? FOR UPDATE")) {
+                lock.setObject(1, schoolId);
+                lock.setObject(2, itemId);
+                lock.executeQuery();
+            }
+            Future<StockIssueResultDTO> first = pool.submit(() -> stockMovementService.issue(request(1)));
+            Thread.sleep(300);
+            List<Future<StockIssueResultDTO>> queued = new ArrayList<>();
+            for (double quantity : new double[]{3, 3, 1}) {
+                queued.add(pool.submit(() -> stockMovementService.issue(request(quantity))));
+                Thread.sleep(100);
+            }
+            blocker.rollback();
+
+            assertThat(first.get(10, TimeUnit.SECONDS).isApplied()).isTrue();
+            List<Boolean> applied = new ArrayList<>();
+            for (Future<StockIssueResultDTO> result : queued) {
+                applied.add(result.get(10, TimeUnit.SECONDS).isApplied());
+            }
+            // 4 left after the first: 3 fits, the second 3 does not, and the 1 behind it waits its turn
+            assertThat(applied).containsExactly(true, false, false);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(1);
+    }
+
+    private boolean issue() {
+        return stockMovementService.issue(request(1)).isApplied();
+    }
+
+    private boolean stockOut() {
+        School school = new School();
+        school.setId(schoolId);
+        Item item = new Item();
+        item.setId(itemId);
+        StockOut stockOut = new StockOut();
+        stockOut.setSchool(school);
+        stockOut.setItem(item);
+        stockOut.setQuantity(1);
+        try {
+            stockOutService.createStockOut(stockOut);
+            return true;
+        } catch (ResponseStatusException refused) {
+            return false;
+        }
+    }
+
+    private StockIssueRequestDTO request(double quantity) {
+        StockIssueRequestDTO request = new StockIssueRequestDTO();
+        request.setSchoolId(schoolId);
+        request.setItemId(itemId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
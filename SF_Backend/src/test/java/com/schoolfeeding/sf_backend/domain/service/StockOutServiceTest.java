@@ -0,0 +1,99 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.entity.Item;
+import com.schoolfeeding.sf_backend.domain.entity.School;
+import com.schoolfeeding.sf_backend.domain.entity.StockOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class StockOutServiceTest {
+
+    @Autowired
+    private StockOutService stockOutService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StockTestData data;
+    private UUID schoolId;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        data = new StockTestData(jdbcTemplate);
+        schoolId = data.school();
+        itemId = data.item();
+        data.balance(schoolId, itemId, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.cleanUp();
+    }
+
+    @Test
+    void stockOutTakesTheQuantityOffTheBalanceAndJournalsIt() {
+        stockOutService.createStockOut(stockOut(4));
+
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(6);
+        assertThat(data.journalled(schoolId, itemId)).isEqualTo(-4);
+    }
+
+    @Test
+    void stockOutTheBalanceCannotCoverIsRefusedWithoutAnyWrite() {
+        assertThatThrownBy(() -> stockOutService.createStockOut(stockOut(11)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(10);
+        assertThat(data.journalled(schoolId, itemId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_out WHERE school_id = ?",
+                Long.class, schoolId)).isZero();
+    }
+
+    @Test
+    void raisingAStockOutPastTheBalanceIsRefused() {
+        StockOut created = stockOutService.createStockOut(stockOut(4));
+
+        assertThatThrownBy(() -> stockOutService.updateStockOut(created.getId(), stockOut(15)))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(data.balanceOf(schoolId, itemId)).isEqualTo(6);
+
+        stockOutService.updateStockOut(created.getId(), stockOut(10));
+        assertThat(data.balanceOf(schoolId, itemId)).isZero();
+    }
+
+    @Test
+    void balanceKeyMigrationIsANoOpOnceApplied() {
+        assertThat(stockLedgerService.migrateBalanceKey().getRowsFixed()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_indexes WHERE tablename = 'stock' " +
+                "AND indexname = 'uk_stock_school_item'", Long.class)).isEqualTo(1);
+    }
+
+    private StockOut stockOut(double quantity) {
+        School school = new School();
+        school.setId(schoolId);
+        Item item = new Item();
+        item.setId(itemId);
+        StockOut stockOut = new StockOut();
+        stockOut.setSchool(school);
+        stockOut.setItem(item);
+        stockOut.setQuantity(quantity);
+        return stockOut;
+    }
+}
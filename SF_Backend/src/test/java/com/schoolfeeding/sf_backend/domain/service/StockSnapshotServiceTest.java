@@ -0,0 +1,159 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.StockHistoryDTO;
+import com.schoolfeeding.sf_backend.util.job.EJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest
+class StockSnapshotServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Chunks the build may write before the database "goes away"
+    private final AtomicInteger chunksBeforeFailure = new AtomicInteger(Integer.MAX_VALUE);
+    private StockSnapshotService service;
+    private StockTestData data;
+    private LocalDate baseline;
+    private LocalDate failedDay;
+    private LocalDate laterDay;
+
+    @BeforeEach
+    void setUp() {
+        baseline = jdbcTemplate.queryForObject(
+                "SELECT MIN(snapshot_date) FROM stock_snapshot_run WHERE state = 'COMPLETED'", LocalDate.class);
+        assumeThat(baseline).isNotNull();
+        failedDay = baseline.plusDays(1);
+        laterDay = baseline.plusDays(2);
+        assumeThat(laterDay).isBeforeOrEqualTo(LocalDate.now());
+        assumeThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_snapshot_run WHERE snapshot_date IN (?, ?) " +
+                "OR (state = 'FAILED' AND snapshot_date < ?)", Integer.class,
+                Date.valueOf(failedDay), Date.valueOf(laterDay), Date.valueOf(failedDay))).isZero();
+
+        JdbcTemplate failing = new JdbcTemplate(dataSource) {
+            @Override
+            public int update(String sql, Object... args) {
+                if (sql.contains("FULL JOIN") && chunksBeforeFailure.getAndDecrement() <= 0) {
+                    throw new IllegalStateException("Connection lost");
+                }
+                return super.update(sql, args);
+            }
+        };
+        service = new StockSnapshotService(failing, transactionManager, 500, 10);
+        data = new StockTestData(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service == null) {
+            return;
+        }
+        service.shutdown();
+        for (LocalDate day : List.of(failedDay, laterDay)) {
+            jdbcTemplate.update("DELETE FROM stock_snapshot WHERE snapshot_date = ?", Date.valueOf(day));
+            jdbcTemplate.update("DELETE FROM stock_snapshot_run WHERE snapshot_date = ?", Date.valueOf(day));
+        }
+        data.cleanUp();
+    }
+
+    @Test
+    void failedBuildIsNeitherReadNorBuiltOnUntilItIsRetried() {
+        UUID school = data.school();
+        UUID item = data.item();
+        data.balance(school, item, 10);
+        jdbcTemplate.update("INSERT INTO stock_ledger_entry (school_id, item_id, quantity, posted_at) VALUES (?, ?, 10, ?)",
+                school, item, Timestamp.valueOf(baseline.atTime(12, 0)));
+
+        // The first chunk goes in, the second fails
+        chunksBeforeFailure.set(1);
+        service.start(failedDay);
+        awaitState(EJobState.FAILED);
+        assertThat(runState(failedDay)).isEqualTo("FAILED");
+        assertThat(service.getStatus().getSchoolsDone()).isEqualTo(500);
+        assertThat(rowsOf(failedDay)).isPositive().isEqualTo(service.getStatus().getRowsWritten());
+
+        StockHistoryDTO balance = service.getBalancesAt(school, item, failedDay).get(0);
+        assertThat(balance.getSnapshotDate()).isEqualTo(baseline);
+        assertThat(balance.getQuantity()).isEqualTo(10);
+
+        // The next day is built on the baseline, not on the half-written day
+        chunksBeforeFailure.set(0);
+        assertThat(service.start(laterDay).getPreviousSnapshotDate()).isEqualTo(baseline);
+        awaitState(EJobState.FAILED);
+
+        chunksBeforeFailure.set(Integer.MAX_VALUE);
+        service.retryFailed();
+        awaitState(EJobState.COMPLETED);
+
+        assertThat(service.getStatus().getSnapshotDate()).isEqualTo(failedDay);
+        assertThat(runState(failedDay)).isEqualTo("COMPLETED");
+        assertThat(rowsOf(failedDay)).isEqualTo(service.getStatus().getRowsWritten());
+        balance = service.getBalancesAt(school, item, failedDay).get(0);
+        assertThat(balance.getSnapshotDate()).isEqualTo(failedDay);
+        assertThat(balance.getQuantity()).isEqualTo(10);
+        assertThat(balance.getPostingsReplayed()).isZero();
+    }
+
+    @Test
+    void liveBuildOnAnotherInstanceIsLeftAloneUntilItsHeartbeatGoesQuiet() {
+        jdbcTemplate.update("INSERT INTO stock_snapshot_run (id, snapshot_date, previous_snapshot_date, state, schools, " +
+                "rows_written, started_at, heartbeat_at) VALUES (?, ?, ?, 'RUNNING', 0, 0, now(), now())",
+                UUID.randomUUID(), Date.valueOf(failedDay), Date.valueOf(baseline));
+
+        // Another node booting or running its retry job must not fail a build that is still renewing its lease
+        service.ensureBaseline();
+        assertThat(runState(failedDay)).isEqualTo("RUNNING");
+        assertThatThrownBy(() -> service.start(failedDay)).isInstanceOf(IllegalStateException.class);
+        assertThat(service.getStatus().getState()).isEqualTo(EJobState.IDLE);
+
+        // The builder died: once the lease runs out the day is failed over and can be built again
+        jdbcTemplate.update("UPDATE stock_snapshot_run SET heartbeat_at = now() - interval '11 minutes' " +
+                "WHERE snapshot_date = ?", Date.valueOf(failedDay));
+        service.ensureBaseline();
+        assertThat(runState(failedDay)).isEqualTo("FAILED");
+        service.start(failedDay);
+        awaitState(EJobState.COMPLETED);
+        assertThat(service.getStatus().getSnapshotDate()).isEqualTo(failedDay);
+        assertThat(runState(failedDay)).isEqualTo("COMPLETED");
+    }
+
+    private void awaitState(EJobState state) {
+        await().atMost(30, TimeUnit.SECONDS).until(() -> service.getStatus().getState() == state);
+    }
+
+    private String runState(LocalDate day) {
+        return jdbcTemplate.queryForObject("SELECT state FROM stock_snapshot_run WHERE snapshot_date = ?",
+                String.class, Date.valueOf(day));
+    }
+
+    private int rowsOf(LocalDate day) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_snapshot WHERE snapshot_date = ?",
+                Integer.class, Date.valueOf(day));
+    }
+}
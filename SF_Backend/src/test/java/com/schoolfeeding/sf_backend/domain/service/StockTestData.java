@@ -0,0 +1,79 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A throwaway school and items with stock rows, written straight to the database for the stock
+ * service tests and removed again with everything posted against them.
+ */
+final class StockTestData {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<UUID> schools = new ArrayList<>();
+    private final List<UUID> items = new ArrayList<>();
+
+    StockTestData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    UUID school() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO school (id, active, is_deleted, school_name, address, bank_account, " +
+                "director_name, email, phone_number, student, number_student) " +
+                "VALUES (?, true, false, 'Stock test', '-', '-', '-', 'stock-test@example.org', '0000', 100, 100)", id);
+        schools.add(id);
+        return id;
+    }
+
+    UUID item() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO item (id, active, is_deleted, item_name, gram_per_student) " +
+                "VALUES (?, true, false, ?, 100)", id, "Stock test " + id);
+        items.add(id);
+        return id;
+    }
+
+    void balance(UUID schoolId, UUID itemId, double quantity) {
+        jdbcTemplate.update("INSERT INTO stock (id, active, is_deleted, school_id, item_id, quantity) " +
+                "VALUES (?, true, false, ?, ?, ?)", UUID.randomUUID(), schoolId, itemId, quantity);
+    }
+
+    UUID lot(UUID schoolId, UUID itemId, double quantity, LocalDate expiry) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO stock_in (id, active, is_deleted, school_id, item_id, quantity, " +
+                        "remaining_quantity, expiration_date) VALUES (?, true, false, ?, ?, ?, ?, ?)",
+                id, schoolId, itemId, quantity, quantity, expiry == null ? null : Date.valueOf(expiry));
+        return id;
+    }
+
+    double balanceOf(UUID schoolId, UUID itemId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM stock WHERE school_id = ? AND item_id = ?",
+                Double.class, schoolId, itemId);
+    }
+
+    double journalled(UUID schoolId, UUID itemId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_ledger_entry " +
+                "WHERE school_id = ? AND item_id = ?", Double.class, schoolId, itemId);
+    }
+
+    void cleanUp() {
+        for (UUID school : schools) {
+            jdbcTemplate.update("DELETE FROM stock_out_lot WHERE stock_out_id IN (SELECT id FROM stock_out WHERE school_id = ?) " +
+                    "OR stock_in_id IN (SELECT id FROM stock_in WHERE school_id = ?)", school, school);
+            for (String table : List.of("stock_out", "stock_in", "stock_ledger_entry", "stock_snapshot",
+                    "stock_write_off", "demand_forecast", "consumption_anomaly", "stock")) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE school_id = ?", school);
+            }
+            jdbcTemplate.update("DELETE FROM school WHERE id = ?", school);
+        }
+        for (UUID item : items) {
+            jdbcTemplate.update("DELETE FROM item WHERE id = ?", item);
+        }
+    }
+}
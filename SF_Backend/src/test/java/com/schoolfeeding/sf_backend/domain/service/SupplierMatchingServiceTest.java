@@ -0,0 +1,73 @@
+package com.schoolfeeding.sf_backend.domain.service;
+
+import com.schoolfeeding.sf_backend.domain.dto.SupplierItemDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierProposalDTO;
+import com.schoolfeeding.sf_backend.domain.dto.SupplierStatDTO;
+import com.schoolfeeding.sf_backend.domain.repository.OrdersRepository;
+import com.schoolfeeding.sf_backend.domain.repository.SupplierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SupplierMatchingServiceTest {
+
+    private final UUID rice = UUID.randomUUID();
+    private final UUID beans = UUID.randomUUID();
+    private final UUID cheap = UUID.randomUUID();
+    private final UUID dear = UUID.randomUUID();
+    private final UUID riceOnly = UUID.randomUUID();
+    private SupplierMatchingService service;
+
+    @BeforeEach
+    void setUp() {
+        SupplierRepository supplierRepository = mock(SupplierRepository.class);
+        OrdersRepository ordersRepository = mock(OrdersRepository.class);
+        when(supplierRepository.findActiveSupplierItems()).thenReturn(List.of(
+                new SupplierItemDTO(cheap, "Cheap", rice), new SupplierItemDTO(cheap, "Cheap", beans),
+                new SupplierItemDTO(dear, "Dear", rice), new SupplierItemDTO(dear, "Dear", beans),
+                new SupplierItemDTO(riceOnly, "Rice only", rice)));
+        when(ordersRepository.averageUnitPriceBySupplierAndItem()).thenReturn(List.of(
+                new SupplierStatDTO(cheap, rice, 1.0, 4), new SupplierStatDTO(dear, rice, 2.0, 4)));
+        when(ordersRepository.countOpenOrdersBySupplier()).thenReturn(List.of(new SupplierStatDTO(dear, 3)));
+
+        service = new SupplierMatchingService(supplierRepository, ordersRepository, mock(RequestItemService.class),
+                0.6, 0.25, 0.15);
+        service.rebuild();
+    }
+
+    @Test
+    void ranksByCoverageThenPriceAndLoad() {
+        List<SupplierProposalDTO> proposals = service.propose(List.of(rice, beans), 3);
+
+        assertThat(proposals).extracting(SupplierProposalDTO::getSupplierId).containsExactly(cheap, dear, riceOnly);
+        assertThat(proposals.get(0).getCoverage()).isEqualTo(1.0);
+        assertThat(proposals.get(0).getAverageUnitPrice()).isEqualTo(1.0);
+        assertThat(proposals.get(1).getOpenOrders()).isEqualTo(3);
+        assertThat(proposals.get(2).getCoverage()).isEqualTo(0.5);
+        assertThat(proposals.get(2).getAverageUnitPrice()).isNull();
+    }
+
+    @Test
+    void limitCutsTheRanking() {
+        assertThat(service.propose(List.of(rice, beans), 1))
+                .extracting(SupplierProposalDTO::getSupplierId).containsExactly(cheap);
+    }
+
+    @Test
+    void rejectsLimitBelowOne() {
+        assertThatThrownBy(() -> service.propose(List.of(rice), 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.propose(List.of(rice), -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unknownItemsProposeNobody() {
+        assertThat(service.propose(List.of(UUID.randomUUID()), 3)).isEmpty();
+    }
+}